@@ -0,0 +1,82 @@
+package com.ssc.bench;
+
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.operator.CsvReaderOperator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to read a generated employee file to the end, across the reader options that change
+ * the parser's work: delimiter, quoting, multi-line fields, typed or string columns and
+ * parallel chunk parsing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvReadBenchmark {
+    @Param("1000000")
+    int rows;
+
+    @Param({"comma", "tab"})
+    String delimiter;
+
+    @Param({"false", "true"})
+    boolean quoteAll;
+
+    @Param({"false", "true"})
+    boolean multiLine;
+
+    @Param({"true", "false"})
+    boolean typed;
+
+    // 0 = one parser per available processor
+    @Param({"1", "0"})
+    int parallelism;
+
+    private ExecutorService pool;
+    private SyntheticData.CsvShape shape;
+    private Path file;
+
+    @Setup
+    public void setup() {
+        shape = new SyntheticData.CsvShape("tab".equals(delimiter) ? '\t' : ',', true, quoteAll, multiLine);
+        file = SyntheticData.employees(SyntheticData.dataDir(), rows, shape);
+        pool = WorkerPool.create();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public long read() {
+        long count = 0;
+        try (CsvReaderOperator reader = new CsvReaderOperator(file, shape.options(),
+            typed ? SyntheticData.EMPLOYEES : null, pool,
+            parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors())) {
+            RowBatch batch;
+            while ((batch = reader.next()) != null) {
+                count += batch.getRowCount();
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,46 @@
+package com.ssc.bench;
+
+import com.ssc.pipeline.engine.sftp.SftpEndpoint;
+import org.apache.sshd.common.file.virtualfs.VirtualFileSystemFactory;
+import org.apache.sshd.common.keyprovider.KeyPairProvider;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.sftp.server.SftpSubsystemFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * An Apache MINA SSHD server on a free localhost port that serves {@code root} over SFTP to one
+ * password account, so the SFTP nodes can be run end to end without an external server.
+ */
+final class EmbeddedSftpServer implements AutoCloseable {
+    static final String USERNAME = "bench";
+    static final String PASSWORD = "bench";
+
+    private final SshServer server;
+
+    EmbeddedSftpServer(Path root) throws IOException {
+        server = SshServer.setUpDefaultServer();
+        server.setHost("127.0.0.1");
+        server.setPort(0);
+        // generated in memory; the benchmark connector opts in to accepting any host key
+        KeyPairProvider hostKeys = new SimpleGeneratorHostKeyProvider();
+        server.setKeyPairProvider(hostKeys);
+        server.setPasswordAuthenticator((username, password, session) ->
+            USERNAME.equals(username) && PASSWORD.equals(password));
+        server.setSubsystemFactories(List.of(new SftpSubsystemFactory()));
+        server.setFileSystemFactory(new VirtualFileSystemFactory(root.toAbsolutePath()));
+        server.start();
+    }
+
+    SftpEndpoint endpoint() {
+        return new SftpEndpoint("127.0.0.1", server.getPort(), USERNAME, PASSWORD, null);
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.stop(true);
+    }
+}
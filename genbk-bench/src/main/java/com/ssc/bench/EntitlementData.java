@@ -0,0 +1,137 @@
+package com.ssc.bench;
+
+import com.ssc.auth.entitlement.constant.RoleType;
+import com.ssc.auth.entitlement.entity.Resource;
+import com.ssc.auth.entitlement.entity.Role;
+import com.ssc.auth.entitlement.entity.User;
+import com.ssc.auth.entitlement.entity.UserGroup;
+import com.ssc.auth.entitlement.entity.UserGroupRole;
+import com.ssc.auth.entitlement.entity.enums.OwnerType;
+import com.ssc.auth.entitlement.entity.enums.ResourceType;
+import com.ssc.auth.entitlement.repository.ResourceRepository;
+import com.ssc.auth.entitlement.repository.RoleRepository;
+import com.ssc.auth.entitlement.repository.UserGroupRepository;
+import com.ssc.auth.entitlement.repository.UserGroupRoleRepository;
+import com.ssc.auth.entitlement.repository.UserRepository;
+import org.springframework.context.ApplicationContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Reproducible users, groups, memberships and pipeline resources, and checks known to pass
+ * against them. Group sizes and resource ownership are skewed the way real tenants are: a few
+ * large groups own most pipelines.
+ */
+final class EntitlementData {
+    /**
+     * A permission check that succeeds.
+     */
+    record Check(Long userId, Long resourceId, String operation) {
+    }
+
+    final List<Check> checks = new ArrayList<>();
+    final List<Long> resourceIds = new ArrayList<>();
+    final List<Long> userIds = new ArrayList<>();
+
+    private EntitlementData() {
+    }
+
+    static EntitlementData seed(ApplicationContext context, int users, int groups, int resources, int checkCount) {
+        SplittableRandom random = new SplittableRandom(SyntheticData.SEED);
+        EntitlementData data = new EntitlementData();
+
+        Map<RoleType, Role> roles = new HashMap<>();
+        for (RoleType type : RoleType.values()) {
+            Role role = new Role();
+            role.setRoleName(type.getValue());
+            roles.put(type, role);
+        }
+        context.getBean(RoleRepository.class).saveAll(roles.values());
+
+        List<User> savedUsers = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            User user = new User();
+            user.setUsername("user" + i);
+            user.setEmail("user" + i + "@example.com");
+            savedUsers.add(user);
+        }
+        context.getBean(UserRepository.class).saveAll(savedUsers);
+        savedUsers.forEach(user -> data.userIds.add(user.getId()));
+
+        List<UserGroup> savedGroups = new ArrayList<>();
+        for (int i = 0; i < groups; i++) {
+            UserGroup group = new UserGroup();
+            group.setGroupName("group" + i);
+            savedGroups.add(group);
+        }
+        context.getBean(UserGroupRepository.class).saveAll(savedGroups);
+
+        // user id -> group id -> role, with every user in one to eight groups
+        Map<Long, Map<Long, RoleType>> memberships = new HashMap<>();
+        List<UserGroupRole> rows = new ArrayList<>();
+        for (User user : savedUsers) {
+            Map<Long, RoleType> userGroups = memberships.computeIfAbsent(user.getId(), id -> new HashMap<>());
+            int count = 1 + random.nextInt(8);
+            while (userGroups.size() < Math.min(count, groups)) {
+                UserGroup group = savedGroups.get(skewed(random, groups));
+                RoleType role = RoleType.values()[random.nextInt(RoleType.values().length)];
+                if (userGroups.putIfAbsent(group.getGroupId(), role) == null) {
+                    UserGroupRole row = new UserGroupRole();
+                    row.setUser(user);
+                    row.setUserGroup(group);
+                    row.setRole(roles.get(role));
+                    rows.add(row);
+                }
+            }
+        }
+        context.getBean(UserGroupRoleRepository.class).saveAll(rows);
+
+        // 70% of pipelines belong to groups, the rest to single users
+        List<Resource> savedResources = new ArrayList<>();
+        for (int i = 0; i < resources; i++) {
+            Resource resource = new Resource();
+            resource.setResourceType(ResourceType.PIPELINE);
+            resource.setResourceId((long) i + 1);
+            if (random.nextInt(10) < 7) {
+                resource.setOwnerType(OwnerType.GROUP);
+                resource.setOwnerId(savedGroups.get(skewed(random, groups)).getGroupId());
+            } else {
+                resource.setOwnerType(OwnerType.USER);
+                resource.setOwnerId(savedUsers.get(random.nextInt(users)).getId());
+            }
+            savedResources.add(resource);
+        }
+        context.getBean(ResourceRepository.class).saveAll(savedResources);
+        savedResources.forEach(resource -> data.resourceIds.add(resource.getId()));
+
+        // checks that pass: owners of user resources viewing them, owners and developers running group pipelines
+        Map<Long, List<Resource>> byGroup = new HashMap<>();
+        for (Resource resource : savedResources) {
+            if (resource.getOwnerType() == OwnerType.GROUP) {
+                byGroup.computeIfAbsent(resource.getOwnerId(), id -> new ArrayList<>()).add(resource);
+            }
+        }
+        while (data.checks.size() < checkCount) {
+            Resource resource = savedResources.get(random.nextInt(resources));
+            if (resource.getOwnerType() == OwnerType.USER) {
+                data.checks.add(new Check(resource.getOwnerId(), resource.getId(), "view"));
+                continue;
+            }
+            Long userId = savedUsers.get(random.nextInt(users)).getId();
+            RoleType role = memberships.get(userId).get(resource.getOwnerId());
+            if (role == RoleType.OWNER || role == RoleType.DEVELOPER) {
+                data.checks.add(new Check(userId, resource.getId(), "run"));
+            }
+        }
+        return data;
+    }
+
+    // index in [0, size) with low indexes far more likely
+    private static int skewed(SplittableRandom random, int size) {
+        return (int) Math.min(size - 1, Math.floor(Math.pow(random.nextDouble(), 3) * size));
+    }
+}
@@ -0,0 +1,75 @@
+package com.ssc.bench;
+
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.expression.ExpressionCompiler;
+import com.ssc.pipeline.engine.expression.VectorExpression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation of compiled expressions over in-memory batches, one expression per construct of
+ * the UI's expression grammar (arithmetic, comparison, CASE, CAST and function calls), plus
+ * the cost of compiling one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpressionBenchmark {
+    @Param("1000000")
+    int rows;
+
+    @Param({
+        "age * 2 + 1",
+        "round(salary / 3.0, 2)",
+        "salary / 12 > 5000",
+        "age > 30 and salary < 100000",
+        "case when age >= 40 then 'senior' when age < 30 then 'junior' else concat('mid-', cast(age as string)) end",
+        "cast(dept as string)",
+        "upper(substring(name, 1, 3))",
+        "contains(note, 'hr')",
+        "coalesce(note, 'none')",
+        "in(dept, 1, 2, 3, 5, 8)",
+        "year(joined)"
+    })
+    String expression;
+
+    private List<RowBatch> batches;
+    private VectorExpression compiled;
+
+    @Setup
+    public void setup() {
+        SyntheticData.CsvShape shape = SyntheticData.CsvShape.DEFAULT;
+        batches = SyntheticData.load(SyntheticData.employees(SyntheticData.dataDir(), rows, shape), shape.options(),
+            SyntheticData.EMPLOYEES);
+        compiled = ExpressionCompiler.compile(expression, SyntheticData.EMPLOYEES);
+    }
+
+    @Benchmark
+    public void evaluate(Blackhole blackhole) {
+        for (RowBatch batch : batches) {
+            blackhole.consume(compiled.evaluate(batch));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public VectorExpression compile() {
+        return ExpressionCompiler.compile(expression, SyntheticData.EMPLOYEES);
+    }
+}
@@ -0,0 +1,52 @@
+package com.ssc.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.graph.PipelineGraph;
+
+import java.nio.file.Path;
+
+/**
+ * Builds pipeline configurations in the UI's reactflow format, so benchmarks reach operators
+ * the way a run does: through {@code PipelineGraph} and {@code OperatorFactory}.
+ */
+final class Graphs {
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ObjectNode root = MAPPER.createObjectNode();
+    private final ArrayNode nodes = root.putArray("nodes");
+    private final ArrayNode edges = root.putArray("edges");
+    private final ObjectNode props = root.putObject("componentsProps");
+
+    ObjectNode node(String id, String group, String name) {
+        ObjectNode node = nodes.addObject().put("id", id);
+        node.putObject("data").put("group", group).put("name", name);
+        return props.putObject(id);
+    }
+
+    /**
+     * A CSVReader node on the file with the given column types.
+     */
+    ObjectNode reader(String id, Path file, Schema schema) {
+        ObjectNode reader = node(id, "source", "CSVReader").put("path", file.toString());
+        ArrayNode columns = reader.putArray("columns");
+        for (int i = 0; i < schema.size(); i++) {
+            columns.addObject().put("name", schema.name(i)).put("dataType", schema.type(i).getValue());
+        }
+        return reader;
+    }
+
+    void edge(String source, String target) {
+        edges.addObject().put("source", source).put("target", target);
+    }
+
+    void edge(String source, String target, String targetHandle) {
+        edges.addObject().put("source", source).put("target", target).put("targetHandle", targetHandle);
+    }
+
+    PipelineGraph build() {
+        return PipelineGraph.parse(root.toString(), MAPPER);
+    }
+}
@@ -0,0 +1,141 @@
+package com.ssc.bench;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.graph.PipelineGraph;
+import com.ssc.pipeline.engine.operator.BatchOperator;
+import com.ssc.pipeline.engine.operator.OperatorFactory;
+import com.ssc.pipeline.engine.spill.SpillOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hash join and aggregation throughput through the operators a run builds, on the generated
+ * employee file. Every benchmark includes reading the file; {@link #scan} is that cost alone,
+ * to subtract. A small memory budget makes the join and group spill.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JoinGroupBenchmark {
+    @Param("1000000")
+    int rows;
+
+    @Param({"256", "4"})
+    int memoryBudgetMb;
+
+    private ExecutorService pool;
+    private Path spillDir;
+    private PipelineGraph graph;
+
+    @Setup
+    public void setup() throws IOException {
+        Path dir = SyntheticData.dataDir();
+        Path employees = SyntheticData.employees(dir, rows, SyntheticData.CsvShape.DEFAULT);
+        Path departments = SyntheticData.departments(dir);
+        spillDir = Files.createTempDirectory("genbk-bench-spill");
+        pool = WorkerPool.create();
+
+        Graphs graphs = new Graphs();
+        graphs.reader("employees", employees, SyntheticData.EMPLOYEES);
+        graphs.reader("departments", departments, SyntheticData.DEPARTMENT_NAMES);
+
+        // every employee finds its department: build side 1000 rows, probe side all employees
+        ObjectNode join = graphs.node("join", "datatransform", "Join").put("join", "inner");
+        join.putArray("conditions").addObject().put("type", "andgroup").putArray("group").addObject()
+            .put("field", "dept").put("operate", "IS_SAME").putArray("value").add("dept");
+        graphs.edge("employees", "join", "left");
+        graphs.edge("departments", "join", "right");
+
+        // employees joined to themselves by id: build and probe both have a row per employee
+        ObjectNode selfJoin = graphs.node("selfJoin", "datatransform", "Join").put("join", "inner");
+        selfJoin.putArray("conditions").addObject().put("type", "andgroup").putArray("group").addObject()
+            .put("field", "id").put("operate", "IS_SAME").putArray("value").add("id");
+        graphs.edge("employees", "selfJoin", "left");
+        graphs.edge("employees", "selfJoin", "right");
+
+        aggregate(graphs.node("groupByDept", "datatransform", "Group"), "dept");
+        graphs.edge("employees", "groupByDept");
+        // about as many groups as rows
+        aggregate(graphs.node("groupByName", "datatransform", "Group"), "name");
+        graphs.edge("employees", "groupByName");
+
+        graph = graphs.build();
+    }
+
+    private static void aggregate(ObjectNode group, String key) {
+        group.putArray("groupBy").add(key);
+        ArrayNode aggregations = group.putArray("aggregations");
+        aggregations.addObject().put("column", "*").put("function", "count");
+        aggregations.addObject().put("column", "salary").put("function", "sum");
+        aggregations.addObject().put("column", "salary").put("function", "avg");
+        aggregations.addObject().put("column", "age").put("function", "max");
+        aggregations.addObject().put("column", "name").put("function", "count_distinct");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pool.shutdownNow();
+        try (var files = Files.walk(spillDir)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long scan() {
+        return drain("employees");
+    }
+
+    @Benchmark
+    public long hashJoin() {
+        return drain("join");
+    }
+
+    @Benchmark
+    public long hashSelfJoin() {
+        return drain("selfJoin");
+    }
+
+    @Benchmark
+    public long groupFewKeys() {
+        return drain("groupByDept");
+    }
+
+    @Benchmark
+    public long groupManyKeys() {
+        return drain("groupByName");
+    }
+
+    private long drain(String nodeId) {
+        OperatorFactory factory = new OperatorFactory(graph,
+            new OperatorFactory.Options(pool, spillDir, new SpillOptions(spillDir, (long) memoryBudgetMb << 20)));
+        long count = 0;
+        try (BatchOperator operator = factory.create(graph.getNode(nodeId))) {
+            RowBatch batch;
+            while ((batch = operator.next()) != null) {
+                count += batch.getRowCount();
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,107 @@
+package com.ssc.bench;
+
+import com.ssc.auth.entitlement.service.EffectivePermissionIndex;
+import com.ssc.auth.entitlement.service.ResourceService;
+import com.ssc.common.config.AuthApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code ResourceService.hasPermission} and its bulk form against the real application context
+ * on an embedded PostgreSQL, seeded by {@link EntitlementData}. With the resource owner cache
+ * off every check reads the resource's owner from the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PermissionBenchmark {
+    private static final int CHECKS = 4096;
+    private static final int BULK_SIZE = 100;
+
+    @Param({"100000", "0"})
+    int ownerCacheEntries;
+
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+    private ResourceService resourceService;
+    private List<EntitlementData.Check> checks;
+    private List<Long> bulkUsers;
+    private List<List<Long>> bulkResources;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+        context = new SpringApplicationBuilder(AuthApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "spring.datasource.username=postgres",
+                "spring.datasource.password=postgres",
+                "spring.jpa.hibernate.ddl-auto=create",
+                "spring.jpa.show-sql=false",
+                "auth.resource-owner-cache.max-entries=" + ownerCacheEntries,
+                "pipeline.engine.materialize.enabled=false")
+            .run();
+        resourceService = context.getBean(ResourceService.class);
+
+        EntitlementData data = EntitlementData.seed(context, 2000, 200, 20000, CHECKS);
+        // the index was loaded at startup, before the seed data existed
+        context.getBean(EffectivePermissionIndex.class).rebuild();
+        checks = data.checks;
+
+        SplittableRandom random = new SplittableRandom(SyntheticData.SEED);
+        bulkUsers = new ArrayList<>();
+        bulkResources = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            bulkUsers.add(data.userIds.get(random.nextInt(data.userIds.size())));
+            List<Long> ids = new ArrayList<>();
+            for (int j = 0; j < BULK_SIZE; j++) {
+                ids.add(data.resourceIds.get(random.nextInt(data.resourceIds.size())));
+            }
+            bulkResources.add(ids);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public boolean hasPermission() {
+        EntitlementData.Check check = checks.get(next++ & (CHECKS - 1));
+        return resourceService.hasPermission(check.userId(), check.resourceId(), check.operation());
+    }
+
+    @Benchmark
+    public Map<Long, Boolean> hasPermissionsBulk() {
+        int i = next++ & (bulkUsers.size() - 1);
+        return resourceService.hasPermissions(bulkUsers.get(i), bulkResources.get(i), "run");
+    }
+}
@@ -0,0 +1,35 @@
+package com.ssc.bench;
+
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.operator.BatchOperator;
+
+import java.util.List;
+
+/**
+ * Hands out batches loaded ahead of time, so a benchmark measures only what consumes them.
+ */
+final class ReplayOperator implements BatchOperator {
+    private final Schema schema;
+    private final List<RowBatch> batches;
+    private int position;
+
+    ReplayOperator(Schema schema, List<RowBatch> batches) {
+        this.schema = schema;
+        this.batches = batches;
+    }
+
+    @Override
+    public Schema schema() {
+        return schema;
+    }
+
+    @Override
+    public RowBatch next() {
+        return position < batches.size() ? batches.get(position++) : null;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,108 @@
+package com.ssc.bench;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.graph.PipelineGraph;
+import com.ssc.pipeline.engine.operator.BatchOperator;
+import com.ssc.pipeline.engine.operator.OperatorFactory;
+import com.ssc.pipeline.engine.sftp.SftpConnector;
+import com.ssc.pipeline.engine.spill.SpillOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The SFTP source and output nodes against {@link EmbeddedSftpServer}: a CSVReader reading an
+ * employee file through an SFTP node, and an SFTP output writing in-memory batches, with one
+ * request at a time against a window of them in flight.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SftpBenchmark {
+    private static final String PROCESS_ID = "bench";
+
+    @Param("1000000")
+    int rows;
+
+    @Param({"1", "16"})
+    int outstandingRequests;
+
+    private ExecutorService pool;
+    private Path outputDir;
+    private EmbeddedSftpServer server;
+    private SftpConnector connector;
+    private List<RowBatch> batches;
+    private OperatorFactory factory;
+    private PipelineGraph graph;
+
+    @Setup
+    public void setup() throws IOException {
+        SyntheticData.CsvShape shape = SyntheticData.CsvShape.DEFAULT;
+        Path file = SyntheticData.employees(SyntheticData.dataDir(), rows, shape);
+        batches = SyntheticData.load(file, shape.options(), SyntheticData.EMPLOYEES);
+        outputDir = Files.createTempDirectory("genbk-bench-sftp");
+        pool = WorkerPool.create();
+        server = new EmbeddedSftpServer(SyntheticData.dataDir());
+        connector = new SftpConnector(processId -> PROCESS_ID.equals(processId) ? server.endpoint() : null,
+            32 << 10, outstandingRequests, 4, Duration.ofMinutes(5), Duration.ofSeconds(30), null, true);
+
+        Graphs graphs = new Graphs();
+        graphs.node("remote", "source", "SFTP").put("processId", PROCESS_ID)
+            .put("path", "/" + file.getFileName());
+        // without a path of its own the reader reads what the SFTP node points at
+        graphs.reader("read", file, SyntheticData.EMPLOYEES).remove("path");
+        graphs.edge("remote", "read");
+        ObjectNode writer = graphs.node("out", "output", "SFTP").put("processId", PROCESS_ID);
+        writer.put("path", "/" + outputDir.getFileName() + "-out.csv");
+        graph = graphs.build();
+        factory = new OperatorFactory(graph,
+            new OperatorFactory.Options(pool, outputDir, new SpillOptions(outputDir, 256L << 20)).withSftp(connector));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        connector.close();
+        server.close();
+        pool.shutdownNow();
+        Files.deleteIfExists(SyntheticData.dataDir().resolve(outputDir.getFileName() + "-out.csv"));
+        Files.deleteIfExists(outputDir);
+    }
+
+    @Benchmark
+    public long read() {
+        long count = 0;
+        try (BatchOperator reader = factory.create(graph.getNode("read"))) {
+            RowBatch batch;
+            while ((batch = reader.next()) != null) {
+                count += batch.getRowCount();
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long write() {
+        return factory.createSink(graph.getNode("out")).write(new ReplayOperator(SyntheticData.EMPLOYEES, batches));
+    }
+}
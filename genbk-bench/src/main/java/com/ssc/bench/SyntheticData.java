@@ -0,0 +1,173 @@
+package com.ssc.bench;
+
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.csv.CsvOptions;
+import com.ssc.pipeline.engine.operator.CsvReaderOperator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Reproducible inputs for the benchmarks. Every generator draws from a {@link SplittableRandom}
+ * seeded with {@link #SEED}, so the same arguments always give byte-identical files and
+ * results from different builds compare like for like. Files are written once per shape and
+ * reused by later forks.
+ */
+public final class SyntheticData {
+    public static final long SEED = 20240229L;
+    public static final int DEPARTMENTS = 1000;
+
+    public static final Schema EMPLOYEES = new Schema(
+        List.of("id", "name", "age", "dept", "salary", "joined", "note"),
+        List.of(DataType.INT, DataType.STRING, DataType.INT, DataType.BIGINT, DataType.DOUBLE, DataType.DATE,
+            DataType.STRING));
+
+    public static final Schema DEPARTMENT_NAMES = new Schema(
+        List.of("dept", "dname"), List.of(DataType.BIGINT, DataType.STRING));
+
+    private static final String[] FIRST_NAMES = {"alice", "bob", "carol", "dave", "erin", "frank", "grace",
+        "heidi", "ivan", "judy", "mallory", "niaj", "olivia", "peggy", "rupert", "sybil", "trent", "victor",
+        "walter", "zoe"};
+    private static final LocalDate EPOCH = LocalDate.of(2000, 1, 1);
+
+    private SyntheticData() {
+    }
+
+    /**
+     * Shape of a generated employee file.
+     *
+     * @param quoteAll  quote every text field instead of only those that need it
+     * @param multiLine let some notes span lines, which only a multi-line reader accepts
+     */
+    public record CsvShape(char delimiter, boolean hasHeader, boolean quoteAll, boolean multiLine) {
+        public static final CsvShape DEFAULT = new CsvShape(',', true, false, false);
+
+        public CsvOptions options() {
+            return new CsvOptions(hasHeader, 0, delimiter, '"', '"', StandardCharsets.UTF_8, multiLine);
+        }
+
+        String fileName(int rows) {
+            return String.format("employees-%d-%d%s%s%s.csv", rows, (int) delimiter, hasHeader ? "-h" : "",
+                quoteAll ? "-q" : "", multiLine ? "-m" : "");
+        }
+    }
+
+    /**
+     * Employees with ids {@code 1..rows}, departments spread over {@link #DEPARTMENTS} values
+     * with a skew toward low numbers, and notes of which some contain the delimiter and quotes.
+     */
+    public static Path employees(Path dir, int rows, CsvShape shape) {
+        Path file = dir.resolve(shape.fileName(rows));
+        if (Files.exists(file)) {
+            return file;
+        }
+        SplittableRandom random = new SplittableRandom(SEED);
+        String separator = String.valueOf(shape.delimiter());
+        write(file, out -> {
+            if (shape.hasHeader()) {
+                out.write(String.join(separator, EMPLOYEES.getNames()));
+                out.write('\n');
+            }
+            for (int id = 1; id <= rows; id++) {
+                String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + ' ' + random.nextInt(10_000);
+                int age = 20 + random.nextInt(46);
+                long dept = (long) Math.floor(Math.pow(random.nextDouble(), 2) * DEPARTMENTS);
+                double salary = Math.round((30_000 + random.nextDouble() * 170_000) * 100) / 100.0;
+                LocalDate joined = EPOCH.plusDays(random.nextInt(9000));
+                String note = note(random, shape);
+                out.write(String.join(separator, String.valueOf(id), text(name, shape), String.valueOf(age),
+                    String.valueOf(dept), String.valueOf(salary), joined.toString(), text(note, shape)));
+                out.write('\n');
+            }
+        });
+        return file;
+    }
+
+    /**
+     * One row per department, the build side of the join benchmarks.
+     */
+    public static Path departments(Path dir) {
+        Path file = dir.resolve("departments-" + DEPARTMENTS + ".csv");
+        if (Files.exists(file)) {
+            return file;
+        }
+        SplittableRandom random = new SplittableRandom(SEED + 1);
+        write(file, out -> {
+            out.write("dept,dname");
+            out.write('\n');
+            for (int dept = 0; dept < DEPARTMENTS; dept++) {
+                out.write(dept + ",dept-" + Long.toString(random.nextLong() & Long.MAX_VALUE, 36));
+                out.write('\n');
+            }
+        });
+        return file;
+    }
+
+    /**
+     * Reads a generated file back into memory, for benchmarks that must not measure parsing.
+     */
+    public static List<RowBatch> load(Path file, CsvOptions options, Schema schema) {
+        List<RowBatch> batches = new ArrayList<>();
+        ExecutorService pool = WorkerPool.create();
+        try (CsvReaderOperator reader = new CsvReaderOperator(file, options, schema, pool, 1)) {
+            RowBatch batch;
+            while ((batch = reader.next()) != null) {
+                batches.add(batch);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return batches;
+    }
+
+    private static String note(SplittableRandom random, CsvShape shape) {
+        return switch (random.nextInt(8)) {
+            case 0 -> "";
+            case 1 -> "transferred, see \"hr-" + random.nextInt(1000) + '"';
+            case 2 -> shape.multiLine() ? "first line\nsecond line" : "two" + shape.delimiter() + "parts";
+            default -> "note " + random.nextInt(100_000);
+        };
+    }
+
+    private static String text(String value, CsvShape shape) {
+        boolean quote = shape.quoteAll() || value.indexOf(shape.delimiter()) >= 0 || value.indexOf('"') >= 0
+            || value.indexOf('\n') >= 0;
+        return quote ? '"' + value.replace("\"", "\"\"") + '"' : value;
+    }
+
+    private interface Content {
+        void writeTo(BufferedWriter out) throws IOException;
+    }
+
+    private static void write(Path file, Content content) {
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                content.writeTo(out);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Directory the generated files live in; {@code -Dbench.data-dir} overrides it.
+     */
+    public static Path dataDir() {
+        return Path.of(System.getProperty("bench.data-dir", System.getProperty("java.io.tmpdir") + "/genbk-bench"));
+    }
+}
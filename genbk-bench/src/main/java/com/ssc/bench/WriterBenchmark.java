@@ -0,0 +1,84 @@
+package com.ssc.bench;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.graph.PipelineGraph;
+import com.ssc.pipeline.engine.operator.OperatorFactory;
+import com.ssc.pipeline.engine.spill.SpillOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for an output node to write in-memory employee batches: CSV plain and compressed, and
+ * Excel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriterBenchmark {
+    @Param("1000000")
+    int rows;
+
+    @Param({"csv", "csv.gz", "xlsx"})
+    String format;
+
+    private ExecutorService pool;
+    private Path outputDir;
+    private List<RowBatch> batches;
+    private OperatorFactory factory;
+    private PipelineGraph graph;
+
+    @Setup
+    public void setup() throws IOException {
+        SyntheticData.CsvShape shape = SyntheticData.CsvShape.DEFAULT;
+        batches = SyntheticData.load(SyntheticData.employees(SyntheticData.dataDir(), rows, shape), shape.options(),
+            SyntheticData.EMPLOYEES);
+        outputDir = Files.createTempDirectory("genbk-bench-out");
+        pool = WorkerPool.create();
+
+        Graphs graphs = new Graphs();
+        ObjectNode writer = "xlsx".equals(format)
+            ? graphs.node("out", "output", "ExcelWriter")
+            : graphs.node("out", "output", "CsvWriter");
+        writer.put("path", outputDir.resolve("out." + format).toString());
+        if ("csv.gz".equals(format)) {
+            writer.put("compression", "gzip");
+        }
+        graph = graphs.build();
+        factory = new OperatorFactory(graph,
+            new OperatorFactory.Options(pool, outputDir, new SpillOptions(outputDir, 256L << 20)));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pool.shutdownNow();
+        try (var files = Files.walk(outputDir)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long write() {
+        return factory.createSink(graph.getNode("out")).write(new ReplayOperator(SyntheticData.EMPLOYEES, batches));
+    }
+}
@@ -7,7 +7,8 @@ public enum OperationType {
     DELETE("delete"),
     PUBLISH("publish"),
     UPDATE("update"),
-    VIEW("view");
+    VIEW("view"),
+    RUN("run");
 
     private final String value;
 
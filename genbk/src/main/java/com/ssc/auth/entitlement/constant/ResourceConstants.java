@@ -14,6 +14,7 @@ public final class ResourceConstants {
     public static final String OPERATION_PUBLISH = "publish";
     public static final String OPERATION_UPDATE = "update";
     public static final String OPERATION_VIEW = "view";
+    public static final String OPERATION_RUN = "run";
 
     // Error messages
     public static final String ERROR_RESOURCE_NOT_FOUND = "Resource not found";
@@ -16,6 +16,7 @@ import com.ssc.auth.entitlement.entity.enums.ResourceType;
 import com.ssc.auth.entitlement.service.ResourceService;
 
 import java.util.List;
+import java.util.Map;
 
 @Tag(name = "Resource Management", description = "APIs for resource management")
 @RestController
@@ -132,4 +133,17 @@ public class ResourceController {
             @Parameter(description = "Resource type (JOB/PIPELINE)") @PathVariable ResourceType resourceType) {
         return ResponseEntity.ok(resourceService.findByType(resourceType));
     }
-} 
\ No newline at end of file
+
+    @Operation(
+        summary = "Check Permissions",
+        description = "Check whether the user may perform the operation on each of the given resources"
+    )
+    @ApiResponse(responseCode = "200", description = "Map of resource ID to whether the operation is allowed")
+    @GetMapping("/permissions")
+    public ResponseEntity<Map<Long, Boolean>> checkPermissions(
+            @Parameter(description = "User ID") @RequestParam Long userId,
+            @Parameter(description = "Resource IDs") @RequestParam List<Long> resourceIds,
+            @Parameter(description = "Operation (view/update/delete/publish/run)") @RequestParam String operation) {
+        return ResponseEntity.ok(resourceService.hasPermissions(userId, resourceIds, operation));
+    }
+}
\ No newline at end of file
@@ -7,14 +7,17 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import com.ssc.auth.entitlement.dto.MembershipImportResult;
 import com.ssc.auth.entitlement.entity.Role;
 import com.ssc.auth.entitlement.entity.User;
 import com.ssc.auth.entitlement.entity.UserGroup;
 import com.ssc.auth.entitlement.service.UserGroupService;
 
+import java.io.InputStream;
 import java.util.List;
 
 @Tag(name = "User Group Management", description = "APIs for user group management")
@@ -47,6 +50,25 @@ public class UserGroupController {
         return ResponseEntity.ok().build();
     }
 
+    @Operation(
+        summary = "Import Memberships",
+        description = "Add many users to groups at once. The body is CSV with a header line or a JSON array of "
+            + "objects; each row names the user (userId or username), the group (groupId or groupName) and the "
+            + "role (roleId or roleName). Invalid rows are skipped and reported. Administrators only."
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Import finished",
+        content = @Content(schema = @Schema(implementation = MembershipImportResult.class))
+    )
+    @PostMapping(value = "/memberships/import", consumes = {"text/csv", "application/json"})
+    public ResponseEntity<MembershipImportResult> importMemberships(
+            @Parameter(description = "Memberships as CSV or JSON") InputStream body,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @Parameter(description = "Operator user ID") @RequestParam Long userId) {
+        return ResponseEntity.ok(userGroupService.importMemberships(body, contentType, userId));
+    }
+
     @Operation(summary = "Remove User from Group", description = "Remove user from specified group")
     @ApiResponse(responseCode = "200", description = "User removed from group successfully")
     @DeleteMapping("/{groupId}/users/{userId}")
@@ -106,4 +128,29 @@ public class UserGroupController {
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
-} 
\ No newline at end of file
+
+    @Operation(
+        summary = "Verify Permission Index",
+        description = "Compare the in-memory effective-permission index with the membership table. "
+            + "Administrators only."
+    )
+    @ApiResponse(responseCode = "200", description = "Differences found, empty if the index is consistent")
+    @GetMapping("/permission-index/verify")
+    public ResponseEntity<List<String>> verifyPermissionIndex(
+            @Parameter(description = "Operator user ID") @RequestParam Long userId) {
+        return ResponseEntity.ok(userGroupService.verifyPermissionIndex(userId));
+    }
+
+    @Operation(
+        summary = "Rebuild Permission Index",
+        description = "Reload the in-memory effective-permission index from the membership table. "
+            + "Administrators only."
+    )
+    @ApiResponse(responseCode = "200", description = "Index rebuilt")
+    @PostMapping("/permission-index/rebuild")
+    public ResponseEntity<Void> rebuildPermissionIndex(
+            @Parameter(description = "Operator user ID") @RequestParam Long userId) {
+        userGroupService.rebuildPermissionIndex(userId);
+        return ResponseEntity.ok().build();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.ssc.auth.entitlement.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk membership import. Rows that fail validation are skipped and described in
+ * {@code errors}, which keeps only the first problems of a very bad file.
+ */
+@Data
+public class MembershipImportResult {
+    private long rows;
+    private long imported;
+    private long skipped;
+    private List<String> errors = new ArrayList<>();
+}
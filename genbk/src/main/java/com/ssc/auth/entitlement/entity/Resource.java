@@ -9,7 +9,9 @@ import lombok.EqualsAndHashCode;
 
 @Data
 @Entity
-@Table(name = "GEN_RESOURCE")
+@Table(name = "GEN_RESOURCE", indexes = {
+    @Index(name = "idx_resource_owner", columnList = "owner_type, owner_id, resource_type, resource_id")
+})
 @EqualsAndHashCode(callSuper = true)
 public class Resource extends BaseEntity {
     @Id
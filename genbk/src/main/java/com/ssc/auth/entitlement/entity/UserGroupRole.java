@@ -6,11 +6,15 @@ import lombok.EqualsAndHashCode;
 
 @Data
 @Entity
-@Table(name = "GEN_USERGROUP_ROLE")
+@Table(name = "GEN_USERGROUP_ROLE", indexes = {
+    @Index(name = "idx_usergroup_role_user", columnList = "user_id, group_id")
+})
 @EqualsAndHashCode(callSuper = true)
 public class UserGroupRole extends BaseEntity {
+    // pooled sequence rather than IDENTITY so inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "usergroup_role_seq")
+    @SequenceGenerator(name = "usergroup_role_seq", sequenceName = "gen_usergroup_role_seq", allocationSize = 100)
     private Long id;
 
     @ManyToOne
@@ -0,0 +1,9 @@
+package com.ssc.auth.entitlement.repository;
+
+/**
+ * Id and name of a user, group or role, for lookups that do not need the whole entity.
+ */
+public interface NamedId {
+    Long getId();
+    String getName();
+}
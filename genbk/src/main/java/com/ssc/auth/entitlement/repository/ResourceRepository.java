@@ -1,15 +1,31 @@
 package com.ssc.auth.entitlement.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.ssc.auth.entitlement.entity.Resource;
 import com.ssc.auth.entitlement.entity.enums.OwnerType;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ResourceRepository extends JpaRepository<Resource, Long> {
     List<Resource> findByOwnerTypeAndOwnerId(OwnerType ownerType, Long ownerId);
     List<Resource> findByResourceTypeAndResourceId(String resourceType, Long resourceId);
-} 
\ No newline at end of file
+
+    /**
+     * Owner of each resource, in one round trip. Ids that do not exist are missing from the result.
+     */
+    @Query("select r.id as resourceId, r.ownerType as ownerType, r.ownerId as ownerId "
+        + "from Resource r where r.id in :resourceIds")
+    List<ResourceOwner> findOwners(@Param("resourceIds") Collection<Long> resourceIds);
+
+    interface ResourceOwner {
+        Long getResourceId();
+        OwnerType getOwnerType();
+        Long getOwnerId();
+    }
+}
@@ -1,13 +1,18 @@
 package com.ssc.auth.entitlement.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.ssc.auth.entitlement.entity.Role;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface RoleRepository extends JpaRepository<Role, Long> {
     Optional<Role> findByRoleName(String roleName);
-} 
\ No newline at end of file
+
+    @Query("select r.roleId as id, r.roleName as name from Role r")
+    List<NamedId> findAllNames();
+}
\ No newline at end of file
@@ -1,14 +1,19 @@
 package com.ssc.auth.entitlement.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.ssc.auth.entitlement.entity.UserGroup;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserGroupRepository extends JpaRepository<UserGroup, Long> {
     Optional<UserGroup> findByGroupName(String groupName);
     boolean existsByGroupName(String groupName);
-} 
\ No newline at end of file
+
+    @Query("select g.groupId as id, g.groupName as name from UserGroup g")
+    List<NamedId> findAllNames();
+}
\ No newline at end of file
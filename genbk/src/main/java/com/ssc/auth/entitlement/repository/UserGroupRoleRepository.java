@@ -1,6 +1,7 @@
 package com.ssc.auth.entitlement.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.ssc.auth.entitlement.entity.User;
@@ -15,4 +16,14 @@ public interface UserGroupRoleRepository extends JpaRepository<UserGroupRole, Lo
     List<UserGroupRole> findByUser(User user);
     List<UserGroupRole> findByUserGroup(UserGroup userGroup);
     Optional<UserGroupRole> findByUserAndUserGroup(User user, UserGroup userGroup);
+
+    @Query("select ugr.user.id as userId, ugr.userGroup.groupId as groupId, ugr.role.roleName as roleName "
+        + "from UserGroupRole ugr")
+    List<Membership> findAllMemberships();
+
+    interface Membership {
+        Long getUserId();
+        Long getGroupId();
+        String getRoleName();
+    }
 } 
\ No newline at end of file
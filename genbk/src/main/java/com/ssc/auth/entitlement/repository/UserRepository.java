@@ -1,14 +1,19 @@
 package com.ssc.auth.entitlement.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.ssc.auth.entitlement.entity.User;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     boolean existsByUsername(String username);
-} 
\ No newline at end of file
+
+    @Query("select u.id as id, u.username as name from User u")
+    List<NamedId> findAllNames();
+}
\ No newline at end of file
@@ -0,0 +1,229 @@
+package com.ssc.auth.entitlement.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.ssc.auth.entitlement.constant.OperationType;
+import com.ssc.auth.entitlement.constant.RoleType;
+import com.ssc.auth.entitlement.entity.enums.OwnerType;
+import com.ssc.auth.entitlement.repository.UserGroupRoleRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory index of every user's effective role on every owner, as a bitmask: {@link #MEMBER}
+ * for any membership plus one bit per {@link RoleType}. A user is the owner of its own user-owned
+ * resources; group roles come from {@code GEN_USERGROUP_ROLE}. The index is loaded before the
+ * application serves requests, kept current by {@link UserGroupService} as memberships change
+ * (once their transaction commits) and can be rebuilt or checked against the table at any time.
+ * Changes made through other instances only reach the table, so the index is also rebuilt from
+ * it every {@code auth.permission-index.refresh-seconds}.
+ */
+@Slf4j
+@Component
+public class EffectivePermissionIndex implements SmartInitializingSingleton, DisposableBean {
+    public static final int MEMBER = 1;
+    private static final int OWNER = roleBit(RoleType.OWNER);
+    private static final int DEVELOPER = roleBit(RoleType.DEVELOPER);
+
+    public record Change(Long userId, Long groupId, String roleName) {
+    }
+
+    private final UserGroupRoleRepository userGroupRoleRepository;
+    private final long refreshSeconds;
+    // user id -> group id -> role mask
+    private volatile Map<Long, Map<Long, Integer>> groupRoles = new ConcurrentHashMap<>();
+    private ScheduledExecutorService refresher;
+
+    public EffectivePermissionIndex(UserGroupRoleRepository userGroupRoleRepository,
+                                    @Value("${auth.permission-index.refresh-seconds:60}") long refreshSeconds) {
+        this.userGroupRoleRepository = userGroupRoleRepository;
+        this.refreshSeconds = refreshSeconds;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+        if (refreshSeconds > 0) {
+            refresher = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "permission-index-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            refresher.scheduleWithFixedDelay(this::refresh, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    private void refresh() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // an exception would cancel the schedule; the next refresh tries again
+            log.warn("Cannot refresh the effective-permission index", e);
+        }
+    }
+
+    /**
+     * Role mask of the user on an owner, {@code 0} if the user has no role on it.
+     */
+    public int roleMask(Long userId, OwnerType ownerType, Long ownerId) {
+        if (ownerType == OwnerType.USER) {
+            return ownerId.equals(userId) ? MEMBER | OWNER : 0;
+        }
+        Map<Long, Integer> groups = groupRoles.get(userId);
+        Integer mask = groups == null ? null : groups.get(ownerId);
+        return mask == null ? 0 : mask;
+    }
+
+    public static boolean isOwner(int roleMask) {
+        return (roleMask & OWNER) != 0;
+    }
+
+    /**
+     * Name of the role in the mask, for messages.
+     */
+    public static String roleName(int roleMask) {
+        for (RoleType role : RoleType.values()) {
+            if ((roleMask & roleBit(role)) != 0) {
+                return role.getValue();
+            }
+        }
+        return (roleMask & MEMBER) != 0 ? "member" : "none";
+    }
+
+    /**
+     * Whether the role lets its holder perform the operation without asking anyone.
+     */
+    public static boolean allows(int roleMask, String operation) {
+        if (isOwner(roleMask)) {
+            return true;
+        }
+        return (roleMask & DEVELOPER) != 0 && (OperationType.UPDATE.getValue().equals(operation)
+            || OperationType.DELETE.getValue().equals(operation)
+            || OperationType.PUBLISH.getValue().equals(operation)
+            || OperationType.RUN.getValue().equals(operation));
+    }
+
+    /**
+     * Whether a group member with this role must get an owner's approval for the operation.
+     */
+    public static boolean needsApproval(int roleMask, String operation) {
+        return !isOwner(roleMask) && (roleMask & DEVELOPER) != 0
+            && (OperationType.DELETE.getValue().equals(operation) || OperationType.PUBLISH.getValue().equals(operation));
+    }
+
+    /**
+     * Records a membership or role change once the current transaction commits.
+     */
+    public void membershipChanged(Long userId, Long groupId, String roleName) {
+        membershipsChanged(List.of(new Change(userId, groupId, roleName)));
+    }
+
+    public void membershipsChanged(List<Change> changes) {
+        afterCommit(() -> changes.forEach(change ->
+            apply(change.userId(), change.groupId(), maskOf(change.roleName()))));
+    }
+
+    public void membershipRemoved(Long userId, Long groupId) {
+        afterCommit(() -> apply(userId, groupId, null));
+    }
+
+    /**
+     * Replaces the index with one loaded from the membership table.
+     */
+    public synchronized void rebuild() {
+        Map<Long, Map<Long, Integer>> loaded = new ConcurrentHashMap<>();
+        load().forEach((userId, groups) -> loaded.put(userId, new ConcurrentHashMap<>(groups)));
+        groupRoles = loaded;
+    }
+
+    /**
+     * Compares the index with the membership table and describes every difference; an empty
+     * list means they agree.
+     */
+    public List<String> verify() {
+        Map<Long, Map<Long, Integer>> expected = load();
+        Map<Long, Map<Long, Integer>> actual = groupRoles;
+        List<String> differences = new ArrayList<>();
+        expected.forEach((userId, groups) -> groups.forEach((groupId, mask) -> {
+            Integer indexed = actual.getOrDefault(userId, Map.of()).get(groupId);
+            if (!mask.equals(indexed)) {
+                differences.add(String.format("user %d in group %d: table %s, index %s", userId, groupId,
+                    Integer.toBinaryString(mask), indexed == null ? "missing" : Integer.toBinaryString(indexed)));
+            }
+        }));
+        actual.forEach((userId, groups) -> groups.forEach((groupId, mask) -> {
+            if (!expected.getOrDefault(userId, Map.of()).containsKey(groupId)) {
+                differences.add(String.format("user %d in group %d: table missing, index %s", userId, groupId,
+                    Integer.toBinaryString(mask)));
+            }
+        }));
+        return differences;
+    }
+
+    private Map<Long, Map<Long, Integer>> load() {
+        Map<Long, Map<Long, Integer>> roles = new HashMap<>();
+        for (UserGroupRoleRepository.Membership membership : userGroupRoleRepository.findAllMemberships()) {
+            roles.computeIfAbsent(membership.getUserId(), userId -> new HashMap<>())
+                .merge(membership.getGroupId(), maskOf(membership.getRoleName()), (a, b) -> a | b);
+        }
+        return roles;
+    }
+
+    private synchronized void apply(Long userId, Long groupId, Integer mask) {
+        if (mask == null) {
+            Map<Long, Integer> groups = groupRoles.get(userId);
+            if (groups != null) {
+                groups.remove(groupId);
+            }
+        } else {
+            groupRoles.computeIfAbsent(userId, id -> new ConcurrentHashMap<>()).put(groupId, mask);
+        }
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    private static int maskOf(String roleName) {
+        for (RoleType role : RoleType.values()) {
+            if (role.getValue().equals(roleName)) {
+                return MEMBER | roleBit(role);
+            }
+        }
+        // a role this code does not know grants nothing beyond membership
+        return MEMBER;
+    }
+
+    private static int roleBit(RoleType role) {
+        return 2 << role.ordinal();
+    }
+}
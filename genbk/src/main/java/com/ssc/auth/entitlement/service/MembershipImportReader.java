@@ -0,0 +1,172 @@
+package com.ssc.auth.entitlement.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.ssc.auth.entitlement.exception.GroupException;
+import com.ssc.common.exception.ErrorCode;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams (user, group, role) rows out of a CSV file with a header line or a JSON array of
+ * objects. Each of the three may be given by id ({@code userId}, {@code groupId},
+ * {@code roleId}) or by name ({@code username}, {@code groupName}, {@code roleName}).
+ */
+abstract class MembershipImportReader implements Closeable {
+    static final String[] FIELDS = {"userId", "username", "groupId", "groupName", "roleId", "roleName"};
+
+    /**
+     * One input row; {@code values} follow {@link #FIELDS} and are {@code null} where absent.
+     */
+    record Row(long line, String[] values) {
+        String value(int field) {
+            return values[field];
+        }
+    }
+
+    static MembershipImportReader open(InputStream input, String contentType, ObjectMapper objectMapper)
+        throws IOException {
+        if (contentType != null && contentType.toLowerCase().contains("json")) {
+            return new Json(objectMapper.createParser(input));
+        }
+        return new Csv(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * The next row, or {@code null} at the end of the input.
+     */
+    abstract Row next() throws IOException;
+
+    static GroupException invalid(String message) {
+        return new GroupException(ErrorCode.MEMBERSHIP_IMPORT_INVALID, message);
+    }
+
+    private static final class Csv extends MembershipImportReader {
+        private final BufferedReader reader;
+        private final int[] columns = new int[FIELDS.length];
+        private long line = 1;
+
+        Csv(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            String header = reader.readLine();
+            if (header == null) {
+                throw invalid("empty input");
+            }
+            List<String> names = split(header.startsWith("\ufeff") ? header.substring(1) : header);
+            for (int i = 0; i < FIELDS.length; i++) {
+                columns[i] = names.indexOf(FIELDS[i]);
+            }
+            for (int i = 0; i < FIELDS.length; i += 2) {
+                if (columns[i] < 0 && columns[i + 1] < 0) {
+                    throw invalid("header has neither " + FIELDS[i] + " nor " + FIELDS[i + 1]);
+                }
+            }
+        }
+
+        @Override
+        Row next() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                line++;
+                if (text == null) {
+                    return null;
+                }
+            } while (text.isBlank());
+            List<String> fields = split(text);
+            String[] values = new String[FIELDS.length];
+            for (int i = 0; i < FIELDS.length; i++) {
+                int column = columns[i];
+                String value = column >= 0 && column < fields.size() ? fields.get(column).trim() : "";
+                values[i] = value.isEmpty() ? null : value;
+            }
+            return new Row(line, values);
+        }
+
+        /**
+         * Splits a line on commas; double quotes enclose fields and {@code ""} inside them is a quote.
+         */
+        private List<String> split(String text) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (quoted) {
+                throw invalid("unterminated quote on line " + line);
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static final class Json extends MembershipImportReader {
+        private final JsonParser parser;
+        private long index;
+
+        Json(JsonParser parser) throws IOException {
+            this.parser = parser;
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw invalid("expected a JSON array");
+            }
+        }
+
+        @Override
+        Row next() throws IOException {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.END_ARRAY || token == null) {
+                return null;
+            }
+            index++;
+            if (token != JsonToken.START_OBJECT) {
+                throw invalid("element " + index + " is not an object");
+            }
+            JsonNode element = parser.readValueAsTree();
+            String[] values = new String[FIELDS.length];
+            for (int i = 0; i < FIELDS.length; i++) {
+                JsonNode value = element.get(FIELDS[i]);
+                String text = value == null || value.isNull() ? "" : value.asText().trim();
+                values[i] = text.isEmpty() ? null : text;
+            }
+            return new Row(index, values);
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+}
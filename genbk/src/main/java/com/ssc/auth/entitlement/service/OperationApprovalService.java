@@ -5,8 +5,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.ssc.auth.entitlement.constant.ApprovalStatus;
-import com.ssc.auth.entitlement.constant.OperationType;
-import com.ssc.auth.entitlement.constant.RoleType;
 import com.ssc.auth.entitlement.entity.*;
 import com.ssc.auth.entitlement.entity.enums.OwnerType;
 import com.ssc.auth.entitlement.exception.ApprovalException;
@@ -25,8 +23,7 @@ public class OperationApprovalService {
     private final OperationApprovalRepository operationApprovalRepository;
     private final ResourceRepository resourceRepository;
     private final UserRepository userRepository;
-    private final UserGroupRepository userGroupRepository;
-    private final UserGroupRoleRepository userGroupRoleRepository;
+    private final EffectivePermissionIndex permissionIndex;
 
     public OperationApproval createApproval(Long resourceId, String operationType, Long requestUserId) {
         Resource resource = resourceRepository.findById(resourceId)
@@ -79,15 +76,16 @@ public class OperationApprovalService {
             ));
 
         if (approval.getResource().getOwnerType() == OwnerType.GROUP) {
-            UserGroupRole approverRole = userGroupRoleRepository.findByUserAndUserGroup(
-                approver,
-                userGroupRepository.getReferenceById(approval.getResource().getOwnerId())
-            ).orElseThrow(() -> new ApprovalException(
-                ErrorCode.APPROVER_NOT_FOUND,
-                approverUserId
-            ));
+            int approverRole = permissionIndex.roleMask(approverUserId, OwnerType.GROUP,
+                approval.getResource().getOwnerId());
+            if (approverRole == 0) {
+                throw new ApprovalException(
+                    ErrorCode.APPROVER_NOT_FOUND,
+                    approverUserId
+                );
+            }
 
-            if (!RoleType.OWNER.getValue().equals(approverRole.getRole().getRoleName())) {
+            if (!EffectivePermissionIndex.isOwner(approverRole)) {
                 throw new ApprovalException(
                     ErrorCode.APPROVAL_NO_PERMISSION,
                     approverUserId
@@ -127,15 +125,16 @@ public class OperationApprovalService {
             ));
 
         if (approval.getResource().getOwnerType() == OwnerType.GROUP) {
-            UserGroupRole approverRole = userGroupRoleRepository.findByUserAndUserGroup(
-                approver,
-                userGroupRepository.getReferenceById(approval.getResource().getOwnerId())
-            ).orElseThrow(() -> new ApprovalException(
-                ErrorCode.APPROVER_NOT_FOUND,
-                approverUserId
-            ));
+            int approverRole = permissionIndex.roleMask(approverUserId, OwnerType.GROUP,
+                approval.getResource().getOwnerId());
+            if (approverRole == 0) {
+                throw new ApprovalException(
+                    ErrorCode.APPROVER_NOT_FOUND,
+                    approverUserId
+                );
+            }
 
-            if (!RoleType.OWNER.getValue().equals(approverRole.getRole().getRoleName())) {
+            if (!EffectivePermissionIndex.isOwner(approverRole)) {
                 throw new ApprovalException(
                     ErrorCode.APPROVAL_NO_PERMISSION,
                     approverUserId
@@ -181,22 +180,14 @@ public class OperationApprovalService {
             return false;
         }
 
-        UserGroupRole userRole = userGroupRoleRepository.findByUserAndUserGroup(
-            userRepository.getReferenceById(userId),
-            userGroupRepository.getReferenceById(resource.getOwnerId())
-        ).orElseThrow(() -> new UserException(
-            ErrorCode.USER_NOT_IN_GROUP,
-            userId
-        ));
-
-        String roleName = userRole.getRole().getRoleName();
-        
-        if (RoleType.OWNER.getValue().equals(roleName)) {
-            return false;
+        int roleMask = permissionIndex.roleMask(userId, OwnerType.GROUP, resource.getOwnerId());
+        if (roleMask == 0) {
+            throw new UserException(
+                ErrorCode.USER_NOT_IN_GROUP,
+                userId
+            );
         }
 
-        return RoleType.DEVELOPER.getValue().equals(roleName) && 
-               (OperationType.DELETE.getValue().equals(operationType) || 
-                OperationType.PUBLISH.getValue().equals(operationType));
+        return EffectivePermissionIndex.needsApproval(roleMask, operationType);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.ssc.auth.entitlement.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.ssc.auth.entitlement.entity.enums.OwnerType;
+
+import java.util.LinkedHashMap;
+
+/**
+ * Bounded, least-recently-used cache of resource owners, the part of a permission check that
+ * {@link EffectivePermissionIndex} does not answer. Entries expire after a fixed time so changes
+ * made by other instances are picked up, and resource changes made here invalidate them at once
+ * and again after their transaction completes. Hits and misses are published as the standard
+ * {@code cache.gets} counters, tagged {@code cache=resourceOwners}.
+ */
+@Component
+public class ResourceOwnerCache {
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long generation;
+    private long hits;
+    private long misses;
+
+    public ResourceOwnerCache(@Value("${auth.resource-owner-cache.max-entries:100000}") int maxEntries,
+                              @Value("${auth.resource-owner-cache.ttl-seconds:60}") long ttlSeconds,
+                              MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        FunctionCounter.builder("cache.gets", this, cache -> cache.count(true))
+            .tags("cache", "resourceOwners", "result", "hit").register(meterRegistry);
+        FunctionCounter.builder("cache.gets", this, cache -> cache.count(false))
+            .tags("cache", "resourceOwners", "result", "miss").register(meterRegistry);
+        Gauge.builder("cache.size", this, ResourceOwnerCache::size)
+            .tags("cache", "resourceOwners").register(meterRegistry);
+    }
+
+    public record Owner(OwnerType ownerType, Long ownerId) {
+    }
+
+    private record Entry(Owner owner, long expiresAt) {
+    }
+
+    public synchronized Owner get(Long resourceId) {
+        Entry entry = entries.get(resourceId);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.expiresAt() - System.nanoTime() < 0) {
+            entries.remove(resourceId);
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.owner();
+    }
+
+    private synchronized double count(boolean hit) {
+        return hit ? hits : misses;
+    }
+
+    private synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Stamp to pass to {@link #put}; taken before the database is read, it keeps a lookup that
+     * raced with an invalidation from caching what it read.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized void put(Long resourceId, Owner owner, long generation) {
+        if (maxEntries <= 0 || generation != this.generation) {
+            return;
+        }
+        entries.put(resourceId, new Entry(owner, System.nanoTime() + ttlNanos));
+        if (entries.size() > maxEntries) {
+            entries.remove(entries.keySet().iterator().next());
+        }
+    }
+
+    public void invalidate(Long resourceId) {
+        remove(resourceId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // readers that ran before the commit may have cached the old state
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    remove(resourceId);
+                }
+            });
+        }
+    }
+
+    private synchronized void remove(Long resourceId) {
+        generation++;
+        entries.remove(resourceId);
+    }
+}
@@ -1,11 +1,12 @@
 package com.ssc.auth.entitlement.service;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.ssc.auth.entitlement.constant.OperationType;
-import com.ssc.auth.entitlement.constant.RoleType;
 import com.ssc.auth.entitlement.entity.*;
 import com.ssc.auth.entitlement.entity.enums.OwnerType;
 import com.ssc.auth.entitlement.entity.enums.ResourceType;
@@ -14,34 +15,44 @@ import com.ssc.auth.entitlement.exception.UserException;
 import com.ssc.auth.entitlement.repository.*;
 import com.ssc.common.exception.ErrorCode;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
-@RequiredArgsConstructor
 @Transactional
 public class ResourceService {
+    // ids per IN list when resolving many resources
+    private static final int LOOKUP_BATCH = 1000;
+
     private final ResourceRepository resourceRepository;
-    private final UserRepository userRepository;
-    private final UserGroupRepository userGroupRepository;
-    private final UserGroupRoleRepository userGroupRoleRepository;
+    private final ResourceOwnerCache resourceOwnerCache;
+    private final EffectivePermissionIndex permissionIndex;
+    private final MeterRegistry meterRegistry;
+    private final Long adminGroupId;
+
+    /**
+     * @param adminGroupId group whose owners administer memberships and the permission index;
+     *                     {@code null} when nobody does
+     */
+    public ResourceService(ResourceRepository resourceRepository,
+                           ResourceOwnerCache resourceOwnerCache,
+                           EffectivePermissionIndex permissionIndex,
+                           MeterRegistry meterRegistry,
+                           @Value("${auth.admin-group-id:#{null}}") Long adminGroupId) {
+        this.resourceRepository = resourceRepository;
+        this.resourceOwnerCache = resourceOwnerCache;
+        this.permissionIndex = permissionIndex;
+        this.meterRegistry = meterRegistry;
+        this.adminGroupId = adminGroupId;
+    }
 
     public Resource createResource(Resource resource, Long userId, Long groupId) {
         if (groupId != null) {
-            UserGroupRole userGroupRole = userGroupRoleRepository.findByUserAndUserGroup(
-                userRepository.getReferenceById(userId),
-                userGroupRepository.getReferenceById(groupId)
-            ).orElseThrow(() -> new UserException(
-                ErrorCode.USER_NOT_IN_GROUP,
-                userId
-            ));
-
-            if (!RoleType.OWNER.getValue().equals(userGroupRole.getRole().getRoleName())) {
-                throw new ResourceException(
-                    ErrorCode.RESOURCE_OWNER_ONLY,
-                    "group resource"
-                );
-            }
+            checkGroupOwner(userId, groupId);
 
             resource.setOwnerType(OwnerType.GROUP);
             resource.setOwnerId(groupId);
@@ -68,22 +79,11 @@ public class ResourceService {
                 );
             }
             resourceRepository.delete(resource);
+            resourceOwnerCache.invalidate(resourceId);
         } else {
-            UserGroupRole userGroupRole = userGroupRoleRepository.findByUserAndUserGroup(
-                userRepository.getReferenceById(userId),
-                userGroupRepository.getReferenceById(resource.getOwnerId())
-            ).orElseThrow(() -> new UserException(
-                ErrorCode.USER_NOT_IN_GROUP,
-                userId
-            ));
-
-            if (!RoleType.OWNER.getValue().equals(userGroupRole.getRole().getRoleName())) {
-                throw new ResourceException(
-                    ErrorCode.RESOURCE_OWNER_ONLY,
-                    "group resource"
-                );
-            }
+            checkGroupOwner(userId, resource.getOwnerId());
             resourceRepository.delete(resource);
+            resourceOwnerCache.invalidate(resourceId);
         }
     }
 
@@ -103,7 +103,8 @@ public class ResourceService {
 
         existingResource.setResourceType(resource.getResourceType());
         existingResource.setResourceId(resource.getResourceId());
-        
+        resourceOwnerCache.invalidate(resource.getId());
+
         return resourceRepository.save(existingResource);
     }
 
@@ -139,14 +140,32 @@ public class ResourceService {
 
     @Transactional(readOnly = true)
     public boolean hasPermission(Long userId, Long resourceId, String operation) {
-        Resource resource = resourceRepository.findById(resourceId)
-            .orElseThrow(() -> new ResourceException(
-                ErrorCode.RESOURCE_NOT_FOUND,
-                resourceId
-            ));
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "denied";
+        try {
+            boolean allowed = checkPermission(userId, resourceId, operation);
+            outcome = "allowed";
+            return allowed;
+        } finally {
+            sample.stop(meterRegistry.timer("auth.permission.check", "operation", operation, "outcome", outcome));
+        }
+    }
 
-        if (resource.getOwnerType() == OwnerType.USER) {
-            if (!resource.getOwnerId().equals(userId)) {
+    private boolean checkPermission(Long userId, Long resourceId, String operation) {
+        ResourceOwnerCache.Owner owner = resourceOwnerCache.get(resourceId);
+        if (owner == null) {
+            owner = loadOwners(List.of(resourceId)).get(resourceId);
+            if (owner == null) {
+                throw new ResourceException(
+                    ErrorCode.RESOURCE_NOT_FOUND,
+                    resourceId
+                );
+            }
+        }
+
+        int roleMask = permissionIndex.roleMask(userId, owner.ownerType(), owner.ownerId());
+        if (owner.ownerType() == OwnerType.USER) {
+            if (roleMask == 0) {
                 throw new ResourceException(
                     ErrorCode.RESOURCE_NO_PERMISSION,
                     "No permission for this operation, resource belongs to another user"
@@ -155,36 +174,93 @@ public class ResourceService {
             return true;
         }
 
-        Optional<UserGroupRole> userGroupRole = userGroupRoleRepository.findByUserAndUserGroup(
-            userRepository.getReferenceById(userId),
-            userGroupRepository.getReferenceById(resource.getOwnerId())
-        );
-
-        if (userGroupRole.isEmpty()) {
+        if (roleMask == 0) {
             throw new UserException(
                 ErrorCode.USER_NOT_IN_GROUP,
                 userId
             );
         }
 
-        String roleName = userGroupRole.get().getRole().getRoleName();
-        
-        if (RoleType.OWNER.getValue().equals(roleName)) {
-            return true;
-        }
-
-        boolean isDeveloper = RoleType.DEVELOPER.getValue().equals(roleName);
-        boolean isAllowedOperation = OperationType.UPDATE.getValue().equals(operation) ||
-                                   OperationType.DELETE.getValue().equals(operation) ||
-                                   OperationType.PUBLISH.getValue().equals(operation);
-
-        if (!isDeveloper || !isAllowedOperation) {
+        if (!EffectivePermissionIndex.allows(roleMask, operation)) {
             throw new ResourceException(
                 ErrorCode.RESOURCE_NO_PERMISSION,
-                String.format("Operation %s not allowed for role %s", operation, roleName)
+                String.format("Operation %s not allowed for role %s", operation,
+                    EffectivePermissionIndex.roleName(roleMask))
             );
         }
 
         return true;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Bulk form of {@link #hasPermission} that reports instead of throwing: every requested id
+     * maps to whether the user may perform the operation on it, and ids of resources that do not
+     * exist map to {@code false}. Owners not in the cache are resolved together.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Boolean> hasPermissions(Long userId, Collection<Long> resourceIds, String operation) {
+        Map<Long, ResourceOwnerCache.Owner> owners = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long resourceId : resourceIds) {
+            ResourceOwnerCache.Owner owner = resourceOwnerCache.get(resourceId);
+            if (owner == null) {
+                missing.add(resourceId);
+            } else {
+                owners.put(resourceId, owner);
+            }
+        }
+        if (!missing.isEmpty()) {
+            owners.putAll(loadOwners(missing));
+        }
+
+        Map<Long, Boolean> permitted = new HashMap<>();
+        for (Long resourceId : resourceIds) {
+            ResourceOwnerCache.Owner owner = owners.get(resourceId);
+            permitted.put(resourceId, owner != null && EffectivePermissionIndex.allows(
+                permissionIndex.roleMask(userId, owner.ownerType(), owner.ownerId()), operation));
+        }
+        return permitted;
+    }
+
+    private Map<Long, ResourceOwnerCache.Owner> loadOwners(List<Long> resourceIds) {
+        long generation = resourceOwnerCache.generation();
+        Map<Long, ResourceOwnerCache.Owner> owners = new HashMap<>();
+        for (int from = 0; from < resourceIds.size(); from += LOOKUP_BATCH) {
+            List<Long> batch = resourceIds.subList(from, Math.min(resourceIds.size(), from + LOOKUP_BATCH));
+            for (ResourceRepository.ResourceOwner row : resourceRepository.findOwners(batch)) {
+                ResourceOwnerCache.Owner owner = new ResourceOwnerCache.Owner(row.getOwnerType(), row.getOwnerId());
+                resourceOwnerCache.put(row.getResourceId(), owner, generation);
+                owners.put(row.getResourceId(), owner);
+            }
+        }
+        return owners;
+    }
+
+    /**
+     * Checks that the user is an administrator, an owner of the {@code auth.admin-group-id}
+     * group. Without an admin group nobody is.
+     */
+    public void checkAdmin(Long userId) {
+        if (userId == null || adminGroupId == null
+            || !EffectivePermissionIndex.isOwner(permissionIndex.roleMask(userId, OwnerType.GROUP, adminGroupId))) {
+            throw new ResourceException(ErrorCode.ADMIN_ONLY);
+        }
+    }
+
+    private void checkGroupOwner(Long userId, Long groupId) {
+        int roleMask = permissionIndex.roleMask(userId, OwnerType.GROUP, groupId);
+        if (roleMask == 0) {
+            throw new UserException(
+                ErrorCode.USER_NOT_IN_GROUP,
+                userId
+            );
+        }
+
+        if (!EffectivePermissionIndex.isOwner(roleMask)) {
+            throw new ResourceException(
+                ErrorCode.RESOURCE_OWNER_ONLY,
+                "group resource"
+            );
+        }
+    }
+}
\ No newline at end of file
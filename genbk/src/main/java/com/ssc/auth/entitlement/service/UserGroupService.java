@@ -1,9 +1,12 @@
 package com.ssc.auth.entitlement.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.ssc.auth.entitlement.dto.MembershipImportResult;
 import com.ssc.auth.entitlement.entity.*;
 import com.ssc.auth.entitlement.exception.GroupException;
 import com.ssc.auth.entitlement.exception.ResourceException;
@@ -11,18 +14,33 @@ import com.ssc.auth.entitlement.exception.UserException;
 import com.ssc.auth.entitlement.repository.*;
 import com.ssc.common.exception.ErrorCode;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class UserGroupService {
+    // rows per JDBC batch; the persistence context is cleared after each
+    private static final int IMPORT_BATCH = 500;
+    private static final int MAX_IMPORT_ERRORS = 1000;
+
     private final UserGroupRepository userGroupRepository;
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final UserGroupRoleRepository userGroupRoleRepository;
+    private final EffectivePermissionIndex permissionIndex;
+    private final ResourceService resourceService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
 
     public UserGroup createGroup(UserGroup userGroup) {
         if (userGroupRepository.existsByGroupName(userGroup.getGroupName())) {
@@ -65,6 +83,7 @@ public class UserGroupService {
         userGroupRole.setUserGroup(group);
         userGroupRole.setRole(role);
         userGroupRoleRepository.save(userGroupRole);
+        permissionIndex.membershipChanged(userId, groupId, role.getRoleName());
     }
 
     public void removeUserFromGroup(Long userId, Long groupId) {
@@ -72,6 +91,7 @@ public class UserGroupService {
             userRepository.getReferenceById(userId),
             userGroupRepository.getReferenceById(groupId)
         ).ifPresent(userGroupRoleRepository::delete);
+        permissionIndex.membershipRemoved(userId, groupId);
     }
 
     public void updateUserRole(Long userId, Long groupId, Long newRoleId) {
@@ -91,6 +111,97 @@ public class UserGroupService {
         
         userGroupRole.setRole(newRole);
         userGroupRoleRepository.save(userGroupRole);
+        permissionIndex.membershipChanged(userId, groupId, newRole.getRoleName());
+    }
+
+    /**
+     * Adds memberships in bulk from a CSV file or JSON array (see {@link MembershipImportReader}).
+     * Users, groups, roles and existing memberships are loaded up front, so rows are validated
+     * without queries; invalid rows and rows for memberships that already exist are skipped and
+     * reported. Valid rows are inserted in JDBC batches in this one transaction. Only an
+     * administrator may import.
+     */
+    public MembershipImportResult importMemberships(InputStream input, String contentType, Long operatorId) {
+        resourceService.checkAdmin(operatorId);
+        Lookup users = new Lookup(userRepository.findAllNames());
+        Lookup groups = new Lookup(userGroupRepository.findAllNames());
+        Lookup roles = new Lookup(roleRepository.findAllNames());
+        Set<List<Long>> members = new HashSet<>();
+        for (UserGroupRoleRepository.Membership membership : userGroupRoleRepository.findAllMemberships()) {
+            members.add(List.of(membership.getUserId(), membership.getGroupId()));
+        }
+
+        MembershipImportResult result = new MembershipImportResult();
+        List<EffectivePermissionIndex.Change> changes = new ArrayList<>();
+        try (MembershipImportReader reader = MembershipImportReader.open(input, contentType, objectMapper)) {
+            MembershipImportReader.Row row;
+            while ((row = reader.next()) != null) {
+                result.setRows(result.getRows() + 1);
+                Long userId = users.resolve(row.value(0), row.value(1));
+                Long groupId = groups.resolve(row.value(2), row.value(3));
+                Long roleId = roles.resolve(row.value(4), row.value(5));
+                String error = userId == null ? "unknown user" : groupId == null ? "unknown group"
+                    : roleId == null ? "unknown role"
+                    : !members.add(List.of(userId, groupId)) ? "user is already in the group" : null;
+                if (error != null) {
+                    result.setSkipped(result.getSkipped() + 1);
+                    if (result.getErrors().size() < MAX_IMPORT_ERRORS) {
+                        result.getErrors().add("row " + row.line() + ": " + error);
+                    }
+                    continue;
+                }
+
+                UserGroupRole userGroupRole = new UserGroupRole();
+                userGroupRole.setUser(userRepository.getReferenceById(userId));
+                userGroupRole.setUserGroup(userGroupRepository.getReferenceById(groupId));
+                userGroupRole.setRole(roleRepository.getReferenceById(roleId));
+                entityManager.persist(userGroupRole);
+                changes.add(new EffectivePermissionIndex.Change(userId, groupId, roles.name(roleId)));
+                if (changes.size() % IMPORT_BATCH == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw MembershipImportReader.invalid(e.getMessage());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        result.setImported(changes.size());
+        permissionIndex.membershipsChanged(changes);
+        return result;
+    }
+
+    /**
+     * Ids and names of one kind of entity; a row may name it either way.
+     */
+    private static final class Lookup {
+        private final Map<String, Long> ids = new HashMap<>();
+        private final Map<Long, String> names = new HashMap<>();
+
+        Lookup(List<NamedId> entries) {
+            for (NamedId entry : entries) {
+                ids.put(entry.getName(), entry.getId());
+                names.put(entry.getId(), entry.getName());
+            }
+        }
+
+        Long resolve(String id, String name) {
+            if (id != null) {
+                try {
+                    Long value = Long.valueOf(id);
+                    return names.containsKey(value) ? value : null;
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+            return name == null ? null : ids.get(name);
+        }
+
+        String name(Long id) {
+            return names.get(id);
+        }
     }
 
     @Transactional(readOnly = true)
@@ -116,4 +227,16 @@ public class UserGroupService {
             userGroupRepository.getReferenceById(groupId)
         ).map(UserGroupRole::getRole);
     }
-} 
\ No newline at end of file
+
+    @Transactional(readOnly = true)
+    public List<String> verifyPermissionIndex(Long operatorId) {
+        resourceService.checkAdmin(operatorId);
+        return permissionIndex.verify();
+    }
+
+    @Transactional(readOnly = true)
+    public void rebuildPermissionIndex(Long operatorId) {
+        resourceService.checkAdmin(operatorId);
+        permissionIndex.rebuild();
+    }
+}
\ No newline at end of file
@@ -6,10 +6,10 @@ import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
 @SpringBootApplication(scanBasePackages = "com.ssc")
-@EntityScan(basePackages = "com.ssc.auth.entitlement.entity")
-@EnableJpaRepositories(basePackages = "com.ssc.auth.entitlement.repository")
+@EntityScan(basePackages = {"com.ssc.auth.entitlement.entity", "com.ssc.pipeline.entity"})
+@EnableJpaRepositories(basePackages = {"com.ssc.auth.entitlement.repository", "com.ssc.pipeline.repository"})
 public class AuthApplication {
     public static void main(String[] args) {
         SpringApplication.run(AuthApplication.class, args);
     }
-} 
\ No newline at end of file
+} 
@@ -0,0 +1,27 @@
+package com.ssc.common.config;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Moves id sequences past the ids already in their tables. {@code GEN_USERGROUP_ROLE} used
+ * IDENTITY ids before it switched to a pooled sequence, and a sequence created next to existing
+ * rows would otherwise hand out ids that are taken. The sequence is never moved backwards.
+ */
+@Configuration
+public class IdSequenceConfig implements SmartInitializingSingleton {
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdSequenceConfig(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        // a pooled block ends at the value the sequence returns, so setting it to the highest id is enough
+        jdbcTemplate.execute("select setval('gen_usergroup_role_seq', greatest("
+            + "(select coalesce(max(id), 0) from gen_usergroup_role), "
+            + "(select last_value from gen_usergroup_role_seq)))");
+    }
+}
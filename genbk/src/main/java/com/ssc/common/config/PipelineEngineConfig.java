@@ -0,0 +1,108 @@
+package com.ssc.common.config;
+
+import com.ssc.pipeline.engine.plan.StatisticsStore;
+import com.ssc.pipeline.engine.sftp.SftpConnector;
+import com.ssc.pipeline.engine.sftp.SftpEndpoint;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class PipelineEngineConfig {
+
+    /**
+     * Bounded pool for pipeline branches. It has no queue on purpose: a branch that cannot get a
+     * worker runs on its caller's thread instead.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService pipelineWorkerPool(@Value("${pipeline.engine.worker-threads:0}") int workerThreads,
+                                              MeterRegistry meterRegistry) {
+        int threads = workerThreads > 0 ? workerThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "pipeline-worker-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        pool.allowCoreThreadTimeOut(true);
+        new ExecutorServiceMetrics(pool, "pipelineWorkerPool", Tags.empty()).bindTo(meterRegistry);
+        return pool;
+    }
+
+    /**
+     * Threads that whole pipeline runs execute on. {@code PipelineRunScheduler} never hands it more
+     * runs than it has threads, so the queue only holds a run for the moment a finishing thread
+     * takes to become free. Each run fans its branches out onto the worker pool, so by default
+     * half the processors run pipelines.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor pipelineRunPool(@Value("${pipeline.scheduler.max-running:0}") int maxRunning,
+                                              MeterRegistry meterRegistry) {
+        int threads = maxRunning > 0 ? maxRunning : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "pipeline-run-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        pool.allowCoreThreadTimeOut(true);
+        new ExecutorServiceMetrics(pool, "pipelineRunPool", Tags.empty()).bindTo(meterRegistry);
+        return pool;
+    }
+
+    /**
+     * SFTP sessions shared by all runs. The server and account of each process ID an SFTP node
+     * may name are configured under {@code pipeline.sftp.process-ids.<id>}.
+     */
+    @Bean(destroyMethod = "close")
+    public SftpConnector sftpConnector(Environment environment,
+                                       @Value("${pipeline.sftp.request-size-kb:32}") int requestSizeKb,
+                                       @Value("${pipeline.sftp.outstanding-requests:16}") int outstandingRequests,
+                                       @Value("${pipeline.sftp.max-idle-sessions:4}") int maxIdleSessions,
+                                       @Value("${pipeline.sftp.idle-timeout-seconds:300}") long idleTimeoutSeconds,
+                                       @Value("${pipeline.sftp.connect-timeout-seconds:30}") long connectTimeoutSeconds,
+                                       @Value("${pipeline.sftp.known-hosts:}") String knownHosts,
+                                       @Value("${pipeline.sftp.accept-any-host-key:false}") boolean acceptAnyHostKey) {
+        return new SftpConnector(processId -> sftpEndpoint(environment, processId), requestSizeKb << 10,
+            outstandingRequests, maxIdleSessions, Duration.ofSeconds(idleTimeoutSeconds),
+            Duration.ofSeconds(connectTimeoutSeconds), knownHosts.isBlank() ? null : Path.of(knownHosts),
+            acceptAnyHostKey);
+    }
+
+    /**
+     * Sampled statistics of source files, which the plan optimizer orders joins and picks hash
+     * join build sides by.
+     */
+    @Bean
+    public StatisticsStore statisticsStore(@Value("${pipeline.engine.statistics.dir}") String directory,
+                                           @Value("${pipeline.engine.statistics.sample-mb:16}") long sampleMb) {
+        return new StatisticsStore(Path.of(directory), sampleMb << 20);
+    }
+
+    private static SftpEndpoint sftpEndpoint(Environment environment, String processId) {
+        String prefix = "pipeline.sftp.process-ids." + processId + ".";
+        String host = environment.getProperty(prefix + "host");
+        if (host == null) {
+            return null;
+        }
+        String privateKey = environment.getProperty(prefix + "private-key");
+        return new SftpEndpoint(host, environment.getProperty(prefix + "port", Integer.class, 22),
+            environment.getProperty(prefix + "username"), environment.getProperty(prefix + "password"),
+            privateKey == null ? null : Path.of(privateKey));
+    }
+}
\ No newline at end of file
@@ -17,6 +17,7 @@ public enum ErrorCode {
     GROUP_NOT_FOUND("3000", "Group not found: %s"),
     GROUP_NAME_EXISTS("3001", "Group name already exists: %s"),
     USER_ALREADY_IN_GROUP("3002", "User already exists in group: %s"),
+    MEMBERSHIP_IMPORT_INVALID("3003", "Invalid membership import: %s"),
     
     // Resource errors (4000-4999)
     RESOURCE_NOT_FOUND("4000", "Resource not found: %s"),
@@ -25,6 +26,7 @@ public enum ErrorCode {
     RESOURCE_UPDATE_DENIED("4003", "No permission to update this resource: %s"),
     RESOURCE_PUBLISH_DENIED("4004", "No permission to publish this resource: %s"),
     RESOURCE_OWNER_ONLY("4005", "Only owner can perform this operation"),
+    ADMIN_ONLY("4006", "Only administrators can perform this operation"),
     
     // Approval errors (5000-5999)
     APPROVAL_NOT_FOUND("5000", "Approval not found: %s"),
@@ -1,6 +1,13 @@
 package com.ssc.pipeline.controller;
 
+import com.ssc.pipeline.dto.PipelinePage;
+import com.ssc.pipeline.engine.PipelinePlan;
+import com.ssc.pipeline.engine.PipelinePreview;
+import com.ssc.pipeline.engine.PipelineRunStats;
 import com.ssc.pipeline.entity.Pipeline;
+import com.ssc.pipeline.entity.PipelineRun;
+import com.ssc.pipeline.entity.PipelineSchedule;
+import com.ssc.pipeline.service.PipelineScheduleService;
 import com.ssc.pipeline.service.PipelineService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -8,14 +15,13 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @Tag(name = "Pipeline Management", description = "APIs for pipeline management")
 @RestController
 @RequestMapping("/api/pipelines")
 @RequiredArgsConstructor
 public class PipelineController {
     private final PipelineService pipelineService;
+    private final PipelineScheduleService pipelineScheduleService;
 
     @Operation(summary = "Create Pipeline")
     @PostMapping
@@ -53,6 +59,83 @@ public class PipelineController {
         return ResponseEntity.ok(pipelineService.publishPipeline(id, userId));
     }
 
+    @Operation(summary = "Run Pipeline", description = "Queues a run; poll it with Get Pipeline Run")
+    @PostMapping("/{id}/run")
+    public ResponseEntity<PipelineRun> runPipeline(
+            @PathVariable Long id,
+            @RequestParam Long userId) {
+        return ResponseEntity.accepted().body(pipelineService.submitRun(id, userId));
+    }
+
+    @Operation(summary = "Schedule Pipeline", description = "Creates or replaces the pipeline's cron schedule "
+        + "(second minute hour day-of-month month day-of-week); it fires only while the pipeline is published")
+    @PutMapping("/{id}/schedule")
+    public ResponseEntity<PipelineSchedule> saveSchedule(
+            @PathVariable Long id,
+            @RequestBody PipelineSchedule schedule,
+            @RequestParam Long userId) {
+        return ResponseEntity.ok(pipelineScheduleService.saveSchedule(id, schedule, userId));
+    }
+
+    @Operation(summary = "Get Pipeline Schedule")
+    @GetMapping("/{id}/schedule")
+    public ResponseEntity<PipelineSchedule> getSchedule(
+            @PathVariable Long id,
+            @RequestParam Long userId) {
+        return ResponseEntity.ok(pipelineScheduleService.getSchedule(id, userId));
+    }
+
+    @Operation(summary = "Delete Pipeline Schedule")
+    @DeleteMapping("/{id}/schedule")
+    public ResponseEntity<Void> deleteSchedule(
+            @PathVariable Long id,
+            @RequestParam Long userId) {
+        pipelineScheduleService.deleteSchedule(id, userId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(summary = "Get Pipeline Run")
+    @GetMapping("/runs/{runId}")
+    public ResponseEntity<PipelineRun> getRun(
+            @PathVariable Long runId,
+            @RequestParam Long userId) {
+        return ResponseEntity.ok(pipelineService.getRun(runId, userId));
+    }
+
+    @Operation(summary = "Get Pipeline Run Stats", description = "Rows, bytes and throughput per node; live while the run executes")
+    @GetMapping("/runs/{runId}/stats")
+    public ResponseEntity<PipelineRunStats> getRunStats(
+            @PathVariable Long runId,
+            @RequestParam Long userId) {
+        return ResponseEntity.ok(pipelineService.getRunStats(runId, userId));
+    }
+
+    @Operation(summary = "Cancel Pipeline Run")
+    @PostMapping("/runs/{runId}/cancel")
+    public ResponseEntity<PipelineRun> cancelRun(
+            @PathVariable Long runId,
+            @RequestParam Long userId) {
+        return ResponseEntity.ok(pipelineService.cancelRun(runId, userId));
+    }
+
+    @Operation(summary = "Preview Node Output")
+    @GetMapping("/{id}/nodes/{nodeId}/preview")
+    public ResponseEntity<PipelinePreview> previewNode(
+            @PathVariable Long id,
+            @PathVariable String nodeId,
+            @RequestParam Long userId,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(pipelineService.previewNode(id, nodeId, userId, limit));
+    }
+
+    @Operation(summary = "Explain Pipeline", description = "The plan a run executes after optimization and the rewrites applied to it")
+    @GetMapping("/{id}/explain")
+    public ResponseEntity<PipelinePlan> explainPipeline(
+            @PathVariable Long id,
+            @RequestParam Long userId) {
+        return ResponseEntity.ok(pipelineService.explainPipeline(id, userId));
+    }
+
     @Operation(summary = "Get Pipeline")
     @GetMapping("/{id}")
     public ResponseEntity<Pipeline> getPipeline(
@@ -61,15 +144,23 @@ public class PipelineController {
         return ResponseEntity.ok(pipelineService.getPipeline(id, userId));
     }
 
-    @Operation(summary = "Get User's Pipelines")
+    @Operation(summary = "Get User's Pipelines", description = "Pipelines the user or one of the user's groups owns, "
+        + "by id; pass the returned nextAfterId as afterId for the next page")
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<Pipeline>> getUserPipelines(@PathVariable Long userId) {
-        return ResponseEntity.ok(pipelineService.getUserPipelines(userId));
+    public ResponseEntity<PipelinePage> getUserPipelines(
+            @PathVariable Long userId,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(pipelineService.getUserPipelines(userId, afterId, size));
     }
 
-    @Operation(summary = "Get Group's Pipelines")
+    @Operation(summary = "Get Group's Pipelines", description = "Pipelines the group owns, by id; pass the returned "
+        + "nextAfterId as afterId for the next page")
     @GetMapping("/group/{groupId}")
-    public ResponseEntity<List<Pipeline>> getGroupPipelines(@PathVariable Long groupId) {
-        return ResponseEntity.ok(pipelineService.getGroupPipelines(groupId));
+    public ResponseEntity<PipelinePage> getGroupPipelines(
+            @PathVariable Long groupId,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(pipelineService.getGroupPipelines(groupId, afterId, size));
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,67 @@
+package com.ssc.pipeline.controller;
+
+import com.ssc.pipeline.entity.PipelineUpload;
+import com.ssc.pipeline.entity.PipelineUploadChunk;
+import com.ssc.pipeline.service.PipelineUploadService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+@Tag(name = "File Upload", description = "Chunked, resumable uploads for the File Uploader source")
+@RestController
+@RequestMapping("/api/upload")
+@RequiredArgsConstructor
+public class UploadController {
+    private final PipelineUploadService pipelineUploadService;
+
+    @Operation(summary = "Start Upload", description = "Allocates the file; send its chunks next")
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<PipelineUpload> createUpload(
+            @RequestBody PipelineUpload upload,
+            @RequestParam Long userId) {
+        return ResponseEntity.ok(pipelineUploadService.createUpload(upload, userId));
+    }
+
+    @Operation(summary = "Get Upload", description = "Lists the chunks stored so far, to resume an upload")
+    @GetMapping("/{id}")
+    public ResponseEntity<PipelineUpload> getUpload(
+            @PathVariable Long id,
+            @RequestParam Long userId) {
+        return ResponseEntity.ok(pipelineUploadService.getUpload(id, userId));
+    }
+
+    @Operation(summary = "Upload Chunk", description = "Raw chunk bytes with their SHA-256 in X-Chunk-Checksum; "
+        + "chunks may be sent in parallel and in any order")
+    @PutMapping(value = "/{id}/chunks/{index}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<PipelineUploadChunk> putChunk(
+            @PathVariable Long id,
+            @PathVariable int index,
+            @RequestHeader("X-Chunk-Checksum") String checksum,
+            @RequestParam Long userId,
+            HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(pipelineUploadService.putChunk(id, index, checksum, request.getInputStream(), userId));
+    }
+
+    @Operation(summary = "Complete Upload", description = "Returns the row count and columns sniffed from the file")
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<PipelineUpload> completeUpload(
+            @PathVariable Long id,
+            @RequestParam Long userId) {
+        return ResponseEntity.ok(pipelineUploadService.completeUpload(id, userId));
+    }
+
+    @Operation(summary = "Delete Upload")
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteUpload(
+            @PathVariable Long id,
+            @RequestParam Long userId) {
+        pipelineUploadService.deleteUpload(id, userId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,15 @@
+package com.ssc.pipeline.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of pipelines ordered by id. {@code nextAfterId} is passed back as {@code afterId}
+ * to fetch the following page and is {@code null} on the last one.
+ */
+@Data
+public class PipelinePage {
+    private final List<PipelineSummary> items;
+    private final Long nextAfterId;
+}
@@ -0,0 +1,24 @@
+package com.ssc.pipeline.dto;
+
+import com.ssc.auth.entitlement.entity.enums.OwnerType;
+import com.ssc.pipeline.entity.enums.PipelineStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * List view of a pipeline: everything but its configuration.
+ */
+@Data
+@AllArgsConstructor
+public class PipelineSummary {
+    private Long id;
+    private String name;
+    private String description;
+    private PipelineStatus status;
+    private OwnerType ownerType;
+    private Long ownerId;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,275 @@
+package com.ssc.pipeline.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.graph.NodeType;
+import com.ssc.pipeline.engine.graph.PipelineGraph;
+import com.ssc.pipeline.engine.graph.PipelineNode;
+import com.ssc.pipeline.engine.materialize.NodeOutputStore;
+import com.ssc.pipeline.engine.operator.BatchOperator;
+import com.ssc.pipeline.engine.operator.LimitOperator;
+import com.ssc.pipeline.engine.operator.OperatorFactory;
+import com.ssc.pipeline.engine.plan.OptimizedPlan;
+import com.ssc.pipeline.engine.plan.PlanOptimizer;
+import com.ssc.pipeline.engine.plan.StatisticsStore;
+import com.ssc.pipeline.engine.sftp.SftpConnector;
+import com.ssc.pipeline.engine.spill.SpillOptions;
+import com.ssc.pipeline.engine.stats.NodeStats;
+import com.ssc.pipeline.engine.stats.RunStats;
+import com.ssc.pipeline.entity.Pipeline;
+import com.ssc.pipeline.exception.PipelineException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes the workflow stored in {@code Pipeline.configuration}. Every output node is an
+ * independent branch and runs on the bounded worker pool; within a branch, operators stream
+ * row batches and multi-input nodes prefetch their inputs in parallel.
+ *
+ * <p>Unless {@code pipeline.engine.optimizer.enabled} is off, the workflow is rewritten by the
+ * {@link PlanOptimizer} before it is built; {@link #explain} shows the result.
+ *
+ * <p>Runs are counted per node in a {@link RunStats}; the totals go to Micrometer when a run
+ * ends, batch latencies as they happen.
+ */
+@Component
+public class PipelineExecutor {
+    private final ObjectMapper objectMapper;
+    private final ExecutorService workerPool;
+    private final Path workDir;
+    private final SpillOptions spill;
+    private final long previewSourceRows;
+    private final PreviewCache previewCache;
+    private final NodeOutputStore outputs;
+    private final MeterRegistry meterRegistry;
+    private final SftpConnector sftp;
+    private final boolean optimize;
+    private final StatisticsStore statistics;
+    private final Map<NodeType, Timer> batchTimers = new ConcurrentHashMap<>();
+
+    public PipelineExecutor(ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry,
+                            @Qualifier("pipelineWorkerPool") ExecutorService workerPool,
+                            SftpConnector sftp,
+                            StatisticsStore statistics,
+                            @Value("${pipeline.engine.work-dir}") String workDir,
+                            @Value("${pipeline.engine.spill-dir}") String spillDir,
+                            @Value("${pipeline.engine.memory-budget-mb:256}") long memoryBudgetMb,
+                            @Value("${pipeline.engine.preview.source-rows:10000}") long previewSourceRows,
+                            @Value("${pipeline.engine.preview.cache-mb:64}") long previewCacheMb,
+                            @Value("${pipeline.engine.materialize.enabled:true}") boolean materialize,
+                            @Value("${pipeline.engine.materialize.dir}") String materializeDir,
+                            @Value("${pipeline.engine.materialize.max-mb:4096}") long materializeMaxMb,
+                            @Value("${pipeline.engine.optimizer.enabled:true}") boolean optimize) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.workerPool = workerPool;
+        this.sftp = sftp;
+        this.workDir = Path.of(workDir);
+        this.spill = new SpillOptions(Path.of(spillDir), memoryBudgetMb << 20);
+        this.previewSourceRows = previewSourceRows;
+        this.previewCache = new PreviewCache(previewCacheMb << 20);
+        this.outputs = materialize ? new NodeOutputStore(Path.of(materializeDir), materializeMaxMb << 20) : null;
+        this.optimize = optimize;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Counters for a run that also feed the per-node batch latency timers.
+     */
+    public RunStats newRunStats() {
+        return new RunStats((type, nanos) -> batchTimer(type).record(nanos, TimeUnit.NANOSECONDS));
+    }
+
+    public PipelineRunResult execute(Pipeline pipeline) {
+        return execute(pipeline, newRunStats());
+    }
+
+    public PipelineRunResult execute(Pipeline pipeline, RunStats stats) {
+        boolean succeeded = false;
+        try {
+            PipelineRunResult result = run(pipeline, stats);
+            succeeded = true;
+            return result;
+        } finally {
+            stats.finish();
+            record(stats, succeeded);
+        }
+    }
+
+    private PipelineRunResult run(Pipeline pipeline, RunStats stats) {
+        PipelineGraph graph = plan(pipeline, Set.of()).graph();
+        List<PipelineNode> sinks = graph.getSinks();
+        if (sinks.isEmpty()) {
+            throw new PipelineException("Pipeline has no output node");
+        }
+
+        PipelineRunResult result = new PipelineRunResult();
+        result.setPipelineId(pipeline.getId());
+        result.setStartTime(LocalDateTime.now());
+
+        OperatorFactory factory = new OperatorFactory(graph, factoryOptions().withOutputs(outputs).withStats(stats));
+        List<Future<PipelineRunResult.OutputResult>> futures = new ArrayList<>();
+        for (PipelineNode sink : sinks) {
+            futures.add(submit(() -> new PipelineRunResult.OutputResult(
+                sink.getId(), sink.getLabel(), factory.createSink(sink).write(factory.createInput(sink)))));
+        }
+
+        try {
+            for (Future<PipelineRunResult.OutputResult> future : futures) {
+                result.getOutputs().add(future.get());
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            Throwable cause = e.getCause();
+            if (cause instanceof PipelineException pipelineException) {
+                throw pipelineException;
+            }
+            throw new PipelineException("Pipeline run failed: " + cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new PipelineException("Pipeline run interrupted", e);
+        }
+
+        result.setReusedNodes(new ArrayList<>(factory.reusedNodes()));
+        result.setEndTime(LocalDateTime.now());
+        return result;
+    }
+
+    /**
+     * Runs only the part of the DAG the node depends on, with every source cut to the first
+     * {@code pipeline.engine.preview.source-rows} rows, and returns the first {@code limit} rows
+     * of the node. An output node previews the rows it would write. Results are cached under the
+     * node's output hash, which covers the upstream nodes' configuration and input files.
+     */
+    public PipelinePreview preview(Pipeline pipeline, String nodeId, int limit) {
+        PipelineGraph graph = plan(pipeline, Set.of(nodeId)).graph();
+        PipelineNode node = graph.getNode(nodeId);
+        OperatorFactory factory = new OperatorFactory(graph, factoryOptions().withSourceRowLimit(previewSourceRows));
+        String hash = factory.outputHash(node);
+        String key = hash == null ? null : limit + "/" + hash;
+        PipelinePreview cached = key == null ? null : previewCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        long size = 0;
+        BatchOperator operator = node.getType().isOutput() ? factory.createInput(node) : factory.create(node);
+        try (BatchOperator limited = new LimitOperator(operator, limit)) {
+            Schema schema = limited.schema();
+            RowBatch batch;
+            while ((batch = limited.next()) != null) {
+                for (int row = 0; row < batch.getRowCount(); row++) {
+                    Map<String, Object> values = new LinkedHashMap<>();
+                    for (int i = 0; i < schema.size(); i++) {
+                        Object value = batch.column(i).getObject(row);
+                        values.put(schema.name(i), value);
+                        size += value instanceof String text ? 48 + 2L * text.length() : 32;
+                    }
+                    rows.add(values);
+                }
+            }
+            List<PipelinePreview.Column> columns = new ArrayList<>();
+            for (int i = 0; i < schema.size(); i++) {
+                columns.add(new PipelinePreview.Column(schema.name(i), schema.type(i).getValue()));
+            }
+            PipelinePreview preview = new PipelinePreview(nodeId, columns, rows);
+            if (key != null) {
+                previewCache.put(key, preview, size);
+            }
+            return preview;
+        }
+    }
+
+    /**
+     * The plan {@link #execute} would run: the nodes after optimization, with the props the
+     * operators are built from, and the rewrites that were applied.
+     */
+    public PipelinePlan explain(Pipeline pipeline) {
+        OptimizedPlan plan = plan(pipeline, Set.of());
+        PipelinePlan explained = new PipelinePlan();
+        explained.setPipelineId(pipeline.getId());
+        explained.setOptimized(optimize);
+        for (PipelineNode node : plan.graph().getNodes()) {
+            PipelinePlan.Node step = new PipelinePlan.Node();
+            step.setId(node.getId());
+            step.setLabel(node.getLabel());
+            step.setType(node.getType().getComponentName());
+            step.setInputs(node.getInputs());
+            step.setProps(node.getProps());
+            step.setEstimatedRows(plan.estimatedRows().get(node.getId()));
+            explained.getNodes().add(step);
+        }
+        explained.getRewrites().addAll(plan.rewrites());
+        return explained;
+    }
+
+    private OperatorFactory.Options factoryOptions() {
+        return new OperatorFactory.Options(workerPool, workDir, spill).withSftp(sftp);
+    }
+
+    // keep: nodes whose own output is used, which the rewrites must leave intact
+    private OptimizedPlan plan(Pipeline pipeline, Set<String> keep) {
+        PipelineGraph graph = PipelineGraph.parse(pipeline.getConfiguration(), objectMapper);
+        if (!optimize) {
+            return new OptimizedPlan(graph, List.of(), Map.of());
+        }
+        OperatorFactory sources = new OperatorFactory(graph, factoryOptions());
+        return new PlanOptimizer(sources::readerColumns, node -> sources.readerStatistics(node, statistics))
+            .optimize(graph, keep);
+    }
+
+    private Timer batchTimer(NodeType type) {
+        return batchTimers.computeIfAbsent(type, key -> Timer.builder("pipeline.node.batch")
+            .description("Time a node takes to produce one row batch, its inputs included")
+            .tag("type", key.getComponentName())
+            .register(meterRegistry));
+    }
+
+    private void record(RunStats stats, boolean succeeded) {
+        meterRegistry.timer("pipeline.run", "outcome", succeeded ? "success" : "failure")
+            .record(stats.elapsedNanos(), TimeUnit.NANOSECONDS);
+        for (NodeStats node : stats.nodes()) {
+            Tags tags = Tags.of("type", node.type().getComponentName());
+            meterRegistry.counter("pipeline.node.rows.in", tags).increment(node.rowsIn());
+            meterRegistry.counter("pipeline.node.rows.out", tags).increment(node.rowsOut());
+            meterRegistry.counter("pipeline.bytes.read", tags).increment(node.bytesRead());
+            meterRegistry.counter("pipeline.bytes.written", tags).increment(node.bytesWritten());
+        }
+        meterRegistry.counter("pipeline.spill.bytes").increment(stats.spilledBytes().sum());
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        try {
+            return workerPool.submit(task);
+        } catch (RejectedExecutionException e) {
+            // pool saturated: run the branch on the calling thread rather than queueing unboundedly
+            FutureTask<T> inline = new FutureTask<>(task);
+            inline.run();
+            return inline;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.ssc.pipeline.engine;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The plan a run executes, after the optimizer rewrote the saved workflow.
+ */
+@Data
+public class PipelinePlan {
+    private Long pipelineId;
+    private boolean optimized;
+    // in execution order: every node after the nodes it reads
+    private List<Node> nodes = new ArrayList<>();
+    private List<String> rewrites = new ArrayList<>();
+
+    @Data
+    public static class Node {
+        private String id;
+        private String label;
+        private String type;
+        private List<String> inputs;
+        private JsonNode props;
+        // null when the node's sources have no statistics
+        private Long estimatedRows;
+    }
+}
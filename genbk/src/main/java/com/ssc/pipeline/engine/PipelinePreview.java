@@ -0,0 +1,22 @@
+package com.ssc.pipeline.engine;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * First rows of a node's output, shaped for the workspace's preview panel.
+ */
+@Data
+public class PipelinePreview {
+    private final String nodeId;
+    private final List<Column> schema;
+    private final List<Map<String, Object>> data;
+
+    @Data
+    public static class Column {
+        private final String name;
+        private final String dataType;
+    }
+}
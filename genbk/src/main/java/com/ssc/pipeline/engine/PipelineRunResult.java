@@ -0,0 +1,24 @@
+package com.ssc.pipeline.engine;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class PipelineRunResult {
+    private Long pipelineId;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private List<OutputResult> outputs = new ArrayList<>();
+    // nodes whose output was read back from an earlier run instead of being recomputed
+    private List<String> reusedNodes = new ArrayList<>();
+
+    @Data
+    public static class OutputResult {
+        private final String nodeId;
+        private final String label;
+        private final long rowsWritten;
+    }
+}
@@ -0,0 +1,34 @@
+package com.ssc.pipeline.engine;
+
+import com.ssc.pipeline.entity.enums.RunStatus;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-node throughput of a run, live while it executes and as recorded once it finished.
+ */
+@Data
+public class PipelineRunStats {
+    private Long runId;
+    private RunStatus status;
+    private long elapsedMillis;
+    private long spilledBytes;
+    private List<NodeStat> nodes = new ArrayList<>();
+
+    @Data
+    public static class NodeStat {
+        private String nodeId;
+        private String label;
+        private String type;
+        private long rowsIn;
+        private long rowsOut;
+        private long batches;
+        private long bytesRead;
+        private long bytesWritten;
+        private double rowsPerSecond;
+        // read back from an earlier run's stored output
+        private boolean reused;
+    }
+}
@@ -0,0 +1,41 @@
+package com.ssc.pipeline.engine;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least-recently-used cache of node previews, bounded by their estimated size in bytes.
+ * Keys hash everything a preview depends on, so an edited node or a changed input file simply
+ * misses and stale entries age out.
+ */
+class PreviewCache {
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    PreviewCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    synchronized PipelinePreview get(String key) {
+        Entry entry = entries.get(key);
+        return entry == null ? null : entry.preview();
+    }
+
+    synchronized void put(String key, PipelinePreview preview, long size) {
+        if (size > maxBytes) {
+            return;
+        }
+        Entry previous = entries.put(key, new Entry(preview, size));
+        bytes += size - (previous == null ? 0 : previous.size());
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().getValue().size();
+            eldest.remove();
+        }
+    }
+
+    private record Entry(PipelinePreview preview, long size) {
+    }
+}
@@ -0,0 +1,66 @@
+package com.ssc.pipeline.engine.batch;
+
+public final class BooleanVector extends ColumnVector {
+    private final boolean[] values;
+
+    public BooleanVector(int capacity) {
+        super(DataType.BOOLEAN, capacity);
+        this.values = new boolean[capacity];
+    }
+
+    public boolean get(int row) {
+        return values[row];
+    }
+
+    public void set(int row, boolean value) {
+        values[row] = value;
+        clearNull(row);
+    }
+
+    public boolean[] values() {
+        return values;
+    }
+
+    @Override
+    public void setText(int row, CharSequence text) {
+        String value = text.toString().trim();
+        if ("true".equalsIgnoreCase(value) || "1".equals(value)) {
+            set(row, true);
+        } else if ("false".equalsIgnoreCase(value) || "0".equals(value)) {
+            set(row, false);
+        } else {
+            throw new IllegalArgumentException("Not a boolean: " + value);
+        }
+    }
+
+    @Override
+    public void appendText(int row, StringBuilder out) {
+        out.append(values[row]);
+    }
+
+    @Override
+    public Object getObject(int row) {
+        return isNull(row) ? null : values[row];
+    }
+
+    @Override
+    public void copyFrom(ColumnVector source, int sourceRow, int row) {
+        values[row] = ((BooleanVector) source).values[sourceRow];
+        copyNull(source, sourceRow, row);
+    }
+
+    @Override
+    public int hash(int row) {
+        return values[row] ? 1231 : 1237;
+    }
+
+    @Override
+    public boolean valueEquals(int row, ColumnVector other, int otherRow) {
+        return values[row] == ((BooleanVector) other).values[otherRow];
+    }
+
+    @Override
+    public int compare(int row, ColumnVector other, int otherRow) {
+        return Boolean.compare(values[row], ((BooleanVector) other).values[otherRow]);
+    }
+}
@@ -0,0 +1,145 @@
+package com.ssc.pipeline.engine.batch;
+
+/**
+ * Fixed-capacity, primitive-backed column of a {@link RowBatch} with a null bitmap.
+ * Values are only boxed through {@link #getObject(int)}, which is meant for previews and
+ * diagnostics, never for the per-row hot path.
+ */
+public abstract class ColumnVector {
+    protected final DataType type;
+    protected final int capacity;
+    private long[] nulls;
+
+    protected ColumnVector(DataType type, int capacity) {
+        this.type = type;
+        this.capacity = capacity;
+    }
+
+    public static ColumnVector allocate(DataType type, int capacity) {
+        return switch (type) {
+            case BOOLEAN -> new BooleanVector(capacity);
+            case INT, DATE -> new IntVector(type, capacity);
+            case BIGINT, TIMESTAMP, DECIMAL -> new LongVector(type, capacity);
+            case DOUBLE -> new DoubleVector(capacity);
+            case STRING -> new StringVector(capacity);
+        };
+    }
+
+    public static ColumnVector nulls(DataType type, int count) {
+        ColumnVector vector = allocate(type, count);
+        for (int row = 0; row < count; row++) {
+            vector.setNull(row);
+        }
+        return vector;
+    }
+
+    public DataType getType() {
+        return type;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isNull(int row) {
+        return nulls != null && (nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    public void setNull(int row) {
+        if (nulls == null) {
+            nulls = new long[(capacity + 63) >>> 6];
+        }
+        nulls[row >>> 6] |= 1L << row;
+    }
+
+    protected void clearNull(int row) {
+        if (nulls != null) {
+            nulls[row >>> 6] &= ~(1L << row);
+        }
+    }
+
+    public boolean mayHaveNulls() {
+        return nulls != null;
+    }
+
+    /**
+     * Approximate heap footprint, used by operators that keep state within a memory budget.
+     */
+    public long sizeInBytes() {
+        int width = switch (type) {
+            case BOOLEAN -> 1;
+            case INT, DATE, STRING -> 4;
+            default -> 8;
+        };
+        return (long) capacity * width + (nulls == null ? 0 : 8L * nulls.length);
+    }
+
+    /**
+     * Marks every row that is null in {@code other} as null here as well, a word at a time.
+     */
+    public void unionNulls(ColumnVector other) {
+        if (other.nulls == null) {
+            return;
+        }
+        if (nulls == null) {
+            nulls = new long[(capacity + 63) >>> 6];
+        }
+        int words = Math.min(nulls.length, other.nulls.length);
+        for (int i = 0; i < words; i++) {
+            nulls[i] |= other.nulls[i];
+        }
+    }
+
+    /**
+     * Parses a non-empty text value into {@code row}.
+     *
+     * @throws IllegalArgumentException if the text is not a valid value of this type
+     */
+    public abstract void setText(int row, CharSequence text);
+
+    /**
+     * Appends the text form of a non-null value.
+     */
+    public abstract void appendText(int row, StringBuilder out);
+
+    public abstract Object getObject(int row);
+
+    /**
+     * Copies one value, including its null flag, from a vector of the same type.
+     */
+    public abstract void copyFrom(ColumnVector source, int sourceRow, int row);
+
+    public abstract int hash(int row);
+
+    public abstract boolean valueEquals(int row, ColumnVector other, int otherRow);
+
+    public abstract int compare(int row, ColumnVector other, int otherRow);
+
+    public String getText(int row) {
+        if (isNull(row)) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder();
+        appendText(row, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Gathers the given rows into a new, densely packed vector.
+     */
+    public ColumnVector gather(int[] rows, int count) {
+        ColumnVector target = allocate(type, Math.max(count, 1));
+        for (int i = 0; i < count; i++) {
+            target.copyFrom(this, rows[i], i);
+        }
+        return target;
+    }
+
+    protected void copyNull(ColumnVector source, int sourceRow, int row) {
+        if (source.isNull(sourceRow)) {
+            setNull(row);
+        } else {
+            clearNull(row);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.ssc.pipeline.engine.batch;
+
+/**
+ * Column types of the engine. The names match the {@code DataType} rule of the UI's
+ * expression-grammar.pegjs; BOOLEAN is internal and carries predicate results.
+ */
+public enum DataType {
+    BOOLEAN("boolean"),
+    INT("int"),
+    BIGINT("bigint"),
+    DOUBLE("double"),
+    DECIMAL("decimal"),
+    DATE("date"),
+    TIMESTAMP("timestamp"),
+    STRING("string");
+
+    /**
+     * Decimals are stored as unscaled longs with this fixed scale.
+     */
+    public static final int DECIMAL_SCALE = 6;
+
+    private final String value;
+
+    DataType(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public boolean isNumeric() {
+        return this == INT || this == BIGINT || this == DOUBLE || this == DECIMAL;
+    }
+
+    public boolean isTemporal() {
+        return this == DATE || this == TIMESTAMP;
+    }
+
+    public static DataType fromString(String value) {
+        if (value == null || value.isBlank()) {
+            return STRING;
+        }
+        String normalized = value.trim().toLowerCase();
+        switch (normalized) {
+            case "float", "number" -> {
+                return DOUBLE;
+            }
+            case "integer" -> {
+                return INT;
+            }
+            case "long" -> {
+                return BIGINT;
+            }
+            case "text" -> {
+                return STRING;
+            }
+            default -> {
+                for (DataType type : DataType.values()) {
+                    if (type.value.equals(normalized)) {
+                        return type;
+                    }
+                }
+                throw new IllegalArgumentException("Unknown data type: " + value);
+            }
+        }
+    }
+}
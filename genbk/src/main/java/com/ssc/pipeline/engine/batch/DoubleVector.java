@@ -0,0 +1,64 @@
+package com.ssc.pipeline.engine.batch;
+
+public final class DoubleVector extends ColumnVector {
+    private final double[] values;
+
+    public DoubleVector(int capacity) {
+        super(DataType.DOUBLE, capacity);
+        this.values = new double[capacity];
+    }
+
+    public double get(int row) {
+        return values[row];
+    }
+
+    public void set(int row, double value) {
+        values[row] = value;
+        clearNull(row);
+    }
+
+    public double[] values() {
+        return values;
+    }
+
+    @Override
+    public void setText(int row, CharSequence text) {
+        set(row, TextCodec.parseDouble(text));
+    }
+
+    @Override
+    public void appendText(int row, StringBuilder out) {
+        double value = values[row];
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+    }
+
+    @Override
+    public Object getObject(int row) {
+        return isNull(row) ? null : values[row];
+    }
+
+    @Override
+    public void copyFrom(ColumnVector source, int sourceRow, int row) {
+        values[row] = ((DoubleVector) source).values[sourceRow];
+        copyNull(source, sourceRow, row);
+    }
+
+    @Override
+    public int hash(int row) {
+        return Double.hashCode(values[row]);
+    }
+
+    @Override
+    public boolean valueEquals(int row, ColumnVector other, int otherRow) {
+        return Double.compare(values[row], ((DoubleVector) other).values[otherRow]) == 0;
+    }
+
+    @Override
+    public int compare(int row, ColumnVector other, int otherRow) {
+        return Double.compare(values[row], ((DoubleVector) other).values[otherRow]);
+    }
+}
@@ -0,0 +1,73 @@
+package com.ssc.pipeline.engine.batch;
+
+/**
+ * INT values, and DATE values as days since the epoch.
+ */
+public final class IntVector extends ColumnVector {
+    private final int[] values;
+
+    public IntVector(DataType type, int capacity) {
+        super(type, capacity);
+        this.values = new int[capacity];
+    }
+
+    public int get(int row) {
+        return values[row];
+    }
+
+    public void set(int row, int value) {
+        values[row] = value;
+        clearNull(row);
+    }
+
+    public int[] values() {
+        return values;
+    }
+
+    @Override
+    public void setText(int row, CharSequence text) {
+        if (type == DataType.DATE) {
+            set(row, TextCodec.parseDate(text));
+        } else {
+            set(row, TextCodec.parseInt(text));
+        }
+    }
+
+    @Override
+    public void appendText(int row, StringBuilder out) {
+        if (type == DataType.DATE) {
+            TextCodec.appendDate(values[row], out);
+        } else {
+            out.append(values[row]);
+        }
+    }
+
+    @Override
+    public Object getObject(int row) {
+        if (isNull(row)) {
+            return null;
+        }
+        return type == DataType.DATE ? TextCodec.toLocalDate(values[row]) : (Object) values[row];
+    }
+
+    @Override
+    public void copyFrom(ColumnVector source, int sourceRow, int row) {
+        values[row] = ((IntVector) source).values[sourceRow];
+        copyNull(source, sourceRow, row);
+    }
+
+    @Override
+    public int hash(int row) {
+        return Integer.hashCode(values[row]);
+    }
+
+    @Override
+    public boolean valueEquals(int row, ColumnVector other, int otherRow) {
+        return values[row] == ((IntVector) other).values[otherRow];
+    }
+
+    @Override
+    public int compare(int row, ColumnVector other, int otherRow) {
+        return Integer.compare(values[row], ((IntVector) other).values[otherRow]);
+    }
+}
@@ -0,0 +1,78 @@
+package com.ssc.pipeline.engine.batch;
+
+/**
+ * BIGINT values, TIMESTAMP values as epoch milliseconds, and DECIMAL values unscaled
+ * by {@link DataType#DECIMAL_SCALE}.
+ */
+public final class LongVector extends ColumnVector {
+    private final long[] values;
+
+    public LongVector(DataType type, int capacity) {
+        super(type, capacity);
+        this.values = new long[capacity];
+    }
+
+    public long get(int row) {
+        return values[row];
+    }
+
+    public void set(int row, long value) {
+        values[row] = value;
+        clearNull(row);
+    }
+
+    public long[] values() {
+        return values;
+    }
+
+    @Override
+    public void setText(int row, CharSequence text) {
+        switch (type) {
+            case TIMESTAMP -> set(row, TextCodec.parseTimestamp(text));
+            case DECIMAL -> set(row, TextCodec.parseDecimal(text));
+            default -> set(row, TextCodec.parseLong(text));
+        }
+    }
+
+    @Override
+    public void appendText(int row, StringBuilder out) {
+        switch (type) {
+            case TIMESTAMP -> TextCodec.appendTimestamp(values[row], out);
+            case DECIMAL -> TextCodec.appendDecimal(values[row], out);
+            default -> out.append(values[row]);
+        }
+    }
+
+    @Override
+    public Object getObject(int row) {
+        if (isNull(row)) {
+            return null;
+        }
+        return switch (type) {
+            case TIMESTAMP -> TextCodec.toLocalDateTime(values[row]);
+            case DECIMAL -> TextCodec.toBigDecimal(values[row]);
+            default -> values[row];
+        };
+    }
+
+    @Override
+    public void copyFrom(ColumnVector source, int sourceRow, int row) {
+        values[row] = ((LongVector) source).values[sourceRow];
+        copyNull(source, sourceRow, row);
+    }
+
+    @Override
+    public int hash(int row) {
+        return Long.hashCode(values[row]);
+    }
+
+    @Override
+    public boolean valueEquals(int row, ColumnVector other, int otherRow) {
+        return values[row] == ((LongVector) other).values[otherRow];
+    }
+
+    @Override
+    public int compare(int row, ColumnVector other, int otherRow) {
+        return Long.compare(values[row], ((LongVector) other).values[otherRow]);
+    }
+}
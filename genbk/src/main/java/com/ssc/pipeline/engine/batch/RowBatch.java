@@ -0,0 +1,109 @@
+package com.ssc.pipeline.engine.batch;
+
+/**
+ * Columnar batch of rows flowing between operators: one primitive-backed {@link ColumnVector}
+ * per schema column plus a row count. Operators never box values on the hot path.
+ */
+public final class RowBatch {
+    public static final int DEFAULT_SIZE = 4096;
+
+    private final Schema schema;
+    private final ColumnVector[] columns;
+    private int rowCount;
+
+    public RowBatch(Schema schema, ColumnVector[] columns, int rowCount) {
+        if (schema.size() != columns.length) {
+            throw new IllegalArgumentException("Schema has " + schema.size() + " columns but got " + columns.length);
+        }
+        this.schema = schema;
+        this.columns = columns;
+        this.rowCount = rowCount;
+    }
+
+    public static RowBatch allocate(Schema schema) {
+        return allocate(schema, DEFAULT_SIZE);
+    }
+
+    public static RowBatch allocate(Schema schema, int capacity) {
+        ColumnVector[] columns = new ColumnVector[schema.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = ColumnVector.allocate(schema.type(i), capacity);
+        }
+        return new RowBatch(schema, columns, 0);
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    public ColumnVector column(int index) {
+        return columns[index];
+    }
+
+    public ColumnVector[] columns() {
+        return columns;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public int capacity() {
+        return columns.length == 0 ? DEFAULT_SIZE : columns[0].capacity();
+    }
+
+    public boolean isEmpty() {
+        return rowCount == 0;
+    }
+
+    public boolean isFull() {
+        return rowCount >= capacity();
+    }
+
+    /**
+     * Copies row {@code sourceRow} of {@code source} (same schema) to the end of this batch.
+     */
+    public void appendRow(RowBatch source, int sourceRow) {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].copyFrom(source.columns[i], sourceRow, rowCount);
+        }
+        rowCount++;
+    }
+
+    /**
+     * Keeps only the given rows; string columns keep sharing their dictionary.
+     */
+    public RowBatch select(int[] rows, int count) {
+        if (count == rowCount) {
+            return this;
+        }
+        ColumnVector[] selected = new ColumnVector[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            selected[i] = columns[i].gather(rows, count);
+        }
+        return new RowBatch(schema, selected, count);
+    }
+
+    /**
+     * Reorders or drops columns without copying any values.
+     */
+    public RowBatch project(int[] indexes, Schema projected) {
+        ColumnVector[] selected = new ColumnVector[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            selected[i] = columns[indexes[i]];
+        }
+        return new RowBatch(projected, selected, rowCount);
+    }
+
+    public Object[] getRow(int row) {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columns[i].getObject(row);
+        }
+        return values;
+    }
+}
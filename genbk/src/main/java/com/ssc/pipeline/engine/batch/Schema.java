@@ -0,0 +1,88 @@
+package com.ssc.pipeline.engine.batch;
+
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public final class Schema {
+    private final List<String> names;
+    private final List<DataType> types;
+
+    public Schema(List<String> names, List<DataType> types) {
+        if (names.size() != types.size()) {
+            throw new IllegalArgumentException("Column names and types differ in length");
+        }
+        this.names = List.copyOf(names);
+        this.types = List.copyOf(types);
+    }
+
+    public static Schema ofStrings(List<String> names) {
+        return new Schema(names, Collections.nCopies(names.size(), DataType.STRING));
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public String name(int column) {
+        return names.get(column);
+    }
+
+    public DataType type(int column) {
+        return types.get(column);
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    public List<DataType> getTypes() {
+        return types;
+    }
+
+    public int indexOf(String name) {
+        int index = names.indexOf(name);
+        if (index < 0) {
+            throw new PipelineException("Unknown column: " + name);
+        }
+        return index;
+    }
+
+    public boolean contains(String name) {
+        return names.contains(name);
+    }
+
+    public Schema project(int[] columns) {
+        List<String> projectedNames = new ArrayList<>(columns.length);
+        List<DataType> projectedTypes = new ArrayList<>(columns.length);
+        for (int column : columns) {
+            projectedNames.add(names.get(column));
+            projectedTypes.add(types.get(column));
+        }
+        return new Schema(projectedNames, projectedTypes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Schema other && names.equals(other.names) && types.equals(other.types);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * names.hashCode() + types.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("(");
+        for (int i = 0; i < names.size(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(names.get(i)).append(' ').append(types.get(i).getValue());
+        }
+        return builder.append(')').toString();
+    }
+}
@@ -0,0 +1,102 @@
+package com.ssc.pipeline.engine.batch;
+
+import java.util.Arrays;
+
+/**
+ * Append-only dictionary of distinct strings. Lookups hash the characters directly, so a
+ * repeated value costs no allocation; a {@link String} is only created for a new entry.
+ */
+public final class StringDictionary {
+    private String[] values = new String[64];
+    private int[] hashes = new int[64];
+    private int[] slots = new int[128];
+    private int size;
+    private long valueBytes;
+
+    public int size() {
+        return size;
+    }
+
+    public long sizeInBytes() {
+        return valueBytes + 8L * values.length + 4L * slots.length;
+    }
+
+    public String get(int code) {
+        return values[code];
+    }
+
+    public int hash(int code) {
+        return hashes[code];
+    }
+
+    public int encode(CharSequence text) {
+        return encode(text, 0, text.length());
+    }
+
+    public int encode(CharSequence text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        while (true) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                break;
+            }
+            int code = entry - 1;
+            if (hashes[code] == hash && contentEquals(values[code], text, start, end)) {
+                return code;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int code = add(text.subSequence(start, end).toString(), hash);
+        slots[slot] = code + 1;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return code;
+    }
+
+    private int add(String value, int hash) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        values[size] = value;
+        // String header plus a Latin-1 backing array
+        valueBytes += 40 + value.length();
+        hashes[size] = hash;
+        return size++;
+    }
+
+    private void rehash() {
+        int[] rehashed = new int[slots.length * 2];
+        int mask = rehashed.length - 1;
+        for (int code = 0; code < size; code++) {
+            int slot = mix(hashes[code]) & mask;
+            while (rehashed[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            rehashed[slot] = code + 1;
+        }
+        slots = rehashed;
+    }
+
+    private static boolean contentEquals(String value, CharSequence text, int start, int end) {
+        if (value.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) != text.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,118 @@
+package com.ssc.pipeline.engine.batch;
+
+/**
+ * Dictionary-encoded strings: each row holds a code into a dictionary that may be shared by
+ * vectors derived from the same batch (projections, filters).
+ */
+public final class StringVector extends ColumnVector {
+    private final int[] codes;
+    private final StringDictionary dictionary;
+
+    public StringVector(int capacity) {
+        this(capacity, new StringDictionary());
+    }
+
+    public StringVector(int capacity, StringDictionary dictionary) {
+        super(DataType.STRING, capacity);
+        this.codes = new int[capacity];
+        this.dictionary = dictionary;
+    }
+
+    public String get(int row) {
+        return dictionary.get(codes[row]);
+    }
+
+    public int code(int row) {
+        return codes[row];
+    }
+
+    public int[] codes() {
+        return codes;
+    }
+
+    public StringDictionary dictionary() {
+        return dictionary;
+    }
+
+    public void set(int row, CharSequence value) {
+        codes[row] = dictionary.encode(value);
+        clearNull(row);
+    }
+
+    public void set(int row, CharSequence value, int start, int end) {
+        codes[row] = dictionary.encode(value, start, end);
+        clearNull(row);
+    }
+
+    public void setCode(int row, int code) {
+        codes[row] = code;
+        clearNull(row);
+    }
+
+    @Override
+    public void setText(int row, CharSequence text) {
+        set(row, text);
+    }
+
+    @Override
+    public void appendText(int row, StringBuilder out) {
+        out.append(get(row));
+    }
+
+    @Override
+    public Object getObject(int row) {
+        return isNull(row) ? null : get(row);
+    }
+
+    @Override
+    public void copyFrom(ColumnVector source, int sourceRow, int row) {
+        StringVector other = (StringVector) source;
+        if (other.isNull(sourceRow)) {
+            setNull(row);
+        } else if (other.dictionary == dictionary) {
+            setCode(row, other.codes[sourceRow]);
+        } else {
+            set(row, other.get(sourceRow));
+        }
+    }
+
+    @Override
+    public ColumnVector gather(int[] rows, int count) {
+        StringVector target = new StringVector(Math.max(count, 1), dictionary);
+        for (int i = 0; i < count; i++) {
+            target.copyFrom(this, rows[i], i);
+        }
+        return target;
+    }
+
+    /**
+     * Includes the dictionary, which is only accurate while the dictionary is not shared.
+     */
+    @Override
+    public long sizeInBytes() {
+        return super.sizeInBytes() + dictionary.sizeInBytes();
+    }
+
+    @Override
+    public int hash(int row) {
+        return dictionary.hash(codes[row]);
+    }
+
+    @Override
+    public boolean valueEquals(int row, ColumnVector other, int otherRow) {
+        StringVector that = (StringVector) other;
+        if (that.dictionary == dictionary) {
+            return codes[row] == that.codes[otherRow];
+        }
+        return hash(row) == that.hash(otherRow) && get(row).equals(that.get(otherRow));
+    }
+
+    @Override
+    public int compare(int row, ColumnVector other, int otherRow) {
+        StringVector that = (StringVector) other;
+        if (that.dictionary == dictionary && codes[row] == that.codes[otherRow]) {
+            return 0;
+        }
+        return get(row).compareTo(that.get(otherRow));
+    }
+}
@@ -0,0 +1,142 @@
+package com.ssc.pipeline.engine.batch;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Text conversions for the physical representations used by the vectors: dates are epoch
+ * days, timestamps epoch milliseconds (UTC) and decimals longs unscaled by
+ * {@link DataType#DECIMAL_SCALE}.
+ */
+public final class TextCodec {
+    private static final long DECIMAL_FACTOR = 1_000_000L;
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss[.SSS]");
+
+    private TextCodec() {
+    }
+
+    public static int parseInt(CharSequence text) {
+        int[] bounds = trim(text);
+        return Integer.parseInt(text, bounds[0], bounds[1], 10);
+    }
+
+    public static long parseLong(CharSequence text) {
+        int[] bounds = trim(text);
+        return Long.parseLong(text, bounds[0], bounds[1], 10);
+    }
+
+    public static double parseDouble(CharSequence text) {
+        return Double.parseDouble(text.toString().trim());
+    }
+
+    public static long parseDecimal(CharSequence text) {
+        return toUnscaled(new BigDecimal(text.toString().trim()));
+    }
+
+    public static long toUnscaled(BigDecimal value) {
+        return value.setScale(DataType.DECIMAL_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static long toUnscaled(double value) {
+        return Math.round(value * DECIMAL_FACTOR);
+    }
+
+    public static BigDecimal toBigDecimal(long unscaled) {
+        return BigDecimal.valueOf(unscaled, DataType.DECIMAL_SCALE);
+    }
+
+    public static double decimalToDouble(long unscaled) {
+        return unscaled / (double) DECIMAL_FACTOR;
+    }
+
+    public static long decimalFactor() {
+        return DECIMAL_FACTOR;
+    }
+
+    public static void appendDecimal(long unscaled, StringBuilder out) {
+        out.append(toBigDecimal(unscaled).stripTrailingZeros().toPlainString());
+    }
+
+    public static int parseDate(CharSequence text) {
+        try {
+            return (int) LocalDate.parse(text.toString().trim()).toEpochDay();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Not a date: " + text, e);
+        }
+    }
+
+    public static LocalDate toLocalDate(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    public static void appendDate(int epochDay, StringBuilder out) {
+        out.append(LocalDate.ofEpochDay(epochDay));
+    }
+
+    public static long parseTimestamp(CharSequence text) {
+        String value = text.toString().trim();
+        try {
+            LocalDateTime dateTime;
+            if (value.length() == 10) {
+                dateTime = LocalDate.parse(value).atStartOfDay();
+            } else if (value.indexOf('T') > 0) {
+                dateTime = LocalDateTime.parse(value);
+            } else {
+                dateTime = LocalDateTime.parse(value, TIMESTAMP_FORMAT);
+            }
+            return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Not a timestamp: " + value, e);
+        }
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000L),
+            (int) Math.floorMod(epochMillis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    public static void appendTimestamp(long epochMillis, StringBuilder out) {
+        LocalDateTime dateTime = toLocalDateTime(epochMillis);
+        out.append(dateTime.toLocalDate()).append(' ');
+        LocalTime time = dateTime.toLocalTime();
+        appendTwoDigits(time.getHour(), out);
+        appendTwoDigits(time.getMinute(), out.append(':'));
+        appendTwoDigits(time.getSecond(), out.append(':'));
+        int millis = time.getNano() / 1_000_000;
+        if (millis != 0) {
+            out.append('.');
+            if (millis < 100) {
+                out.append('0');
+            }
+            appendTwoDigits(millis, out);
+        }
+    }
+
+    private static void appendTwoDigits(int value, StringBuilder out) {
+        if (value < 10) {
+            out.append('0');
+        }
+        out.append(value);
+    }
+
+    private static int[] trim(CharSequence text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (start < end && text.charAt(start) == '+') {
+            start++;
+        }
+        return new int[] {start, end};
+    }
+}
@@ -0,0 +1,262 @@
+package com.ssc.pipeline.engine.csv;
+
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * Parses the records of one mapped chunk straight from its bytes. Field bytes are gathered in a
+ * reusable buffer and handed to the vectors through {@link FieldDecoder} views, so no String is
+ * created per field. Empty fields are null and blank lines are skipped.
+ */
+public final class CsvChunkParser {
+    private final ByteBuffer buffer;
+    private final long baseOffset;
+    private final int limit;
+    private final byte delimiter;
+    private final byte quote;
+    private final byte escape;
+    private final boolean multiLine;
+    private final FieldDecoder decoder;
+    private final boolean doubleByte;
+    private final LongFunction<String> locator;
+    private byte[] field = new byte[256];
+    private int fieldLength;
+    private boolean fieldAscii;
+    // false while scanning over a field nobody reads
+    private boolean keep = true;
+    private int pos;
+    private int recordStart;
+
+    /**
+     * @param baseOffset file offset of the first byte of {@code buffer}
+     * @param locator    describes a file offset in error messages, e.g. as a line number
+     */
+    public CsvChunkParser(ByteBuffer buffer, long baseOffset, CsvOptions options, LongFunction<String> locator) {
+        this.buffer = buffer;
+        this.baseOffset = baseOffset;
+        this.limit = buffer.limit();
+        this.delimiter = asciiByte(options.getDelimiter(), "delimiter");
+        this.quote = asciiByte(options.getQuote(), "quote");
+        this.escape = asciiByte(options.getEscape(), "escape");
+        this.multiLine = options.isMultiLine();
+        this.decoder = new FieldDecoder(options.getEncoding());
+        this.doubleByte = decoder.isLeadByte((byte) 0x81);
+        this.locator = locator;
+    }
+
+    static byte asciiByte(char c, String option) {
+        if (c > 0x7F) {
+            throw new PipelineException("The CSV " + option + " must be an ASCII character, got '" + c + "'");
+        }
+        return (byte) c;
+    }
+
+    /**
+     * File offset of the next unread byte.
+     */
+    public long position() {
+        return baseOffset + pos;
+    }
+
+    /**
+     * Skips a UTF-8 byte order mark at the current position.
+     */
+    public void skipByteOrderMark() {
+        if (pos + 2 < limit && buffer.get(pos) == (byte) 0xEF && buffer.get(pos + 1) == (byte) 0xBB
+            && buffer.get(pos + 2) == (byte) 0xBF) {
+            pos += 3;
+        }
+    }
+
+    /**
+     * Skips one physical line, as the skipRows option does.
+     */
+    public void skipLine() {
+        while (pos < limit && buffer.get(pos++) != '\n') {
+            // scan to the end of the line
+        }
+    }
+
+    /**
+     * @return the fields of the next record as text, or null at the end of the chunk
+     */
+    public List<String> readRecordText() {
+        List<String> values = new ArrayList<>();
+        if (!skipBlankLines()) {
+            return null;
+        }
+        boolean last;
+        do {
+            last = readField();
+            values.add(fieldLength == 0 ? "" : decoder.decode(field, fieldLength, fieldAscii).toString());
+        } while (!last);
+        return values;
+    }
+
+    /**
+     * Parses records into {@code batch} until it is full or the chunk is exhausted.
+     */
+    public void fill(RowBatch batch) {
+        fill(batch, null);
+    }
+
+    /**
+     * Like {@link #fill(RowBatch)}, but field {@code i} goes to column {@code targets[i]};
+     * fields mapped to -1 or past the end of {@code targets} are scanned over without being
+     * copied or decoded.
+     */
+    public void fill(RowBatch batch, int[] targets) {
+        Schema schema = batch.getSchema();
+        int columns = schema.size();
+        int fields = targets == null ? columns : targets.length;
+        while (!batch.isFull() && skipBlankLines()) {
+            int row = batch.getRowCount();
+            int index = 0;
+            boolean last;
+            do {
+                int column = index >= fields ? -1 : targets == null ? index : targets[index];
+                keep = column >= 0;
+                last = readField();
+                if (keep) {
+                    ColumnVector vector = batch.column(column);
+                    if (fieldLength == 0) {
+                        vector.setNull(row);
+                    } else {
+                        setValue(vector, row, schema, column);
+                    }
+                }
+                index++;
+            } while (!last);
+            keep = true;
+            for (; index < fields; index++) {
+                int column = targets == null ? index : targets[index];
+                if (column >= 0) {
+                    batch.column(column).setNull(row);
+                }
+            }
+            batch.setRowCount(row + 1);
+        }
+    }
+
+    private void setValue(ColumnVector vector, int row, Schema schema, int column) {
+        CharSequence text = decoder.decode(field, fieldLength, fieldAscii);
+        try {
+            vector.setText(row, text);
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            throw new PipelineException(String.format("Invalid %s value '%s' for column %s at %s",
+                schema.type(column).getValue(), text, schema.name(column), locator.apply(baseOffset + recordStart)));
+        }
+    }
+
+    private boolean skipBlankLines() {
+        while (pos < limit) {
+            byte b = buffer.get(pos);
+            if (b == '\n') {
+                pos++;
+            } else if (b == '\r' && pos + 1 < limit && buffer.get(pos + 1) == '\n') {
+                pos += 2;
+            } else {
+                recordStart = pos;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads one field into the field buffer and consumes the delimiter or line end after it.
+     *
+     * @return whether the field was the last of its record
+     */
+    private boolean readField() {
+        fieldLength = 0;
+        fieldAscii = true;
+        int quotedLength = 0;
+        if (pos < limit && buffer.get(pos) == quote) {
+            pos++;
+            readQuoted();
+            quotedLength = fieldLength;
+        }
+        int start = pos;
+        int bits = 0;
+        while (pos < limit) {
+            byte b = buffer.get(pos);
+            if (b == delimiter || b == '\n') {
+                break;
+            }
+            bits |= b;
+            pos += doubleByte && b < 0 && pos + 1 < limit ? 2 : 1;
+        }
+        append(start, pos, bits);
+        if (pos < limit && buffer.get(pos) == delimiter) {
+            pos++;
+            return false;
+        }
+        if (pos < limit) {
+            pos++;
+        }
+        if (fieldLength > quotedLength && field[fieldLength - 1] == '\r') {
+            fieldLength--;
+        }
+        return true;
+    }
+
+    private void readQuoted() {
+        int start = pos;
+        int bits = 0;
+        while (pos < limit) {
+            byte b = buffer.get(pos);
+            if (b == quote) {
+                append(start, pos, bits);
+                if (pos + 1 < limit && buffer.get(pos + 1) == quote) {
+                    // doubled quote: keep one
+                    start = pos + 1;
+                    pos += 2;
+                    bits = 0;
+                    continue;
+                }
+                pos++;
+                return;
+            }
+            if (b == escape && pos + 1 < limit) {
+                append(start, pos, bits);
+                start = pos + 1;
+                bits = buffer.get(pos + 1);
+                pos += 2;
+                continue;
+            }
+            if (b == '\n' && !multiLine) {
+                // an unterminated quote ends with its line
+                append(start, pos, bits);
+                return;
+            }
+            bits |= b;
+            pos += doubleByte && b < 0 && pos + 1 < limit ? 2 : 1;
+        }
+        append(start, pos, bits);
+    }
+
+    private void append(int from, int to, int bits) {
+        int length = to - from;
+        if (length <= 0 || !keep) {
+            return;
+        }
+        if (fieldLength + length > field.length) {
+            byte[] grown = new byte[Math.max(fieldLength + length, field.length * 2)];
+            System.arraycopy(field, 0, grown, 0, fieldLength);
+            field = grown;
+        }
+        buffer.get(from, field, fieldLength, length);
+        fieldLength += length;
+        if (bits < 0) {
+            fieldAscii = false;
+        }
+    }
+}
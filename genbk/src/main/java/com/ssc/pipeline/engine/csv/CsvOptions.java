@@ -0,0 +1,99 @@
+package com.ssc.pipeline.engine.csv;
+
+import com.ssc.pipeline.engine.graph.PipelineNode;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Objects;
+
+/**
+ * Reader/writer options of the CSVReader and CsvWriter nodes, defaulting to the values
+ * the UI puts on a freshly dropped CSVReader.
+ */
+public class CsvOptions {
+    private final boolean hasHeader;
+    private final int skipRows;
+    private final char delimiter;
+    private final char quote;
+    private final char escape;
+    private final Charset encoding;
+    private final boolean multiLine;
+
+    public CsvOptions(boolean hasHeader, int skipRows, char delimiter, char quote, char escape,
+                      Charset encoding, boolean multiLine) {
+        this.hasHeader = hasHeader;
+        this.skipRows = skipRows;
+        this.delimiter = delimiter;
+        this.quote = quote;
+        this.escape = escape;
+        this.encoding = encoding;
+        this.multiLine = multiLine;
+    }
+
+    public static CsvOptions from(PipelineNode node) {
+        return new CsvOptions(
+            node.booleanProp("hasHeader", true),
+            Math.max(0, node.intProp("skipRows", 0)),
+            charProp(node, "delimiter", ','),
+            charProp(node, "quote", '"'),
+            charProp(node, "escape", '"'),
+            charset(node.prop("encoding", "utf-8")),
+            node.booleanProp("multiLine", false)
+        );
+    }
+
+    private static char charProp(PipelineNode node, String name, char defaultValue) {
+        String value = node.prop(name, "");
+        return value.isEmpty() ? defaultValue : value.charAt(0);
+    }
+
+    public static Charset charset(String name) {
+        try {
+            return Charset.forName(name);
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            throw new PipelineException("Unsupported encoding: " + name);
+        }
+    }
+
+    public boolean hasHeader() {
+        return hasHeader;
+    }
+
+    public int getSkipRows() {
+        return skipRows;
+    }
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    public char getQuote() {
+        return quote;
+    }
+
+    public char getEscape() {
+        return escape;
+    }
+
+    public Charset getEncoding() {
+        return encoding;
+    }
+
+    public boolean isMultiLine() {
+        return multiLine;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CsvOptions other && hasHeader == other.hasHeader && skipRows == other.skipRows
+            && delimiter == other.delimiter && quote == other.quote && escape == other.escape
+            && encoding.equals(other.encoding) && multiLine == other.multiLine;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(hasHeader, skipRows, delimiter, quote, escape, encoding, multiLine);
+    }
+}
@@ -0,0 +1,233 @@
+package com.ssc.pipeline.engine.csv;
+
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.batch.TextCodec;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Learns the record count and column types of a CSV file while it still arrives in pieces, in
+ * any order. Each piece is run through the quote state machine once for every state it could
+ * start in, the same speculation {@link CsvSplitter} uses; chaining the pieces in file order
+ * then gives the exact number of records without reading the file again. Blank lines are not
+ * records and, unless multiLine is set, a line end also ends a quoted field, as in the parser.
+ * In double-byte charsets the byte after a lead byte is skipped, as the parser skips it; a piece
+ * may start on such a byte, so those pieces are also run from every state with a byte to skip.
+ */
+public final class CsvSniffer {
+    private static final int RECORD_START = 0;
+    private static final int FIELD_START = 1;
+    private static final int UNQUOTED = 2;
+    private static final int QUOTED = 3;
+    private static final int QUOTED_ESCAPE = 4;
+    private static final int QUOTE_IN_QUOTED = 5;
+    private static final int STATES = 6;
+    // added to a state while the next byte is the second half of a double-byte character
+    private static final int TRAIL = STATES;
+    private static final List<DataType> CANDIDATES = List.of(DataType.INT, DataType.BIGINT, DataType.DOUBLE,
+        DataType.DATE, DataType.TIMESTAMP);
+
+    private CsvSniffer() {
+    }
+
+    /**
+     * Scans one piece of the file.
+     *
+     * @return for every start state {@code s}, the end state at {@code [2s]} and the number of
+     * records the piece ends at {@code [2s + 1]}
+     */
+    public static long[] scan(ByteBuffer piece, CsvOptions options) {
+        byte delimiter = CsvChunkParser.asciiByte(options.getDelimiter(), "delimiter");
+        byte quote = CsvChunkParser.asciiByte(options.getQuote(), "quote");
+        byte escape = CsvChunkParser.asciiByte(options.getEscape(), "escape");
+        boolean multiLine = options.isMultiLine();
+        boolean doubleByte = new FieldDecoder(options.getEncoding()).isLeadByte((byte) 0x81);
+        int starts = doubleByte ? 2 * STATES : STATES;
+        int[] states = new int[starts];
+        long[] records = new long[starts];
+        for (int s = 0; s < starts; s++) {
+            states[s] = s;
+        }
+        int limit = piece.limit();
+        for (int i = piece.position(); i < limit; i++) {
+            byte b = piece.get(i);
+            for (int s = 0; s < starts; s++) {
+                int state = states[s];
+                if (state >= TRAIL) {
+                    states[s] = state - TRAIL;
+                } else if (b != '\n') {
+                    states[s] = step(state, b, delimiter, quote, escape, doubleByte);
+                } else if (multiLine && (state == QUOTED || state == QUOTED_ESCAPE)) {
+                    states[s] = QUOTED;
+                } else {
+                    records[s] += state == RECORD_START ? 0 : 1;
+                    states[s] = RECORD_START;
+                }
+            }
+        }
+        long[] result = new long[2 * starts];
+        for (int s = 0; s < starts; s++) {
+            result[2 * s] = states[s];
+            result[2 * s + 1] = records[s];
+        }
+        return result;
+    }
+
+    /**
+     * Finds where the last complete record of a piece that starts on a record boundary ends,
+     * for readers that parse a stream one buffer at a time.
+     *
+     * @return the index just past that record's line end, or -1 if no record ends in the piece
+     */
+    public static int lastRecordEnd(ByteBuffer piece, CsvOptions options) {
+        byte delimiter = CsvChunkParser.asciiByte(options.getDelimiter(), "delimiter");
+        byte quote = CsvChunkParser.asciiByte(options.getQuote(), "quote");
+        byte escape = CsvChunkParser.asciiByte(options.getEscape(), "escape");
+        boolean multiLine = options.isMultiLine();
+        boolean doubleByte = new FieldDecoder(options.getEncoding()).isLeadByte((byte) 0x81);
+        int state = RECORD_START;
+        int end = -1;
+        int limit = piece.limit();
+        for (int i = piece.position(); i < limit; i++) {
+            byte b = piece.get(i);
+            if (state >= TRAIL) {
+                state -= TRAIL;
+            } else if (b != '\n') {
+                state = step(state, b, delimiter, quote, escape, doubleByte);
+            } else if (multiLine && (state == QUOTED || state == QUOTED_ESCAPE)) {
+                state = QUOTED;
+            } else {
+                state = RECORD_START;
+                end = i + 1;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Chains the scans of consecutive pieces that cover a whole file.
+     *
+     * @return the number of records in the file, a last one without a line end included
+     */
+    public static long countRecords(List<long[]> scans) {
+        int state = RECORD_START;
+        long records = 0;
+        for (long[] scan : scans) {
+            records += scan[2 * state + 1];
+            state = (int) scan[2 * state];
+        }
+        return state == RECORD_START ? records : records + 1;
+    }
+
+    /**
+     * Counts the records in the lines a reader skips with skipRows, so they can be taken off
+     * the count of the whole file.
+     *
+     * @param head the start of the file
+     * @return the count, or -1 if the skipped lines run past {@code head} or the last of them
+     * ends inside a quoted field, so the reader starts where no scan started
+     */
+    public static long skippedRecords(ByteBuffer head, CsvOptions options) {
+        int end = head.position();
+        for (int line = 0; line < options.getSkipRows(); line++) {
+            while (end < head.limit() && head.get(end) != '\n') {
+                end++;
+            }
+            if (end == head.limit()) {
+                return -1;
+            }
+            end++;
+        }
+        ByteBuffer lines = head.duplicate();
+        lines.limit(end);
+        long[] scan = scan(lines, options);
+        return scan[2 * RECORD_START] == RECORD_START ? scan[2 * RECORD_START + 1] : -1;
+    }
+
+    /**
+     * Guesses column types from the first records of a file: the narrowest of int, bigint,
+     * double, date and timestamp that every non-empty value parses as, or string. Names come
+     * from the header, or are {@code column1..n} as the reader would name them.
+     *
+     * @param head the start of the file; a record cut off at its end is ignored
+     */
+    public static Schema inferSchema(ByteBuffer head, CsvOptions options, int sampleRows) {
+        ByteBuffer complete = head.duplicate();
+        int end = complete.limit();
+        while (end > complete.position() && complete.get(end - 1) != '\n') {
+            end--;
+        }
+        complete.limit(end == complete.position() ? complete.limit() : end);
+        CsvChunkParser parser = new CsvChunkParser(complete.slice(), 0, options, offset -> "byte " + offset);
+        parser.skipByteOrderMark();
+        for (int i = 0; i < options.getSkipRows(); i++) {
+            parser.skipLine();
+        }
+        List<String> first = parser.readRecordText();
+        if (first == null) {
+            return Schema.ofStrings(List.of());
+        }
+        List<EnumSet<DataType>> candidates = new ArrayList<>();
+        List<Boolean> seen = new ArrayList<>();
+        for (int i = 0; i < first.size(); i++) {
+            candidates.add(EnumSet.copyOf(CANDIDATES));
+            seen.add(false);
+        }
+        List<String> record = options.hasHeader() ? parser.readRecordText() : first;
+        for (int row = 0; record != null && row < sampleRows; row++) {
+            for (int i = 0; i < Math.min(record.size(), candidates.size()); i++) {
+                String value = record.get(i).trim();
+                if (!value.isEmpty()) {
+                    seen.set(i, true);
+                    candidates.get(i).removeIf(type -> !parses(type, value));
+                }
+            }
+            record = parser.readRecordText();
+        }
+        List<String> names = new ArrayList<>();
+        List<DataType> types = new ArrayList<>();
+        for (int i = 0; i < first.size(); i++) {
+            names.add(options.hasHeader() ? first.get(i) : "column" + (i + 1));
+            EnumSet<DataType> remaining = candidates.get(i);
+            types.add(seen.get(i) && !remaining.isEmpty() ? remaining.iterator().next() : DataType.STRING);
+        }
+        return new Schema(names, types);
+    }
+
+    private static boolean parses(DataType type, String value) {
+        try {
+            switch (type) {
+                case INT -> TextCodec.parseInt(value);
+                case BIGINT -> TextCodec.parseLong(value);
+                case DOUBLE -> TextCodec.parseDouble(value);
+                case DATE -> TextCodec.parseDate(value);
+                default -> TextCodec.parseTimestamp(value);
+            }
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // line ends and the second bytes of double-byte characters are handled by the caller
+    private static int step(int state, byte b, byte delimiter, byte quote, byte escape, boolean doubleByte) {
+        int next = step(state, b, delimiter, quote, escape);
+        // an escaped byte is taken on its own, as the parser does
+        return doubleByte && b < 0 && state != QUOTED_ESCAPE ? next + TRAIL : next;
+    }
+
+    private static int step(int state, byte b, byte delimiter, byte quote, byte escape) {
+        return switch (state) {
+            case RECORD_START -> b == '\r' ? RECORD_START : b == quote ? QUOTED : b == delimiter ? FIELD_START : UNQUOTED;
+            case FIELD_START -> b == quote ? QUOTED : b == delimiter ? FIELD_START : UNQUOTED;
+            case UNQUOTED -> b == delimiter ? FIELD_START : UNQUOTED;
+            case QUOTED -> b == quote ? QUOTE_IN_QUOTED : b == escape ? QUOTED_ESCAPE : QUOTED;
+            case QUOTED_ESCAPE -> QUOTED;
+            default -> b == quote ? QUOTED : b == delimiter ? FIELD_START : UNQUOTED;
+        };
+    }
+}
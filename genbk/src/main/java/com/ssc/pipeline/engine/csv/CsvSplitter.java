@@ -0,0 +1,171 @@
+package com.ssc.pipeline.engine.csv;
+
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Cuts a file into chunks that start on record boundaries so they can be parsed independently.
+ * Nominal cut points are moved to the next line start, which is enough unless multiLine allows
+ * quoted newlines. In that case every chunk is scanned in parallel for its quote state, starting
+ * both outside and inside a quoted field; chaining the results in file order tells which line
+ * starts really begin a record, the same way the parser would have seen them.
+ */
+public final class CsvSplitter {
+    private static final int WINDOW = 1 << 20;
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTED_ESCAPE = 3;
+    private static final int QUOTE_IN_QUOTED = 4;
+
+    private CsvSplitter() {
+    }
+
+    /**
+     * @return record-aligned chunk start offsets; each chunk ends where the next one starts, the
+     * last one at {@code end}
+     */
+    public static List<Long> split(FileChannel channel, long start, long end, long chunkSize, CsvOptions options,
+                                   Executor executor) throws IOException {
+        List<Long> cuts = new ArrayList<>();
+        cuts.add(start);
+        for (long nominal = start + chunkSize; nominal < end; nominal += chunkSize) {
+            long newline = findNewline(channel, Math.max(nominal, cuts.get(cuts.size() - 1)) - 1, end);
+            if (newline < 0 || newline + 1 >= end) {
+                break;
+            }
+            if (newline + 1 > cuts.get(cuts.size() - 1)) {
+                cuts.add(newline + 1);
+            }
+        }
+        if (!options.isMultiLine() || cuts.size() == 1) {
+            return cuts;
+        }
+
+        List<FutureTask<long[]>> scans = new ArrayList<>();
+        for (int i = 0; i < cuts.size(); i++) {
+            long from = cuts.get(i);
+            long to = i + 1 < cuts.size() ? cuts.get(i + 1) : end;
+            FutureTask<long[]> scan = new FutureTask<>(() -> scanQuotes(map(channel, from, to), from, options));
+            try {
+                executor.execute(scan);
+            } catch (RejectedExecutionException e) {
+                scan.run();
+            }
+            scans.add(scan);
+        }
+
+        List<Long> starts = new ArrayList<>();
+        boolean inQuotes = false;
+        for (int i = 0; i < cuts.size(); i++) {
+            long[] scan = result(scans.get(i));
+            if (!inQuotes) {
+                starts.add(cuts.get(i));
+            } else if (scan[2] >= 0) {
+                starts.add(scan[2]);
+            }
+            inQuotes = (inQuotes ? scan[1] : scan[0]) != 0;
+        }
+        return starts;
+    }
+
+    public static MappedByteBuffer map(FileChannel channel, long from, long to) throws IOException {
+        if (to - from > Integer.MAX_VALUE) {
+            throw new PipelineException("CSV chunk at offset " + from + " is larger than 2 GB; "
+                + "check the quote and multiLine settings");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+    }
+
+    /**
+     * @return the offset of the first newline at or after {@code from}, or -1
+     */
+    private static long findNewline(FileChannel channel, long from, long end) throws IOException {
+        for (long window = from; window < end; window += WINDOW) {
+            MappedByteBuffer buffer = map(channel, window, Math.min(end, window + WINDOW));
+            for (int i = 0; i < buffer.limit(); i++) {
+                if (buffer.get(i) == '\n') {
+                    return window + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Runs the quote state machine over a chunk that starts at a line start, once assuming the
+     * line starts a record and once assuming it continues a quoted field.
+     *
+     * @return {inQuotes at the end when starting outside, inQuotes at the end when starting
+     * inside, first record start when starting inside or -1}
+     */
+    private static long[] scanQuotes(MappedByteBuffer buffer, long baseOffset, CsvOptions options) {
+        long[] outside = scan(buffer, FIELD_START, options);
+        long[] inside = scan(buffer, QUOTED, options);
+        long firstRecord = inside[1] < 0 ? -1 : baseOffset + inside[1];
+        return new long[] {outside[0], inside[0], firstRecord};
+    }
+
+    /**
+     * @return {inQuotes at the end, offset in the chunk of the first record start after a newline
+     * or -1 when that is the chunk end}
+     */
+    private static long[] scan(MappedByteBuffer buffer, int state, CsvOptions options) {
+        byte delimiter = CsvChunkParser.asciiByte(options.getDelimiter(), "delimiter");
+        byte quote = CsvChunkParser.asciiByte(options.getQuote(), "quote");
+        byte escape = CsvChunkParser.asciiByte(options.getEscape(), "escape");
+        boolean doubleByte = new FieldDecoder(options.getEncoding()).isLeadByte((byte) 0x81);
+        int limit = buffer.limit();
+        long firstRecord = -1;
+        for (int i = 0; i < limit; i++) {
+            byte b = buffer.get(i);
+            int previous = state;
+            state = step(state, b, delimiter, quote, escape);
+            if (b == '\n' && state == FIELD_START && firstRecord < 0 && i + 1 < limit) {
+                firstRecord = i + 1;
+            }
+            if (doubleByte && b < 0 && previous != QUOTED_ESCAPE) {
+                // the trail byte of a double-byte character is never a delimiter or quote
+                i++;
+            }
+        }
+        return new long[] {inQuotes(state), firstRecord};
+    }
+
+    private static long inQuotes(int state) {
+        return state == QUOTED || state == QUOTED_ESCAPE ? 1 : 0;
+    }
+
+    private static int step(int state, byte b, byte delimiter, byte quote, byte escape) {
+        return switch (state) {
+            case FIELD_START -> b == quote ? QUOTED : b == delimiter || b == '\n' ? FIELD_START : UNQUOTED;
+            case UNQUOTED -> b == delimiter || b == '\n' ? FIELD_START : UNQUOTED;
+            case QUOTED -> b == quote ? QUOTE_IN_QUOTED : b == escape ? QUOTED_ESCAPE : QUOTED;
+            case QUOTED_ESCAPE -> QUOTED;
+            default -> b == quote ? QUOTED : b == delimiter || b == '\n' ? FIELD_START : UNQUOTED;
+        };
+    }
+
+    private static long[] result(FutureTask<long[]> scan) throws IOException {
+        try {
+            return scan.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PipelineException("Interrupted while splitting CSV file", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new PipelineException("Failed to split CSV file: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.ssc.pipeline.engine.csv;
+
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Turns the raw bytes of one field into characters without allocating a String. Pure ASCII
+ * fields are exposed as a view over the bytes; UTF-8 and single-byte charsets are decoded by
+ * hand into a reusable char buffer, double-byte Chinese charsets through a reused
+ * {@link CharsetDecoder}. Only ASCII-compatible charsets are supported, because the parser
+ * looks for delimiters, quotes and newlines at the byte level.
+ */
+public final class FieldDecoder {
+    private static final Set<String> DOUBLE_BYTE = Set.of("GBK", "GB2312", "GB18030", "Big5");
+    private static final char REPLACEMENT = '\uFFFD';
+
+    private enum Kind {
+        UTF8, SINGLE_BYTE, DOUBLE_BYTE
+    }
+
+    private final Kind kind;
+    private final char[] table;
+    private final CharsetDecoder decoder;
+    private final AsciiView ascii = new AsciiView();
+    private char[] chars = new char[256];
+    private CharBuffer charBuffer = CharBuffer.wrap(chars);
+    private final CharView decoded = new CharView();
+    private byte[] wrappedBytes;
+    private ByteBuffer wrapped;
+
+    public FieldDecoder(Charset charset) {
+        this.kind = kindOf(charset);
+        this.table = kind == Kind.SINGLE_BYTE ? decodeTable(charset) : null;
+        this.decoder = kind == Kind.DOUBLE_BYTE ? charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE) : null;
+    }
+
+    /**
+     * Fails fast for charsets the byte-level parser cannot handle.
+     */
+    public static void checkSupported(Charset charset) {
+        kindOf(charset);
+    }
+
+    private static Kind kindOf(Charset charset) {
+        if (charset.equals(StandardCharsets.UTF_8)) {
+            return Kind.UTF8;
+        }
+        if (DOUBLE_BYTE.contains(charset.name())) {
+            return Kind.DOUBLE_BYTE;
+        }
+        if (charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1 && isAsciiCompatible(charset)) {
+            return Kind.SINGLE_BYTE;
+        }
+        throw new PipelineException("Encoding " + charset.name() + " is not supported by the CSV reader; "
+            + "use UTF-8, GBK, GB2312, GB18030 or an ISO-8859 charset");
+    }
+
+    private static boolean isAsciiCompatible(Charset charset) {
+        byte[] bytes = new byte[128];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        String text = new String(bytes, charset);
+        for (int i = 0; i < bytes.length; i++) {
+            if (text.length() != bytes.length || text.charAt(i) != i) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char[] decodeTable(Charset charset) {
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        String text = new String(bytes, charset);
+        return text.length() == 256 ? text.toCharArray() : fallbackTable(text);
+    }
+
+    private static char[] fallbackTable(String text) {
+        // charsets with unmapped bytes decode them one by one
+        char[] table = new char[256];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = i < text.length() ? text.charAt(i) : REPLACEMENT;
+        }
+        return table;
+    }
+
+    /**
+     * True for the first byte of a two-byte sequence in a double-byte charset: the byte after it
+     * may look like an ASCII delimiter or quote and must be skipped when scanning.
+     */
+    public boolean isLeadByte(byte b) {
+        return kind == Kind.DOUBLE_BYTE && (b & 0xFF) >= 0x81 && (b & 0xFF) <= 0xFE;
+    }
+
+    /**
+     * @param isAscii whether every byte is below 0x80, as tracked by the parser while scanning
+     * @return a view that stays valid until the next call
+     */
+    public CharSequence decode(byte[] bytes, int length, boolean isAscii) {
+        if (isAscii) {
+            ascii.reset(bytes, length);
+            return ascii;
+        }
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+            charBuffer = CharBuffer.wrap(chars);
+        }
+        int count = switch (kind) {
+            case UTF8 -> decodeUtf8(bytes, length);
+            case SINGLE_BYTE -> decodeTable(bytes, length);
+            case DOUBLE_BYTE -> decodeWithDecoder(bytes, length);
+        };
+        decoded.reset(chars, count);
+        return decoded;
+    }
+
+    private int decodeTable(byte[] bytes, int length) {
+        for (int i = 0; i < length; i++) {
+            chars[i] = table[bytes[i] & 0xFF];
+        }
+        return length;
+    }
+
+    private int decodeUtf8(byte[] bytes, int length) {
+        int count = 0;
+        int i = 0;
+        while (i < length) {
+            int b = bytes[i] & 0xFF;
+            if (b < 0x80) {
+                chars[count++] = (char) b;
+                i++;
+                continue;
+            }
+            int extra;
+            int codePoint;
+            if (b >= 0xF8) {
+                extra = -1;
+                codePoint = 0;
+            } else if (b >= 0xF0) {
+                extra = 3;
+                codePoint = b & 0x07;
+            } else if (b >= 0xE0) {
+                extra = 2;
+                codePoint = b & 0x0F;
+            } else if (b >= 0xC0) {
+                extra = 1;
+                codePoint = b & 0x1F;
+            } else {
+                extra = -1;
+                codePoint = 0;
+            }
+            if (extra < 0) {
+                chars[count++] = REPLACEMENT;
+                i++;
+                continue;
+            }
+            if (i + extra >= length) {
+                chars[count++] = REPLACEMENT;
+                break;
+            }
+            boolean valid = true;
+            for (int k = 1; k <= extra; k++) {
+                int next = bytes[i + k] & 0xFF;
+                if ((next & 0xC0) != 0x80) {
+                    valid = false;
+                    break;
+                }
+                codePoint = (codePoint << 6) | (next & 0x3F);
+            }
+            if (!valid) {
+                chars[count++] = REPLACEMENT;
+                i++;
+                continue;
+            }
+            if (codePoint >= 0x10000) {
+                chars[count++] = Character.highSurrogate(codePoint);
+                chars[count++] = Character.lowSurrogate(codePoint);
+            } else {
+                chars[count++] = (char) codePoint;
+            }
+            i += extra + 1;
+        }
+        return count;
+    }
+
+    private int decodeWithDecoder(byte[] bytes, int length) {
+        decoder.reset();
+        charBuffer.clear();
+        if (bytes != wrappedBytes) {
+            wrappedBytes = bytes;
+            wrapped = ByteBuffer.wrap(bytes);
+        }
+        wrapped.limit(length).position(0);
+        decoder.decode(wrapped, charBuffer, true);
+        decoder.flush(charBuffer);
+        return charBuffer.position();
+    }
+
+    private static final class AsciiView implements CharSequence {
+        private byte[] bytes;
+        private int length;
+
+        void reset(byte[] bytes, int length) {
+            this.bytes = bytes;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) bytes[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private static final class CharView implements CharSequence {
+        private char[] chars;
+        private int length;
+
+        void reset(char[] chars, int length) {
+            this.chars = chars;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return chars[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(chars, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.ssc.pipeline.engine.expression;
+
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.DoubleVector;
+import com.ssc.pipeline.engine.batch.IntVector;
+import com.ssc.pipeline.engine.batch.LongVector;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.TextCodec;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * {@code + - * /} over two operands already cast to the result type. Division by zero yields null.
+ */
+final class ArithmeticExpression implements VectorExpression {
+    enum Operator {
+        ADD("+"), SUBTRACT("-"), MULTIPLY("*"), DIVIDE("/");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        static Operator fromSymbol(String symbol) {
+            for (Operator operator : values()) {
+                if (operator.symbol.equals(symbol)) {
+                    return operator;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final Operator operator;
+    private final VectorExpression left;
+    private final VectorExpression right;
+    private final DataType type;
+
+    ArithmeticExpression(Operator operator, VectorExpression left, VectorExpression right) {
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+        this.type = left.type();
+    }
+
+    @Override
+    public DataType type() {
+        return type;
+    }
+
+    @Override
+    public ColumnVector evaluate(RowBatch batch) {
+        ColumnVector a = left.evaluate(batch);
+        ColumnVector b = right.evaluate(batch);
+        int n = batch.getRowCount();
+        ColumnVector result = ColumnVector.allocate(type, Math.max(n, 1));
+        switch (type) {
+            case INT -> evaluateInt(((IntVector) a).values(), ((IntVector) b).values(), (IntVector) result, n);
+            case BIGINT -> evaluateLong(((LongVector) a).values(), ((LongVector) b).values(), (LongVector) result, n);
+            case DOUBLE -> evaluateDouble(((DoubleVector) a).values(), ((DoubleVector) b).values(),
+                (DoubleVector) result, n);
+            case DECIMAL -> evaluateDecimal(((LongVector) a).values(), ((LongVector) b).values(),
+                (LongVector) result, n);
+            default -> throw new IllegalStateException("Arithmetic on " + type);
+        }
+        result.unionNulls(a);
+        result.unionNulls(b);
+        return result;
+    }
+
+    private void evaluateInt(int[] x, int[] y, IntVector result, int n) {
+        int[] out = result.values();
+        switch (operator) {
+            case ADD -> {
+                for (int i = 0; i < n; i++) {
+                    out[i] = x[i] + y[i];
+                }
+            }
+            case SUBTRACT -> {
+                for (int i = 0; i < n; i++) {
+                    out[i] = x[i] - y[i];
+                }
+            }
+            case MULTIPLY -> {
+                for (int i = 0; i < n; i++) {
+                    out[i] = x[i] * y[i];
+                }
+            }
+            case DIVIDE -> {
+                for (int i = 0; i < n; i++) {
+                    if (y[i] == 0) {
+                        result.setNull(i);
+                    } else {
+                        out[i] = x[i] / y[i];
+                    }
+                }
+            }
+        }
+    }
+
+    private void evaluateLong(long[] x, long[] y, LongVector result, int n) {
+        long[] out = result.values();
+        switch (operator) {
+            case ADD -> {
+                for (int i = 0; i < n; i++) {
+                    out[i] = x[i] + y[i];
+                }
+            }
+            case SUBTRACT -> {
+                for (int i = 0; i < n; i++) {
+                    out[i] = x[i] - y[i];
+                }
+            }
+            case MULTIPLY -> {
+                for (int i = 0; i < n; i++) {
+                    out[i] = x[i] * y[i];
+                }
+            }
+            case DIVIDE -> {
+                for (int i = 0; i < n; i++) {
+                    if (y[i] == 0) {
+                        result.setNull(i);
+                    } else {
+                        out[i] = x[i] / y[i];
+                    }
+                }
+            }
+        }
+    }
+
+    private void evaluateDouble(double[] x, double[] y, DoubleVector result, int n) {
+        double[] out = result.values();
+        switch (operator) {
+            case ADD -> {
+                for (int i = 0; i < n; i++) {
+                    out[i] = x[i] + y[i];
+                }
+            }
+            case SUBTRACT -> {
+                for (int i = 0; i < n; i++) {
+                    out[i] = x[i] - y[i];
+                }
+            }
+            case MULTIPLY -> {
+                for (int i = 0; i < n; i++) {
+                    out[i] = x[i] * y[i];
+                }
+            }
+            case DIVIDE -> {
+                for (int i = 0; i < n; i++) {
+                    if (y[i] == 0) {
+                        result.setNull(i);
+                    } else {
+                        out[i] = x[i] / y[i];
+                    }
+                }
+            }
+        }
+    }
+
+    private void evaluateDecimal(long[] x, long[] y, LongVector result, int n) {
+        long[] out = result.values();
+        long factor = TextCodec.decimalFactor();
+        switch (operator) {
+            case ADD -> {
+                for (int i = 0; i < n; i++) {
+                    try {
+                        out[i] = Math.addExact(x[i], y[i]);
+                    } catch (ArithmeticException e) {
+                        out[i] = exact(TextCodec.toBigDecimal(x[i]).add(TextCodec.toBigDecimal(y[i])));
+                    }
+                }
+            }
+            case SUBTRACT -> {
+                for (int i = 0; i < n; i++) {
+                    try {
+                        out[i] = Math.subtractExact(x[i], y[i]);
+                    } catch (ArithmeticException e) {
+                        out[i] = exact(TextCodec.toBigDecimal(x[i]).subtract(TextCodec.toBigDecimal(y[i])));
+                    }
+                }
+            }
+            case MULTIPLY -> {
+                for (int i = 0; i < n; i++) {
+                    long product = x[i] * y[i];
+                    long high = Math.multiplyHigh(x[i], y[i]);
+                    if (high == (product >> 63)) {
+                        out[i] = roundDivide(product, factor);
+                    } else {
+                        out[i] = exact(TextCodec.toBigDecimal(x[i]).multiply(TextCodec.toBigDecimal(y[i])));
+                    }
+                }
+            }
+            case DIVIDE -> {
+                for (int i = 0; i < n; i++) {
+                    if (y[i] == 0) {
+                        result.setNull(i);
+                    } else {
+                        out[i] = exact(TextCodec.toBigDecimal(x[i])
+                            .divide(TextCodec.toBigDecimal(y[i]), DataType.DECIMAL_SCALE, RoundingMode.HALF_UP));
+                    }
+                }
+            }
+        }
+    }
+
+    private static long roundDivide(long value, long divisor) {
+        long quotient = value / divisor;
+        long remainder = value % divisor;
+        if (Math.abs(remainder) * 2 >= divisor) {
+            quotient += Long.signum(value);
+        }
+        return quotient;
+    }
+
+    private static long exact(BigDecimal value) {
+        try {
+            return TextCodec.toUnscaled(value);
+        } catch (ArithmeticException e) {
+            throw new PipelineException("Decimal overflow: " + value.toPlainString());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.ssc.pipeline.engine.expression;
+
+import com.ssc.pipeline.engine.batch.BooleanVector;
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.RowBatch;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@code case when ... then ... else ... end}. Conditions are evaluated for the whole batch in
+ * order; a branch is only evaluated when some row still unassigned selects it.
+ */
+final class CaseExpression implements VectorExpression {
+    private final List<VectorExpression> conditions;
+    private final List<VectorExpression> results;
+    private final VectorExpression otherwise;
+    private final DataType type;
+    private boolean[] assigned = new boolean[0];
+
+    CaseExpression(List<VectorExpression> conditions, List<VectorExpression> results, VectorExpression otherwise,
+                   DataType type) {
+        this.conditions = conditions;
+        this.results = results;
+        this.otherwise = otherwise;
+        this.type = type;
+    }
+
+    @Override
+    public DataType type() {
+        return type;
+    }
+
+    @Override
+    public ColumnVector evaluate(RowBatch batch) {
+        int n = batch.getRowCount();
+        ColumnVector result = ColumnVector.allocate(type, Math.max(n, 1));
+        if (assigned.length < n) {
+            assigned = new boolean[n];
+        }
+        Arrays.fill(assigned, 0, n, false);
+        int remaining = n;
+        for (int w = 0; w < conditions.size() && remaining > 0; w++) {
+            BooleanVector condition = (BooleanVector) conditions.get(w).evaluate(batch);
+            boolean[] matches = condition.values();
+            ColumnVector branch = null;
+            for (int i = 0; i < n; i++) {
+                if (!assigned[i] && matches[i] && !condition.isNull(i)) {
+                    if (branch == null) {
+                        branch = results.get(w).evaluate(batch);
+                    }
+                    result.copyFrom(branch, i, i);
+                    assigned[i] = true;
+                    remaining--;
+                }
+            }
+        }
+        if (remaining > 0) {
+            ColumnVector fallback = otherwise == null ? null : otherwise.evaluate(batch);
+            for (int i = 0; i < n; i++) {
+                if (!assigned[i]) {
+                    if (fallback == null) {
+                        result.setNull(i);
+                    } else {
+                        result.copyFrom(fallback, i, i);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,239 @@
+package com.ssc.pipeline.engine.expression;
+
+import com.ssc.pipeline.engine.batch.BooleanVector;
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.DoubleVector;
+import com.ssc.pipeline.engine.batch.IntVector;
+import com.ssc.pipeline.engine.batch.LongVector;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.StringVector;
+import com.ssc.pipeline.engine.batch.TextCodec;
+
+/**
+ * Conversion between non-string types. Widening numeric casts get their own loops because the
+ * compiler inserts them for every mixed-type operation; values that do not fit the target
+ * become null. Casts from strings are {@link DictionaryExpression}s and casts to strings are
+ * {@link #toText}.
+ */
+final class CastExpression implements VectorExpression {
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final VectorExpression input;
+    private final DataType type;
+
+    private CastExpression(VectorExpression input, DataType type) {
+        this.input = input;
+        this.type = type;
+    }
+
+    static boolean isSupported(DataType from, DataType to) {
+        if (from == to || from == DataType.STRING || to == DataType.STRING) {
+            return true;
+        }
+        if (from.isTemporal() || to.isTemporal()) {
+            return from.isTemporal() && to.isTemporal();
+        }
+        return true;
+    }
+
+    static VectorExpression of(VectorExpression input, DataType type) {
+        if (input.type() == type) {
+            return input;
+        }
+        if (input.type() == DataType.STRING) {
+            return new DictionaryExpression(input, type, CastExpression::parse);
+        }
+        if (type == DataType.STRING) {
+            return toText(input);
+        }
+        return new CastExpression(input, type);
+    }
+
+    private static void parse(String value, ColumnVector out, int index) {
+        if (value.isBlank()) {
+            out.setNull(index);
+            return;
+        }
+        try {
+            out.setText(index, value);
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            out.setNull(index);
+        }
+    }
+
+    private static VectorExpression toText(VectorExpression input) {
+        return new VectorExpression() {
+            @Override
+            public DataType type() {
+                return DataType.STRING;
+            }
+
+            @Override
+            public ColumnVector evaluate(RowBatch batch) {
+                ColumnVector values = input.evaluate(batch);
+                int n = batch.getRowCount();
+                StringVector result = new StringVector(Math.max(n, 1));
+                StringBuilder text = new StringBuilder();
+                for (int i = 0; i < n; i++) {
+                    if (values.isNull(i)) {
+                        result.setNull(i);
+                    } else {
+                        text.setLength(0);
+                        values.appendText(i, text);
+                        result.set(i, text);
+                    }
+                }
+                return result;
+            }
+        };
+    }
+
+    @Override
+    public DataType type() {
+        return type;
+    }
+
+    @Override
+    public ColumnVector evaluate(RowBatch batch) {
+        ColumnVector source = input.evaluate(batch);
+        int n = batch.getRowCount();
+        ColumnVector result = ColumnVector.allocate(type, Math.max(n, 1));
+        DataType from = input.type();
+        if (from == DataType.INT && type == DataType.BIGINT) {
+            int[] x = ((IntVector) source).values();
+            long[] out = ((LongVector) result).values();
+            for (int i = 0; i < n; i++) {
+                out[i] = x[i];
+            }
+        } else if (from == DataType.INT && type == DataType.DOUBLE) {
+            int[] x = ((IntVector) source).values();
+            double[] out = ((DoubleVector) result).values();
+            for (int i = 0; i < n; i++) {
+                out[i] = x[i];
+            }
+        } else if (from == DataType.BIGINT && type == DataType.DOUBLE) {
+            long[] x = ((LongVector) source).values();
+            double[] out = ((DoubleVector) result).values();
+            for (int i = 0; i < n; i++) {
+                out[i] = x[i];
+            }
+        } else if (from == DataType.DECIMAL && type == DataType.DOUBLE) {
+            long[] x = ((LongVector) source).values();
+            double[] out = ((DoubleVector) result).values();
+            double factor = TextCodec.decimalFactor();
+            for (int i = 0; i < n; i++) {
+                out[i] = x[i] / factor;
+            }
+        } else if (from == DataType.INT && type == DataType.DECIMAL) {
+            int[] x = ((IntVector) source).values();
+            long[] out = ((LongVector) result).values();
+            long factor = TextCodec.decimalFactor();
+            for (int i = 0; i < n; i++) {
+                out[i] = x[i] * factor;
+            }
+        } else if (from == DataType.DATE && type == DataType.TIMESTAMP) {
+            int[] x = ((IntVector) source).values();
+            long[] out = ((LongVector) result).values();
+            for (int i = 0; i < n; i++) {
+                out[i] = x[i] * MILLIS_PER_DAY;
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                convert(source, i, result);
+            }
+        }
+        result.unionNulls(source);
+        return result;
+    }
+
+    /**
+     * Row-at-a-time path for the narrowing and boolean conversions.
+     */
+    private void convert(ColumnVector source, int row, ColumnVector result) {
+        if (source.isNull(row)) {
+            return;
+        }
+        DataType from = source.getType();
+        if (from == DataType.TIMESTAMP) {
+            ((IntVector) result).set(row, (int) Math.floorDiv(((LongVector) source).get(row), MILLIS_PER_DAY));
+            return;
+        }
+        if (type == DataType.BOOLEAN) {
+            ((BooleanVector) result).set(row, asDouble(source, row) != 0);
+            return;
+        }
+        if (from == DataType.DOUBLE) {
+            double value = asDouble(source, row);
+            switch (type) {
+                case INT -> {
+                    if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                        ((IntVector) result).set(row, (int) value);
+                    } else {
+                        result.setNull(row);
+                    }
+                }
+                case BIGINT -> {
+                    if (value >= Long.MIN_VALUE && value <= Long.MAX_VALUE) {
+                        ((LongVector) result).set(row, (long) value);
+                    } else {
+                        result.setNull(row);
+                    }
+                }
+                case DECIMAL -> {
+                    if (Math.abs(value) < Long.MAX_VALUE / (double) TextCodec.decimalFactor()) {
+                        ((LongVector) result).set(row, TextCodec.toUnscaled(value));
+                    } else {
+                        result.setNull(row);
+                    }
+                }
+                default -> throw new IllegalStateException("Cannot cast " + from + " to " + type);
+            }
+            return;
+        }
+        long value = asLong(source, row);
+        switch (type) {
+            case INT -> {
+                if (value == (int) value) {
+                    ((IntVector) result).set(row, (int) value);
+                } else {
+                    result.setNull(row);
+                }
+            }
+            case BIGINT -> ((LongVector) result).set(row, value);
+            case DOUBLE -> ((DoubleVector) result).set(row, value);
+            case DECIMAL -> {
+                long factor = TextCodec.decimalFactor();
+                long high = Math.multiplyHigh(value, factor);
+                long unscaled = value * factor;
+                if (high == (unscaled >> 63)) {
+                    ((LongVector) result).set(row, unscaled);
+                } else {
+                    result.setNull(row);
+                }
+            }
+            default -> throw new IllegalStateException("Cannot cast " + from + " to " + type);
+        }
+    }
+
+    /**
+     * Integral value of an INT, BIGINT, DECIMAL (truncated) or BOOLEAN row.
+     */
+    private static long asLong(ColumnVector source, int row) {
+        return switch (source.getType()) {
+            case INT -> ((IntVector) source).get(row);
+            case BIGINT -> ((LongVector) source).get(row);
+            case DECIMAL -> ((LongVector) source).get(row) / TextCodec.decimalFactor();
+            case BOOLEAN -> ((BooleanVector) source).get(row) ? 1 : 0;
+            default -> throw new IllegalStateException("Not integral: " + source.getType());
+        };
+    }
+
+    private static double asDouble(ColumnVector source, int row) {
+        return switch (source.getType()) {
+            case DOUBLE -> ((DoubleVector) source).get(row);
+            case DECIMAL -> TextCodec.decimalToDouble(((LongVector) source).get(row));
+            default -> asLong(source, row);
+        };
+    }
+}
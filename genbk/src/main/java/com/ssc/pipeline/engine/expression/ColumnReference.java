@@ -0,0 +1,29 @@
+package com.ssc.pipeline.engine.expression;
+
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.RowBatch;
+
+final class ColumnReference implements VectorExpression {
+    private final int column;
+    private final DataType type;
+
+    ColumnReference(int column, DataType type) {
+        this.column = column;
+        this.type = type;
+    }
+
+    int column() {
+        return column;
+    }
+
+    @Override
+    public DataType type() {
+        return type;
+    }
+
+    @Override
+    public ColumnVector evaluate(RowBatch batch) {
+        return batch.column(column);
+    }
+}
@@ -0,0 +1,164 @@
+package com.ssc.pipeline.engine.expression;
+
+import com.ssc.pipeline.engine.batch.BooleanVector;
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.DoubleVector;
+import com.ssc.pipeline.engine.batch.IntVector;
+import com.ssc.pipeline.engine.batch.LongVector;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.StringVector;
+
+/**
+ * Comparison of two operands of the same type. The first pass writes a three-way comparison
+ * per row with a loop specialized to the physical type, the second maps it to the operator, so
+ * both loops stay branch-light and monomorphic.
+ */
+final class ComparisonExpression implements VectorExpression {
+    enum Operator {
+        EQUAL("="), NOT_EQUAL("!="), LESS("<"), LESS_OR_EQUAL("<="), GREATER(">"), GREATER_OR_EQUAL(">=");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        static Operator fromSymbol(String symbol) {
+            for (Operator operator : values()) {
+                if (operator.symbol.equals(symbol)) {
+                    return operator;
+                }
+            }
+            return null;
+        }
+
+        boolean test(int comparison) {
+            return switch (this) {
+                case EQUAL -> comparison == 0;
+                case NOT_EQUAL -> comparison != 0;
+                case LESS -> comparison < 0;
+                case LESS_OR_EQUAL -> comparison <= 0;
+                case GREATER -> comparison > 0;
+                case GREATER_OR_EQUAL -> comparison >= 0;
+            };
+        }
+    }
+
+    private final Operator operator;
+    private final VectorExpression left;
+    private final VectorExpression right;
+    private int[] comparisons = new int[0];
+
+    ComparisonExpression(Operator operator, VectorExpression left, VectorExpression right) {
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+    }
+
+    @Override
+    public DataType type() {
+        return DataType.BOOLEAN;
+    }
+
+    @Override
+    public ColumnVector evaluate(RowBatch batch) {
+        ColumnVector a = left.evaluate(batch);
+        ColumnVector b = right.evaluate(batch);
+        int n = batch.getRowCount();
+        if (comparisons.length < n) {
+            comparisons = new int[n];
+        }
+        int[] c = comparisons;
+        switch (left.type()) {
+            case INT, DATE -> {
+                int[] x = ((IntVector) a).values();
+                int[] y = ((IntVector) b).values();
+                for (int i = 0; i < n; i++) {
+                    c[i] = Integer.compare(x[i], y[i]);
+                }
+            }
+            case BIGINT, DECIMAL, TIMESTAMP -> {
+                long[] x = ((LongVector) a).values();
+                long[] y = ((LongVector) b).values();
+                for (int i = 0; i < n; i++) {
+                    c[i] = Long.compare(x[i], y[i]);
+                }
+            }
+            case DOUBLE -> {
+                double[] x = ((DoubleVector) a).values();
+                double[] y = ((DoubleVector) b).values();
+                for (int i = 0; i < n; i++) {
+                    c[i] = Double.compare(x[i], y[i]);
+                }
+            }
+            case BOOLEAN -> {
+                boolean[] x = ((BooleanVector) a).values();
+                boolean[] y = ((BooleanVector) b).values();
+                for (int i = 0; i < n; i++) {
+                    c[i] = Boolean.compare(x[i], y[i]);
+                }
+            }
+            case STRING -> compareStrings((StringVector) a, (StringVector) b, c, n);
+        }
+
+        BooleanVector result = new BooleanVector(Math.max(n, 1));
+        boolean[] out = result.values();
+        switch (operator) {
+            case EQUAL -> {
+                for (int i = 0; i < n; i++) {
+                    out[i] = c[i] == 0;
+                }
+            }
+            case NOT_EQUAL -> {
+                for (int i = 0; i < n; i++) {
+                    out[i] = c[i] != 0;
+                }
+            }
+            case LESS -> {
+                for (int i = 0; i < n; i++) {
+                    out[i] = c[i] < 0;
+                }
+            }
+            case LESS_OR_EQUAL -> {
+                for (int i = 0; i < n; i++) {
+                    out[i] = c[i] <= 0;
+                }
+            }
+            case GREATER -> {
+                for (int i = 0; i < n; i++) {
+                    out[i] = c[i] > 0;
+                }
+            }
+            case GREATER_OR_EQUAL -> {
+                for (int i = 0; i < n; i++) {
+                    out[i] = c[i] >= 0;
+                }
+            }
+        }
+        result.unionNulls(a);
+        result.unionNulls(b);
+        return result;
+    }
+
+    private void compareStrings(StringVector a, StringVector b, int[] c, int n) {
+        int[] x = a.codes();
+        int[] y = b.codes();
+        boolean equality = operator == Operator.EQUAL || operator == Operator.NOT_EQUAL;
+        if (equality && a.dictionary() == b.dictionary()) {
+            for (int i = 0; i < n; i++) {
+                c[i] = x[i] == y[i] ? 0 : 1;
+            }
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            if (a.isNull(i) || b.isNull(i)) {
+                c[i] = 0;
+            } else if (equality) {
+                c[i] = a.valueEquals(i, b, i) ? 0 : 1;
+            } else {
+                c[i] = a.get(i).compareTo(b.get(i));
+            }
+        }
+    }
+}
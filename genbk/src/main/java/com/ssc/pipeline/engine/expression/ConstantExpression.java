@@ -0,0 +1,62 @@
+package com.ssc.pipeline.engine.expression;
+
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+
+import java.util.List;
+
+/**
+ * A folded value. It is expanded once into a vector as long as the largest batch seen and that
+ * vector is handed out for every batch, so kernels never need a scalar variant.
+ */
+final class ConstantExpression implements VectorExpression {
+    private static final RowBatch SINGLE_ROW = new RowBatch(new Schema(List.of(), List.of()), new ColumnVector[0], 1);
+
+    private final ColumnVector value;
+    private ColumnVector expanded;
+
+    ConstantExpression(ColumnVector value) {
+        this.value = value;
+    }
+
+    static ConstantExpression nullOf(DataType type) {
+        return new ConstantExpression(ColumnVector.nulls(type, 1));
+    }
+
+    /**
+     * Evaluates an expression whose inputs are all constant.
+     */
+    static ConstantExpression fold(VectorExpression expression) {
+        return new ConstantExpression(expression.evaluate(SINGLE_ROW));
+    }
+
+    ColumnVector value() {
+        return value;
+    }
+
+    boolean isNull() {
+        return value.isNull(0);
+    }
+
+    @Override
+    public DataType type() {
+        return value.getType();
+    }
+
+    @Override
+    public boolean isConstant() {
+        return true;
+    }
+
+    @Override
+    public ColumnVector evaluate(RowBatch batch) {
+        int rows = batch.getRowCount();
+        if (expanded == null || expanded.capacity() < rows) {
+            int size = Math.max(rows, RowBatch.DEFAULT_SIZE);
+            expanded = value.gather(new int[size], size);
+        }
+        return expanded;
+    }
+}
@@ -0,0 +1,107 @@
+package com.ssc.pipeline.engine.expression;
+
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Folds the parts of an {@link Expression} that read no column into literals, and drops the
+ * {@code true} side of an AND and the {@code false} side of an OR. The compiler folds the same
+ * sub-expressions when a node is built; doing it on the tree lets the plan optimizer see through
+ * them, e.g. remove a filter that is always true. Values are computed by
+ * {@link ExpressionCompiler}, so a folded literal means exactly what the sub-expression did.
+ * Sub-expressions that fold to null or do not compile are kept, and fail when the node is built.
+ */
+public final class ConstantFolder {
+    private static final ExpressionCompiler NO_COLUMNS = new ExpressionCompiler(new Schema(List.of(), List.of()));
+
+    private ConstantFolder() {
+    }
+
+    public static Expression fold(Expression expression) {
+        if (expression instanceof Expression.Literal || expression instanceof Expression.Field) {
+            return expression;
+        }
+        List<Expression> operands = new ArrayList<>();
+        Expression folded;
+        if (expression instanceof Expression.Binary binary) {
+            operands.add(fold(binary.left()));
+            operands.add(fold(binary.right()));
+            folded = new Expression.Binary(binary.operator(), operands.get(0), operands.get(1));
+        } else if (expression instanceof Expression.Call call) {
+            call.arguments().forEach(argument -> operands.add(fold(argument)));
+            folded = new Expression.Call(call.name(), operands);
+            Expression simplified = simplifyLogic((Expression.Call) folded);
+            if (simplified != null) {
+                return simplified;
+            }
+        } else if (expression instanceof Expression.Cast cast) {
+            operands.add(fold(cast.value()));
+            folded = new Expression.Cast(operands.get(0), cast.type());
+        } else {
+            Expression.Case caseWhen = (Expression.Case) expression;
+            List<Expression.When> whens = new ArrayList<>();
+            for (Expression.When when : caseWhen.whens()) {
+                Expression condition = fold(when.condition());
+                Expression result = fold(when.result());
+                whens.add(new Expression.When(condition, result));
+                operands.add(condition);
+                operands.add(result);
+            }
+            Expression otherwise = caseWhen.otherwise() == null ? null : fold(caseWhen.otherwise());
+            if (otherwise != null) {
+                operands.add(otherwise);
+            }
+            folded = new Expression.Case(whens, otherwise);
+        }
+        for (Expression operand : operands) {
+            if (!(operand instanceof Expression.Literal literal) || literal.isNull()) {
+                return folded;
+            }
+        }
+        return evaluate(folded);
+    }
+
+    /**
+     * @return whether the expression is the literal {@code value}
+     */
+    public static boolean isBoolean(Expression expression, boolean value) {
+        return expression instanceof Expression.Literal literal && literal.type() == DataType.BOOLEAN
+            && String.valueOf(value).equalsIgnoreCase(literal.text());
+    }
+
+    // true AND x, false OR x: x; false AND x, true OR x: the literal, as in three-valued logic
+    private static Expression simplifyLogic(Expression.Call call) {
+        boolean and = "AND".equals(call.name());
+        if (!and && !"OR".equals(call.name()) || call.arguments().size() != 2) {
+            return null;
+        }
+        Expression left = call.arguments().get(0);
+        Expression right = call.arguments().get(1);
+        if (isBoolean(left, !and) || isBoolean(right, !and)) {
+            return new Expression.Literal(String.valueOf(!and), DataType.BOOLEAN);
+        }
+        if (isBoolean(left, and)) {
+            return right;
+        }
+        if (isBoolean(right, and)) {
+            return left;
+        }
+        return null;
+    }
+
+    private static Expression evaluate(Expression expression) {
+        try {
+            VectorExpression compiled = NO_COLUMNS.compile(expression);
+            if (compiled instanceof ConstantExpression constant && !constant.isNull()) {
+                return new Expression.Literal(constant.value().getText(0), constant.type());
+            }
+        } catch (PipelineException e) {
+            // left for the node to report with its own name
+        }
+        return expression;
+    }
+}
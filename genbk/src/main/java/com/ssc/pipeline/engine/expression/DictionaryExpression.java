@@ -0,0 +1,94 @@
+package com.ssc.pipeline.engine.expression;
+
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.StringDictionary;
+import com.ssc.pipeline.engine.batch.StringVector;
+
+import java.util.Arrays;
+
+/**
+ * Applies a function of a single string operand once per distinct dictionary entry instead of
+ * once per row; rows then only copy the memoized result by code. The memo survives across
+ * batches as long as they share a dictionary.
+ */
+final class DictionaryExpression implements VectorExpression {
+
+    @FunctionalInterface
+    interface Kernel {
+        /**
+         * Writes the result for {@code value} to {@code index} of {@code out}, or marks it null.
+         */
+        void apply(String value, ColumnVector out, int index);
+    }
+
+    private final VectorExpression input;
+    private final DataType type;
+    private final Kernel kernel;
+    private StringDictionary memoDictionary;
+    private ColumnVector memo;
+    private boolean[] computed;
+    private StringDictionary outputDictionary;
+
+    DictionaryExpression(VectorExpression input, DataType type, Kernel kernel) {
+        this.input = input;
+        this.type = type;
+        this.kernel = kernel;
+    }
+
+    @Override
+    public DataType type() {
+        return type;
+    }
+
+    @Override
+    public ColumnVector evaluate(RowBatch batch) {
+        StringVector strings = (StringVector) input.evaluate(batch);
+        StringDictionary dictionary = strings.dictionary();
+        prepareMemo(dictionary);
+        int n = batch.getRowCount();
+        int[] codes = strings.codes();
+        ColumnVector result = type == DataType.STRING
+            ? new StringVector(Math.max(n, 1), outputDictionary)
+            : ColumnVector.allocate(type, Math.max(n, 1));
+        boolean nulls = strings.mayHaveNulls();
+        for (int i = 0; i < n; i++) {
+            if (nulls && strings.isNull(i)) {
+                result.setNull(i);
+                continue;
+            }
+            int code = codes[i];
+            if (!computed[code]) {
+                kernel.apply(dictionary.get(code), memo, code);
+                computed[code] = true;
+            }
+            result.copyFrom(memo, code, i);
+        }
+        return result;
+    }
+
+    private void prepareMemo(StringDictionary dictionary) {
+        int size = Math.max(dictionary.size(), 1);
+        if (dictionary != memoDictionary) {
+            memoDictionary = dictionary;
+            outputDictionary = new StringDictionary();
+            memo = allocate(size * 2);
+            computed = new boolean[memo.capacity()];
+        } else if (memo.capacity() < size) {
+            ColumnVector grown = allocate(size * 2);
+            for (int code = 0; code < computed.length; code++) {
+                if (computed[code]) {
+                    grown.copyFrom(memo, code, code);
+                }
+            }
+            memo = grown;
+            computed = Arrays.copyOf(computed, grown.capacity());
+        }
+    }
+
+    private ColumnVector allocate(int capacity) {
+        return type == DataType.STRING ? new StringVector(capacity, outputDictionary)
+            : ColumnVector.allocate(type, capacity);
+    }
+}
@@ -0,0 +1,85 @@
+package com.ssc.pipeline.engine.expression;
+
+import com.ssc.pipeline.engine.batch.DataType;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Syntax tree of the expression language defined by the UI's expression-grammar.pegjs.
+ * {@link #toString()} renders an expression back into that language.
+ */
+public sealed interface Expression {
+
+    record Literal(String text, DataType type) implements Expression {
+        public static Literal ofNull() {
+            return new Literal(null, DataType.STRING);
+        }
+
+        public boolean isNull() {
+            return text == null;
+        }
+
+        @Override
+        public String toString() {
+            if (text == null) {
+                return "null";
+            }
+            return type == DataType.STRING ? "'" + text + "'" : text;
+        }
+    }
+
+    record Field(String name) implements Expression {
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    record Binary(String operator, Expression left, Expression right) implements Expression {
+        @Override
+        public String toString() {
+            return "(" + left + " " + operator + " " + right + ")";
+        }
+    }
+
+    record Call(String name, List<Expression> arguments) implements Expression {
+        public Call {
+            name = name.toUpperCase();
+            arguments = List.copyOf(arguments);
+        }
+
+        @Override
+        public String toString() {
+            return name + "(" + arguments.stream().map(Object::toString).collect(Collectors.joining(", ")) + ")";
+        }
+    }
+
+    record Cast(Expression value, DataType type) implements Expression {
+        @Override
+        public String toString() {
+            return "cast(" + value + " as " + type.getValue() + ")";
+        }
+    }
+
+    record When(Expression condition, Expression result) {
+    }
+
+    record Case(List<When> whens, Expression otherwise) implements Expression {
+        public Case {
+            whens = List.copyOf(whens);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("case");
+            for (When when : whens) {
+                builder.append(" when ").append(when.condition()).append(" then ").append(when.result());
+            }
+            if (otherwise != null) {
+                builder.append(" else ").append(otherwise);
+            }
+            return builder.append(" end").toString();
+        }
+    }
+}
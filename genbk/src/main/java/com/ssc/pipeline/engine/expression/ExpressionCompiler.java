@@ -0,0 +1,243 @@
+package com.ssc.pipeline.engine.expression;
+
+import com.ssc.pipeline.engine.batch.BooleanVector;
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Type-checks an {@link Expression} against an input schema and builds the tree of
+ * type-specialized {@link VectorExpression}s that evaluates it. Operands of mixed types are
+ * widened with explicit casts, string literals are converted to the type they are compared
+ * with, and every sub-expression whose inputs are constant is folded at compile time.
+ */
+public final class ExpressionCompiler {
+    private final Schema schema;
+
+    public ExpressionCompiler(Schema schema) {
+        this.schema = schema;
+    }
+
+    public static VectorExpression compile(String text, Schema schema) {
+        return new ExpressionCompiler(schema).compile(ExpressionParser.parse(text));
+    }
+
+    public VectorExpression compile(Expression expression) {
+        try {
+            return build(expression);
+        } catch (PipelineException e) {
+            throw new PipelineException("Invalid expression " + expression + ": " + e.getMessage(), e);
+        }
+    }
+
+    public VectorExpression compilePredicate(Expression expression) {
+        VectorExpression compiled = compile(expression);
+        if (compiled.type() != DataType.BOOLEAN) {
+            throw new PipelineException("Expression " + expression + " is " + compiled.type().getValue()
+                + ", not a condition");
+        }
+        return compiled;
+    }
+
+    private VectorExpression build(Expression expression) {
+        if (expression instanceof Expression.Literal literal) {
+            return literal(literal);
+        }
+        if (expression instanceof Expression.Field field) {
+            int column = schema.indexOf(field.name());
+            return new ColumnReference(column, schema.type(column));
+        }
+        if (expression instanceof Expression.Cast cast) {
+            VectorExpression input = build(cast.value());
+            if (!CastExpression.isSupported(input.type(), cast.type())) {
+                throw new PipelineException("Cannot cast " + input.type().getValue() + " to " + cast.type().getValue());
+            }
+            return fold(CastExpression.of(input, cast.type()), List.of(input));
+        }
+        if (expression instanceof Expression.Binary binary) {
+            return binary(binary);
+        }
+        if (expression instanceof Expression.Call call) {
+            List<VectorExpression> arguments = new ArrayList<>();
+            call.arguments().forEach(argument -> arguments.add(build(argument)));
+            return fold(FunctionLibrary.resolve(call.name(), arguments), arguments);
+        }
+        return caseWhen((Expression.Case) expression);
+    }
+
+    private static VectorExpression literal(Expression.Literal literal) {
+        if (literal.isNull()) {
+            return ConstantExpression.nullOf(DataType.STRING);
+        }
+        ColumnVector value = ColumnVector.allocate(literal.type(), 1);
+        try {
+            value.setText(0, literal.text());
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            throw new PipelineException("Invalid " + literal.type().getValue() + " literal " + literal.text());
+        }
+        return new ConstantExpression(value);
+    }
+
+    private VectorExpression binary(Expression.Binary binary) {
+        VectorExpression left = build(binary.left());
+        VectorExpression right = build(binary.right());
+        ArithmeticExpression.Operator arithmetic = ArithmeticExpression.Operator.fromSymbol(binary.operator());
+        if (arithmetic != null) {
+            if (!isNumericOrNull(left) || !isNumericOrNull(right)) {
+                throw new PipelineException("Operator " + binary.operator() + " needs numeric operands, got "
+                    + left.type().getValue() + " and " + right.type().getValue()
+                    + ("+".equals(binary.operator()) ? " (use CONCAT for text)" : ""));
+            }
+            DataType type = commonType(left.type(), right);
+            if (!type.isNumeric()) {
+                return ConstantExpression.nullOf(DataType.INT);
+            }
+            VectorExpression a = coerce(left, type);
+            VectorExpression b = coerce(right, type);
+            return fold(new ArithmeticExpression(arithmetic, a, b), List.of(a, b));
+        }
+
+        ComparisonExpression.Operator comparison = ComparisonExpression.Operator.fromSymbol(binary.operator());
+        if (comparison == null) {
+            throw new PipelineException("Unknown operator " + binary.operator());
+        }
+        DataType type = commonType(left.type(), right);
+        VectorExpression a = coerce(left, type);
+        VectorExpression b = coerce(right, type);
+        if (type == DataType.STRING && a.isConstant() != b.isConstant()) {
+            // compare each distinct string with the literal once
+            boolean constantRight = b.isConstant();
+            ConstantExpression constant = (ConstantExpression) (constantRight ? b : a);
+            if (constant.isNull()) {
+                return ConstantExpression.nullOf(DataType.BOOLEAN);
+            }
+            String operand = constant.value().getText(0);
+            return new DictionaryExpression(constantRight ? a : b, DataType.BOOLEAN,
+                (value, out, index) -> ((BooleanVector) out).set(index, comparison.test(
+                    constantRight ? value.compareTo(operand) : operand.compareTo(value))));
+        }
+        return fold(new ComparisonExpression(comparison, a, b), List.of(a, b));
+    }
+
+    private VectorExpression caseWhen(Expression.Case expression) {
+        List<VectorExpression> conditions = new ArrayList<>();
+        List<VectorExpression> results = new ArrayList<>();
+        for (Expression.When when : expression.whens()) {
+            VectorExpression condition = build(when.condition());
+            if (condition.type() != DataType.BOOLEAN) {
+                throw new PipelineException("CASE condition " + when.condition() + " is not a condition");
+            }
+            conditions.add(condition);
+            results.add(build(when.result()));
+        }
+        VectorExpression otherwise = expression.otherwise() == null ? null : build(expression.otherwise());
+
+        DataType type = results.get(0).type();
+        for (VectorExpression result : results) {
+            type = commonType(type, result);
+        }
+        if (otherwise != null) {
+            type = commonType(type, otherwise);
+        }
+        List<VectorExpression> coerced = new ArrayList<>();
+        for (VectorExpression result : results) {
+            coerced.add(coerce(result, type));
+        }
+        List<VectorExpression> inputs = new ArrayList<>(conditions);
+        inputs.addAll(coerced);
+        VectorExpression fallback = otherwise == null ? null : coerce(otherwise, type);
+        if (fallback != null) {
+            inputs.add(fallback);
+        }
+        return fold(new CaseExpression(conditions, coerced, fallback, type), inputs);
+    }
+
+    private static boolean isNumericOrNull(VectorExpression expression) {
+        return expression.type().isNumeric() || isNullConstant(expression);
+    }
+
+    private static boolean isNullConstant(VectorExpression expression) {
+        return expression.isConstant() && ((ConstantExpression) expression).isNull();
+    }
+
+    /**
+     * The type both operands are converted to: the wider numeric type, TIMESTAMP for mixed
+     * temporal types, and the other operand's type for strings and untyped nulls.
+     */
+    static DataType commonType(DataType type, VectorExpression other) {
+        DataType otherType = other.type();
+        if (type == otherType || isNullConstant(other)) {
+            return type;
+        }
+        if (type == DataType.STRING) {
+            return otherType;
+        }
+        if (otherType == DataType.STRING) {
+            return type;
+        }
+        if (type.isNumeric() && otherType.isNumeric()) {
+            if (type == DataType.DOUBLE || otherType == DataType.DOUBLE) {
+                return DataType.DOUBLE;
+            }
+            if (type == DataType.DECIMAL || otherType == DataType.DECIMAL) {
+                return DataType.DECIMAL;
+            }
+            return DataType.BIGINT;
+        }
+        if (type.isTemporal() && otherType.isTemporal()) {
+            return DataType.TIMESTAMP;
+        }
+        throw new PipelineException("Cannot combine " + type.getValue() + " with " + otherType.getValue());
+    }
+
+    static VectorExpression coerce(VectorExpression expression, DataType type) {
+        if (expression.type() == type) {
+            return expression;
+        }
+        if (expression.isConstant()) {
+            return coerceConstant(expression, type);
+        }
+        if (!CastExpression.isSupported(expression.type(), type)) {
+            throw new PipelineException("Cannot convert " + expression.type().getValue() + " to " + type.getValue());
+        }
+        return CastExpression.of(expression, type);
+    }
+
+    /**
+     * Converts a constant, failing instead of producing null when it is not a valid value of the
+     * target type; that is almost always a typo in a filter value.
+     */
+    static VectorExpression coerceConstant(VectorExpression expression, DataType type) {
+        ConstantExpression constant = (ConstantExpression) expression;
+        if (constant.type() == type) {
+            return constant;
+        }
+        if (constant.isNull()) {
+            return ConstantExpression.nullOf(type);
+        }
+        if (!CastExpression.isSupported(constant.type(), type)) {
+            throw new PipelineException("Cannot convert " + constant.type().getValue() + " to " + type.getValue());
+        }
+        ConstantExpression converted = ConstantExpression.fold(CastExpression.of(constant, type));
+        if (converted.isNull()) {
+            throw new PipelineException("'" + constant.value().getText(0) + "' is not a valid " + type.getValue());
+        }
+        return converted;
+    }
+
+    private static VectorExpression fold(VectorExpression expression, List<VectorExpression> inputs) {
+        if (expression.isConstant() || inputs.isEmpty()) {
+            return expression;
+        }
+        for (VectorExpression input : inputs) {
+            if (!input.isConstant()) {
+                return expression;
+            }
+        }
+        return ConstantExpression.fold(expression);
+    }
+}
@@ -0,0 +1,295 @@
+package com.ssc.pipeline.engine.expression;
+
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recursive-descent parser for the CodeEditor expression grammar (expression-grammar.pegjs).
+ * It accepts everything the grammar accepts and, so that conditions can be combined, also
+ * operator chains with the usual precedence, parentheses, {@code and}/{@code or}/{@code not},
+ * {@code <>}/{@code !=} and the {@code null}/{@code true}/{@code false} literals.
+ */
+public final class ExpressionParser {
+    private final String text;
+    private int pos;
+
+    private ExpressionParser(String text) {
+        this.text = text;
+    }
+
+    public static Expression parse(String text) {
+        if (text == null || text.isBlank()) {
+            throw new PipelineException("Expression is empty");
+        }
+        ExpressionParser parser = new ExpressionParser(text);
+        Expression expression = parser.parseOr();
+        parser.skipWhitespace();
+        if (parser.pos < text.length()) {
+            throw parser.error("Unexpected '" + text.charAt(parser.pos) + "'");
+        }
+        return expression;
+    }
+
+    private Expression parseOr() {
+        Expression left = parseAnd();
+        while (keyword("or")) {
+            left = new Expression.Call("OR", List.of(left, parseAnd()));
+        }
+        return left;
+    }
+
+    private Expression parseAnd() {
+        Expression left = parseNot();
+        while (keyword("and")) {
+            left = new Expression.Call("AND", List.of(left, parseNot()));
+        }
+        return left;
+    }
+
+    private Expression parseNot() {
+        if (keyword("not")) {
+            return new Expression.Call("NOT", List.of(parseNot()));
+        }
+        return parseComparison();
+    }
+
+    private Expression parseComparison() {
+        Expression left = parseAdditive();
+        skipWhitespace();
+        for (String operator : new String[] {"<=", ">=", "<>", "!=", "<", ">", "="}) {
+            if (text.startsWith(operator, pos)) {
+                pos += operator.length();
+                String normalized = "<>".equals(operator) ? "!=" : operator;
+                return new Expression.Binary(normalized, left, parseAdditive());
+            }
+        }
+        return left;
+    }
+
+    private Expression parseAdditive() {
+        Expression left = parseMultiplicative();
+        while (true) {
+            skipWhitespace();
+            if (peek('+') || peek('-')) {
+                String operator = String.valueOf(text.charAt(pos++));
+                left = new Expression.Binary(operator, left, parseMultiplicative());
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Expression parseMultiplicative() {
+        Expression left = parseUnary();
+        while (true) {
+            skipWhitespace();
+            if (peek('*') || peek('/')) {
+                String operator = String.valueOf(text.charAt(pos++));
+                left = new Expression.Binary(operator, left, parseUnary());
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Expression parseUnary() {
+        skipWhitespace();
+        if (peek('-')) {
+            pos++;
+            Expression operand = parseUnary();
+            if (operand instanceof Expression.Literal literal && literal.type().isNumeric() && !literal.isNull()) {
+                return new Expression.Literal("-" + literal.text(), literal.type());
+            }
+            return new Expression.Binary("-", new Expression.Literal("0", DataType.INT), operand);
+        }
+        return parsePrimary();
+    }
+
+    private Expression parsePrimary() {
+        skipWhitespace();
+        if (pos >= text.length()) {
+            throw error("Unexpected end of expression");
+        }
+        char c = text.charAt(pos);
+        if (c == '(') {
+            pos++;
+            Expression inner = parseOr();
+            expect(')');
+            return inner;
+        }
+        if (c == '\'' || c == '"') {
+            int end = text.indexOf(c, pos + 1);
+            if (end < 0) {
+                throw error("Unterminated string literal");
+            }
+            String value = text.substring(pos + 1, end);
+            pos = end + 1;
+            return new Expression.Literal(value, DataType.STRING);
+        }
+        if (Character.isDigit(c)) {
+            return parseNumber();
+        }
+        if (Character.isLetter(c) || c == '_') {
+            int start = pos;
+            String identifier = identifier();
+            String lower = identifier.toLowerCase();
+            switch (lower) {
+                case "case" -> {
+                    return parseCase();
+                }
+                case "null" -> {
+                    return Expression.Literal.ofNull();
+                }
+                case "true", "false" -> {
+                    return new Expression.Literal(lower, DataType.BOOLEAN);
+                }
+                default -> {
+                    skipWhitespace();
+                    if (peek('(')) {
+                        pos++;
+                        if ("cast".equals(lower)) {
+                            return parseCast();
+                        }
+                        return new Expression.Call(identifier, parseArguments());
+                    }
+                    if (isKeyword(lower)) {
+                        pos = start;
+                        throw error("Unexpected keyword '" + identifier + "'");
+                    }
+                    return new Expression.Field(identifier);
+                }
+            }
+        }
+        throw error("Unexpected '" + c + "'");
+    }
+
+    private Expression parseNumber() {
+        int start = pos;
+        while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+            pos++;
+        }
+        boolean fraction = false;
+        if (pos + 1 < text.length() && text.charAt(pos) == '.' && Character.isDigit(text.charAt(pos + 1))) {
+            fraction = true;
+            pos++;
+            while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                pos++;
+            }
+        }
+        String number = text.substring(start, pos);
+        if (fraction) {
+            return new Expression.Literal(number, DataType.DECIMAL);
+        }
+        return new Expression.Literal(number, number.length() < 10 ? DataType.INT : DataType.BIGINT);
+    }
+
+    private Expression parseCase() {
+        List<Expression.When> whens = new ArrayList<>();
+        while (keyword("when")) {
+            Expression condition = parseOr();
+            if (!keyword("then")) {
+                throw error("Expected 'then'");
+            }
+            whens.add(new Expression.When(condition, parseOr()));
+        }
+        if (whens.isEmpty()) {
+            throw error("Expected 'when'");
+        }
+        Expression otherwise = keyword("else") ? parseOr() : null;
+        if (!keyword("end")) {
+            throw error("Expected 'end'");
+        }
+        return new Expression.Case(whens, otherwise);
+    }
+
+    private Expression parseCast() {
+        Expression value = parseOr();
+        if (!keyword("as")) {
+            throw error("Expected 'as' in cast");
+        }
+        skipWhitespace();
+        String typeName = identifier();
+        expect(')');
+        try {
+            return new Expression.Cast(value, DataType.fromString(typeName));
+        } catch (IllegalArgumentException e) {
+            throw error(e.getMessage());
+        }
+    }
+
+    private List<Expression> parseArguments() {
+        List<Expression> arguments = new ArrayList<>();
+        skipWhitespace();
+        if (peek(')')) {
+            pos++;
+            return arguments;
+        }
+        do {
+            arguments.add(parseOr());
+            skipWhitespace();
+        } while (peek(',') && pos++ >= 0);
+        expect(')');
+        return arguments;
+    }
+
+    private boolean keyword(String keyword) {
+        skipWhitespace();
+        int end = pos + keyword.length();
+        if (end <= text.length() && text.regionMatches(true, pos, keyword, 0, keyword.length())
+            && (end == text.length() || !isIdentifierPart(text.charAt(end)))) {
+            pos = end;
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isKeyword(String word) {
+        return switch (word) {
+            case "when", "then", "else", "end", "as", "and", "or", "not" -> true;
+            default -> false;
+        };
+    }
+
+    private String identifier() {
+        int start = pos;
+        if (pos < text.length() && (Character.isLetter(text.charAt(pos)) || text.charAt(pos) == '_')) {
+            pos++;
+            while (pos < text.length() && isIdentifierPart(text.charAt(pos))) {
+                pos++;
+            }
+        }
+        if (start == pos) {
+            throw error("Expected an identifier");
+        }
+        return text.substring(start, pos);
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private boolean peek(char c) {
+        return pos < text.length() && text.charAt(pos) == c;
+    }
+
+    private void expect(char c) {
+        skipWhitespace();
+        if (!peek(c)) {
+            throw error("Expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private PipelineException error(String message) {
+        return new PipelineException(message + " at position " + pos + " in expression: " + text);
+    }
+}
@@ -0,0 +1,346 @@
+package com.ssc.pipeline.engine.expression;
+
+import com.ssc.pipeline.engine.batch.BooleanVector;
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.IntVector;
+import com.ssc.pipeline.engine.batch.LongVector;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.StringVector;
+import com.ssc.pipeline.engine.batch.TextCodec;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Built-in functions. The UI offers ABS, ROUND, CONCAT and UPPER; the rest back the FilterAssemble
+ * operations (STARTS_WITH, IN, IS_NULL, ...) or are common enough to be expected.
+ */
+final class FunctionLibrary {
+    private FunctionLibrary() {
+    }
+
+    static VectorExpression resolve(String name, List<VectorExpression> arguments) {
+        return switch (name) {
+            case "AND", "OR" -> {
+                arity(name, arguments, 2, 2);
+                yield new LogicalExpression(LogicalExpression.Operator.valueOf(name),
+                    bool(name, arguments.get(0)), bool(name, arguments.get(1)));
+            }
+            case "NOT" -> {
+                arity(name, arguments, 1, 1);
+                yield new LogicalExpression(LogicalExpression.Operator.NOT, bool(name, arguments.get(0)), null);
+            }
+            case "ABS", "CEIL", "FLOOR" -> {
+                arity(name, arguments, 1, 1);
+                yield new MathExpression(MathExpression.Function.valueOf(name), numeric(name, arguments.get(0)), 0);
+            }
+            case "ROUND" -> {
+                arity(name, arguments, 1, 2);
+                int digits = arguments.size() > 1 ? constantInt(name, arguments.get(1)) : 0;
+                if (digits < -18 || digits > 18) {
+                    throw new PipelineException("ROUND digits must be between -18 and 18, got " + digits);
+                }
+                yield new MathExpression(MathExpression.Function.ROUND, numeric(name, arguments.get(0)), digits);
+            }
+            case "UPPER" -> mapText(name, arguments, String::toUpperCase);
+            case "LOWER" -> mapText(name, arguments, String::toLowerCase);
+            case "TRIM" -> mapText(name, arguments, String::trim);
+            case "LENGTH" -> {
+                arity(name, arguments, 1, 1);
+                yield new DictionaryExpression(text(arguments.get(0)), DataType.INT,
+                    (value, out, index) -> ((IntVector) out).set(index, value.length()));
+            }
+            case "SUBSTRING" -> {
+                arity(name, arguments, 2, 3);
+                int start = Math.max(constantInt(name, arguments.get(1)) - 1, 0);
+                int length = arguments.size() > 2 ? constantInt(name, arguments.get(2)) : Integer.MAX_VALUE;
+                yield mapText(name, arguments.subList(0, 1), value -> {
+                    int from = Math.min(start, value.length());
+                    return value.substring(from, (int) Math.min(value.length(), (long) from + Math.max(length, 0)));
+                });
+            }
+            case "REPLACE" -> {
+                arity(name, arguments, 3, 3);
+                String target = constantText(name, arguments.get(1));
+                String replacement = constantText(name, arguments.get(2));
+                yield mapText(name, arguments.subList(0, 1), value -> value.replace(target, replacement));
+            }
+            case "STARTS_WITH" -> {
+                arity(name, arguments, 2, 2);
+                String prefix = constantText(name, arguments.get(1));
+                yield testText(arguments.get(0), value -> value.startsWith(prefix));
+            }
+            case "ENDS_WITH" -> {
+                arity(name, arguments, 2, 2);
+                String suffix = constantText(name, arguments.get(1));
+                yield testText(arguments.get(0), value -> value.endsWith(suffix));
+            }
+            case "CONTAINS" -> {
+                arity(name, arguments, 2, 2);
+                String part = constantText(name, arguments.get(1));
+                yield testText(arguments.get(0), value -> value.contains(part));
+            }
+            case "CONCAT" -> {
+                arity(name, arguments, 1, Integer.MAX_VALUE);
+                yield new ConcatExpression(arguments.stream().map(FunctionLibrary::text).toList());
+            }
+            case "COALESCE" -> {
+                arity(name, arguments, 1, Integer.MAX_VALUE);
+                DataType type = arguments.get(0).type();
+                for (VectorExpression argument : arguments) {
+                    type = ExpressionCompiler.commonType(type, argument);
+                }
+                DataType common = type;
+                yield new CoalesceExpression(arguments.stream()
+                    .map(argument -> ExpressionCompiler.coerce(argument, common)).toList(), common);
+            }
+            case "IS_NULL", "IS_NOT_NULL" -> {
+                arity(name, arguments, 1, 1);
+                yield new NullTestExpression(arguments.get(0), "IS_NULL".equals(name));
+            }
+            case "IN" -> {
+                arity(name, arguments, 2, Integer.MAX_VALUE);
+                yield in(arguments.get(0), arguments.subList(1, arguments.size()));
+            }
+            case "YEAR", "MONTH", "DAY" -> {
+                arity(name, arguments, 1, 1);
+                VectorExpression argument = arguments.get(0);
+                if (!argument.type().isTemporal()) {
+                    throw new PipelineException(name + " needs a date or timestamp, got " + argument.type().getValue());
+                }
+                yield new DatePartExpression(name, argument);
+            }
+            default -> throw new PipelineException("Unknown function: " + name);
+        };
+    }
+
+    private static VectorExpression in(VectorExpression input, List<VectorExpression> candidates) {
+        DataType type = input.type();
+        ColumnVector values = ColumnVector.allocate(type, candidates.size());
+        int count = 0;
+        for (VectorExpression candidate : candidates) {
+            if (!candidate.isConstant()) {
+                throw new PipelineException("IN only accepts constant values");
+            }
+            ConstantExpression constant = (ConstantExpression) ExpressionCompiler.coerceConstant(candidate, type);
+            if (!constant.isNull()) {
+                values.copyFrom(constant.value(), 0, count++);
+            }
+        }
+        if (type == DataType.STRING) {
+            Set<String> accepted = new HashSet<>();
+            for (int i = 0; i < count; i++) {
+                accepted.add(((StringVector) values).get(i));
+            }
+            return testText(input, accepted::contains);
+        }
+        return new InExpression(input, values, count);
+    }
+
+    private static VectorExpression mapText(String name, List<VectorExpression> arguments,
+                                            UnaryOperator<String> function) {
+        arity(name, arguments, 1, 1);
+        return new DictionaryExpression(text(arguments.get(0)), DataType.STRING,
+            (value, out, index) -> ((StringVector) out).set(index, function.apply(value)));
+    }
+
+    private static VectorExpression testText(VectorExpression argument, Predicate<String> test) {
+        return new DictionaryExpression(text(argument), DataType.BOOLEAN,
+            (value, out, index) -> ((BooleanVector) out).set(index, test.test(value)));
+    }
+
+    private static VectorExpression text(VectorExpression argument) {
+        return CastExpression.of(argument, DataType.STRING);
+    }
+
+    private static VectorExpression bool(String name, VectorExpression argument) {
+        if (argument.type() != DataType.BOOLEAN) {
+            throw new PipelineException(name + " needs a boolean operand, got " + argument.type().getValue());
+        }
+        return argument;
+    }
+
+    private static VectorExpression numeric(String name, VectorExpression argument) {
+        if (!argument.type().isNumeric()) {
+            throw new PipelineException(name + " needs a numeric operand, got " + argument.type().getValue());
+        }
+        return argument;
+    }
+
+    private static int constantInt(String name, VectorExpression argument) {
+        if (!argument.isConstant() || ((ConstantExpression) argument).isNull()) {
+            throw new PipelineException(name + " needs a constant integer argument");
+        }
+        ColumnVector value = ((ConstantExpression) ExpressionCompiler.coerceConstant(argument, DataType.INT)).value();
+        return ((IntVector) value).get(0);
+    }
+
+    private static String constantText(String name, VectorExpression argument) {
+        if (!argument.isConstant() || ((ConstantExpression) argument).isNull()) {
+            throw new PipelineException(name + " needs a constant text argument");
+        }
+        return ((ConstantExpression) argument).value().getText(0);
+    }
+
+    private static void arity(String name, List<VectorExpression> arguments, int min, int max) {
+        if (arguments.size() < min || arguments.size() > max) {
+            String expected = min == max ? String.valueOf(min)
+                : max == Integer.MAX_VALUE ? "at least " + min : min + " to " + max;
+            throw new PipelineException(name + " takes " + expected + " arguments but got " + arguments.size());
+        }
+    }
+
+    private static final class ConcatExpression implements VectorExpression {
+        private final List<VectorExpression> parts;
+
+        ConcatExpression(List<VectorExpression> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public DataType type() {
+            return DataType.STRING;
+        }
+
+        @Override
+        public ColumnVector evaluate(RowBatch batch) {
+            int n = batch.getRowCount();
+            StringVector[] values = new StringVector[parts.size()];
+            for (int p = 0; p < values.length; p++) {
+                values[p] = (StringVector) parts.get(p).evaluate(batch);
+            }
+            StringVector result = new StringVector(Math.max(n, 1));
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < n; i++) {
+                text.setLength(0);
+                for (StringVector value : values) {
+                    // like the UI preview, a null part contributes nothing
+                    if (!value.isNull(i)) {
+                        text.append(value.get(i));
+                    }
+                }
+                result.set(i, text);
+            }
+            return result;
+        }
+    }
+
+    private static final class CoalesceExpression implements VectorExpression {
+        private final List<VectorExpression> arguments;
+        private final DataType type;
+
+        CoalesceExpression(List<VectorExpression> arguments, DataType type) {
+            this.arguments = arguments;
+            this.type = type;
+        }
+
+        @Override
+        public DataType type() {
+            return type;
+        }
+
+        @Override
+        public ColumnVector evaluate(RowBatch batch) {
+            ColumnVector first = arguments.get(0).evaluate(batch);
+            if (!first.mayHaveNulls() || arguments.size() == 1) {
+                return first;
+            }
+            int n = batch.getRowCount();
+            ColumnVector result = ColumnVector.allocate(type, Math.max(n, 1));
+            ColumnVector[] values = new ColumnVector[arguments.size()];
+            values[0] = first;
+            for (int i = 0; i < n; i++) {
+                int pick = 0;
+                while (pick < values.length - 1 && value(values, pick, batch).isNull(i)) {
+                    pick++;
+                }
+                result.copyFrom(value(values, pick, batch), i, i);
+            }
+            return result;
+        }
+
+        private ColumnVector value(ColumnVector[] values, int index, RowBatch batch) {
+            if (values[index] == null) {
+                values[index] = arguments.get(index).evaluate(batch);
+            }
+            return values[index];
+        }
+    }
+
+    private static final class NullTestExpression implements VectorExpression {
+        private final VectorExpression input;
+        private final boolean isNull;
+
+        NullTestExpression(VectorExpression input, boolean isNull) {
+            this.input = input;
+            this.isNull = isNull;
+        }
+
+        @Override
+        public DataType type() {
+            return DataType.BOOLEAN;
+        }
+
+        @Override
+        public ColumnVector evaluate(RowBatch batch) {
+            ColumnVector source = input.evaluate(batch);
+            int n = batch.getRowCount();
+            BooleanVector result = new BooleanVector(Math.max(n, 1));
+            boolean[] out = result.values();
+            if (source.mayHaveNulls()) {
+                for (int i = 0; i < n; i++) {
+                    out[i] = source.isNull(i) == isNull;
+                }
+            } else if (!isNull) {
+                Arrays.fill(out, 0, n, true);
+            }
+            return result;
+        }
+    }
+
+    private static final class DatePartExpression implements VectorExpression {
+        private static final long MILLIS_PER_DAY = 86_400_000L;
+
+        private final String part;
+        private final VectorExpression input;
+
+        DatePartExpression(String part, VectorExpression input) {
+            this.part = part;
+            this.input = input;
+        }
+
+        @Override
+        public DataType type() {
+            return DataType.INT;
+        }
+
+        @Override
+        public ColumnVector evaluate(RowBatch batch) {
+            ColumnVector source = input.evaluate(batch);
+            int n = batch.getRowCount();
+            IntVector result = new IntVector(DataType.INT, Math.max(n, 1));
+            int[] out = result.values();
+            boolean date = source.getType() == DataType.DATE;
+            boolean year = "YEAR".equals(part);
+            boolean month = "MONTH".equals(part);
+            for (int i = 0; i < n; i++) {
+                if (source.isNull(i)) {
+                    continue;
+                }
+                long epochDay = date ? ((IntVector) source).get(i)
+                    : Math.floorDiv(((LongVector) source).get(i), MILLIS_PER_DAY);
+                LocalDate day = TextCodec.toLocalDate((int) epochDay);
+                out[i] = year ? day.getYear() : month ? day.getMonthValue() : day.getDayOfMonth();
+            }
+            result.unionNulls(source);
+            return result;
+        }
+    }
+}
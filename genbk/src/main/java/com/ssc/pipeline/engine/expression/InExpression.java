@@ -0,0 +1,89 @@
+package com.ssc.pipeline.engine.expression;
+
+import com.ssc.pipeline.engine.batch.BooleanVector;
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.DoubleVector;
+import com.ssc.pipeline.engine.batch.IntVector;
+import com.ssc.pipeline.engine.batch.LongVector;
+import com.ssc.pipeline.engine.batch.RowBatch;
+
+import java.util.Arrays;
+
+/**
+ * Membership of a non-string operand in a constant list, by binary search over the sorted
+ * primitive values. String operands use a {@link DictionaryExpression} instead.
+ */
+final class InExpression implements VectorExpression {
+    private final VectorExpression input;
+    private final long[] longs;
+    private final double[] doubles;
+
+    InExpression(VectorExpression input, ColumnVector values, int count) {
+        this.input = input;
+        if (input.type() == DataType.DOUBLE) {
+            double[] sorted = Arrays.copyOf(((DoubleVector) values).values(), count);
+            Arrays.sort(sorted);
+            this.doubles = sorted;
+            this.longs = null;
+        } else {
+            long[] sorted = new long[count];
+            for (int i = 0; i < count; i++) {
+                sorted[i] = asLong(values, i);
+            }
+            Arrays.sort(sorted);
+            this.longs = sorted;
+            this.doubles = null;
+        }
+    }
+
+    @Override
+    public DataType type() {
+        return DataType.BOOLEAN;
+    }
+
+    @Override
+    public ColumnVector evaluate(RowBatch batch) {
+        ColumnVector source = input.evaluate(batch);
+        int n = batch.getRowCount();
+        BooleanVector result = new BooleanVector(Math.max(n, 1));
+        boolean[] out = result.values();
+        switch (source.getType()) {
+            case INT, DATE -> {
+                int[] x = ((IntVector) source).values();
+                for (int i = 0; i < n; i++) {
+                    out[i] = Arrays.binarySearch(longs, x[i]) >= 0;
+                }
+            }
+            case BIGINT, DECIMAL, TIMESTAMP -> {
+                long[] x = ((LongVector) source).values();
+                for (int i = 0; i < n; i++) {
+                    out[i] = Arrays.binarySearch(longs, x[i]) >= 0;
+                }
+            }
+            case DOUBLE -> {
+                double[] x = ((DoubleVector) source).values();
+                for (int i = 0; i < n; i++) {
+                    out[i] = Arrays.binarySearch(doubles, x[i]) >= 0;
+                }
+            }
+            case BOOLEAN -> {
+                boolean[] x = ((BooleanVector) source).values();
+                for (int i = 0; i < n; i++) {
+                    out[i] = Arrays.binarySearch(longs, x[i] ? 1 : 0) >= 0;
+                }
+            }
+            default -> throw new IllegalStateException("IN over " + source.getType());
+        }
+        result.unionNulls(source);
+        return result;
+    }
+
+    private static long asLong(ColumnVector values, int row) {
+        return switch (values.getType()) {
+            case INT, DATE -> ((IntVector) values).get(row);
+            case BOOLEAN -> ((BooleanVector) values).get(row) ? 1 : 0;
+            default -> ((LongVector) values).get(row);
+        };
+    }
+}
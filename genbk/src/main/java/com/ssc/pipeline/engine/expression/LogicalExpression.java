@@ -0,0 +1,85 @@
+package com.ssc.pipeline.engine.expression;
+
+import com.ssc.pipeline.engine.batch.BooleanVector;
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.RowBatch;
+
+/**
+ * SQL three-valued AND, OR and NOT. Without nulls on either side the batch is combined with a
+ * single non-branching loop.
+ */
+final class LogicalExpression implements VectorExpression {
+    enum Operator {
+        AND, OR, NOT
+    }
+
+    private final Operator operator;
+    private final VectorExpression left;
+    private final VectorExpression right;
+
+    LogicalExpression(Operator operator, VectorExpression left, VectorExpression right) {
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+    }
+
+    @Override
+    public DataType type() {
+        return DataType.BOOLEAN;
+    }
+
+    @Override
+    public ColumnVector evaluate(RowBatch batch) {
+        int n = batch.getRowCount();
+        BooleanVector a = (BooleanVector) left.evaluate(batch);
+        BooleanVector result = new BooleanVector(Math.max(n, 1));
+        boolean[] x = a.values();
+        boolean[] out = result.values();
+        if (operator == Operator.NOT) {
+            for (int i = 0; i < n; i++) {
+                out[i] = !x[i];
+            }
+            result.unionNulls(a);
+            return result;
+        }
+
+        BooleanVector b = (BooleanVector) right.evaluate(batch);
+        boolean[] y = b.values();
+        boolean and = operator == Operator.AND;
+        if (!a.mayHaveNulls() && !b.mayHaveNulls()) {
+            if (and) {
+                for (int i = 0; i < n; i++) {
+                    out[i] = x[i] & y[i];
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    out[i] = x[i] | y[i];
+                }
+            }
+            return result;
+        }
+        for (int i = 0; i < n; i++) {
+            boolean leftNull = a.isNull(i);
+            boolean rightNull = b.isNull(i);
+            if (and) {
+                if (!leftNull && !x[i] || !rightNull && !y[i]) {
+                    out[i] = false;
+                } else if (leftNull || rightNull) {
+                    result.setNull(i);
+                } else {
+                    out[i] = true;
+                }
+            } else {
+                if (!leftNull && x[i] || !rightNull && y[i]) {
+                    out[i] = true;
+                } else if (leftNull || rightNull) {
+                    result.setNull(i);
+                } else {
+                    out[i] = false;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,144 @@
+package com.ssc.pipeline.engine.expression;
+
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.DoubleVector;
+import com.ssc.pipeline.engine.batch.IntVector;
+import com.ssc.pipeline.engine.batch.LongVector;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.TextCodec;
+
+/**
+ * ABS, CEIL, FLOOR and ROUND; the result has the type of the operand.
+ */
+final class MathExpression implements VectorExpression {
+    enum Function {
+        ABS, CEIL, FLOOR, ROUND
+    }
+
+    private final Function function;
+    private final VectorExpression input;
+    private final int digits;
+
+    MathExpression(Function function, VectorExpression input, int digits) {
+        this.function = function;
+        this.input = input;
+        this.digits = digits;
+    }
+
+    @Override
+    public DataType type() {
+        return input.type();
+    }
+
+    @Override
+    public ColumnVector evaluate(RowBatch batch) {
+        ColumnVector source = input.evaluate(batch);
+        int n = batch.getRowCount();
+        if (function != Function.ABS && (type() == DataType.INT || type() == DataType.BIGINT) && digits >= 0) {
+            return source;
+        }
+        ColumnVector result = ColumnVector.allocate(type(), Math.max(n, 1));
+        switch (type()) {
+            case INT -> {
+                int[] x = ((IntVector) source).values();
+                int[] out = ((IntVector) result).values();
+                if (function == Function.ABS) {
+                    for (int i = 0; i < n; i++) {
+                        out[i] = Math.abs(x[i]);
+                    }
+                } else {
+                    long unit = pow10(-digits);
+                    for (int i = 0; i < n; i++) {
+                        out[i] = (int) (apply(x[i], unit) * unit);
+                    }
+                }
+            }
+            case BIGINT -> {
+                long[] x = ((LongVector) source).values();
+                long[] out = ((LongVector) result).values();
+                if (function == Function.ABS) {
+                    for (int i = 0; i < n; i++) {
+                        out[i] = Math.abs(x[i]);
+                    }
+                } else {
+                    long unit = pow10(-digits);
+                    for (int i = 0; i < n; i++) {
+                        out[i] = apply(x[i], unit) * unit;
+                    }
+                }
+            }
+            case DECIMAL -> {
+                long[] x = ((LongVector) source).values();
+                long[] out = ((LongVector) result).values();
+                if (function == Function.ABS) {
+                    for (int i = 0; i < n; i++) {
+                        out[i] = Math.abs(x[i]);
+                    }
+                } else {
+                    int keep = function == Function.ROUND ? Math.min(digits, DataType.DECIMAL_SCALE) : 0;
+                    long unit = pow10(DataType.DECIMAL_SCALE - keep);
+                    for (int i = 0; i < n; i++) {
+                        out[i] = apply(x[i], unit) * unit;
+                    }
+                }
+            }
+            case DOUBLE -> {
+                double[] x = ((DoubleVector) source).values();
+                double[] out = ((DoubleVector) result).values();
+                switch (function) {
+                    case ABS -> {
+                        for (int i = 0; i < n; i++) {
+                            out[i] = Math.abs(x[i]);
+                        }
+                    }
+                    case CEIL -> {
+                        for (int i = 0; i < n; i++) {
+                            out[i] = Math.ceil(x[i]);
+                        }
+                    }
+                    case FLOOR -> {
+                        for (int i = 0; i < n; i++) {
+                            out[i] = Math.floor(x[i]);
+                        }
+                    }
+                    case ROUND -> {
+                        double scale = Math.pow(10, digits);
+                        for (int i = 0; i < n; i++) {
+                            double value = Math.abs(x[i]) * scale;
+                            out[i] = Math.copySign(Math.floor(value + 0.5) / scale, x[i]);
+                        }
+                    }
+                }
+            }
+            default -> throw new IllegalStateException(function + " on " + type());
+        }
+        result.unionNulls(source);
+        return result;
+    }
+
+    /**
+     * Rounds {@code value} to a multiple of {@code unit} and returns the number of units.
+     */
+    private long apply(long value, long unit) {
+        long quotient = Math.floorDiv(value, unit);
+        long remainder = Math.floorMod(value, unit);
+        return switch (function) {
+            case CEIL -> remainder == 0 ? quotient : quotient + 1;
+            case FLOOR -> quotient;
+            default -> {
+                // half away from zero, like the double variant
+                long twice = remainder * 2;
+                yield twice > unit || twice == unit && value >= 0 ? quotient + 1 : quotient;
+            }
+        };
+    }
+
+    private static long pow10(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+}
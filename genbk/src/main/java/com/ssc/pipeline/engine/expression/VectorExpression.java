@@ -0,0 +1,22 @@
+package com.ssc.pipeline.engine.expression;
+
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.RowBatch;
+
+/**
+ * Compiled expression. Each implementation is specialized to its operand types and evaluates a
+ * whole batch per call with tight loops over the primitive arrays, so there is no per-row
+ * dispatch. The returned vector may be shared (a batch column or a constant) and must be treated
+ * as read-only.
+ */
+public interface VectorExpression {
+
+    DataType type();
+
+    ColumnVector evaluate(RowBatch batch);
+
+    default boolean isConstant() {
+        return false;
+    }
+}
@@ -0,0 +1,58 @@
+package com.ssc.pipeline.engine.graph;
+
+/**
+ * Workflow components known to the engine, keyed by the reactflow node group and name
+ * used in the UI's WorkflowConstants.
+ */
+public enum NodeType {
+    CSV_READER("source", "CSVReader"),
+    FILE_UPLOADER("source", "Fileuploader"),
+    SHARED_FOLDER_SOURCE("source", "SharedFolder"),
+    SFTP_SOURCE("source", "SFTP"),
+    FILTER("datatransform", "Filter"),
+    JOIN("datatransform", "Join"),
+    SELECT("datatransform", "Select"),
+    GROUP("datatransform", "Group"),
+    UNION("datatransform", "Union"),
+    SORT("datatransform", "Sort"),
+    EXCEL_WRITER("output", "ExcelWriter"),
+    CSV_WRITER("output", "CsvWriter"),
+    SFTP_OUTPUT("output", "SFTP"),
+    SHARED_FOLDER_OUTPUT("output", "SharedFolder");
+
+    private final String group;
+    private final String componentName;
+
+    NodeType(String group, String componentName) {
+        this.group = group;
+        this.componentName = componentName;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public String getComponentName() {
+        return componentName;
+    }
+
+    public boolean isOutput() {
+        return "output".equals(group);
+    }
+
+    /**
+     * File providers hand a location to a downstream reader instead of producing rows.
+     */
+    public boolean isFileProvider() {
+        return this == FILE_UPLOADER || this == SHARED_FOLDER_SOURCE || this == SFTP_SOURCE;
+    }
+
+    public static NodeType fromComponent(String group, String componentName) {
+        for (NodeType type : NodeType.values()) {
+            if (type.group.equalsIgnoreCase(group) && type.componentName.equalsIgnoreCase(componentName)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown component: " + group + "/" + componentName);
+    }
+}
@@ -0,0 +1,157 @@
+package com.ssc.pipeline.engine.graph;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Typed DAG parsed from {@code Pipeline.configuration}. The configuration is the workflow view
+ * saved by the UI: reactflow {@code nodes} and {@code edges} plus the per-node
+ * {@code componentsProps} keyed by node id.
+ */
+public class PipelineGraph {
+    private final Map<String, PipelineNode> nodes;
+    private final List<PipelineNode> topologicalOrder;
+
+    private PipelineGraph(Map<String, PipelineNode> nodes) {
+        this.nodes = nodes;
+        this.topologicalOrder = sort(nodes);
+    }
+
+    public static PipelineGraph parse(String configuration, ObjectMapper objectMapper) {
+        if (configuration == null || configuration.isBlank()) {
+            throw new PipelineException("Pipeline configuration is empty");
+        }
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(configuration);
+        } catch (IOException e) {
+            throw new PipelineException("Pipeline configuration is not valid JSON", e);
+        }
+
+        JsonNode componentsProps = root.path("componentsProps");
+        Map<String, PipelineNode> nodes = new LinkedHashMap<>();
+        for (JsonNode node : root.path("nodes")) {
+            String id = node.path("id").asText();
+            JsonNode data = node.path("data");
+            NodeType type;
+            try {
+                type = NodeType.fromComponent(data.path("group").asText(), data.path("name").asText());
+            } catch (IllegalArgumentException e) {
+                throw new PipelineException("Node " + id + ": " + e.getMessage());
+            }
+            JsonNode props = componentsProps.get(id);
+            if (props == null || !props.isObject()) {
+                props = JsonNodeFactory.instance.objectNode();
+            }
+            nodes.put(id, new PipelineNode(id, data.path("label").asText(id), type, props));
+        }
+
+        List<JsonNode> edges = new ArrayList<>();
+        root.path("edges").forEach(edges::add);
+        // Multi-input nodes (Join) take their inputs in handle order, so "left" sorts before "right".
+        edges.sort(Comparator.comparing(edge -> edge.path("targetHandle").asText("")));
+        for (JsonNode edge : edges) {
+            PipelineNode source = nodes.get(edge.path("source").asText());
+            PipelineNode target = nodes.get(edge.path("target").asText());
+            if (source == null || target == null) {
+                throw new PipelineException("Edge " + edge.path("id").asText() + " references an unknown node");
+            }
+            target.addInput(source.getId());
+            source.addOutput(target.getId());
+        }
+        return new PipelineGraph(nodes);
+    }
+
+    /**
+     * Links nodes into a graph, e.g. a plan rewritten by the optimizer. {@code inputs} lists the
+     * input ids of each node in input order; the nodes must not belong to another graph.
+     */
+    public static PipelineGraph of(List<PipelineNode> nodes, Map<String, List<String>> inputs) {
+        Map<String, PipelineNode> byId = new LinkedHashMap<>();
+        nodes.forEach(node -> byId.put(node.getId(), node));
+        for (PipelineNode node : nodes) {
+            for (String inputId : inputs.getOrDefault(node.getId(), List.of())) {
+                PipelineNode input = byId.get(inputId);
+                if (input == null) {
+                    throw new PipelineException(node + " reads from an unknown node " + inputId);
+                }
+                node.addInput(inputId);
+                input.addOutput(node.getId());
+            }
+        }
+        return new PipelineGraph(byId);
+    }
+
+    public PipelineNode getNode(String id) {
+        PipelineNode node = nodes.get(id);
+        if (node == null) {
+            throw new PipelineException("Node not found: " + id);
+        }
+        return node;
+    }
+
+    public List<PipelineNode> getNodes() {
+        return topologicalOrder;
+    }
+
+    public List<PipelineNode> inputsOf(PipelineNode node) {
+        return node.getInputs().stream().map(nodes::get).toList();
+    }
+
+    /**
+     * The node and every node it transitively reads from, in topological order.
+     */
+    public List<PipelineNode> upstreamOf(PipelineNode node) {
+        Set<String> upstream = new HashSet<>();
+        ArrayDeque<String> pending = new ArrayDeque<>(List.of(node.getId()));
+        while (!pending.isEmpty()) {
+            String id = pending.pop();
+            if (upstream.add(id)) {
+                pending.addAll(nodes.get(id).getInputs());
+            }
+        }
+        return topologicalOrder.stream().filter(candidate -> upstream.contains(candidate.getId())).toList();
+    }
+
+    public List<PipelineNode> getSinks() {
+        return topologicalOrder.stream().filter(node -> node.getType().isOutput()).toList();
+    }
+
+    private static List<PipelineNode> sort(Map<String, PipelineNode> nodes) {
+        Map<String, Integer> pending = new HashMap<>();
+        List<PipelineNode> ready = new ArrayList<>();
+        for (PipelineNode node : nodes.values()) {
+            pending.put(node.getId(), node.getInputs().size());
+            if (node.getInputs().isEmpty()) {
+                ready.add(node);
+            }
+        }
+        List<PipelineNode> order = new ArrayList<>(nodes.size());
+        while (!ready.isEmpty()) {
+            PipelineNode node = ready.remove(ready.size() - 1);
+            order.add(node);
+            for (String output : node.getOutputs()) {
+                if (pending.merge(output, -1, Integer::sum) == 0) {
+                    ready.add(nodes.get(output));
+                }
+            }
+        }
+        if (order.size() != nodes.size()) {
+            throw new PipelineException("Pipeline configuration contains a cycle");
+        }
+        return order;
+    }
+}
@@ -0,0 +1,90 @@
+package com.ssc.pipeline.engine.graph;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.ssc.pipeline.engine.expression.Expression;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class PipelineNode {
+    private final String id;
+    private final String label;
+    private final NodeType type;
+    private final JsonNode props;
+    private final Expression predicate;
+    private final List<String> inputs = new ArrayList<>();
+    private final List<String> outputs = new ArrayList<>();
+
+    public PipelineNode(String id, String label, NodeType type, JsonNode props) {
+        this(id, label, type, props, null);
+    }
+
+    /**
+     * @param predicate condition of a Filter planned by the optimizer, which replaces the
+     *                  {@code conditions} prop; {@code null} for nodes as the UI saved them
+     */
+    public PipelineNode(String id, String label, NodeType type, JsonNode props, Expression predicate) {
+        this.id = id;
+        this.label = label;
+        this.type = type;
+        this.props = props;
+        this.predicate = predicate;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public NodeType getType() {
+        return type;
+    }
+
+    public JsonNode getProps() {
+        return props;
+    }
+
+    public Expression getPredicate() {
+        return predicate;
+    }
+
+    public List<String> getInputs() {
+        return Collections.unmodifiableList(inputs);
+    }
+
+    public List<String> getOutputs() {
+        return Collections.unmodifiableList(outputs);
+    }
+
+    void addInput(String nodeId) {
+        inputs.add(nodeId);
+    }
+
+    void addOutput(String nodeId) {
+        outputs.add(nodeId);
+    }
+
+    public String prop(String name, String defaultValue) {
+        JsonNode value = props.get(name);
+        return value == null || value.isNull() ? defaultValue : value.asText();
+    }
+
+    public int intProp(String name, int defaultValue) {
+        JsonNode value = props.get(name);
+        return value == null || value.isNull() || value.asText().isEmpty() ? defaultValue : value.asInt(defaultValue);
+    }
+
+    public boolean booleanProp(String name, boolean defaultValue) {
+        JsonNode value = props.get(name);
+        return value == null || value.isNull() ? defaultValue : value.asBoolean(defaultValue);
+    }
+
+    @Override
+    public String toString() {
+        return type.getComponentName() + "[" + id + "]";
+    }
+}
@@ -0,0 +1,132 @@
+package com.ssc.pipeline.engine.materialize;
+
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.operator.BatchOperator;
+import com.ssc.pipeline.engine.spill.BatchSerializer;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * File layout of a materialized node output: a length-prefixed header holding a magic number,
+ * the format version and the schema, followed by the batches as {@link BatchSerializer} frames.
+ */
+final class NodeOutputFile {
+    // bump when the frame layout or what an operator produces for the same configuration changes
+    static final int VERSION = 1;
+    private static final int MAGIC = 0x504c4e4f;
+
+    private NodeOutputFile() {
+    }
+
+    static void writeHeader(FileChannel channel, Schema schema) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(schema.size());
+            for (int i = 0; i < schema.size(); i++) {
+                out.writeUTF(schema.name(i));
+                out.writeUTF(schema.type(i).name());
+            }
+        }
+        ByteBuffer header = ByteBuffer.allocate(4 + bytes.size()).putInt(bytes.size()).put(bytes.toByteArray()).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    /**
+     * Opens the file and streams its batches, or returns {@code null} if it was written by
+     * another format version.
+     */
+    static BatchOperator open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            Schema schema = readHeader(channel);
+            if (schema == null) {
+                channel.close();
+                return null;
+            }
+            return new Reader(path, channel, schema);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static Schema readHeader(FileChannel channel) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        readFully(channel, length);
+        ByteBuffer header = ByteBuffer.allocate(length.flip().getInt());
+        readFully(channel, header);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(header.array()));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            return null;
+        }
+        int columns = in.readInt();
+        List<String> names = new ArrayList<>(columns);
+        List<DataType> types = new ArrayList<>(columns);
+        for (int i = 0; i < columns; i++) {
+            names.add(in.readUTF());
+            types.add(DataType.valueOf(in.readUTF()));
+        }
+        return new Schema(names, types);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Truncated header");
+            }
+        }
+    }
+
+    private static final class Reader implements BatchOperator {
+        private final Path path;
+        private final FileChannel channel;
+        private final Schema schema;
+        private final BatchSerializer serializer = new BatchSerializer();
+
+        Reader(Path path, FileChannel channel, Schema schema) {
+            this.path = path;
+            this.channel = channel;
+            this.schema = schema;
+        }
+
+        @Override
+        public Schema schema() {
+            return schema;
+        }
+
+        @Override
+        public RowBatch next() {
+            try {
+                return channel.isOpen() ? serializer.read(channel, schema) : null;
+            } catch (IOException e) {
+                throw new PipelineException("Cannot read materialized output " + path + ": " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // nothing was written through this channel
+            }
+        }
+    }
+}
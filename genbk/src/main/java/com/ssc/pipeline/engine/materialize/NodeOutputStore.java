@@ -0,0 +1,221 @@
+package com.ssc.pipeline.engine.materialize;
+
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.operator.BatchOperator;
+import com.ssc.pipeline.engine.spill.BatchSerializer;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Content-addressed store of node outputs. An output is filed under a hash of everything it
+ * depends on (the node's configuration, its input files and the hashes of its inputs), so a run
+ * whose sub-graph is unchanged reads the stored batches instead of recomputing them, and an
+ * edited node simply misses. Outputs are recorded while a run streams them and only become
+ * visible once the stream reached its end. The directory is kept under a size limit by
+ * evicting the least recently used outputs.
+ */
+public class NodeOutputStore {
+    private static final String SUFFIX = ".out";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Set<String> recording = new HashSet<>();
+
+    public NodeOutputStore(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        // outputs of runs that died while recording
+        try (DirectoryStream<Path> partial = Files.newDirectoryStream(directory, "*.tmp")) {
+            for (Path file : partial) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            // the directory does not exist yet or a stale file stays until the next start
+        }
+    }
+
+    /**
+     * Streams the stored output, or returns {@code null} if there is none.
+     */
+    public BatchOperator open(String hash) {
+        Path file = directory.resolve(hash + SUFFIX);
+        try {
+            BatchOperator stored = NodeOutputFile.open(file);
+            if (stored != null) {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            }
+            return stored;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new PipelineException("Cannot read materialized output " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Wraps the operator so that the batches pulled through it are stored under the hash. If
+     * another branch is already recording the same output, the operator is returned as is.
+     */
+    public BatchOperator record(String hash, BatchOperator output) {
+        synchronized (recording) {
+            if (!recording.add(hash)) {
+                return output;
+            }
+        }
+        try {
+            Files.createDirectories(directory);
+            Path file = Files.createTempFile(directory, hash, ".tmp");
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+            try {
+                NodeOutputFile.writeHeader(channel, output.schema());
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            return new Recorder(hash, output, file, channel);
+        } catch (IOException e) {
+            // the run itself does not need the copy
+            release(hash);
+            return output;
+        }
+    }
+
+    private void release(String hash) {
+        synchronized (recording) {
+            recording.remove(hash);
+        }
+    }
+
+    private synchronized void commit(String hash, Path file) throws IOException {
+        Files.move(file, directory.resolve(hash + SUFFIX), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+        evict();
+    }
+
+    /**
+     * Deletes the least recently read outputs until the directory fits in its limit. Readers that
+     * still have an evicted file open keep reading it.
+     */
+    private void evict() throws IOException {
+        List<Path> files = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> outputs = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : outputs) {
+                files.add(file);
+                total += Files.size(file);
+            }
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+        files.sort(Comparator.comparing(NodeOutputStore::lastModified));
+        for (Path file : files) {
+            if (total <= maxBytes) {
+                break;
+            }
+            long size = Files.size(file);
+            Files.deleteIfExists(file);
+            total -= size;
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * Passes batches through while appending them to a temporary file, which becomes the stored
+     * output when the input is exhausted. Closed early or failed, the file is dropped.
+     */
+    private final class Recorder implements BatchOperator {
+        private final String hash;
+        private final BatchOperator input;
+        private final Path file;
+        private final BatchSerializer serializer = new BatchSerializer();
+        private FileChannel channel;
+
+        Recorder(String hash, BatchOperator input, Path file, FileChannel channel) {
+            this.hash = hash;
+            this.input = input;
+            this.file = file;
+            this.channel = channel;
+        }
+
+        @Override
+        public Schema schema() {
+            return input.schema();
+        }
+
+        @Override
+        public void start() {
+            input.start();
+        }
+
+        @Override
+        public RowBatch next() {
+            RowBatch batch = input.next();
+            if (channel == null) {
+                return batch;
+            }
+            try {
+                if (batch == null) {
+                    channel.close();
+                    channel = null;
+                    commit(hash, file);
+                    release(hash);
+                } else if (!batch.isEmpty()) {
+                    serializer.write(batch, channel);
+                }
+            } catch (IOException e) {
+                // a full disk costs the copy, not the run
+                discard();
+            }
+            return batch;
+        }
+
+        private void discard() {
+            try {
+                if (channel != null) {
+                    channel.close();
+                    channel = null;
+                }
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // removed with the other partial outputs on the next start
+            } finally {
+                release(hash);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                input.close();
+            } finally {
+                if (channel != null) {
+                    discard();
+                }
+            }
+        }
+    }
+}
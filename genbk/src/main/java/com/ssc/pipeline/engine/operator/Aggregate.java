@@ -0,0 +1,770 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.BooleanVector;
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.DoubleVector;
+import com.ssc.pipeline.engine.batch.IntVector;
+import com.ssc.pipeline.engine.batch.LongVector;
+import com.ssc.pipeline.engine.batch.StringDictionary;
+import com.ssc.pipeline.engine.batch.StringVector;
+import com.ssc.pipeline.engine.batch.TextCodec;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+/**
+ * Running state of one aggregate function for every group of a {@link GroupTable}, indexed by
+ * dense group id. Besides consuming input rows, a state can be exported as partial-state columns
+ * ({@link #stateTypes()}) and merged back, which is how thread-local and spilled partial
+ * aggregates are combined.
+ */
+abstract class Aggregate {
+    static Aggregate create(GroupOperator.Function function, DataType type) {
+        return switch (function) {
+            case COUNT -> new Count();
+            case SUM, AVG -> new Sum(type, function == GroupOperator.Function.AVG);
+            case MIN, MAX -> JoinHashTable.isPrimitive(type)
+                ? new LongExtreme(type, function == GroupOperator.Function.MIN)
+                : new Extreme(type, function == GroupOperator.Function.MIN);
+            case COUNT_DISTINCT -> new DistinctValues(type);
+            case APPROX_COUNT_DISTINCT -> new DistinctCount(type);
+        };
+    }
+
+    abstract DataType[] stateTypes();
+
+    abstract void ensureCapacity(int groups);
+
+    /**
+     * Adds {@code count} input rows; {@code groups[row]} is the group of each row.
+     *
+     * @param column the argument vector, {@code null} for {@code count(*)}
+     */
+    abstract void add(int[] groups, ColumnVector column, int count);
+
+    /**
+     * Merges {@code count} partial-state rows whose state columns start at {@code first}.
+     */
+    abstract void merge(int[] groups, ColumnVector[] columns, int first, int count);
+
+    /**
+     * Merges the state of {@code otherGroup} in an aggregate of the same function.
+     */
+    abstract void merge(int group, Aggregate other, int otherGroup);
+
+    abstract void writeState(int group, ColumnVector[] target, int first, int row);
+
+    abstract void write(int group, ColumnVector target, int row);
+
+    abstract long sizeInBytes();
+
+    private static final class Count extends Aggregate {
+        private long[] counts = new long[16];
+
+        @Override
+        DataType[] stateTypes() {
+            return new DataType[]{DataType.BIGINT};
+        }
+
+        @Override
+        void ensureCapacity(int groups) {
+            if (counts.length < groups) {
+                counts = Arrays.copyOf(counts, Math.max(groups, counts.length * 2));
+            }
+        }
+
+        @Override
+        void add(int[] groups, ColumnVector column, int count) {
+            if (column == null || !column.mayHaveNulls()) {
+                for (int row = 0; row < count; row++) {
+                    counts[groups[row]]++;
+                }
+                return;
+            }
+            for (int row = 0; row < count; row++) {
+                if (!column.isNull(row)) {
+                    counts[groups[row]]++;
+                }
+            }
+        }
+
+        @Override
+        void merge(int[] groups, ColumnVector[] columns, int first, int count) {
+            long[] partial = ((LongVector) columns[first]).values();
+            for (int row = 0; row < count; row++) {
+                counts[groups[row]] += partial[row];
+            }
+        }
+
+        @Override
+        void merge(int group, Aggregate other, int otherGroup) {
+            counts[group] += ((Count) other).counts[otherGroup];
+        }
+
+        @Override
+        void writeState(int group, ColumnVector[] target, int first, int row) {
+            ((LongVector) target[first]).set(row, counts[group]);
+        }
+
+        @Override
+        void write(int group, ColumnVector target, int row) {
+            ((LongVector) target).set(row, counts[group]);
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 8L * counts.length;
+        }
+    }
+
+    private static final class Sum extends Aggregate {
+        private final DataType type;
+        private final boolean average;
+        private long[] counts = new long[16];
+        private long[] longSums;
+        private double[] doubleSums;
+
+        Sum(DataType type, boolean average) {
+            this.type = type;
+            this.average = average;
+            if (type == DataType.DOUBLE) {
+                doubleSums = new double[16];
+            } else {
+                longSums = new long[16];
+            }
+        }
+
+        @Override
+        DataType[] stateTypes() {
+            return new DataType[]{type == DataType.DOUBLE ? DataType.DOUBLE : DataType.BIGINT, DataType.BIGINT};
+        }
+
+        @Override
+        void ensureCapacity(int groups) {
+            if (counts.length < groups) {
+                int size = Math.max(groups, counts.length * 2);
+                counts = Arrays.copyOf(counts, size);
+                if (doubleSums != null) {
+                    doubleSums = Arrays.copyOf(doubleSums, size);
+                } else {
+                    longSums = Arrays.copyOf(longSums, size);
+                }
+            }
+        }
+
+        @Override
+        void add(int[] groups, ColumnVector column, int count) {
+            boolean nulls = column.mayHaveNulls();
+            switch (type) {
+                case INT -> {
+                    int[] values = ((IntVector) column).values();
+                    for (int row = 0; row < count; row++) {
+                        if (!nulls || !column.isNull(row)) {
+                            longSums[groups[row]] += values[row];
+                            counts[groups[row]]++;
+                        }
+                    }
+                }
+                case DOUBLE -> {
+                    double[] values = ((DoubleVector) column).values();
+                    for (int row = 0; row < count; row++) {
+                        if (!nulls || !column.isNull(row)) {
+                            doubleSums[groups[row]] += values[row];
+                            counts[groups[row]]++;
+                        }
+                    }
+                }
+                default -> {
+                    long[] values = ((LongVector) column).values();
+                    for (int row = 0; row < count; row++) {
+                        if (!nulls || !column.isNull(row)) {
+                            longSums[groups[row]] += values[row];
+                            counts[groups[row]]++;
+                        }
+                    }
+                }
+            }
+        }
+
+        @Override
+        void merge(int[] groups, ColumnVector[] columns, int first, int count) {
+            long[] partialCounts = ((LongVector) columns[first + 1]).values();
+            for (int row = 0; row < count; row++) {
+                int group = groups[row];
+                if (doubleSums != null) {
+                    doubleSums[group] += ((DoubleVector) columns[first]).get(row);
+                } else {
+                    longSums[group] += ((LongVector) columns[first]).get(row);
+                }
+                counts[group] += partialCounts[row];
+            }
+        }
+
+        @Override
+        void merge(int group, Aggregate other, int otherGroup) {
+            Sum that = (Sum) other;
+            if (doubleSums != null) {
+                doubleSums[group] += that.doubleSums[otherGroup];
+            } else {
+                longSums[group] += that.longSums[otherGroup];
+            }
+            counts[group] += that.counts[otherGroup];
+        }
+
+        @Override
+        void writeState(int group, ColumnVector[] target, int first, int row) {
+            if (doubleSums != null) {
+                ((DoubleVector) target[first]).set(row, doubleSums[group]);
+            } else {
+                ((LongVector) target[first]).set(row, longSums[group]);
+            }
+            ((LongVector) target[first + 1]).set(row, counts[group]);
+        }
+
+        @Override
+        void write(int group, ColumnVector target, int row) {
+            if (counts[group] == 0) {
+                target.setNull(row);
+            } else if (average) {
+                double sum = switch (type) {
+                    case INT, BIGINT -> longSums[group];
+                    case DECIMAL -> TextCodec.decimalToDouble(longSums[group]);
+                    default -> doubleSums[group];
+                };
+                ((DoubleVector) target).set(row, sum / counts[group]);
+            } else if (type == DataType.DOUBLE) {
+                ((DoubleVector) target).set(row, doubleSums[group]);
+            } else {
+                ((LongVector) target).set(row, longSums[group]);
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 16L * counts.length;
+        }
+    }
+
+    /**
+     * Minimum or maximum of an integral, temporal or decimal column, kept as primitive longs.
+     */
+    private static final class LongExtreme extends Aggregate {
+        private final DataType type;
+        private final boolean min;
+        private long[] values = new long[16];
+        // one bit per group that has seen a non-null value
+        private long[] present = new long[1];
+
+        LongExtreme(DataType type, boolean min) {
+            this.type = type;
+            this.min = min;
+        }
+
+        @Override
+        DataType[] stateTypes() {
+            return new DataType[]{type};
+        }
+
+        @Override
+        void ensureCapacity(int groups) {
+            if (values.length < groups) {
+                values = Arrays.copyOf(values, Math.max(groups, values.length * 2));
+                present = Arrays.copyOf(present, (values.length + 63) >>> 6);
+            }
+        }
+
+        @Override
+        void add(int[] groups, ColumnVector column, int count) {
+            if (column instanceof IntVector vector) {
+                int[] input = vector.values();
+                for (int row = 0; row < count; row++) {
+                    if (!column.isNull(row)) {
+                        update(groups[row], input[row]);
+                    }
+                }
+            } else {
+                long[] input = ((LongVector) column).values();
+                for (int row = 0; row < count; row++) {
+                    if (!column.isNull(row)) {
+                        update(groups[row], input[row]);
+                    }
+                }
+            }
+        }
+
+        private void update(int group, long value) {
+            long bit = 1L << group;
+            if ((present[group >>> 6] & bit) == 0) {
+                present[group >>> 6] |= bit;
+                values[group] = value;
+            } else if (min ? value < values[group] : value > values[group]) {
+                values[group] = value;
+            }
+        }
+
+        @Override
+        void merge(int[] groups, ColumnVector[] columns, int first, int count) {
+            add(groups, columns[first], count);
+        }
+
+        @Override
+        void merge(int group, Aggregate other, int otherGroup) {
+            LongExtreme that = (LongExtreme) other;
+            if ((that.present[otherGroup >>> 6] & (1L << otherGroup)) != 0) {
+                update(group, that.values[otherGroup]);
+            }
+        }
+
+        @Override
+        void writeState(int group, ColumnVector[] target, int first, int row) {
+            write(group, target[first], row);
+        }
+
+        @Override
+        void write(int group, ColumnVector target, int row) {
+            if ((present[group >>> 6] & (1L << group)) == 0) {
+                target.setNull(row);
+            } else if (target instanceof IntVector vector) {
+                vector.set(row, (int) values[group]);
+            } else {
+                ((LongVector) target).set(row, values[group]);
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 8L * values.length + 8L * present.length;
+        }
+    }
+
+    /**
+     * Minimum or maximum of any other type, kept in typed column chunks.
+     */
+    private static final class Extreme extends Aggregate {
+        private final DataType type;
+        private final ChunkedColumns values;
+        private final boolean min;
+
+        Extreme(DataType type, boolean min) {
+            this.type = type;
+            this.values = new ChunkedColumns(type);
+            this.min = min;
+        }
+
+        @Override
+        DataType[] stateTypes() {
+            return new DataType[]{type};
+        }
+
+        @Override
+        void ensureCapacity(int groups) {
+            while (values.size() < groups) {
+                values.appendNulls();
+            }
+        }
+
+        @Override
+        void add(int[] groups, ColumnVector column, int count) {
+            for (int row = 0; row < count; row++) {
+                if (!column.isNull(row)) {
+                    update(groups[row], column, row);
+                }
+            }
+        }
+
+        private void update(int group, ColumnVector column, int row) {
+            ColumnVector current = values.chunk(group)[0];
+            int offset = ChunkedColumns.offset(group);
+            if (current.isNull(offset)) {
+                current.copyFrom(column, row, offset);
+                return;
+            }
+            int comparison = column.compare(row, current, offset);
+            if (min ? comparison < 0 : comparison > 0) {
+                current.copyFrom(column, row, offset);
+            }
+        }
+
+        @Override
+        void merge(int[] groups, ColumnVector[] columns, int first, int count) {
+            add(groups, columns[first], count);
+        }
+
+        @Override
+        void merge(int group, Aggregate other, int otherGroup) {
+            ColumnVector value = ((Extreme) other).values.chunk(otherGroup)[0];
+            int offset = ChunkedColumns.offset(otherGroup);
+            if (!value.isNull(offset)) {
+                update(group, value, offset);
+            }
+        }
+
+        @Override
+        void writeState(int group, ColumnVector[] target, int first, int row) {
+            write(group, target[first], row);
+        }
+
+        @Override
+        void write(int group, ColumnVector target, int row) {
+            target.copyFrom(values.chunk(group)[0], ChunkedColumns.offset(group), row);
+        }
+
+        @Override
+        long sizeInBytes() {
+            return values.sizeInBytes();
+        }
+    }
+
+    /**
+     * Approximate distinct count with one {@link HyperLogLog} sketch per group.
+     */
+    private static final class DistinctCount extends Aggregate {
+        private final DataType type;
+        private HyperLogLog[] sketches = new HyperLogLog[16];
+        private long bytes;
+        // 64-bit hashes of the current string dictionary's entries, computed on first use
+        private StringDictionary dictionary;
+        private long[] codeHashes = new long[0];
+        private long[] hashed = new long[0];
+
+        DistinctCount(DataType type) {
+            this.type = type;
+        }
+
+        @Override
+        DataType[] stateTypes() {
+            return new DataType[]{DataType.STRING};
+        }
+
+        @Override
+        void ensureCapacity(int groups) {
+            if (sketches.length < groups) {
+                sketches = Arrays.copyOf(sketches, Math.max(groups, sketches.length * 2));
+            }
+        }
+
+        @Override
+        void add(int[] groups, ColumnVector column, int count) {
+            for (int row = 0; row < count; row++) {
+                if (!column.isNull(row)) {
+                    bytes += sketch(groups[row]).add(hash(column, row));
+                }
+            }
+        }
+
+        private long hash(ColumnVector column, int row) {
+            return switch (type) {
+                case INT, DATE -> JoinHashTable.mix(((IntVector) column).get(row));
+                case BIGINT, TIMESTAMP, DECIMAL -> JoinHashTable.mix(((LongVector) column).get(row));
+                case DOUBLE -> {
+                    double value = ((DoubleVector) column).get(row);
+                    // 0.0 and -0.0 are the same value
+                    yield JoinHashTable.mix(Double.doubleToLongBits(value == 0 ? 0 : value));
+                }
+                case BOOLEAN -> JoinHashTable.mix(((BooleanVector) column).get(row) ? 1 : 0);
+                case STRING -> stringHash((StringVector) column, row);
+            };
+        }
+
+        private long stringHash(StringVector column, int row) {
+            StringDictionary current = column.dictionary();
+            if (current != dictionary || codeHashes.length < current.size()) {
+                dictionary = current;
+                int size = Math.max(current.size(), 16);
+                codeHashes = new long[size];
+                hashed = new long[(size + 63) >>> 6];
+            }
+            int code = column.code(row);
+            if ((hashed[code >>> 6] & (1L << code)) == 0) {
+                hashed[code >>> 6] |= 1L << code;
+                codeHashes[code] = HyperLogLog.hash(current.get(code));
+            }
+            return codeHashes[code];
+        }
+
+        private HyperLogLog sketch(int group) {
+            HyperLogLog sketch = sketches[group];
+            if (sketch == null) {
+                sketch = new HyperLogLog();
+                sketches[group] = sketch;
+                bytes += sketch.sizeInBytes();
+            }
+            return sketch;
+        }
+
+        @Override
+        void merge(int[] groups, ColumnVector[] columns, int first, int count) {
+            StringVector partial = (StringVector) columns[first];
+            for (int row = 0; row < count; row++) {
+                if (!partial.isNull(row)) {
+                    bytes += sketch(groups[row]).merge(partial.get(row));
+                }
+            }
+        }
+
+        @Override
+        void merge(int group, Aggregate other, int otherGroup) {
+            HyperLogLog partial = ((DistinctCount) other).sketches[otherGroup];
+            if (partial != null) {
+                bytes += sketch(group).merge(partial);
+            }
+        }
+
+        @Override
+        void writeState(int group, ColumnVector[] target, int first, int row) {
+            HyperLogLog sketch = sketches[group];
+            if (sketch == null) {
+                target[first].setNull(row);
+            } else {
+                ((StringVector) target[first]).set(row, sketch.encode());
+            }
+        }
+
+        @Override
+        void write(int group, ColumnVector target, int row) {
+            HyperLogLog sketch = sketches[group];
+            ((LongVector) target).set(row, sketch == null ? 0 : sketch.estimate());
+        }
+
+        @Override
+        long sizeInBytes() {
+            return bytes + 8L * sketches.length;
+        }
+    }
+
+    /**
+     * Exact distinct count with the set of distinct values of every group: primitive values as
+     * longs in an open-addressing set, strings in a {@link HashSet}. The partial state is the set
+     * encoded in a string, primitives as 8 chars below 256 each and strings prefixed with their
+     * length in 4 such chars.
+     */
+    private static final class DistinctValues extends Aggregate {
+        private final DataType type;
+        private LongSet[] longs;
+        private Set<String>[] strings;
+        private long bytes;
+
+        @SuppressWarnings("unchecked")
+        DistinctValues(DataType type) {
+            this.type = type;
+            if (type == DataType.STRING) {
+                strings = new Set[16];
+            } else {
+                longs = new LongSet[16];
+            }
+        }
+
+        @Override
+        DataType[] stateTypes() {
+            return new DataType[]{DataType.STRING};
+        }
+
+        @Override
+        void ensureCapacity(int groups) {
+            if (strings != null && strings.length < groups) {
+                strings = Arrays.copyOf(strings, Math.max(groups, strings.length * 2));
+            } else if (longs != null && longs.length < groups) {
+                longs = Arrays.copyOf(longs, Math.max(groups, longs.length * 2));
+            }
+        }
+
+        @Override
+        void add(int[] groups, ColumnVector column, int count) {
+            for (int row = 0; row < count; row++) {
+                if (column.isNull(row)) {
+                    continue;
+                }
+                if (strings != null) {
+                    addString(groups[row], ((StringVector) column).get(row));
+                } else {
+                    bytes += longSet(groups[row]).add(value(column, row));
+                }
+            }
+        }
+
+        private long value(ColumnVector column, int row) {
+            return switch (type) {
+                case INT, DATE -> ((IntVector) column).get(row);
+                case DOUBLE -> {
+                    double value = ((DoubleVector) column).get(row);
+                    // 0.0 and -0.0 are the same value
+                    yield Double.doubleToLongBits(value == 0 ? 0 : value);
+                }
+                case BOOLEAN -> ((BooleanVector) column).get(row) ? 1 : 0;
+                default -> ((LongVector) column).get(row);
+            };
+        }
+
+        private void addString(int group, String value) {
+            Set<String> set = strings[group];
+            if (set == null) {
+                set = new HashSet<>();
+                strings[group] = set;
+                bytes += 64;
+            }
+            if (set.add(value)) {
+                // the map entry and the string, which the set may be the last to hold
+                bytes += 80 + 2L * value.length();
+            }
+        }
+
+        private LongSet longSet(int group) {
+            LongSet set = longs[group];
+            if (set == null) {
+                set = new LongSet();
+                longs[group] = set;
+                bytes += set.sizeInBytes();
+            }
+            return set;
+        }
+
+        @Override
+        void merge(int[] groups, ColumnVector[] columns, int first, int count) {
+            StringVector partial = (StringVector) columns[first];
+            for (int row = 0; row < count; row++) {
+                if (partial.isNull(row)) {
+                    continue;
+                }
+                String encoded = partial.get(row);
+                int position = 0;
+                while (position < encoded.length()) {
+                    if (strings != null) {
+                        int length = (int) decode(encoded, position, 4);
+                        addString(groups[row], encoded.substring(position + 4, position + 4 + length));
+                        position += 4 + length;
+                    } else {
+                        bytes += longSet(groups[row]).add(decode(encoded, position, 8));
+                        position += 8;
+                    }
+                }
+            }
+        }
+
+        @Override
+        void merge(int group, Aggregate other, int otherGroup) {
+            DistinctValues that = (DistinctValues) other;
+            if (strings != null) {
+                Set<String> partial = that.strings[otherGroup];
+                if (partial != null) {
+                    partial.forEach(value -> addString(group, value));
+                }
+            } else {
+                LongSet partial = that.longs[otherGroup];
+                if (partial != null) {
+                    partial.forEach(value -> bytes += longSet(group).add(value));
+                }
+            }
+        }
+
+        @Override
+        void writeState(int group, ColumnVector[] target, int first, int row) {
+            StringBuilder encoded = new StringBuilder();
+            if (strings != null && strings[group] != null) {
+                for (String value : strings[group]) {
+                    encode(encoded, value.length(), 4);
+                    encoded.append(value);
+                }
+            } else if (longs != null && longs[group] != null) {
+                longs[group].forEach(value -> encode(encoded, value, 8));
+            }
+            if (encoded.isEmpty()) {
+                target[first].setNull(row);
+            } else {
+                ((StringVector) target[first]).set(row, encoded);
+            }
+        }
+
+        private static void encode(StringBuilder target, long value, int chars) {
+            for (int shift = 8 * (chars - 1); shift >= 0; shift -= 8) {
+                target.append((char) ((value >>> shift) & 0xff));
+            }
+        }
+
+        private static long decode(String encoded, int position, int chars) {
+            long value = 0;
+            for (int i = 0; i < chars; i++) {
+                value = value << 8 | encoded.charAt(position + i);
+            }
+            return value;
+        }
+
+        @Override
+        void write(int group, ColumnVector target, int row) {
+            long count = strings != null ? (strings[group] == null ? 0 : strings[group].size())
+                : (longs[group] == null ? 0 : longs[group].size());
+            ((LongVector) target).set(row, count);
+        }
+
+        @Override
+        long sizeInBytes() {
+            return bytes + 8L * (strings != null ? strings.length : longs.length);
+        }
+    }
+
+    /**
+     * Open-addressing set of longs; zero, which marks an empty slot, is tracked on the side.
+     */
+    private static final class LongSet {
+        private long[] slots = new long[4];
+        private int size;
+        private boolean zero;
+
+        /**
+         * Adds a value and returns by how many bytes the set grew.
+         */
+        int add(long value) {
+            if (value == 0) {
+                zero = true;
+                return 0;
+            }
+            int mask = slots.length - 1;
+            int slot = (int) JoinHashTable.mix(value) & mask;
+            while (slots[slot] != 0) {
+                if (slots[slot] == value) {
+                    return 0;
+                }
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = value;
+            return ++size * 2 > slots.length ? grow() : 0;
+        }
+
+        int size() {
+            return size + (zero ? 1 : 0);
+        }
+
+        void forEach(LongConsumer action) {
+            if (zero) {
+                action.accept(0);
+            }
+            for (long value : slots) {
+                if (value != 0) {
+                    action.accept(value);
+                }
+            }
+        }
+
+        int sizeInBytes() {
+            return 32 + 8 * slots.length;
+        }
+
+        private int grow() {
+            long[] old = slots;
+            slots = new long[old.length * 2];
+            int mask = slots.length - 1;
+            for (long value : old) {
+                if (value != 0) {
+                    int slot = (int) JoinHashTable.mix(value) & mask;
+                    while (slots[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    slots[slot] = value;
+                }
+            }
+            return 8 * (slots.length - old.length);
+        }
+    }
+}
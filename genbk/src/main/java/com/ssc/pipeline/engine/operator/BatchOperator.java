@@ -0,0 +1,25 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+
+/**
+ * Pull-based operator. Callers invoke {@link #next()} until it returns {@code null};
+ * every operator consumes and produces columnar {@link RowBatch}es and never materializes
+ * more than it must.
+ */
+public interface BatchOperator extends AutoCloseable {
+    Schema schema();
+
+    RowBatch next();
+
+    /**
+     * Lets an operator begin producing ahead of the first {@link #next()} call; multi-input
+     * operators call this on all inputs so their branches run concurrently.
+     */
+    default void start() {
+    }
+
+    @Override
+    void close();
+}
@@ -0,0 +1,116 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Growable column store made of fixed-size vector chunks, addressed by a dense row index.
+ * Operators use it to keep typed state (group keys, running min/max) without boxing.
+ */
+final class ChunkedColumns {
+    private static final int CHUNK_SHIFT = 12;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    private final DataType[] types;
+    private final List<ColumnVector[]> chunks = new ArrayList<>();
+    private int size;
+    private long closedBytes;
+
+    ChunkedColumns(DataType... types) {
+        this.types = types;
+    }
+
+    int size() {
+        return size;
+    }
+
+    ColumnVector[] chunk(int index) {
+        return chunks.get(index >>> CHUNK_SHIFT);
+    }
+
+    static int offset(int index) {
+        return index & (CHUNK_SIZE - 1);
+    }
+
+    int chunkCount() {
+        return chunks.size();
+    }
+
+    /**
+     * Wraps one chunk as a batch without copying; only the last chunk can be partly filled.
+     */
+    RowBatch batch(int chunk, Schema schema) {
+        return new RowBatch(schema, chunks.get(chunk), Math.min(CHUNK_SIZE, size - chunk * CHUNK_SIZE));
+    }
+
+    /**
+     * Approximate heap footprint. Full chunks no longer change, so only the last one is measured.
+     */
+    long sizeInBytes() {
+        if (chunks.isEmpty()) {
+            return 0;
+        }
+        return closedBytes + sizeInBytes(chunks.get(chunks.size() - 1));
+    }
+
+    private static long sizeInBytes(ColumnVector[] chunk) {
+        long bytes = 0;
+        for (ColumnVector vector : chunk) {
+            bytes += vector.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Appends a row of nulls and returns its index.
+     */
+    int appendNulls() {
+        int index = reserve();
+        ColumnVector[] chunk = chunk(index);
+        for (ColumnVector vector : chunk) {
+            vector.setNull(offset(index));
+        }
+        return index;
+    }
+
+    /**
+     * Appends the given columns of one source row and returns its index.
+     */
+    int append(ColumnVector[] source, int row) {
+        int index = reserve();
+        ColumnVector[] chunk = chunk(index);
+        for (int i = 0; i < chunk.length; i++) {
+            chunk[i].copyFrom(source[i], row, offset(index));
+        }
+        return index;
+    }
+
+    /**
+     * Copies the stored row into {@code target} starting at column {@code firstColumn}.
+     */
+    void copyTo(int index, RowBatch target, int firstColumn, int targetRow) {
+        ColumnVector[] chunk = chunk(index);
+        for (int i = 0; i < chunk.length; i++) {
+            target.column(firstColumn + i).copyFrom(chunk[i], offset(index), targetRow);
+        }
+    }
+
+    private int reserve() {
+        if (size == chunks.size() * CHUNK_SIZE) {
+            if (!chunks.isEmpty()) {
+                closedBytes += sizeInBytes(chunks.get(chunks.size() - 1));
+            }
+            ColumnVector[] chunk = new ColumnVector[types.length];
+            for (int i = 0; i < types.length; i++) {
+                chunk[i] = ColumnVector.allocate(types[i], CHUNK_SIZE);
+            }
+            chunks.add(chunk);
+        }
+        return size++;
+    }
+}
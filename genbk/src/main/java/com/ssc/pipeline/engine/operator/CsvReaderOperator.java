@@ -0,0 +1,311 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.csv.CsvChunkParser;
+import com.ssc.pipeline.engine.csv.CsvOptions;
+import com.ssc.pipeline.engine.csv.CsvSplitter;
+import com.ssc.pipeline.engine.csv.FieldDecoder;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a delimited file honouring the CSVReader node options. The file is memory-mapped and
+ * cut into record-aligned chunks ({@link CsvSplitter}); up to {@code parallelism} chunks are
+ * parsed at once on the worker pool and their batches are handed out in file order. Chunks the
+ * pool has no thread for are parsed on the caller's thread when their turn comes. Columns
+ * without a declared type are read as strings. Only the header is read until the first batch
+ * is asked for, so the schema is cheap to get.
+ */
+public class CsvReaderOperator implements BatchOperator {
+    private static final long CHUNK_SIZE = 64L << 20;
+    private static final int QUEUE_CAPACITY = 4;
+    private static final int LOCATE_WINDOW = 1 << 20;
+    private static final RowBatch END = new RowBatch(Schema.ofStrings(List.of()), new ColumnVector[0], 0);
+
+    private final Path path;
+    private final CsvOptions options;
+    private final Schema declaredSchema;
+    private final Executor executor;
+    private final int parallelism;
+    private final List<String> columns;
+    private final ArrayDeque<Chunk> running = new ArrayDeque<>();
+    private FileChannel channel;
+    private Schema schema;
+    // batch column of each field, null when every field is read
+    private int[] targets;
+    private long dataStart;
+    private List<Long> chunkStarts;
+    private long fileSize;
+    private int nextChunk;
+    private volatile boolean closed;
+
+    /**
+     * @param declaredSchema column names and types by position, or {@code null} to take the
+     *                       names from the header and read every column as a string
+     */
+    public CsvReaderOperator(Path path, CsvOptions options, Schema declaredSchema, Executor executor,
+                             int parallelism) {
+        this(path, options, declaredSchema, executor, parallelism, null);
+    }
+
+    /**
+     * @param columns the columns to read, by name; the other fields are skipped without being
+     *                decoded. {@code null} reads them all.
+     */
+    public CsvReaderOperator(Path path, CsvOptions options, Schema declaredSchema, Executor executor,
+                             int parallelism, List<String> columns) {
+        this.path = path;
+        this.options = options;
+        this.declaredSchema = declaredSchema;
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+        this.columns = columns;
+    }
+
+    @Override
+    public Schema schema() {
+        if (schema == null) {
+            open();
+        }
+        return schema;
+    }
+
+    private void open() {
+        FieldDecoder.checkSupported(options.getEncoding());
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            fileSize = channel.size();
+            CsvChunkParser parser = new CsvChunkParser(CsvSplitter.map(channel, 0, Math.min(fileSize, CHUNK_SIZE)),
+                0, options, this::locate);
+            parser.skipByteOrderMark();
+            for (int i = 0; i < options.getSkipRows(); i++) {
+                parser.skipLine();
+            }
+            dataStart = parser.position();
+            List<String> first = parser.readRecordText();
+            if (options.hasHeader()) {
+                dataStart = parser.position();
+            }
+            if (declaredSchema != null) {
+                schema = declaredSchema;
+            } else if (first == null) {
+                schema = Schema.ofStrings(List.of());
+            } else {
+                List<String> names = new ArrayList<>(first.size());
+                for (int i = 0; i < first.size(); i++) {
+                    names.add(options.hasHeader() ? first.get(i) : "column" + (i + 1));
+                }
+                schema = new Schema(names, Collections.nCopies(names.size(), DataType.STRING));
+            }
+            if (columns != null) {
+                project();
+            }
+        } catch (IOException e) {
+            throw new PipelineException("Failed to open " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void project() {
+        targets = new int[schema.size()];
+        List<String> names = new ArrayList<>();
+        List<DataType> types = new ArrayList<>();
+        for (int i = 0; i < schema.size(); i++) {
+            targets[i] = columns.contains(schema.name(i)) ? names.size() : -1;
+            if (targets[i] >= 0) {
+                names.add(schema.name(i));
+                types.add(schema.type(i));
+            }
+        }
+        schema = new Schema(names, types);
+    }
+
+    private void split() {
+        if (channel == null) {
+            throw new PipelineException("Reader for " + path + " is closed");
+        }
+        try {
+            chunkStarts = CsvSplitter.split(channel, dataStart, fileSize, CHUNK_SIZE, options, executor);
+        } catch (IOException e) {
+            throw new PipelineException("Failed to open " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public RowBatch next() {
+        schema();
+        if (chunkStarts == null) {
+            split();
+        }
+        while (true) {
+            while (running.size() < parallelism && nextChunk < chunkStarts.size()) {
+                Chunk chunk = new Chunk(nextChunk++);
+                chunk.start();
+                running.add(chunk);
+            }
+            Chunk current = running.peek();
+            if (current == null) {
+                return null;
+            }
+            RowBatch batch = current.next();
+            if (batch != null) {
+                return batch;
+            }
+            running.poll();
+        }
+    }
+
+    /**
+     * Describes a file offset for error messages. Counting lines means rescanning the file up to
+     * the offset, which is only acceptable because it happens once, on failure.
+     */
+    private String locate(long offset) {
+        long line = 1;
+        try (FileChannel scan = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (long window = 0; window < offset; window += LOCATE_WINDOW) {
+                MappedByteBuffer buffer = CsvSplitter.map(scan, window, Math.min(offset, window + LOCATE_WINDOW));
+                for (int i = 0; i < buffer.limit(); i++) {
+                    if (buffer.get(i) == '\n') {
+                        line++;
+                    }
+                }
+            }
+            return "line " + line + " of " + path.getFileName();
+        } catch (IOException e) {
+            return "byte offset " + offset + " of " + path.getFileName();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        running.forEach(chunk -> chunk.queue.clear());
+        running.clear();
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // mapped chunks stay readable; nothing else to release
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * One record-aligned range of the file, parsed by a worker into a small bounded queue or, if
+     * the pool was saturated, on demand by the consumer.
+     */
+    private final class Chunk implements Runnable {
+        private final long from;
+        private final long to;
+        private final BlockingQueue<RowBatch> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private volatile Throwable failure;
+        private CsvChunkParser parser;
+        private boolean async;
+        private boolean finished;
+
+        Chunk(int index) {
+            this.from = chunkStarts.get(index);
+            this.to = index + 1 < chunkStarts.size() ? chunkStarts.get(index + 1) : fileSize;
+        }
+
+        void start() {
+            try {
+                executor.execute(this);
+                async = true;
+            } catch (RejectedExecutionException e) {
+                async = false;
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                CsvChunkParser chunkParser = createParser();
+                RowBatch batch;
+                while (!closed && (batch = parse(chunkParser)) != null) {
+                    put(batch);
+                }
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                put(END);
+            }
+        }
+
+        RowBatch next() {
+            if (finished) {
+                return null;
+            }
+            if (!async) {
+                if (parser == null) {
+                    parser = createParser();
+                }
+                RowBatch batch = parse(parser);
+                finished = batch == null;
+                return batch;
+            }
+            try {
+                RowBatch batch = queue.take();
+                if (batch == END) {
+                    finished = true;
+                    if (failure instanceof PipelineException e) {
+                        throw e;
+                    }
+                    if (failure != null) {
+                        throw new PipelineException("Failed to read " + path + ": " + failure.getMessage(), failure);
+                    }
+                    return null;
+                }
+                return batch;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PipelineException("Interrupted while reading " + path, e);
+            }
+        }
+
+        private CsvChunkParser createParser() {
+            FileChannel file = channel;
+            if (file == null) {
+                throw new PipelineException("Reader for " + path + " is closed");
+            }
+            try {
+                return new CsvChunkParser(CsvSplitter.map(file, from, to), from, options, CsvReaderOperator.this::locate);
+            } catch (IOException e) {
+                throw new PipelineException("Failed to map " + path + " at offset " + from + ": " + e.getMessage(), e);
+            }
+        }
+
+        private RowBatch parse(CsvChunkParser chunkParser) {
+            RowBatch batch = RowBatch.allocate(schema);
+            chunkParser.fill(batch, targets);
+            return batch.isEmpty() ? null : batch;
+        }
+
+        private void put(RowBatch batch) {
+            try {
+                while (!closed && !queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                    // wait for the consumer, re-checking for cancellation
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
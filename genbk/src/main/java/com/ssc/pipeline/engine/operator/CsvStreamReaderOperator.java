@@ -0,0 +1,171 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.csv.CsvChunkParser;
+import com.ssc.pipeline.engine.csv.CsvOptions;
+import com.ssc.pipeline.engine.csv.CsvSniffer;
+import com.ssc.pipeline.engine.csv.FieldDecoder;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads delimited text from a stream, for inputs that cannot be memory-mapped such as remote
+ * files. Bytes are read into a buffer that is parsed up to its last complete record; the rest
+ * moves to the front and is completed by the next read, so nothing is staged on disk. A record
+ * longer than the buffer grows it. Parsing runs on the pulling thread, one buffer at a time.
+ */
+public class CsvStreamReaderOperator implements BatchOperator {
+    private static final int BUFFER_SIZE = 8 << 20;
+
+    /**
+     * Opens the stream; called once, when the schema or the first batch is asked for.
+     */
+    @FunctionalInterface
+    public interface Source {
+        InputStream open() throws IOException;
+    }
+
+    private final Source source;
+    private final String name;
+    private final CsvOptions options;
+    private final Schema declaredSchema;
+    private InputStream in;
+    private byte[] buffer;
+    // bytes held in the buffer, of which the parser covers the first regionEnd
+    private int filled;
+    private int regionEnd;
+    // stream offset of buffer[0]
+    private long bufferOffset;
+    private boolean eof;
+    private CsvChunkParser parser;
+    private Schema schema;
+
+    /**
+     * @param name           names the input in error messages
+     * @param declaredSchema column names and types by position, or {@code null} to take the
+     *                       names from the header and read every column as a string
+     */
+    public CsvStreamReaderOperator(Source source, String name, CsvOptions options, Schema declaredSchema) {
+        this.source = source;
+        this.name = name;
+        this.options = options;
+        this.declaredSchema = declaredSchema;
+    }
+
+    @Override
+    public Schema schema() {
+        if (schema == null) {
+            open();
+        }
+        return schema;
+    }
+
+    private void open() {
+        FieldDecoder.checkSupported(options.getEncoding());
+        try {
+            in = source.open();
+            buffer = new byte[BUFFER_SIZE];
+            nextRegion();
+        } catch (IOException e) {
+            throw new PipelineException("Failed to open " + name + ": " + e.getMessage(), e);
+        }
+        parser.skipByteOrderMark();
+        for (int i = 0; i < options.getSkipRows(); i++) {
+            parser.skipLine();
+        }
+        List<String> first = options.hasHeader() || declaredSchema == null ? parser.readRecordText() : null;
+        if (declaredSchema != null) {
+            schema = declaredSchema;
+        } else if (first == null) {
+            schema = Schema.ofStrings(List.of());
+        } else {
+            List<String> names = new ArrayList<>(first.size());
+            for (int i = 0; i < first.size(); i++) {
+                names.add(options.hasHeader() ? first.get(i) : "column" + (i + 1));
+            }
+            schema = new Schema(names, Collections.nCopies(names.size(), DataType.STRING));
+        }
+        if (first != null && !options.hasHeader()) {
+            // the first record was data; parse the region again from its start
+            parser = regionParser();
+            parser.skipByteOrderMark();
+            for (int i = 0; i < options.getSkipRows(); i++) {
+                parser.skipLine();
+            }
+        }
+    }
+
+    @Override
+    public RowBatch next() {
+        schema();
+        try {
+            while (true) {
+                RowBatch batch = RowBatch.allocate(schema);
+                parser.fill(batch);
+                if (!batch.isEmpty()) {
+                    return batch;
+                }
+                if (eof && regionEnd == filled) {
+                    return null;
+                }
+                nextRegion();
+            }
+        } catch (IOException e) {
+            throw new PipelineException("Failed to read " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Drops the parsed region, reads until the buffer holds at least one complete record or the
+     * stream ends, and points the parser at the complete records.
+     */
+    private void nextRegion() throws IOException {
+        System.arraycopy(buffer, regionEnd, buffer, 0, filled - regionEnd);
+        filled -= regionEnd;
+        bufferOffset += regionEnd;
+        int end = -1;
+        while (!eof) {
+            if (filled == buffer.length) {
+                end = CsvSniffer.lastRecordEnd(ByteBuffer.wrap(buffer, 0, filled), options);
+                if (end >= 0) {
+                    break;
+                }
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            int read = in.read(buffer, filled, buffer.length - filled);
+            if (read < 0) {
+                eof = true;
+            } else {
+                filled += read;
+            }
+        }
+        regionEnd = eof ? filled : end;
+        parser = regionParser();
+    }
+
+    private CsvChunkParser regionParser() {
+        return new CsvChunkParser(ByteBuffer.wrap(buffer, 0, regionEnd).slice(), bufferOffset, options,
+            offset -> "byte offset " + offset + " of " + name);
+    }
+
+    @Override
+    public void close() {
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // nothing more is read from it
+            }
+            in = null;
+        }
+    }
+}
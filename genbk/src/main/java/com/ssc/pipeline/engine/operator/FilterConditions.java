@@ -0,0 +1,141 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.expression.Expression;
+import com.ssc.pipeline.engine.expression.ExpressionParser;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Translates the condition groups produced by the UI's FilterAssemble into an {@link Expression}.
+ * The list alternates groups ({@code andgroup}/{@code orgroup}) and connectors
+ * ({@code and}/{@code or}); connectors are applied left to right. The left operand is the
+ * condition's {@code funcfield} expression (the plain field when it is unset), and field
+ * comparisons take the right field from {@code value[0]} and its expression from {@code value[1]}.
+ * Literal values stay text; the compiler converts them to the type they are compared with.
+ */
+public final class FilterConditions {
+    private FilterConditions() {
+    }
+
+    /**
+     * @return the combined condition, or null when no condition is configured
+     */
+    public static Expression toExpression(JsonNode conditionGroups) {
+        Expression result = null;
+        boolean and = true;
+        for (JsonNode group : conditionGroups) {
+            String type = group.path("type").asText("");
+            switch (type) {
+                case "and" -> and = true;
+                case "or" -> and = false;
+                case "andgroup", "orgroup" -> {
+                    Expression groupExpression = group(group.path("group"), "andgroup".equals(type));
+                    if (groupExpression == null) {
+                        break;
+                    }
+                    result = result == null ? groupExpression : combine(and, result, groupExpression);
+                    and = true;
+                }
+                default -> {
+                    // empty placeholder groups are left behind by the editor
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Left-hand operand of a condition: its {@code funcfield} expression or the plain field.
+     */
+    public static Expression leftOperand(JsonNode condition) {
+        String field = condition.path("field").asText();
+        return operand(field, condition.path("funcfield").asText(""));
+    }
+
+    /**
+     * Right-hand operand of a field comparison: field {@code value[0]}, optionally transformed by
+     * the expression in {@code value[1]}.
+     */
+    public static Expression rightOperand(JsonNode condition) {
+        JsonNode values = condition.path("value");
+        if (values.path(0).asText("").isBlank()) {
+            throw new PipelineException("Field comparison is missing the field to compare with");
+        }
+        return operand(values.path(0).asText(), values.path(1).asText(""));
+    }
+
+    private static Expression operand(String field, String expression) {
+        if (expression.isBlank() || expression.equals(field)) {
+            // plain field names may contain characters the expression grammar does not allow
+            return new Expression.Field(field);
+        }
+        return ExpressionParser.parse(expression);
+    }
+
+    private static Expression group(JsonNode conditions, boolean and) {
+        Expression result = null;
+        for (JsonNode condition : conditions) {
+            Expression expression = condition(condition);
+            result = result == null ? expression : combine(and, result, expression);
+        }
+        return result;
+    }
+
+    private static Expression combine(boolean and, Expression left, Expression right) {
+        return new Expression.Call(and ? "AND" : "OR", List.of(left, right));
+    }
+
+    private static Expression condition(JsonNode condition) {
+        Expression field = leftOperand(condition);
+        String operate = condition.path("operate").asText();
+        List<String> values = new ArrayList<>();
+        condition.path("value").forEach(value -> values.add(value.asText()));
+
+        return switch (operate) {
+            case "EMPTY" -> new Expression.Call("IS_NULL", List.of(field));
+            case "NOT_EMPTY" -> new Expression.Call("IS_NOT_NULL", List.of(field));
+            case "IS", "ON", "=" -> compare("=", field, literal(values, 0, operate));
+            case "IS_NOT", "NOT_ON", "!=" -> compare("!=", field, literal(values, 0, operate));
+            case "GT", "AFTER", ">" -> compare(">", field, literal(values, 0, operate));
+            case "GT_OR_IS", "AT_OR_AFTER", ">=" -> compare(">=", field, literal(values, 0, operate));
+            case "LT", "BEFORE", "<" -> compare("<", field, literal(values, 0, operate));
+            case "LT_OR_IS", "AT_OR_BEFORE", "<=" -> compare("<=", field, literal(values, 0, operate));
+            case "IS_SAME" -> compare("=", field, rightOperand(condition));
+            case "IS_DIFF" -> compare("!=", field, rightOperand(condition));
+            case "GT_FIELD" -> compare(">", field, rightOperand(condition));
+            case "GT_OR_IS_FIELD" -> compare(">=", field, rightOperand(condition));
+            case "LT_FIELD" -> compare("<", field, rightOperand(condition));
+            case "LT_OR_IS_FIELD" -> compare("<=", field, rightOperand(condition));
+            case "BETWEEN" -> combine(true, compare(">=", field, literal(values, 0, operate)),
+                compare("<=", field, literal(values, 1, operate)));
+            case "IS_ONE_OF" -> {
+                List<Expression> arguments = new ArrayList<>();
+                arguments.add(field);
+                values.forEach(value -> arguments.add(new Expression.Literal(value, DataType.STRING)));
+                if (arguments.size() == 1) {
+                    throw new PipelineException("Filter operation " + operate + " is missing a value");
+                }
+                yield new Expression.Call("IN", arguments);
+            }
+            case "START_WITH" -> new Expression.Call("STARTS_WITH", List.of(field, literal(values, 0, operate)));
+            case "END_WITH" -> new Expression.Call("ENDS_WITH", List.of(field, literal(values, 0, operate)));
+            case "CONTAINS" -> new Expression.Call("CONTAINS", List.of(field, literal(values, 0, operate)));
+            default -> throw new PipelineException("Unsupported filter operation: " + operate);
+        };
+    }
+
+    private static Expression compare(String operator, Expression left, Expression right) {
+        return new Expression.Binary(operator, left, right);
+    }
+
+    private static Expression literal(List<String> values, int index, String operate) {
+        if (values.size() <= index) {
+            throw new PipelineException("Filter operation " + operate + " is missing a value");
+        }
+        return new Expression.Literal(values.get(index), DataType.STRING);
+    }
+}
@@ -0,0 +1,60 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.BooleanVector;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.expression.VectorExpression;
+
+/**
+ * Keeps the rows for which the compiled predicate is true; false and null both drop the row.
+ */
+public class FilterOperator implements BatchOperator {
+    private final BatchOperator input;
+    private final VectorExpression predicate;
+    private int[] selection = new int[RowBatch.DEFAULT_SIZE];
+
+    public FilterOperator(BatchOperator input, VectorExpression predicate) {
+        this.input = input;
+        this.predicate = predicate;
+    }
+
+    @Override
+    public Schema schema() {
+        return input.schema();
+    }
+
+    @Override
+    public RowBatch next() {
+        RowBatch batch;
+        while ((batch = input.next()) != null) {
+            int rows = batch.getRowCount();
+            if (selection.length < rows) {
+                selection = new int[rows];
+            }
+            BooleanVector matches = (BooleanVector) predicate.evaluate(batch);
+            boolean[] values = matches.values();
+            int count = 0;
+            if (matches.mayHaveNulls()) {
+                for (int row = 0; row < rows; row++) {
+                    if (values[row] && !matches.isNull(row)) {
+                        selection[count++] = row;
+                    }
+                }
+            } else {
+                for (int row = 0; row < rows; row++) {
+                    selection[count] = row;
+                    count += values[row] ? 1 : 0;
+                }
+            }
+            if (count > 0) {
+                return batch.select(selection, count);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        input.close();
+    }
+}
@@ -0,0 +1,484 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.spill.SpillFile;
+import com.ssc.pipeline.engine.spill.SpillOptions;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Parallel hash aggregation in two phases. First up to {@code parallelism} workers pull input
+ * batches and aggregate them into thread-local {@link GroupTable}s; a worker whose table outgrows
+ * its share of the memory budget spills the partial states to disk by hash partition and starts
+ * over. Then the partitions are merged independently, several at a time on the worker pool, and
+ * each merged partition is streamed out. A partition that does not fit in memory is aggregated
+ * again from its spilled partial states by a nested operator that partitions with a new seed.
+ * Output columns are the group-by columns followed by one column per aggregate; groups come out
+ * in no particular order.
+ */
+public class GroupOperator implements BatchOperator {
+    public enum Function {
+        COUNT, SUM, AVG, MIN, MAX,
+        /**
+         * Exact; every group keeps the set of its distinct values.
+         */
+        COUNT_DISTINCT,
+        /**
+         * Estimated with HyperLogLog in a few KB per group, about 1.6% standard error.
+         */
+        APPROX_COUNT_DISTINCT;
+
+        public static Function fromString(String value) {
+            try {
+                return Function.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new PipelineException("Unsupported aggregate function: " + value);
+            }
+        }
+
+        public DataType resultType(DataType input) {
+            return switch (this) {
+                case COUNT, COUNT_DISTINCT, APPROX_COUNT_DISTINCT -> DataType.BIGINT;
+                case AVG -> {
+                    requireNumeric(input);
+                    yield DataType.DOUBLE;
+                }
+                case SUM -> {
+                    requireNumeric(input);
+                    yield input == DataType.INT ? DataType.BIGINT : input;
+                }
+                case MIN, MAX -> input;
+            };
+        }
+
+        private void requireNumeric(DataType input) {
+            if (input == null || !input.isNumeric()) {
+                throw new PipelineException(name().toLowerCase() + " needs a numeric column");
+            }
+        }
+    }
+
+    private static final int PARTITION_BITS = 6;
+    private static final int PARTITIONS = 1 << PARTITION_BITS;
+    // a partition made of a few huge groups cannot be split further, so it is merged in memory
+    private static final int MAX_LEVEL = 3;
+    // below this a table is mostly fixed overhead, and spilling it would free next to nothing
+    private static final int MIN_SPILL_GROUPS = 1024;
+
+    private final BatchOperator input;
+    private final int[] groupBy;
+    private final Function[] functions;
+    private final int[] arguments;
+    private final DataType[] argumentTypes;
+    private final DataType[] keyTypes;
+    private final Schema schema;
+    private final Schema stateSchema;
+    private final Executor executor;
+    private final int parallelism;
+    private final SpillOptions spill;
+    private final int level;
+    // the input carries partial states (key columns, then state columns) instead of raw rows
+    private final boolean merging;
+    private final ArrayDeque<FutureTask<BatchOperator>> running = new ArrayDeque<>();
+    private Worker[] workers;
+    private int nextPartition;
+    private BatchOperator current;
+    private volatile boolean closed;
+
+    /**
+     * @param arguments input column of each aggregate, {@code -1} for {@code count(*)}
+     */
+    public GroupOperator(BatchOperator input, int[] groupBy, Function[] functions, int[] arguments, Schema schema,
+                         Executor executor, int parallelism, SpillOptions spill) {
+        this(input, groupBy, functions, arguments, argumentTypes(input.schema(), arguments), schema, executor,
+            parallelism, spill, 0, false);
+    }
+
+    private GroupOperator(BatchOperator input, int[] groupBy, Function[] functions, int[] arguments,
+                          DataType[] argumentTypes, Schema schema, Executor executor, int parallelism,
+                          SpillOptions spill, int level, boolean merging) {
+        this.input = input;
+        this.groupBy = groupBy;
+        this.functions = functions;
+        this.arguments = arguments;
+        this.argumentTypes = argumentTypes;
+        this.schema = schema;
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+        this.spill = spill;
+        this.level = level;
+        this.merging = merging;
+        this.keyTypes = new DataType[groupBy.length];
+        List<String> names = new ArrayList<>();
+        List<DataType> types = new ArrayList<>();
+        for (int i = 0; i < groupBy.length; i++) {
+            keyTypes[i] = input.schema().type(groupBy[i]);
+            names.add(schema.name(i));
+            types.add(keyTypes[i]);
+        }
+        Aggregate[] aggregates = newAggregates();
+        for (int i = 0; i < aggregates.length; i++) {
+            DataType[] stateTypes = aggregates[i].stateTypes();
+            for (int j = 0; j < stateTypes.length; j++) {
+                names.add("$state" + i + "_" + j);
+                types.add(stateTypes[j]);
+            }
+        }
+        this.stateSchema = new Schema(names, types);
+    }
+
+    private static DataType[] argumentTypes(Schema schema, int[] arguments) {
+        DataType[] types = new DataType[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            types[i] = arguments[i] < 0 ? null : schema.type(arguments[i]);
+        }
+        return types;
+    }
+
+    @Override
+    public Schema schema() {
+        return schema;
+    }
+
+    @Override
+    public RowBatch next() {
+        if (workers == null) {
+            aggregate();
+        }
+        while (true) {
+            if (current != null) {
+                RowBatch batch = current.next();
+                if (batch != null) {
+                    return batch;
+                }
+                current.close();
+                current = null;
+            }
+            while (running.size() < parallelism && nextPartition < PARTITIONS) {
+                int partition = nextPartition++;
+                FutureTask<BatchOperator> task = new FutureTask<>(() -> mergePartition(partition));
+                try {
+                    executor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    // merged on this thread when its turn comes
+                }
+                running.add(task);
+            }
+            FutureTask<BatchOperator> task = running.poll();
+            if (task == null) {
+                return null;
+            }
+            current = await(task);
+        }
+    }
+
+    /**
+     * Phase one: the caller and up to {@code parallelism - 1} pool threads aggregate the input
+     * into thread-local tables.
+     */
+    private void aggregate() {
+        input.start();
+        workers = new Worker[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            workers[i] = new Worker();
+        }
+        List<FutureTask<BatchOperator>> tasks = new ArrayList<>();
+        for (int i = 1; i < parallelism; i++) {
+            FutureTask<BatchOperator> task = new FutureTask<>(workers[i], null);
+            try {
+                executor.execute(task);
+                tasks.add(task);
+            } catch (RejectedExecutionException e) {
+                // the pool is saturated; the remaining workers would only find the input drained
+                break;
+            }
+        }
+        try {
+            workers[0].run();
+        } finally {
+            for (FutureTask<BatchOperator> task : tasks) {
+                await(task);
+            }
+        }
+        input.close();
+    }
+
+    private RowBatch pull() {
+        synchronized (input) {
+            return closed ? null : input.next();
+        }
+    }
+
+    /**
+     * Phase two: merges one partition from every worker's table and spill files. Returns
+     * {@code null} if no worker has groups in the partition.
+     */
+    private BatchOperator mergePartition(int partition) {
+        GroupTable table = newTable();
+        List<SpillFile> overflow = new ArrayList<>();
+        boolean empty = true;
+        for (Worker worker : workers) {
+            if (worker.table != null && worker.partitions[partition].length > 0) {
+                table.merge(worker.table, worker.partitions[partition]);
+                table = spillIfFull(table, overflow);
+                empty = false;
+            }
+        }
+        int[] groupIds = new int[RowBatch.DEFAULT_SIZE];
+        for (Worker worker : workers) {
+            SpillFile file = worker.files[partition];
+            if (file == null) {
+                continue;
+            }
+            empty = false;
+            BatchOperator reader = file.reader(stateSchema);
+            RowBatch batch;
+            while (!closed && (batch = reader.next()) != null) {
+                ColumnVector[] columns = batch.columns();
+                table.groupIds(RowKey.columns(columns, keyIndexes()), batch.getRowCount(), groupIds);
+                table.merge(columns, groupIds, batch.getRowCount());
+                table = spillIfFull(table, overflow);
+            }
+            reader.close();
+        }
+        if (empty) {
+            // a global aggregate's table always has its one group, which belongs to another partition
+            return null;
+        }
+        if (overflow.isEmpty()) {
+            return table.results(schema);
+        }
+        // the partition is too large: aggregate its partial states again, one level down
+        spillTable(table, overflow);
+        return new GroupOperator(new SpillFiles(overflow, stateSchema), keyIndexes(), functions, stateOffsets(),
+            argumentTypes, schema, executor, parallelism, spill, level + 1, true);
+    }
+
+    private GroupTable spillIfFull(GroupTable table, List<SpillFile> overflow) {
+        if (!isFull(table)) {
+            return table;
+        }
+        spillTable(table, overflow);
+        return newTable();
+    }
+
+    private void spillTable(GroupTable table, List<SpillFile> files) {
+        SpillFile file = SpillFile.create(spill, "group-");
+        files.add(file);
+        int[] all = new int[table.size()];
+        for (int group = 0; group < all.length; group++) {
+            all[group] = group;
+        }
+        writeStates(table, all, file);
+    }
+
+    private void writeStates(GroupTable table, int[] groups, SpillFile file) {
+        for (int from = 0; from < groups.length; from += RowBatch.DEFAULT_SIZE) {
+            file.write(table.stateBatch(groups, from, Math.min(RowBatch.DEFAULT_SIZE, groups.length - from),
+                stateSchema));
+        }
+    }
+
+    private boolean isFull(GroupTable table) {
+        return level < MAX_LEVEL && table.size() >= MIN_SPILL_GROUPS
+            && table.sizeInBytes() > spill.memoryBudget() / parallelism;
+    }
+
+    private long seed() {
+        return level * 0x9e3779b97f4a7c15L;
+    }
+
+    private GroupTable newTable() {
+        return new GroupTable(keyTypes, newAggregates());
+    }
+
+    private Aggregate[] newAggregates() {
+        Aggregate[] aggregates = new Aggregate[functions.length];
+        for (int i = 0; i < functions.length; i++) {
+            aggregates[i] = Aggregate.create(functions[i], argumentTypes[i]);
+        }
+        return aggregates;
+    }
+
+    /**
+     * Positions of the key columns in a partial-state batch.
+     */
+    private int[] keyIndexes() {
+        int[] indexes = new int[groupBy.length];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
+        return indexes;
+    }
+
+    /**
+     * First state column of each aggregate in a partial-state batch.
+     */
+    private int[] stateOffsets() {
+        int[] offsets = new int[functions.length];
+        int first = groupBy.length;
+        Aggregate[] aggregates = newAggregates();
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = first;
+            first += aggregates[i].stateTypes().length;
+        }
+        return offsets;
+    }
+
+    private <T> T await(FutureTask<T> task) {
+        task.run();
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PipelineException("Interrupted while aggregating", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof PipelineException pipelineException) {
+                throw pipelineException;
+            }
+            throw new PipelineException("Aggregation failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        input.close();
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+        for (FutureTask<BatchOperator> task : running) {
+            task.cancel(false);
+        }
+        running.clear();
+        if (workers != null) {
+            for (Worker worker : workers) {
+                worker.release();
+            }
+        }
+    }
+
+    /**
+     * Thread-local partial aggregation over the batches this worker pulls.
+     */
+    private final class Worker implements Runnable {
+        private final SpillFile[] files = new SpillFile[PARTITIONS];
+        private GroupTable table;
+        private int[][] partitions;
+
+        @Override
+        public void run() {
+            try {
+                aggregate();
+            } catch (RuntimeException | Error e) {
+                // stop the other workers instead of letting them drain the input
+                closed = true;
+                throw e;
+            }
+        }
+
+        private void aggregate() {
+            table = newTable();
+            int[] groupIds = new int[RowBatch.DEFAULT_SIZE];
+            RowBatch batch;
+            while ((batch = pull()) != null) {
+                int count = batch.getRowCount();
+                if (groupIds.length < count) {
+                    groupIds = new int[count];
+                }
+                ColumnVector[] columns = batch.columns();
+                table.groupIds(RowKey.columns(columns, groupBy), count, groupIds);
+                if (merging) {
+                    table.merge(columns, groupIds, count);
+                } else {
+                    table.add(columns, arguments, groupIds, count);
+                }
+                if (isFull(table)) {
+                    spillPartitions();
+                    table = newTable();
+                }
+            }
+            partitions = table.partitions(PARTITION_BITS, seed());
+        }
+
+        private void spillPartitions() {
+            int[][] split = table.partitions(PARTITION_BITS, seed());
+            for (int p = 0; p < PARTITIONS; p++) {
+                if (split[p].length > 0) {
+                    if (files[p] == null) {
+                        files[p] = SpillFile.create(spill, "group-");
+                    }
+                    writeStates(table, split[p], files[p]);
+                }
+            }
+        }
+
+        void release() {
+            table = null;
+            for (SpillFile file : files) {
+                if (file != null) {
+                    file.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads spilled partial states back, one file after another, deleting each when done.
+     */
+    private static final class SpillFiles implements BatchOperator {
+        private final ArrayDeque<SpillFile> files;
+        private final Schema schema;
+        private BatchOperator reader;
+
+        SpillFiles(List<SpillFile> files, Schema schema) {
+            this.files = new ArrayDeque<>(files);
+            this.schema = schema;
+        }
+
+        @Override
+        public Schema schema() {
+            return schema;
+        }
+
+        @Override
+        public RowBatch next() {
+            while (true) {
+                if (reader == null) {
+                    SpillFile file = files.poll();
+                    if (file == null) {
+                        return null;
+                    }
+                    reader = file.reader(schema);
+                }
+                RowBatch batch = reader.next();
+                if (batch != null) {
+                    return batch;
+                }
+                reader.close();
+                reader = null;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (reader != null) {
+                reader.close();
+                reader = null;
+            }
+            files.forEach(SpillFile::close);
+            files.clear();
+        }
+    }
+}
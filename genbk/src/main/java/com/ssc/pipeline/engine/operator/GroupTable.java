@@ -0,0 +1,259 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table from group keys to dense group ids, with the aggregate states of
+ * every group. Keys are stored in typed column chunks; a single integral key is hashed and
+ * compared as a primitive long, and its null group lives outside the table. A table without
+ * key columns is a global aggregate and always holds exactly one group.
+ */
+final class GroupTable {
+    private final ChunkedColumns keys;
+    private final int keyCount;
+    private final Aggregate[] aggregates;
+    private final boolean primitive;
+    // group id plus one; zero marks an empty slot
+    private int[] slots = new int[16];
+    // primitive key or hash of every group, so rehashing and partitioning never re-read the keys
+    private long[] groupKeys = new long[16];
+    private int nullGroup = -1;
+    private long[] rowKeys = new long[RowBatch.DEFAULT_SIZE];
+
+    GroupTable(DataType[] keyTypes, Aggregate[] aggregates) {
+        this.keys = new ChunkedColumns(keyTypes);
+        this.keyCount = keyTypes.length;
+        this.aggregates = aggregates;
+        this.primitive = keyCount == 1 && JoinHashTable.isPrimitive(keyTypes[0]);
+        if (keyCount == 0) {
+            newGroup(new ColumnVector[0], 0, 0);
+        }
+    }
+
+    int size() {
+        return keys.size();
+    }
+
+    long sizeInBytes() {
+        long bytes = keys.sizeInBytes() + 4L * slots.length + 8L * groupKeys.length;
+        for (Aggregate aggregate : aggregates) {
+            bytes += aggregate.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Maps {@code count} rows to their group ids, adding a group for every new key.
+     */
+    void groupIds(ColumnVector[] keyColumns, int count, int[] groupIds) {
+        if (keyCount == 0) {
+            Arrays.fill(groupIds, 0, count, 0);
+            return;
+        }
+        if (rowKeys.length < count) {
+            rowKeys = new long[count];
+        }
+        JoinHashTable.keys(keyColumns, count, primitive, rowKeys);
+        for (int row = 0; row < count; row++) {
+            groupIds[row] = find(keyColumns, row, rowKeys[row]);
+        }
+    }
+
+    void add(ColumnVector[] columns, int[] arguments, int[] groupIds, int count) {
+        for (int i = 0; i < aggregates.length; i++) {
+            aggregates[i].add(groupIds, arguments[i] < 0 ? null : columns[arguments[i]], count);
+        }
+    }
+
+    /**
+     * Merges partial-state rows laid out as key columns followed by the state columns of each
+     * aggregate in order.
+     */
+    void merge(ColumnVector[] columns, int[] groupIds, int count) {
+        int first = keyCount;
+        for (Aggregate aggregate : aggregates) {
+            aggregate.merge(groupIds, columns, first, count);
+            first += aggregate.stateTypes().length;
+        }
+    }
+
+    /**
+     * Merges the given groups of another table over the same keys and functions.
+     */
+    void merge(GroupTable other, int[] otherGroups) {
+        for (int otherGroup : otherGroups) {
+            ColumnVector[] chunk = other.keys.chunk(otherGroup);
+            int group = keyCount == 0 ? 0 : other.nullGroup == otherGroup
+                ? nullGroup(chunk, ChunkedColumns.offset(otherGroup))
+                : find(chunk, ChunkedColumns.offset(otherGroup), other.groupKeys[otherGroup]);
+            for (int i = 0; i < aggregates.length; i++) {
+                aggregates[i].merge(group, other.aggregates[i], otherGroup);
+            }
+        }
+    }
+
+    /**
+     * Splits the group ids by hash partition; the seed must differ between recursion levels.
+     */
+    int[][] partitions(int bits, long seed) {
+        int[] partitionOf = new int[size()];
+        int[] sizes = new int[1 << bits];
+        for (int group = 0; group < size(); group++) {
+            partitionOf[group] = partition(groupKeys[group], bits, seed);
+            sizes[partitionOf[group]]++;
+        }
+        int[][] partitions = new int[sizes.length][];
+        for (int p = 0; p < sizes.length; p++) {
+            partitions[p] = new int[sizes[p]];
+            sizes[p] = 0;
+        }
+        for (int group = 0; group < partitionOf.length; group++) {
+            int p = partitionOf[group];
+            partitions[p][sizes[p]++] = group;
+        }
+        return partitions;
+    }
+
+    static int partition(long key, int bits, long seed) {
+        return (int) (JoinHashTable.mix(key ^ seed) >>> (64 - bits));
+    }
+
+    /**
+     * Writes the keys and partial states of the given groups as one batch.
+     */
+    RowBatch stateBatch(int[] groups, int from, int count, Schema stateSchema) {
+        RowBatch batch = RowBatch.allocate(stateSchema, Math.max(count, 1));
+        ColumnVector[] target = batch.columns();
+        for (int i = 0; i < count; i++) {
+            int group = groups[from + i];
+            ColumnVector[] chunk = keys.chunk(group);
+            for (int k = 0; k < keyCount; k++) {
+                target[k].copyFrom(chunk[k], ChunkedColumns.offset(group), i);
+            }
+            int first = keyCount;
+            for (Aggregate aggregate : aggregates) {
+                aggregate.writeState(group, target, first, i);
+                first += aggregate.stateTypes().length;
+            }
+        }
+        batch.setRowCount(count);
+        return batch;
+    }
+
+    /**
+     * Streams the final rows: the key chunks as they are, followed by one result column per
+     * aggregate.
+     */
+    BatchOperator results(Schema schema) {
+        return new BatchOperator() {
+            private int next;
+
+            @Override
+            public Schema schema() {
+                return schema;
+            }
+
+            @Override
+            public RowBatch next() {
+                if (next >= size()) {
+                    return null;
+                }
+                int count = Math.min(ChunkedColumns.CHUNK_SIZE, size() - next);
+                ColumnVector[] columns = new ColumnVector[keyCount + aggregates.length];
+                System.arraycopy(keys.chunk(next), 0, columns, 0, keyCount);
+                for (int i = 0; i < aggregates.length; i++) {
+                    ColumnVector result = ColumnVector.allocate(schema.type(keyCount + i), count);
+                    for (int row = 0; row < count; row++) {
+                        aggregates[i].write(next + row, result, row);
+                    }
+                    columns[keyCount + i] = result;
+                }
+                next += count;
+                return new RowBatch(schema, columns, count);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private int find(ColumnVector[] keyColumns, int row, long key) {
+        if (primitive && keyColumns[0].isNull(row)) {
+            return nullGroup(keyColumns, row);
+        }
+        int mask = slots.length - 1;
+        int slot = (int) JoinHashTable.mix(key) & mask;
+        while (true) {
+            int group = slots[slot] - 1;
+            if (group < 0) {
+                group = newGroup(keyColumns, row, key);
+                slots[slot] = group + 1;
+                if (size() * 2 > slots.length) {
+                    rehash();
+                }
+                return group;
+            }
+            if (groupKeys[group] == key && (primitive || keyEquals(keyColumns, row, group))) {
+                return group;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private int nullGroup(ColumnVector[] keyColumns, int row) {
+        if (nullGroup < 0) {
+            // partitioned like the key 0, which is what every table assigns to it
+            nullGroup = newGroup(keyColumns, row, 0);
+        }
+        return nullGroup;
+    }
+
+    private int newGroup(ColumnVector[] keyColumns, int row, long key) {
+        int group = keys.append(keyColumns, row);
+        if (group == groupKeys.length) {
+            groupKeys = Arrays.copyOf(groupKeys, group * 2);
+        }
+        groupKeys[group] = key;
+        for (Aggregate aggregate : aggregates) {
+            aggregate.ensureCapacity(group + 1);
+        }
+        return group;
+    }
+
+    private boolean keyEquals(ColumnVector[] keyColumns, int row, int group) {
+        ColumnVector[] chunk = keys.chunk(group);
+        int offset = ChunkedColumns.offset(group);
+        for (int i = 0; i < keyCount; i++) {
+            boolean rowNull = keyColumns[i].isNull(row);
+            if (rowNull != chunk[i].isNull(offset)) {
+                return false;
+            }
+            if (!rowNull && !keyColumns[i].valueEquals(row, chunk[i], offset)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        int[] rehashed = new int[slots.length * 2];
+        int mask = rehashed.length - 1;
+        for (int group = 0; group < size(); group++) {
+            if (group == nullGroup) {
+                continue;
+            }
+            int slot = (int) JoinHashTable.mix(groupKeys[group]) & mask;
+            while (rehashed[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            rehashed[slot] = group + 1;
+        }
+        slots = rehashed;
+    }
+}
@@ -0,0 +1,178 @@
+package com.ssc.pipeline.engine.operator;
+
+/**
+ * HyperLogLog distinct counter over 64-bit hashes with 2^12 registers, about 1.6% standard
+ * error. A small sketch keeps only the registers it has touched, in a little open-addressing
+ * table, and switches to a dense register array once it would be nearly as large. Sketches
+ * encode to strings of chars below 256 so they can travel in a string column.
+ */
+public final class HyperLogLog {
+    private static final int PRECISION = 12;
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final int SPARSE_LIMIT = REGISTERS / 16;
+    private static final char SPARSE = 0;
+    private static final char DENSE = 1;
+
+    // ((register + 1) << 6) | rank; zero marks an empty slot
+    private int[] sparse = new int[8];
+    private int sparseSize;
+    private byte[] registers;
+
+    /**
+     * Adds a hashed value and returns by how many bytes the sketch grew.
+     */
+    public int add(long hash) {
+        int register = (int) (hash >>> (64 - PRECISION));
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        return set(register, rank);
+    }
+
+    int merge(HyperLogLog other) {
+        int growth = 0;
+        if (other.registers != null) {
+            for (int register = 0; register < REGISTERS; register++) {
+                if (other.registers[register] != 0) {
+                    growth += set(register, other.registers[register]);
+                }
+            }
+        } else {
+            for (int entry : other.sparse) {
+                if (entry != 0) {
+                    growth += set((entry >>> 6) - 1, entry & 63);
+                }
+            }
+        }
+        return growth;
+    }
+
+    /**
+     * Merges a sketch in its {@link #encode()} form.
+     */
+    int merge(CharSequence encoded) {
+        int growth = 0;
+        if (encoded.charAt(0) == DENSE) {
+            for (int register = 0; register < REGISTERS; register++) {
+                int rank = encoded.charAt(register + 1);
+                if (rank != 0) {
+                    growth += set(register, rank);
+                }
+            }
+        } else {
+            for (int i = 1; i + 2 < encoded.length(); i += 3) {
+                int entry = encoded.charAt(i) << 16 | encoded.charAt(i + 1) << 8 | encoded.charAt(i + 2);
+                growth += set((entry >>> 6) - 1, entry & 63);
+            }
+        }
+        return growth;
+    }
+
+    String encode() {
+        if (registers != null) {
+            StringBuilder builder = new StringBuilder(REGISTERS + 1).append(DENSE);
+            for (byte rank : registers) {
+                builder.append((char) rank);
+            }
+            return builder.toString();
+        }
+        StringBuilder builder = new StringBuilder(sparseSize * 3 + 1).append(SPARSE);
+        for (int entry : sparse) {
+            if (entry != 0) {
+                builder.append((char) (entry >>> 16)).append((char) ((entry >>> 8) & 0xff)).append((char) (entry & 0xff));
+            }
+        }
+        return builder.toString();
+    }
+
+    public long estimate() {
+        if (registers == null) {
+            return Math.round(linearCounting(REGISTERS - sparseSize));
+        }
+        double sum = 0;
+        int zeros = 0;
+        for (byte rank : registers) {
+            sum += 1.0 / (1L << rank);
+            if (rank == 0) {
+                zeros++;
+            }
+        }
+        double estimate = 0.7213 / (1 + 1.079 / REGISTERS) * REGISTERS * REGISTERS / sum;
+        // small cardinalities are far more accurate from the share of empty registers
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = linearCounting(zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    int sizeInBytes() {
+        return 32 + (registers != null ? REGISTERS : 4 * sparse.length);
+    }
+
+    /**
+     * 64-bit hash of a string for {@link #add(long)}; the 32-bit {@link String#hashCode()} would
+     * collide too often at the cardinalities a sketch is meant for.
+     */
+    public static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return JoinHashTable.mix(hash);
+    }
+
+    private static double linearCounting(int zeros) {
+        return REGISTERS * Math.log((double) REGISTERS / zeros);
+    }
+
+    private int set(int register, int rank) {
+        if (registers != null) {
+            if (registers[register] < rank) {
+                registers[register] = (byte) rank;
+            }
+            return 0;
+        }
+        int mask = sparse.length - 1;
+        int slot = register & mask;
+        while (true) {
+            int entry = sparse[slot];
+            if (entry == 0) {
+                sparse[slot] = (register + 1) << 6 | rank;
+                sparseSize++;
+                return sparseSize * 2 > sparse.length ? grow() : 0;
+            }
+            if ((entry >>> 6) - 1 == register) {
+                if ((entry & 63) < rank) {
+                    sparse[slot] = (register + 1) << 6 | rank;
+                }
+                return 0;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private int grow() {
+        int before = sizeInBytes();
+        int[] entries = sparse;
+        if (sparseSize > SPARSE_LIMIT) {
+            registers = new byte[REGISTERS];
+            for (int entry : entries) {
+                if (entry != 0) {
+                    registers[(entry >>> 6) - 1] = (byte) (entry & 63);
+                }
+            }
+            sparse = null;
+        } else {
+            sparse = new int[entries.length * 2];
+            int mask = sparse.length - 1;
+            for (int entry : entries) {
+                if (entry != 0) {
+                    int slot = ((entry >>> 6) - 1) & mask;
+                    while (sparse[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    sparse[slot] = entry;
+                }
+            }
+        }
+        return sizeInBytes() - before;
+    }
+}
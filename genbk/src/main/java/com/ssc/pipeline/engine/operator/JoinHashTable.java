@@ -0,0 +1,178 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.IntVector;
+import com.ssc.pipeline.engine.batch.LongVector;
+
+/**
+ * Open-addressing table over the build rows of a join. Every distinct key takes one slot and
+ * the rows sharing it are chained through {@code next}, so probing never touches other keys.
+ * A single integral key is stored and compared as a primitive long; other keys store their hash
+ * and are confirmed against the key columns of the chain's first row.
+ */
+final class JoinHashTable {
+    private final ChunkedColumns rows;
+    private final int[] keyColumns;
+    private final boolean primitive;
+    private final int mask;
+    // first row of the slot's chain plus one; zero marks an empty slot
+    private final int[] slots;
+    private final long[] slotKeys;
+    private final int[] next;
+    private final long[] matched;
+
+    JoinHashTable(ChunkedColumns rows, int[] keyColumns, boolean primitive) {
+        this.rows = rows;
+        this.keyColumns = keyColumns;
+        this.primitive = primitive;
+        int capacity = capacity(rows.size());
+        this.mask = capacity - 1;
+        this.slots = new int[capacity];
+        this.slotKeys = new long[capacity];
+        this.next = new int[rows.size()];
+        this.matched = new long[(rows.size() + 63) >>> 6];
+
+        long[] keys = new long[ChunkedColumns.CHUNK_SIZE];
+        for (int base = 0; base < rows.size(); base += ChunkedColumns.CHUNK_SIZE) {
+            ColumnVector[] columns = RowKey.columns(rows.chunk(base), keyColumns);
+            int count = Math.min(ChunkedColumns.CHUNK_SIZE, rows.size() - base);
+            keys(columns, count, primitive, keys);
+            for (int offset = 0; offset < count; offset++) {
+                next[base + offset] = -1;
+                if (!hasNull(columns, offset)) {
+                    insert(base + offset, columns, offset, keys[offset]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether {@code type} keys can be compared as primitive longs.
+     */
+    static boolean isPrimitive(DataType type) {
+        return type == DataType.INT || type == DataType.DATE || type == DataType.BIGINT
+            || type == DataType.TIMESTAMP || type == DataType.DECIMAL;
+    }
+
+    /**
+     * Computes the key of each row: the value itself for a primitive key, otherwise a hash of
+     * all key columns. Build and probe sides must use the same form.
+     */
+    static void keys(ColumnVector[] columns, int count, boolean primitive, long[] keys) {
+        if (primitive) {
+            if (columns[0] instanceof IntVector vector) {
+                int[] values = vector.values();
+                for (int row = 0; row < count; row++) {
+                    keys[row] = values[row];
+                }
+            } else {
+                System.arraycopy(((LongVector) columns[0]).values(), 0, keys, 0, count);
+            }
+            return;
+        }
+        for (int row = 0; row < count; row++) {
+            int hash = 1;
+            for (ColumnVector column : columns) {
+                hash = 31 * hash + (column.isNull(row) ? 0 : column.hash(row));
+            }
+            keys[row] = hash;
+        }
+    }
+
+    static boolean hasNull(ColumnVector[] columns, int row) {
+        for (ColumnVector column : columns) {
+            if (column.isNull(row)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Approximate footprint of a table over {@code size} rows, for memory accounting.
+     */
+    static long sizeInBytes(int size) {
+        return 12L * capacity(size) + 4L * size + size / 8;
+    }
+
+    /**
+     * Returns the first build row whose key equals that of {@code row}, or -1. The probe row
+     * must not have a null key.
+     */
+    int find(ColumnVector[] probeKeys, int row, long key) {
+        int slot = slot(key);
+        while (true) {
+            int head = slots[slot] - 1;
+            if (head < 0) {
+                return -1;
+            }
+            if (slotKeys[slot] == key && (primitive || keyEquals(probeKeys, row, head))) {
+                return head;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Next build row with the same key, or -1.
+     */
+    int next(int row) {
+        return next[row];
+    }
+
+    void markMatched(int row) {
+        matched[row >>> 6] |= 1L << row;
+    }
+
+    boolean isMatched(int row) {
+        return (matched[row >>> 6] & (1L << row)) != 0;
+    }
+
+    private void insert(int row, ColumnVector[] columns, int offset, long key) {
+        int slot = slot(key);
+        while (true) {
+            int head = slots[slot] - 1;
+            if (head < 0) {
+                slots[slot] = row + 1;
+                slotKeys[slot] = key;
+                return;
+            }
+            if (slotKeys[slot] == key && (primitive || keyEquals(columns, offset, head))) {
+                // chain behind the head so the slot keeps pointing at the first row
+                next[row] = next[head];
+                next[head] = row;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean keyEquals(ColumnVector[] columns, int row, int buildRow) {
+        ColumnVector[] chunk = rows.chunk(buildRow);
+        int offset = ChunkedColumns.offset(buildRow);
+        for (int i = 0; i < keyColumns.length; i++) {
+            if (!columns[i].valueEquals(row, chunk[keyColumns[i]], offset)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int slot(long key) {
+        return (int) mix(key) & mask;
+    }
+
+    static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        return key ^ (key >>> 33);
+    }
+
+    private static int capacity(int size) {
+        int highest = Integer.highestOneBit(Math.max(size, 1));
+        return highest >= 1 << 28 ? 1 << 30 : Math.max(16, highest << 2);
+    }
+}
@@ -0,0 +1,345 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.spill.SpillFile;
+import com.ssc.pipeline.engine.spill.SpillOptions;
+
+import java.util.ArrayDeque;
+
+/**
+ * Hybrid hash join on equality keys. The right input is the build side; its rows are hash
+ * partitioned, and while they fit the memory budget every partition stays in memory and the
+ * left input streams through the partition tables. When the budget is exceeded the largest
+ * partitions are spilled to disk, and left rows hashing to a spilled partition follow them there.
+ * Each spilled pair is joined afterwards by a nested join that re-partitions with a new hash
+ * seed. Unmatched rows are null-padded according to the join type.
+ */
+public class JoinOperator implements BatchOperator {
+    public enum JoinType {
+        INNER, LEFT, RIGHT, FULL;
+
+        public static JoinType fromString(String value) {
+            return JoinType.valueOf(value.trim().toUpperCase());
+        }
+
+        /**
+         * The type of the same join with its inputs swapped.
+         */
+        public JoinType mirror() {
+            return switch (this) {
+                case LEFT -> RIGHT;
+                case RIGHT -> LEFT;
+                default -> this;
+            };
+        }
+
+        boolean keepsUnmatchedLeft() {
+            return this == LEFT || this == FULL;
+        }
+
+        boolean keepsUnmatchedRight() {
+            return this == RIGHT || this == FULL;
+        }
+    }
+
+    private static final int PARTITION_BITS = 4;
+    private static final int PARTITIONS = 1 << PARTITION_BITS;
+    // rows sharing one key cannot be split, so recursion stops after a few levels and builds anyway
+    private static final int MAX_LEVEL = 3;
+
+    private final BatchOperator left;
+    private final BatchOperator right;
+    private final JoinType joinType;
+    private final int[] leftKeys;
+    private final int[] rightKeys;
+    private final int[] outputSources;
+    private final Schema schema;
+    private final SpillOptions spill;
+    private final int level;
+    private final JoinOutput output;
+    private final ArrayDeque<Partition> spilled = new ArrayDeque<>();
+    private Partition[] partitions;
+    private DataType[] buildTypes;
+    private boolean primitive;
+    private long[] keys = new long[RowBatch.DEFAULT_SIZE];
+    private boolean probed;
+    private JoinOperator nested;
+    private boolean finished;
+
+    /**
+     * @param outputSources for each output column, {@code i} selects left column {@code i} and
+     *                      {@code -(i + 1)} selects right column {@code i}
+     */
+    public JoinOperator(BatchOperator left, BatchOperator right, JoinType joinType, int[] leftKeys, int[] rightKeys,
+                        int[] outputSources, Schema schema, SpillOptions spill) {
+        this(left, right, joinType, leftKeys, rightKeys, outputSources, schema, spill, 0);
+    }
+
+    private JoinOperator(BatchOperator left, BatchOperator right, JoinType joinType, int[] leftKeys,
+                         int[] rightKeys, int[] outputSources, Schema schema, SpillOptions spill, int level) {
+        this.left = left;
+        this.right = right;
+        this.joinType = joinType;
+        this.leftKeys = leftKeys;
+        this.rightKeys = rightKeys;
+        this.outputSources = outputSources;
+        this.schema = schema;
+        this.spill = spill;
+        this.level = level;
+        this.output = new JoinOutput(outputSources, schema);
+    }
+
+    @Override
+    public Schema schema() {
+        return schema;
+    }
+
+    @Override
+    public RowBatch next() {
+        if (partitions == null) {
+            left.start();
+            build();
+        }
+        while (output.isEmpty() && !finished) {
+            if (!probed) {
+                RowBatch batch = left.next();
+                if (batch == null) {
+                    finishProbe();
+                } else {
+                    probe(batch);
+                }
+            } else if (nested != null) {
+                RowBatch batch = nested.next();
+                if (batch != null) {
+                    return batch;
+                }
+                nested.close();
+                nested = null;
+            } else if (!spilled.isEmpty()) {
+                nested = spilled.poll().join();
+            } else {
+                finished = true;
+            }
+        }
+        return output.poll();
+    }
+
+    private void build() {
+        primitive = rightKeys.length == 1 && JoinHashTable.isPrimitive(right.schema().type(rightKeys[0]));
+        buildTypes = right.schema().getTypes().toArray(new DataType[0]);
+        partitions = new Partition[PARTITIONS];
+        for (int i = 0; i < PARTITIONS; i++) {
+            partitions[i] = new Partition();
+        }
+        boolean keepNullKeys = joinType.keepsUnmatchedRight();
+        boolean empty = true;
+        RowBatch batch;
+        while ((batch = right.next()) != null) {
+            ColumnVector[] keyColumns = RowKey.columns(batch.columns(), rightKeys);
+            long[] batchKeys = keys(keyColumns, batch.getRowCount());
+            for (int row = 0; row < batch.getRowCount(); row++) {
+                // a null key never matches, so such rows only matter when they are emitted unmatched
+                if (keepNullKeys || !JoinHashTable.hasNull(keyColumns, row)) {
+                    partitions[partition(batchKeys[row])].addBuild(batch, row);
+                    empty = false;
+                }
+            }
+            while (level < MAX_LEVEL && memoryUsed() > spill.memoryBudget() && spillLargest()) {
+                // keep spilling until the in-memory partitions fit again
+            }
+        }
+        right.close();
+        for (Partition partition : partitions) {
+            if (partition.file == null) {
+                partition.table = new JoinHashTable(partition.rows, rightKeys, primitive);
+            }
+        }
+        if (empty && !joinType.keepsUnmatchedLeft()) {
+            // nothing can match and no left row is kept, so the left input is never read
+            finishProbe();
+        }
+    }
+
+    private void probe(RowBatch batch) {
+        ColumnVector[] columns = batch.columns();
+        ColumnVector[] keyColumns = RowKey.columns(columns, leftKeys);
+        long[] batchKeys = keys(keyColumns, batch.getRowCount());
+        boolean keepUnmatched = joinType.keepsUnmatchedLeft();
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            if (JoinHashTable.hasNull(keyColumns, row)) {
+                if (keepUnmatched) {
+                    output.append(columns, row, null, 0);
+                }
+                continue;
+            }
+            Partition partition = partitions[partition(batchKeys[row])];
+            JoinHashTable table = partition.table;
+            if (table == null) {
+                partition.addProbe(batch, row);
+                continue;
+            }
+            int match = table.find(keyColumns, row, batchKeys[row]);
+            if (match < 0 && keepUnmatched) {
+                output.append(columns, row, null, 0);
+            }
+            for (; match >= 0; match = table.next(match)) {
+                table.markMatched(match);
+                output.append(columns, row, partition.rows.chunk(match), ChunkedColumns.offset(match));
+            }
+        }
+    }
+
+    /**
+     * Completes the in-memory partitions once the left input is exhausted; spilled partitions
+     * are joined afterwards, one at a time.
+     */
+    private void finishProbe() {
+        probed = true;
+        left.close();
+        for (Partition partition : partitions) {
+            if (partition.table != null) {
+                if (joinType.keepsUnmatchedRight()) {
+                    for (int row = 0; row < partition.rows.size(); row++) {
+                        if (!partition.table.isMatched(row)) {
+                            output.append(null, 0, partition.rows.chunk(row), ChunkedColumns.offset(row));
+                        }
+                    }
+                }
+                partition.rows = null;
+                partition.table = null;
+            } else if (partition.file != null) {
+                spilled.add(partition);
+            }
+        }
+        output.flush();
+    }
+
+    private long[] keys(ColumnVector[] keyColumns, int count) {
+        if (keys.length < count) {
+            keys = new long[count];
+        }
+        JoinHashTable.keys(keyColumns, count, primitive, keys);
+        return keys;
+    }
+
+    /**
+     * Each level takes its partition from differently seeded hash bits, so a partition that is
+     * spilled again splits instead of landing in a single child partition.
+     */
+    private int partition(long key) {
+        return (int) (JoinHashTable.mix(key ^ (level * 0x9e3779b97f4a7c15L)) >>> (64 - PARTITION_BITS));
+    }
+
+    private long memoryUsed() {
+        long bytes = 0;
+        for (Partition partition : partitions) {
+            if (partition.file == null) {
+                bytes += partition.rows.sizeInBytes() + JoinHashTable.sizeInBytes(partition.rows.size());
+            }
+        }
+        return bytes;
+    }
+
+    private boolean spillLargest() {
+        Partition largest = null;
+        long largestBytes = 0;
+        for (Partition partition : partitions) {
+            if (partition.file == null && partition.rows.sizeInBytes() > largestBytes) {
+                largest = partition;
+                largestBytes = partition.rows.sizeInBytes();
+            }
+        }
+        if (largest == null) {
+            return false;
+        }
+        largest.spill();
+        return true;
+    }
+
+    @Override
+    public void close() {
+        left.close();
+        right.close();
+        if (nested != null) {
+            nested.close();
+        }
+        if (partitions != null) {
+            for (Partition partition : partitions) {
+                partition.release();
+            }
+        }
+    }
+
+    /**
+     * Build rows of one hash partition, in memory or spilled together with the probe rows that
+     * hash to it.
+     */
+    private final class Partition {
+        private ChunkedColumns rows = new ChunkedColumns(buildTypes);
+        private JoinHashTable table;
+        private SpillFile file;
+        private SpillFile probeFile;
+        private RowBatch buildBuffer;
+        private RowBatch probeBuffer;
+
+        void addBuild(RowBatch batch, int row) {
+            if (file == null) {
+                rows.append(batch.columns(), row);
+                return;
+            }
+            buildBuffer.appendRow(batch, row);
+            if (buildBuffer.isFull()) {
+                file.write(buildBuffer);
+                buildBuffer = RowBatch.allocate(right.schema());
+            }
+        }
+
+        void addProbe(RowBatch batch, int row) {
+            probeBuffer.appendRow(batch, row);
+            if (probeBuffer.isFull()) {
+                probeFile.write(probeBuffer);
+                probeBuffer = RowBatch.allocate(left.schema());
+            }
+        }
+
+        void spill() {
+            file = SpillFile.create(spill, "join-build-");
+            probeFile = SpillFile.create(spill, "join-probe-");
+            for (int chunk = 0; chunk < rows.chunkCount(); chunk++) {
+                file.write(rows.batch(chunk, right.schema()));
+            }
+            rows = null;
+            buildBuffer = RowBatch.allocate(right.schema());
+            probeBuffer = RowBatch.allocate(left.schema());
+        }
+
+        /**
+         * Joins the spilled rows with a nested operator one level down, or returns {@code null}
+         * when the join type keeps nothing from this partition.
+         */
+        JoinOperator join() {
+            if (probeFile.rowCount() == 0 && probeBuffer.isEmpty() && !joinType.keepsUnmatchedRight()) {
+                release();
+                return null;
+            }
+            file.write(buildBuffer);
+            probeFile.write(probeBuffer);
+            buildBuffer = null;
+            probeBuffer = null;
+            return new JoinOperator(probeFile.reader(left.schema()), file.reader(right.schema()), joinType,
+                leftKeys, rightKeys, outputSources, schema, spill, level + 1);
+        }
+
+        void release() {
+            rows = null;
+            table = null;
+            if (file != null) {
+                file.close();
+                probeFile.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+
+import java.util.ArrayDeque;
+
+/**
+ * Collects joined rows into output batches. Every output column copies a left or a right input
+ * column; a missing side is null-padded.
+ */
+final class JoinOutput {
+    private final int[] sources;
+    private final Schema schema;
+    private final ArrayDeque<RowBatch> ready = new ArrayDeque<>();
+    private RowBatch output;
+
+    /**
+     * @param sources for each output column, {@code i} selects left column {@code i} and
+     *                {@code -(i + 1)} selects right column {@code i}
+     */
+    JoinOutput(int[] sources, Schema schema) {
+        this.sources = sources;
+        this.schema = schema;
+        this.output = RowBatch.allocate(schema);
+    }
+
+    /**
+     * Appends one joined row; pass {@code null} columns for the side that has no match.
+     */
+    void append(ColumnVector[] left, int leftRow, ColumnVector[] right, int rightRow) {
+        int row = output.getRowCount();
+        for (int i = 0; i < sources.length; i++) {
+            int source = sources[i];
+            ColumnVector target = output.column(i);
+            if (source >= 0) {
+                if (left == null) {
+                    target.setNull(row);
+                } else {
+                    target.copyFrom(left[source], leftRow, row);
+                }
+            } else if (right == null) {
+                target.setNull(row);
+            } else {
+                target.copyFrom(right[-source - 1], rightRow, row);
+            }
+        }
+        output.setRowCount(row + 1);
+        if (output.isFull()) {
+            flush();
+        }
+    }
+
+    void flush() {
+        if (!output.isEmpty()) {
+            ready.add(output);
+            output = RowBatch.allocate(schema);
+        }
+    }
+
+    boolean isEmpty() {
+        return ready.isEmpty();
+    }
+
+    RowBatch poll() {
+        return ready.poll();
+    }
+}
@@ -0,0 +1,60 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+
+/**
+ * Passes through the first {@code limit} rows. The input is closed as soon as they are out, so
+ * a reader below stops parsing instead of running to the end of its file. A sort below only
+ * keeps the rows that make it out.
+ */
+public class LimitOperator implements BatchOperator {
+    private final BatchOperator input;
+    private long remaining;
+    private boolean inputClosed;
+
+    public LimitOperator(BatchOperator input, long limit) {
+        this.input = input;
+        this.remaining = limit;
+        if (input instanceof SortOperator sort) {
+            sort.limitTo(limit);
+        }
+    }
+
+    @Override
+    public Schema schema() {
+        return input.schema();
+    }
+
+    @Override
+    public void start() {
+        input.start();
+    }
+
+    @Override
+    public RowBatch next() {
+        if (remaining <= 0) {
+            close();
+            return null;
+        }
+        RowBatch batch = input.next();
+        if (batch == null) {
+            return null;
+        }
+        if (batch.getRowCount() < remaining) {
+            remaining -= batch.getRowCount();
+            return batch;
+        }
+        int count = (int) remaining;
+        remaining = 0;
+        return new RowBatch(batch.getSchema(), batch.columns(), count);
+    }
+
+    @Override
+    public void close() {
+        if (!inputClosed) {
+            inputClosed = true;
+            input.close();
+        }
+    }
+}
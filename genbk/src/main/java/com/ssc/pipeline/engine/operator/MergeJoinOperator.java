@@ -0,0 +1,202 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.util.Arrays;
+
+/**
+ * Sort-merge join for inputs already ordered by their join keys, ascending. Both inputs stream
+ * through once and only references to the right rows of the current key are held, so memory
+ * does not grow with the input size. Rows with a null key never match and may appear anywhere;
+ * an input that is found out of order fails the join.
+ */
+public class MergeJoinOperator implements BatchOperator {
+    private final JoinOperator.JoinType joinType;
+    private final Schema schema;
+    private final Cursor left;
+    private final Cursor right;
+    private final JoinOutput output;
+    // the right rows of the current key, as (columns, row) references into their batches
+    private ColumnVector[][] runColumns = new ColumnVector[16][];
+    private int[] runRows = new int[16];
+    private int runSize;
+    private boolean started;
+    private boolean finished;
+
+    /**
+     * @param outputSources for each output column, {@code i} selects left column {@code i} and
+     *                      {@code -(i + 1)} selects right column {@code i}
+     */
+    public MergeJoinOperator(BatchOperator left, BatchOperator right, JoinOperator.JoinType joinType,
+                             int[] leftKeys, int[] rightKeys, int[] outputSources, Schema schema) {
+        this.joinType = joinType;
+        this.schema = schema;
+        this.left = new Cursor(left, leftKeys, "left");
+        this.right = new Cursor(right, rightKeys, "right");
+        this.output = new JoinOutput(outputSources, schema);
+    }
+
+    @Override
+    public Schema schema() {
+        return schema;
+    }
+
+    @Override
+    public RowBatch next() {
+        if (!started) {
+            started = true;
+            left.input.start();
+            right.input.start();
+            left.advance();
+            right.advance();
+        }
+        while (output.isEmpty() && !finished) {
+            step();
+        }
+        return output.poll();
+    }
+
+    private void step() {
+        if (left.valid && left.keyIsNull()) {
+            emitLeft();
+        } else if (right.valid && right.keyIsNull()) {
+            emitRight();
+        } else if (left.valid && right.valid) {
+            int order = compare(left.keys, left.row, right.keys, right.row);
+            if (order < 0) {
+                emitLeft();
+            } else if (order > 0) {
+                emitRight();
+            } else {
+                joinRun();
+            }
+        } else if (left.valid && joinType.keepsUnmatchedLeft()) {
+            emitLeft();
+        } else if (right.valid && joinType.keepsUnmatchedRight()) {
+            emitRight();
+        } else {
+            finished = true;
+            output.flush();
+        }
+    }
+
+    private void emitLeft() {
+        if (joinType.keepsUnmatchedLeft()) {
+            output.append(left.columns, left.row, null, 0);
+        }
+        left.advance();
+    }
+
+    private void emitRight() {
+        if (joinType.keepsUnmatchedRight()) {
+            output.append(null, 0, right.columns, right.row);
+        }
+        right.advance();
+    }
+
+    /**
+     * Both cursors are on the same key: collects the right rows of that key, then pairs every
+     * left row of the key with them.
+     */
+    private void joinRun() {
+        ColumnVector[] keys = right.keys;
+        int keyRow = right.row;
+        runSize = 0;
+        while (right.valid && (right.keyIsNull() || compare(right.keys, right.row, keys, keyRow) == 0)) {
+            if (right.keyIsNull()) {
+                emitRight();
+                continue;
+            }
+            if (runSize == runRows.length) {
+                runColumns = Arrays.copyOf(runColumns, runSize * 2);
+                runRows = Arrays.copyOf(runRows, runSize * 2);
+            }
+            runColumns[runSize] = right.columns;
+            runRows[runSize++] = right.row;
+            right.advance();
+        }
+        while (left.valid && (left.keyIsNull() || compare(left.keys, left.row, keys, keyRow) == 0)) {
+            if (left.keyIsNull()) {
+                emitLeft();
+                continue;
+            }
+            for (int i = 0; i < runSize; i++) {
+                output.append(left.columns, left.row, runColumns[i], runRows[i]);
+            }
+            left.advance();
+        }
+        Arrays.fill(runColumns, 0, runSize, null);
+    }
+
+    private static int compare(ColumnVector[] a, int aRow, ColumnVector[] b, int bRow) {
+        for (int i = 0; i < a.length; i++) {
+            int order = a[i].compare(aRow, b[i], bRow);
+            if (order != 0) {
+                return order;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void close() {
+        left.input.close();
+        right.input.close();
+    }
+
+    /**
+     * Position in one input. Batches are not reused by their producers, so references to earlier
+     * rows stay valid after the cursor moves on.
+     */
+    private static final class Cursor {
+        private final BatchOperator input;
+        private final int[] keyIndexes;
+        private final String side;
+        private RowBatch batch;
+        private ColumnVector[] columns;
+        private ColumnVector[] keys;
+        private int row;
+        private boolean valid = true;
+        private ColumnVector[] lastKeys;
+        private int lastRow;
+
+        Cursor(BatchOperator input, int[] keyIndexes, String side) {
+            this.input = input;
+            this.keyIndexes = keyIndexes;
+            this.side = side;
+        }
+
+        boolean keyIsNull() {
+            return JoinHashTable.hasNull(keys, row);
+        }
+
+        void advance() {
+            if (!valid) {
+                return;
+            }
+            row++;
+            while (batch == null || row >= batch.getRowCount()) {
+                batch = input.next();
+                if (batch == null) {
+                    valid = false;
+                    input.close();
+                    return;
+                }
+                columns = batch.columns();
+                keys = RowKey.columns(columns, keyIndexes);
+                row = 0;
+            }
+            if (keyIsNull()) {
+                return;
+            }
+            if (lastKeys != null && compare(lastKeys, lastRow, keys, row) > 0) {
+                throw new PipelineException("The " + side + " input of a merge join is not sorted by its join keys");
+            }
+            lastKeys = keys;
+            lastRow = row;
+        }
+    }
+}
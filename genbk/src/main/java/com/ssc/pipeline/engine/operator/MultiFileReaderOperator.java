@@ -0,0 +1,183 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads many files as one stream. Up to {@code concurrency} lanes run on the executor, each
+ * taking the next file in the given order and reading it to the end, and their batches are
+ * handed out in the order they are ready, so rows of different files interleave. The schema is
+ * the declared one or the first file's; every file is read with it. If the executor has no
+ * thread for any lane, the files are read one after another on the caller's thread.
+ */
+public class MultiFileReaderOperator implements BatchOperator {
+    private static final RowBatch END = new RowBatch(Schema.ofStrings(List.of()), new ColumnVector[0], 0);
+
+    /**
+     * Opens one file for reading with the stream's schema.
+     */
+    @FunctionalInterface
+    public interface FileReader {
+        BatchOperator open(Path file, Schema schema);
+    }
+
+    private final List<Path> files;
+    private final Schema declaredSchema;
+    private final FileReader reader;
+    private final Executor executor;
+    private final int concurrency;
+    private final ConcurrentLinkedQueue<Path> pending;
+    private final BlockingQueue<RowBatch> queue;
+    private final AtomicInteger runningLanes = new AtomicInteger();
+    private Schema schema;
+    private volatile boolean closed;
+    private volatile Throwable failure;
+    private boolean started;
+    private boolean finished;
+    private BatchOperator current;
+
+    /**
+     * @param declaredSchema column names and types by position, or {@code null} to take them
+     *                       from the first file
+     */
+    public MultiFileReaderOperator(List<Path> files, Schema declaredSchema, FileReader reader, Executor executor,
+                                   int concurrency) {
+        this.files = List.copyOf(files);
+        this.declaredSchema = declaredSchema;
+        this.reader = reader;
+        this.executor = executor;
+        this.concurrency = Math.max(1, Math.min(concurrency, files.size()));
+        this.pending = new ConcurrentLinkedQueue<>(files);
+        this.queue = new ArrayBlockingQueue<>(2 * this.concurrency);
+    }
+
+    @Override
+    public Schema schema() {
+        if (schema == null) {
+            if (declaredSchema != null || files.isEmpty()) {
+                schema = declaredSchema != null ? declaredSchema : Schema.ofStrings(List.of());
+            } else {
+                try (BatchOperator first = reader.open(files.get(0), null)) {
+                    schema = first.schema();
+                }
+            }
+        }
+        return schema;
+    }
+
+    @Override
+    public void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        schema();
+        for (int i = 0; i < concurrency; i++) {
+            runningLanes.incrementAndGet();
+            try {
+                executor.execute(this::lane);
+            } catch (RejectedExecutionException e) {
+                runningLanes.decrementAndGet();
+                break;
+            }
+        }
+    }
+
+    @Override
+    public RowBatch next() {
+        start();
+        if (finished) {
+            return null;
+        }
+        if (runningLanes.get() == 0 && queue.isEmpty() && !closed) {
+            return nextInline();
+        }
+        try {
+            RowBatch batch = queue.take();
+            if (batch == END) {
+                finished = true;
+                if (failure != null) {
+                    throw new PipelineException("Reading files failed: " + failure.getMessage(), failure);
+                }
+                return null;
+            }
+            return batch;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PipelineException("Interrupted while waiting for file batches", e);
+        }
+    }
+
+    // no lane could be started
+    private RowBatch nextInline() {
+        while (true) {
+            if (current == null) {
+                Path file = pending.poll();
+                if (file == null) {
+                    finished = true;
+                    return null;
+                }
+                current = reader.open(file, schema);
+            }
+            RowBatch batch = current.next();
+            if (batch != null) {
+                return batch;
+            }
+            current.close();
+            current = null;
+        }
+    }
+
+    private void lane() {
+        try {
+            Path file;
+            while (!closed && failure == null && (file = pending.poll()) != null) {
+                try (BatchOperator input = reader.open(file, schema)) {
+                    RowBatch batch;
+                    while (!closed && (batch = input.next()) != null) {
+                        put(batch);
+                    }
+                }
+            }
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            if (runningLanes.decrementAndGet() == 0) {
+                put(END);
+            }
+        }
+    }
+
+    private void put(RowBatch batch) {
+        try {
+            while (!closed && !queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                // wait for the consumer, re-checking for cancellation
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closed = true;
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        queue.clear();
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+}
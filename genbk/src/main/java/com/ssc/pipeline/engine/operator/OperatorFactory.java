@@ -0,0 +1,921 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.csv.CsvOptions;
+import com.ssc.pipeline.engine.expression.ConstantFolder;
+import com.ssc.pipeline.engine.expression.Expression;
+import com.ssc.pipeline.engine.expression.ExpressionCompiler;
+import com.ssc.pipeline.engine.expression.ExpressionParser;
+import com.ssc.pipeline.engine.expression.VectorExpression;
+import com.ssc.pipeline.engine.graph.NodeType;
+import com.ssc.pipeline.engine.graph.PipelineGraph;
+import com.ssc.pipeline.engine.graph.PipelineNode;
+import com.ssc.pipeline.engine.materialize.NodeOutputStore;
+import com.ssc.pipeline.engine.plan.SourceStatistics;
+import com.ssc.pipeline.engine.plan.StatisticsStore;
+import com.ssc.pipeline.engine.sink.BatchSink;
+import com.ssc.pipeline.engine.sftp.SftpConnector;
+import com.ssc.pipeline.engine.sftp.SftpEndpoint;
+import com.ssc.pipeline.engine.sink.Compression;
+import com.ssc.pipeline.engine.sink.CsvWriterSink;
+import com.ssc.pipeline.engine.sink.ExcelWriterSink;
+import com.ssc.pipeline.engine.spill.SpillOptions;
+import com.ssc.pipeline.engine.stats.NodeStats;
+import com.ssc.pipeline.engine.stats.RunStats;
+import com.ssc.pipeline.exception.PipelineException;
+import org.apache.sshd.sftp.client.SftpClient;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+/**
+ * Turns graph nodes into operator trees. A node that feeds several consumers is instantiated
+ * once per consumer, so every branch streams independently instead of buffering for the slowest one.
+ */
+public class OperatorFactory {
+    private final PipelineGraph graph;
+    private final Executor executor;
+    private final Path workDir;
+    private final SpillOptions spill;
+    private final long sourceRowLimit;
+    private final NodeOutputStore outputs;
+    private final RunStats stats;
+    private final SftpConnector sftp;
+    // output hash per node id, "" where an input file could not be fingerprinted
+    private final Map<String, String> hashes = new ConcurrentHashMap<>();
+    private final Set<String> reused = ConcurrentHashMap.newKeySet();
+
+    /**
+     * What a factory builds its operators with; the required parts go into the constructor and
+     * the optional ones are set with the {@code with} methods.
+     *
+     * @param sourceRowLimit rows every source reads at most, {@code 0} for all; previews use it
+     *                       to run on a sample of the inputs
+     * @param outputs        store that sources, joins, groups and sorts (or any node with
+     *                       {@code materialize: true}) are read from when their sub-graph is
+     *                       unchanged and recorded to otherwise; {@code null} to store nothing
+     * @param stats          counters that every operator, sink and spill file created here
+     *                       updates as the run streams; {@code null} to count nothing
+     * @param sftp           connector the SFTP source and output nodes open their remote files
+     *                       through; {@code null} where those nodes are not supported
+     */
+    public record Options(Executor executor, Path workDir, SpillOptions spill, long sourceRowLimit,
+                          NodeOutputStore outputs, RunStats stats, SftpConnector sftp) {
+        public Options(Executor executor, Path workDir, SpillOptions spill) {
+            this(executor, workDir, spill, 0, null, null, null);
+        }
+
+        public Options withSourceRowLimit(long sourceRowLimit) {
+            return new Options(executor, workDir, spill, sourceRowLimit, outputs, stats, sftp);
+        }
+
+        public Options withOutputs(NodeOutputStore outputs) {
+            return new Options(executor, workDir, spill, sourceRowLimit, outputs, stats, sftp);
+        }
+
+        public Options withStats(RunStats stats) {
+            return new Options(executor, workDir, spill, sourceRowLimit, outputs, stats, sftp);
+        }
+
+        public Options withSftp(SftpConnector sftp) {
+            return new Options(executor, workDir, spill, sourceRowLimit, outputs, stats, sftp);
+        }
+    }
+
+    public OperatorFactory(PipelineGraph graph, Options options) {
+        this.graph = graph;
+        this.executor = options.executor();
+        this.workDir = options.workDir().toAbsolutePath().normalize();
+        this.stats = options.stats();
+        this.spill = stats == null ? options.spill() : options.spill().countingInto(stats.spilledBytes());
+        this.sourceRowLimit = options.sourceRowLimit();
+        this.outputs = options.outputs();
+        this.sftp = options.sftp();
+    }
+
+    public BatchSink createSink(PipelineNode node) {
+        BatchSink sink;
+        LongSupplier bytesWritten;
+        if (node.getType() == NodeType.SFTP_OUTPUT) {
+            SftpEndpoint endpoint = sftpEndpoint(node);
+            String path = remotePath(node);
+            sink = createSftpWriter(node, endpoint, path);
+            bytesWritten = () -> remoteSize(endpoint, path);
+        } else {
+            Path path = outputPath(node);
+            sink = switch (node.getType()) {
+                case CSV_WRITER -> createCsvWriter(node, path);
+                // a single thread deflates the sheets, so the fastest level is the default
+                case EXCEL_WRITER -> new ExcelWriterSink(path, node.prop("sheetName", "Sheet1"),
+                    node.booleanProp("hasHeader", true), node.intProp("compressionLevel", Deflater.BEST_SPEED),
+                    spill.directory());
+                default -> throw unsupported(node);
+            };
+            bytesWritten = () -> fileSize(path);
+        }
+        if (stats == null) {
+            return sink;
+        }
+        NodeStats nodeStats = stats.node(node);
+        return input -> {
+            nodeStats.started(System.nanoTime());
+            long rows = sink.write(input);
+            nodeStats.written(rows, bytesWritten.getAsLong());
+            return rows;
+        };
+    }
+
+    private Path outputPath(PipelineNode node) {
+        return switch (node.getType()) {
+            case CSV_WRITER -> resolvePath(node, node.prop("path", node.getId() + ".csv"
+                + Compression.fromString(node.prop("compression", null)).getExtension()));
+            case EXCEL_WRITER -> resolvePath(node, node.prop("path", node.getId() + ".xlsx"));
+            default -> throw unsupported(node);
+        };
+    }
+
+    /**
+     * Streams the encoded blocks straight into the remote file; options are those of the CSV
+     * writer.
+     */
+    private BatchSink createSftpWriter(PipelineNode node, SftpEndpoint endpoint, String path) {
+        return new CsvWriterSink(() -> Channels.newChannel(sftp.openWrite(endpoint, path)),
+            remoteName(endpoint, path), CsvOptions.from(node), Compression.fromString(node.prop("compression", null)),
+            node.intProp("compressionLevel", -1), executor, Runtime.getRuntime().availableProcessors());
+    }
+
+    private SftpEndpoint sftpEndpoint(PipelineNode node) {
+        if (sftp == null) {
+            throw unsupported(node);
+        }
+        return sftp.endpoint(node.prop("processId", null));
+    }
+
+    private static String remotePath(PipelineNode node) {
+        String path = node.prop("path", null);
+        if (path == null || path.isBlank()) {
+            throw new PipelineException(node + " has no path configured");
+        }
+        return path;
+    }
+
+    private static String remoteName(SftpEndpoint endpoint, String path) {
+        return "sftp://" + endpoint + (path.startsWith("/") ? "" : "/") + path;
+    }
+
+    private long remoteSize(SftpEndpoint endpoint, String path) {
+        try {
+            return sftp.stat(endpoint, path).getSize();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private BatchSink createCsvWriter(PipelineNode node, Path path) {
+        return new CsvWriterSink(path, CsvOptions.from(node), Compression.fromString(node.prop("compression", null)),
+            node.intProp("compressionLevel", -1), executor, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * The rows an output node writes, in its {@code sortBy} order if it has one.
+     */
+    public BatchOperator createInput(PipelineNode sink) {
+        return sorted(sink, create(singleInput(sink), sink), -1);
+    }
+
+    public BatchOperator create(PipelineNode node) {
+        return create(node, null);
+    }
+
+    private BatchOperator create(PipelineNode node, PipelineNode consumer) {
+        BatchOperator operator = createUncounted(node);
+        if (stats == null) {
+            return operator;
+        }
+        NodeStats nodeStats = stats.node(node);
+        if (reused.contains(node.getId())) {
+            nodeStats.markReused();
+        }
+        // output read back from the store is not the source file, so its bytes are not counted
+        long sourceBytes = 0;
+        if (!nodeStats.reused()) {
+            for (Path file : sourceFilesOrEmpty(node)) {
+                sourceBytes += fileSize(file);
+            }
+            PipelineNode remote = remoteInput(graph.inputsOf(node));
+            if (node.getType() == NodeType.CSV_READER && remote != null) {
+                sourceBytes += remoteSize(sftpEndpoint(remote), remotePath(remote));
+            }
+        }
+        return new StatsOperator(operator, nodeStats, consumer == null ? null : stats.node(consumer), sourceBytes);
+    }
+
+    private BatchOperator createUncounted(PipelineNode node) {
+        String hash = outputs != null && materializes(node) ? outputHash(node) : null;
+        if (hash == null) {
+            return build(node);
+        }
+        BatchOperator stored = outputs.open(hash);
+        if (stored != null) {
+            reused.add(node.getId());
+            return stored;
+        }
+        return outputs.record(hash, build(node));
+    }
+
+    private static long fileSize(Path path) {
+        try {
+            return path == null ? 0 : Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Ids of the nodes whose output was read from the store instead of being computed.
+     */
+    public Set<String> reusedNodes() {
+        return Set.copyOf(reused);
+    }
+
+    // streaming filters and projections are cheaper to rerun than to store
+    private static boolean materializes(PipelineNode node) {
+        NodeType type = node.getType();
+        return node.booleanProp("materialize", type == NodeType.CSV_READER || type == NodeType.JOIN
+            || type == NodeType.GROUP || type == NodeType.SORT);
+    }
+
+    private BatchOperator build(PipelineNode node) {
+        List<PipelineNode> inputs = graph.inputsOf(node);
+        return switch (node.getType()) {
+            case CSV_READER -> createReader(node, inputs);
+            case FILTER -> createFilter(node, create(singleInput(node), node));
+            case SELECT -> createSelect(node, create(singleInput(node), node));
+            case GROUP -> createGroup(node, create(singleInput(node), node));
+            case JOIN -> createJoin(node, inputs);
+            case UNION -> createUnion(node, inputs);
+            case SORT -> createSort(node, create(singleInput(node), node));
+            default -> throw unsupported(node);
+        };
+    }
+
+    /**
+     * The local files a source node reads, in reading order; empty if the node reads no file
+     * itself or a remote one.
+     */
+    public List<Path> sourceFiles(PipelineNode node) throws IOException {
+        List<PipelineNode> inputs = graph.inputsOf(node);
+        if (node.getType() != NodeType.CSV_READER || remoteInput(inputs) != null) {
+            return List.of();
+        }
+        PipelineNode folder = folderInput(inputs);
+        return folder != null ? folderFiles(folder) : List.of(readerPath(node, inputs));
+    }
+
+    private List<Path> sourceFilesOrEmpty(PipelineNode node) {
+        try {
+            return sourceFiles(node);
+        } catch (IOException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Hash of everything the node's output depends on: its type and configuration, the size and
+     * modification time of the file it reads and the hashes of its inputs. Node ids are left
+     * out, so identical sub-graphs share outputs across pipelines. Returns {@code null} if an
+     * input file cannot be fingerprinted, and then for every node downstream of it too.
+     */
+    public String outputHash(PipelineNode node) {
+        String hash = hashes.get(node.getId());
+        if (hash == null) {
+            hash = computeHash(node);
+            hashes.put(node.getId(), hash);
+        }
+        return hash.isEmpty() ? null : hash;
+    }
+
+    private String computeHash(PipelineNode node) {
+        StringBuilder key = new StringBuilder().append(node.getType()).append(' ')
+            .append(sourceRowLimit).append(' ').append(node.getProps());
+        try {
+            for (Path file : sourceFiles(node)) {
+                appendFingerprint(key, file);
+            }
+            PipelineNode remote = remoteInput(graph.inputsOf(node));
+            if (node.getType() == NodeType.CSV_READER && remote != null) {
+                if (sftp == null) {
+                    return "";
+                }
+                SftpEndpoint endpoint = sftp.endpoint(remote.prop("processId", null));
+                String path = remotePath(remote);
+                SftpClient.Attributes attributes = sftp.stat(endpoint, path);
+                key.append('\n').append(remoteName(endpoint, path)).append(' ').append(attributes.getSize())
+                    .append(' ').append(attributes.getModifyTime().toMillis());
+            }
+        } catch (IOException e) {
+            return "";
+        }
+        for (PipelineNode input : graph.inputsOf(node)) {
+            String inputHash = outputHash(input);
+            if (inputHash == null) {
+                return "";
+            }
+            key.append('\n').append(inputHash);
+        }
+        return sha256(key);
+    }
+
+    private static void appendFingerprint(StringBuilder key, Path file) throws IOException {
+        key.append('\n').append(file).append(' ').append(Files.size(file)).append(' ')
+            .append(Files.getLastModifiedTime(file).toMillis());
+    }
+
+    private static String sha256(CharSequence key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(key.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private BatchOperator createReader(PipelineNode node, List<PipelineNode> inputs) {
+        PipelineNode folder = folderInput(inputs);
+        if (folder != null) {
+            return limitSource(createFolderReader(node, folder));
+        }
+        PipelineNode remote = remoteInput(inputs);
+        if (remote != null) {
+            SftpEndpoint endpoint = sftpEndpoint(remote);
+            String path = remotePath(remote);
+            return limitSource(new CsvStreamReaderOperator(() -> sftp.openRead(endpoint, path),
+                remoteName(endpoint, path), CsvOptions.from(node), declaredSchema(node)));
+        }
+        return limitSource(new CsvReaderOperator(readerPath(node, inputs), CsvOptions.from(node),
+            readerSchema(node, inputs), executor, readerParallelism(), readColumns(node)));
+    }
+
+    /**
+     * Columns a CSV reader produces, for planning: the declared ones or the file's header. Null
+     * for readers of a folder or a remote file without declared columns, and when the file
+     * cannot be opened, which the reader reports once it runs.
+     */
+    public List<String> readerColumns(PipelineNode node) {
+        List<PipelineNode> inputs = graph.inputsOf(node);
+        if (folderInput(inputs) != null || remoteInput(inputs) != null) {
+            Schema declared = declaredSchema(node);
+            return declared == null ? null : declared.getNames();
+        }
+        try {
+            Schema declared = readerSchema(node, inputs);
+            if (declared != null) {
+                return declared.getNames();
+            }
+            try (BatchOperator reader = new CsvReaderOperator(readerPath(node, inputs), CsvOptions.from(node), null,
+                executor, 1)) {
+                return reader.schema().getNames();
+            }
+        } catch (PipelineException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Statistics of the file a CSV reader reads, for planning. Null for readers of a folder or a
+     * remote file, and when the file cannot be sampled.
+     */
+    public SourceStatistics readerStatistics(PipelineNode node, StatisticsStore store) {
+        List<PipelineNode> inputs = graph.inputsOf(node);
+        if (store == null || folderInput(inputs) != null || remoteInput(inputs) != null) {
+            return null;
+        }
+        try {
+            Schema declared = readerSchema(node, inputs);
+            return store.get(readerPath(node, inputs), CsvOptions.from(node),
+                declared == null ? null : declared.getNames());
+        } catch (PipelineException e) {
+            return null;
+        }
+    }
+
+    // set by the plan optimizer when consumers need only some of the columns
+    private static List<String> readColumns(PipelineNode node) {
+        JsonNode columns = node.getProps().get("readColumns");
+        if (columns == null || !columns.isArray()) {
+            return null;
+        }
+        List<String> names = new ArrayList<>();
+        columns.forEach(column -> names.add(column.asText()));
+        return names;
+    }
+
+    private int readerParallelism() {
+        return sourceRowLimit > 0 ? 1 : Runtime.getRuntime().availableProcessors();
+    }
+
+    private static PipelineNode remoteInput(List<PipelineNode> inputs) {
+        for (PipelineNode input : inputs) {
+            if (input.getType() == NodeType.SFTP_SOURCE) {
+                return input;
+            }
+        }
+        return null;
+    }
+
+    private static PipelineNode folderInput(List<PipelineNode> inputs) {
+        for (PipelineNode input : inputs) {
+            if (input.getType() == NodeType.SHARED_FOLDER_SOURCE) {
+                return input;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads every file of a SharedFolder source with the reader's options, {@code concurrency}
+     * files at a time (4 by default) and each with the reader's split parallelism. With the
+     * output store on, every file is checkpointed there as it completes, so a rerun after a
+     * failure reads the finished files back and parses only the rest.
+     */
+    private BatchOperator createFolderReader(PipelineNode node, PipelineNode folder) {
+        List<Path> files;
+        try {
+            files = folderFiles(folder);
+        } catch (IOException e) {
+            throw new PipelineException("Failed to list " + folder + ": " + e.getMessage(), e);
+        }
+        CsvOptions options = CsvOptions.from(node);
+        int concurrency = sourceRowLimit > 0 ? 1 : Math.max(1, node.intProp("concurrency", 4));
+        return new MultiFileReaderOperator(files, declaredSchema(node), (file, schema) -> {
+            if (schema == null) {
+                return new CsvReaderOperator(file, options, null, executor, 1);
+            }
+            String hash = outputs == null ? null : fileHash(node, file, schema);
+            BatchOperator stored = hash == null ? null : outputs.open(hash);
+            if (stored != null) {
+                return stored;
+            }
+            BatchOperator reader = new CsvReaderOperator(file, options, schema, executor, readerParallelism());
+            return hash == null ? reader : outputs.record(hash, reader);
+        }, executor, concurrency);
+    }
+
+    private String fileHash(PipelineNode node, Path file, Schema schema) {
+        StringBuilder key = new StringBuilder().append(node.getType()).append(" file ")
+            .append(sourceRowLimit).append(' ').append(node.getProps()).append('\n').append(schema);
+        try {
+            appendFingerprint(key, file);
+        } catch (IOException e) {
+            return null;
+        }
+        return sha256(key);
+    }
+
+    /**
+     * Files below a SharedFolder's {@code path} whose path relative to it matches the
+     * {@code pattern} glob ({@code *.csv} by default), in sub-folders too when {@code recursive}
+     * is set. Largest first, so the longest reads start early and small files fill in the tail.
+     */
+    private List<Path> folderFiles(PipelineNode folder) throws IOException {
+        Path dir = resolvePath(folder, folder.prop("path", null));
+        PathMatcher matcher = dir.getFileSystem().getPathMatcher("glob:" + folder.prop("pattern", "*.csv"));
+        Map<Path, Long> sizes = new HashMap<>();
+        try (Stream<Path> paths = Files.walk(dir, folder.booleanProp("recursive", false) ? Integer.MAX_VALUE : 1)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (Files.isRegularFile(path) && matcher.matches(dir.relativize(path))) {
+                    sizes.put(path, Files.size(path));
+                }
+            }
+        }
+        List<Path> files = new ArrayList<>(sizes.keySet());
+        files.sort(Comparator.comparing((Path path) -> sizes.get(path)).reversed()
+            .thenComparing(Comparator.naturalOrder()));
+        return files;
+    }
+
+    private BatchOperator limitSource(BatchOperator source) {
+        return sourceRowLimit > 0 ? new LimitOperator(source, sourceRowLimit) : source;
+    }
+
+    private Path readerPath(PipelineNode node, List<PipelineNode> inputs) {
+        String path = node.prop("path", null);
+        if (path == null) {
+            for (PipelineNode input : inputs) {
+                if (input.getType() == NodeType.FILE_UPLOADER) {
+                    path = input.prop("path", null);
+                } else if (input.getType().isFileProvider()) {
+                    throw unsupported(input);
+                }
+            }
+        }
+        if (path == null) {
+            throw new PipelineException(node + " has no file to read");
+        }
+        return resolvePath(node, path);
+    }
+
+    /**
+     * The reader's declared columns or, when it reads an uploaded file and declares none, the
+     * columns sniffed while the file was uploaded, so the reader gets types without a scan. The
+     * File Uploader node carries the CSV options the upload was sniffed with; a reader whose
+     * options differ scans the file for its columns as usual.
+     */
+    private static Schema readerSchema(PipelineNode node, List<PipelineNode> inputs) {
+        Schema declared = declaredSchema(node);
+        if (declared != null || node.prop("path", null) != null) {
+            return declared;
+        }
+        for (PipelineNode input : inputs) {
+            if (input.getType() == NodeType.FILE_UPLOADER) {
+                return CsvOptions.from(input).equals(CsvOptions.from(node)) ? declaredSchema(input) : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Column names and types from the reader's Columns tab ({@code columns: [{name, dataType}]}).
+     */
+    private static Schema declaredSchema(PipelineNode node) {
+        JsonNode columns = node.getProps().path("columns");
+        if (!columns.isArray() || columns.isEmpty()) {
+            return null;
+        }
+        List<String> names = new ArrayList<>();
+        List<DataType> types = new ArrayList<>();
+        for (JsonNode column : columns) {
+            names.add(column.path("name").asText());
+            types.add(dataType(node, column.path("dataType").asText(null)));
+        }
+        return new Schema(names, types);
+    }
+
+    private static DataType dataType(PipelineNode node, String value) {
+        try {
+            return DataType.fromString(value);
+        } catch (IllegalArgumentException e) {
+            throw new PipelineException(node + ": " + e.getMessage());
+        }
+    }
+
+    private BatchOperator createFilter(PipelineNode node, BatchOperator input) {
+        Expression condition = node.getPredicate() != null ? node.getPredicate()
+            : FilterConditions.toExpression(node.getProps().path("conditions"));
+        if (condition == null || ConstantFolder.isBoolean(condition, true)) {
+            return input;
+        }
+        return new FilterOperator(input, compile(node, input.schema(), condition, true));
+    }
+
+    /**
+     * Columns are {@code {name, rename, selected}}; an optional {@code expression} computes the
+     * column instead of reading {@code name}.
+     */
+    private BatchOperator createSelect(PipelineNode node, BatchOperator input) {
+        List<VectorExpression> expressions = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (JsonNode column : node.getProps().path("columns")) {
+            if (!column.path("selected").asBoolean(true)) {
+                continue;
+            }
+            String name = column.path("name").asText();
+            String expression = column.path("expression").asText("");
+            expressions.add(compile(node, input.schema(), expression.isBlank() ? new Expression.Field(name)
+                : ExpressionParser.parse(expression), false));
+            String rename = column.path("rename").asText("");
+            names.add(rename.isBlank() ? name : rename);
+        }
+        if (expressions.isEmpty()) {
+            return input;
+        }
+        return new ProjectOperator(input, expressions, names);
+    }
+
+    private static VectorExpression compile(PipelineNode node, Schema schema, Expression expression,
+                                            boolean predicate) {
+        try {
+            ExpressionCompiler compiler = new ExpressionCompiler(schema);
+            return predicate ? compiler.compilePredicate(expression) : compiler.compile(expression);
+        } catch (PipelineException e) {
+            throw new PipelineException(node + ": " + e.getMessage(), e);
+        }
+    }
+
+    private BatchOperator createGroup(PipelineNode node, BatchOperator input) {
+        Schema inputSchema = input.schema();
+        List<String> names = new ArrayList<>();
+        List<DataType> types = new ArrayList<>();
+        List<Integer> groupBy = new ArrayList<>();
+        for (JsonNode column : node.getProps().path("groupBy")) {
+            int index = inputSchema.indexOf(column.asText());
+            groupBy.add(index);
+            names.add(column.asText());
+            types.add(inputSchema.type(index));
+        }
+        JsonNode aggregations = node.getProps().path("aggregations");
+        GroupOperator.Function[] functions = new GroupOperator.Function[aggregations.size()];
+        int[] arguments = new int[aggregations.size()];
+        for (int i = 0; i < aggregations.size(); i++) {
+            JsonNode aggregation = aggregations.get(i);
+            functions[i] = GroupOperator.Function.fromString(aggregation.path("function").asText("count"));
+            String column = aggregation.path("column").asText("*");
+            arguments[i] = "*".equals(column) ? -1 : inputSchema.indexOf(column);
+            try {
+                types.add(functions[i].resultType(arguments[i] < 0 ? null : inputSchema.type(arguments[i])));
+            } catch (PipelineException e) {
+                throw new PipelineException(node + ": " + e.getMessage() + ", got " + column);
+            }
+            names.add(aggregation.path("alias").asText(functions[i].name().toLowerCase() + "_" + column.replace("*", "all")));
+        }
+        return sorted(node, new GroupOperator(input, groupBy.stream().mapToInt(Integer::intValue).toArray(), functions,
+            arguments, new Schema(names, types), executor, Runtime.getRuntime().availableProcessors(), spill), -1);
+    }
+
+    private BatchOperator createSort(PipelineNode node, BatchOperator input) {
+        if (node.getProps().path("sortBy").isEmpty()) {
+            throw new PipelineException(node + " has no columns to sort by");
+        }
+        return sorted(node, input, node.getProps().path("limit").asLong(-1));
+    }
+
+    /**
+     * Sorts by the node's {@code sortBy}, a list of {@code {column, order}} with order
+     * {@code asc} (the default) or {@code desc}; the input as it is when there is none.
+     *
+     * @param limit rows to keep at most, {@code -1} for all
+     */
+    private BatchOperator sorted(PipelineNode node, BatchOperator input, long limit) {
+        JsonNode sortBy = node.getProps().path("sortBy");
+        if (sortBy.isEmpty()) {
+            return input;
+        }
+        int[] keys = new int[sortBy.size()];
+        boolean[] descending = new boolean[sortBy.size()];
+        for (int k = 0; k < keys.length; k++) {
+            JsonNode key = sortBy.get(k);
+            try {
+                keys[k] = input.schema().indexOf(key.path("column").asText());
+            } catch (PipelineException e) {
+                throw new PipelineException(node + ": " + e.getMessage(), e);
+            }
+            String order = key.path("order").asText("asc");
+            if (!order.equalsIgnoreCase("asc") && !order.equalsIgnoreCase("desc")) {
+                throw new PipelineException(node + ": unknown sort order " + order);
+            }
+            descending[k] = order.equalsIgnoreCase("desc");
+        }
+        return new SortOperator(input, keys, descending, limit, spill);
+    }
+
+    private BatchOperator createJoin(PipelineNode node, List<PipelineNode> inputs) {
+        if (inputs.size() != 2) {
+            throw new PipelineException(node + " needs exactly two inputs but has " + inputs.size());
+        }
+        BatchOperator left = create(inputs.get(0), node);
+        BatchOperator right = create(inputs.get(1), node);
+        Schema leftSchema = left.schema();
+        Schema rightSchema = right.schema();
+
+        // keys that are expressions rather than plain columns are computed into extra columns
+        JoinKeys leftKeys = new JoinKeys(leftSchema);
+        JoinKeys rightKeys = new JoinKeys(rightSchema);
+        for (JsonNode group : node.getProps().path("conditions")) {
+            for (JsonNode condition : group.path("group")) {
+                String operate = condition.path("operate").asText();
+                if (!"=".equals(operate) && !"IS_SAME".equals(operate)) {
+                    throw new PipelineException(node + " only supports equality join conditions, got " + operate);
+                }
+                DataType leftType = leftKeys.add(node, FilterConditions.leftOperand(condition));
+                DataType rightType = rightKeys.add(node, FilterConditions.rightOperand(condition));
+                if (leftType != rightType) {
+                    throw new PipelineException(node + " joins " + leftType.getValue() + " key "
+                        + FilterConditions.leftOperand(condition) + " with " + rightType.getValue() + " key "
+                        + FilterConditions.rightOperand(condition));
+                }
+            }
+        }
+        if (leftKeys.columns.isEmpty()) {
+            throw new PipelineException(node + " has no join condition");
+        }
+        left = prefetch(leftKeys.project(left));
+        right = prefetch(rightKeys.project(right));
+
+        List<Integer> sources = new ArrayList<>();
+        List<String> columns = new ArrayList<>();
+        List<DataType> types = new ArrayList<>();
+        JsonNode selected = node.getProps().path("columns");
+        if (selected.isEmpty()) {
+            for (int i = 0; i < leftSchema.size(); i++) {
+                sources.add(i);
+                columns.add(leftSchema.name(i));
+                types.add(leftSchema.type(i));
+            }
+            for (int i = 0; i < rightSchema.size(); i++) {
+                sources.add(-i - 1);
+                String name = rightSchema.name(i);
+                columns.add(columns.contains(name) ? "right_" + name : name);
+                types.add(rightSchema.type(i));
+            }
+        } else {
+            for (JsonNode column : selected) {
+                String name = column.path("name").asText();
+                boolean fromRight = "right".equalsIgnoreCase(column.path("input").asText("left"));
+                Schema side = fromRight ? rightSchema : leftSchema;
+                int index = side.indexOf(name);
+                sources.add(fromRight ? -index - 1 : index);
+                types.add(side.type(index));
+                String rename = column.path("rename").asText("");
+                columns.add(rename.isBlank() ? name : rename);
+            }
+        }
+
+        JoinOperator.JoinType joinType;
+        try {
+            joinType = JoinOperator.JoinType.fromString(node.prop("join", "inner"));
+        } catch (IllegalArgumentException e) {
+            throw new PipelineException(node + " has an unknown join type: " + node.prop("join", ""));
+        }
+        int[] leftColumns = leftKeys.columns.stream().mapToInt(Integer::intValue).toArray();
+        int[] rightColumns = rightKeys.columns.stream().mapToInt(Integer::intValue).toArray();
+        int[] outputSources = sources.stream().mapToInt(Integer::intValue).toArray();
+        Schema schema = new Schema(columns, types);
+        // inputs known to arrive ordered by the join keys are merged without a build table
+        return switch (node.prop("strategy", "hash").toLowerCase()) {
+            case "hash" -> switch (node.prop("buildSide", "right").toLowerCase()) {
+                case "right" -> new JoinOperator(left, right, joinType, leftColumns, rightColumns, outputSources,
+                    schema, spill);
+                // the operator builds its right input, so the inputs swap and output columns follow them
+                case "left" -> new JoinOperator(right, left, joinType.mirror(), rightColumns, leftColumns,
+                    Arrays.stream(outputSources).map(source -> -source - 1).toArray(), schema, spill);
+                default -> throw new PipelineException(node + " has an unknown build side: "
+                    + node.prop("buildSide", ""));
+            };
+            case "merge" -> new MergeJoinOperator(left, right, joinType, leftColumns, rightColumns, outputSources,
+                schema);
+            default -> throw new PipelineException(node + " has an unknown join strategy: " + node.prop("strategy", ""));
+        };
+    }
+
+    /**
+     * Join keys of one input. Computed keys are appended after the input's own columns, so
+     * output column indexes into the input stay valid.
+     */
+    private static final class JoinKeys {
+        private final Schema schema;
+        private final List<Integer> columns = new ArrayList<>();
+        private final List<VectorExpression> computed = new ArrayList<>();
+
+        JoinKeys(Schema schema) {
+            this.schema = schema;
+        }
+
+        DataType add(PipelineNode node, Expression key) {
+            if (key instanceof Expression.Field field) {
+                int column = schema.indexOf(field.name());
+                columns.add(column);
+                return schema.type(column);
+            }
+            VectorExpression expression = compile(node, schema, key, false);
+            columns.add(schema.size() + computed.size());
+            computed.add(expression);
+            return expression.type();
+        }
+
+        BatchOperator project(BatchOperator input) {
+            if (computed.isEmpty()) {
+                return input;
+            }
+            ExpressionCompiler compiler = new ExpressionCompiler(schema);
+            List<VectorExpression> expressions = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            for (String name : schema.getNames()) {
+                expressions.add(compiler.compile(new Expression.Field(name)));
+                names.add(name);
+            }
+            for (int i = 0; i < computed.size(); i++) {
+                expressions.add(computed.get(i));
+                names.add("$key" + i);
+            }
+            return new ProjectOperator(input, expressions, names);
+        }
+    }
+
+    private BatchOperator createUnion(PipelineNode node, List<PipelineNode> inputs) {
+        if (inputs.isEmpty()) {
+            throw new PipelineException(node + " has no inputs");
+        }
+        List<BatchOperator> operators = new ArrayList<>();
+        for (PipelineNode input : inputs) {
+            operators.add(prefetch(create(input, node)));
+        }
+
+        JsonNode result = node.getProps().path("result");
+        JsonNode datasets = node.getProps().path("datasets");
+        List<String> columns = new ArrayList<>();
+        List<int[]> mappings = new ArrayList<>();
+        if (result.isArray() && !result.isEmpty() && datasets.size() == operators.size()) {
+            result.forEach(field -> columns.add(field.path("name").asText()));
+            for (int i = 0; i < operators.size(); i++) {
+                // each dataset entry is {datasetKey: [input columns in output order]}
+                Iterator<JsonNode> values = datasets.get(i).elements();
+                JsonNode mapped = values.hasNext() ? values.next() : null;
+                int[] mapping = new int[columns.size()];
+                for (int c = 0; c < mapping.length; c++) {
+                    String name = mapped == null ? "" : mapped.path(c).asText("");
+                    mapping[c] = name.isEmpty() ? -1 : operators.get(i).schema().indexOf(name);
+                }
+                mappings.add(mapping);
+            }
+        } else {
+            Set<String> names = new LinkedHashSet<>();
+            operators.forEach(operator -> names.addAll(operator.schema().getNames()));
+            columns.addAll(names);
+            for (BatchOperator operator : operators) {
+                mappings.add(columns.stream().mapToInt(operator.schema().getNames()::indexOf).toArray());
+            }
+        }
+
+        List<DataType> types = new ArrayList<>();
+        for (int c = 0; c < columns.size(); c++) {
+            DataType type = null;
+            for (int i = 0; i < operators.size(); i++) {
+                int index = mappings.get(i)[c];
+                if (index < 0) {
+                    continue;
+                }
+                DataType inputType = operators.get(i).schema().type(index);
+                if (type != null && type != inputType) {
+                    throw new PipelineException(node + " column " + columns.get(c) + " is " + type.getValue()
+                        + " in one input and " + inputType.getValue() + " in another");
+                }
+                type = inputType;
+            }
+            types.add(type == null ? DataType.STRING : type);
+        }
+        return new UnionOperator(operators, mappings, new Schema(columns, types));
+    }
+
+    private BatchOperator prefetch(BatchOperator operator) {
+        return new PrefetchOperator(operator, executor);
+    }
+
+    private PipelineNode singleInput(PipelineNode node) {
+        List<PipelineNode> inputs = graph.inputsOf(node);
+        if (inputs.size() != 1) {
+            throw new PipelineException(node + " needs exactly one input but has " + inputs.size());
+        }
+        return inputs.get(0);
+    }
+
+    /**
+     * Resolves a path set on a node against the work directory. Readers, writers and folder
+     * sources only get at files below it, so an absolute path, or one that climbs out with
+     * {@code ..}, is rejected.
+     */
+    private Path resolvePath(PipelineNode node, String path) {
+        if (path == null || path.isBlank()) {
+            throw new PipelineException(node + " has no path configured");
+        }
+        Path relative;
+        try {
+            relative = Path.of(path);
+        } catch (InvalidPathException e) {
+            throw new PipelineException(node + " has an invalid path: " + path, e);
+        }
+        Path resolved = workDir.resolve(relative).normalize();
+        if (relative.isAbsolute() || relative.getRoot() != null || !resolved.startsWith(workDir)) {
+            throw new PipelineException(node + " has a path outside the work directory: " + path);
+        }
+        return resolved;
+    }
+
+    private static PipelineException unsupported(PipelineNode node) {
+        return new PipelineException("Node type " + node.getType().getComponentName() + " is not supported yet: "
+            + node.getId());
+    }
+}
@@ -0,0 +1,118 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives an input branch on a worker thread and hands its batches over through a small
+ * bounded queue, so independent branches of the DAG run in parallel. When the worker pool
+ * is saturated the branch is simply pulled on the caller's thread, which keeps the pool
+ * bounded without risking a deadlock between producers waiting for a free worker.
+ */
+public class PrefetchOperator implements BatchOperator {
+    private static final int QUEUE_CAPACITY = 4;
+    private static final RowBatch END = new RowBatch(Schema.ofStrings(List.of()), new ColumnVector[0], 0);
+
+    private final BatchOperator input;
+    private final Executor executor;
+    private final BlockingQueue<RowBatch> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private volatile boolean closed;
+    private volatile Throwable failure;
+    private boolean started;
+    private boolean async;
+    private boolean finished;
+
+    public PrefetchOperator(BatchOperator input, Executor executor) {
+        this.input = input;
+        this.executor = executor;
+    }
+
+    @Override
+    public Schema schema() {
+        return input.schema();
+    }
+
+    @Override
+    public void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        // resolve the schema before the worker thread starts pulling from the same input
+        input.schema();
+        try {
+            executor.execute(this::produce);
+            async = true;
+        } catch (RejectedExecutionException e) {
+            async = false;
+        }
+    }
+
+    @Override
+    public RowBatch next() {
+        start();
+        if (!async) {
+            return input.next();
+        }
+        if (finished) {
+            return null;
+        }
+        try {
+            RowBatch batch = queue.take();
+            if (batch == END) {
+                finished = true;
+                if (failure != null) {
+                    throw new PipelineException("Upstream branch failed: " + failure.getMessage(), failure);
+                }
+                return null;
+            }
+            return batch;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PipelineException("Interrupted while waiting for upstream batch", e);
+        }
+    }
+
+    private void produce() {
+        try {
+            RowBatch batch;
+            while (!closed && (batch = input.next()) != null) {
+                put(batch);
+            }
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            input.close();
+            put(END);
+        }
+    }
+
+    private void put(RowBatch batch) {
+        try {
+            while (!closed && !queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                // wait for the consumer, re-checking for cancellation
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closed = true;
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        queue.clear();
+        if (!async) {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.expression.VectorExpression;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Computes one output column per compiled expression. Plain column references pass the input
+ * vector through, so picking, reordering and renaming columns copies nothing.
+ */
+public class ProjectOperator implements BatchOperator {
+    private final BatchOperator input;
+    private final VectorExpression[] expressions;
+    private final Schema schema;
+
+    public ProjectOperator(BatchOperator input, List<VectorExpression> expressions, List<String> names) {
+        this.input = input;
+        this.expressions = expressions.toArray(new VectorExpression[0]);
+        List<DataType> types = new ArrayList<>(expressions.size());
+        expressions.forEach(expression -> types.add(expression.type()));
+        this.schema = new Schema(names, types);
+    }
+
+    @Override
+    public Schema schema() {
+        return schema;
+    }
+
+    @Override
+    public RowBatch next() {
+        RowBatch batch = input.next();
+        if (batch == null) {
+            return null;
+        }
+        ColumnVector[] columns = new ColumnVector[expressions.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = expressions[i].evaluate(batch);
+        }
+        return new RowBatch(schema, columns, batch.getRowCount());
+    }
+
+    @Override
+    public void close() {
+        input.close();
+    }
+}
@@ -0,0 +1,68 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.ColumnVector;
+
+/**
+ * Hash key over some columns of one row, compared value by value on the vectors themselves.
+ */
+final class RowKey {
+    private ColumnVector[] columns;
+    private int row;
+    private int hash;
+
+    RowKey(ColumnVector[] columns, int row) {
+        reset(columns, row);
+    }
+
+    RowKey reset(ColumnVector[] columns, int row) {
+        this.columns = columns;
+        this.row = row;
+        int h = 1;
+        for (ColumnVector column : columns) {
+            h = 31 * h + (column.isNull(row) ? 0 : column.hash(row));
+        }
+        this.hash = h;
+        return this;
+    }
+
+    boolean hasNull() {
+        for (ColumnVector column : columns) {
+            if (column.isNull(row)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof RowKey other) || other.hash != hash) {
+            return false;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            boolean leftNull = columns[i].isNull(row);
+            boolean rightNull = other.columns[i].isNull(other.row);
+            if (leftNull || rightNull) {
+                if (leftNull != rightNull) {
+                    return false;
+                }
+            } else if (!columns[i].valueEquals(row, other.columns[i], other.row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static ColumnVector[] columns(ColumnVector[] all, int[] indexes) {
+        ColumnVector[] selected = new ColumnVector[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            selected[i] = all[indexes[i]];
+        }
+        return selected;
+    }
+}
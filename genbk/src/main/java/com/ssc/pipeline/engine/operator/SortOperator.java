@@ -0,0 +1,676 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.BooleanVector;
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.DoubleVector;
+import com.ssc.pipeline.engine.batch.IntVector;
+import com.ssc.pipeline.engine.batch.LongVector;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.batch.StringVector;
+import com.ssc.pipeline.engine.spill.SpillFile;
+import com.ssc.pipeline.engine.spill.SpillOptions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Orders rows by key columns, each ascending or descending, with nulls last; rows with equal
+ * keys keep their input order. Input batches are kept as they arrive and sorted through an index
+ * permutation: the keys are copied into flat arrays, primitive values as order-preserving longs,
+ * and only the permutation moves. Once the kept batches outgrow the memory budget they are
+ * sorted and written to a spill file as a run, and the runs are merged at the end, up to
+ * {@link #MAX_FAN_IN} at a time, so the input may be many times larger than the heap. When at
+ * most {@link #TOP_N_MAX_ROWS} rows are wanted, the operator keeps only the best of them in a
+ * bounded heap instead and never spills.
+ */
+public class SortOperator implements BatchOperator {
+    static final int TOP_N_MAX_ROWS = 1 << 16;
+    private static final int MAX_FAN_IN = 64;
+    // keeps run row numbers far from overflowing an int
+    private static final int MAX_RUN_ROWS = 1 << 27;
+    // per kept row: its permutation entry, the merge buffer's and the batch it is in
+    private static final int ROW_OVERHEAD = 12;
+    private static final int INSERTION_SORT_SIZE = 32;
+
+    private final BatchOperator input;
+    private final int[] keys;
+    private final boolean[] descending;
+    private final SpillOptions spill;
+    private final List<SpillFile> runs = new ArrayList<>();
+    private long limit;
+    private BatchOperator output;
+    private long emitted;
+    private boolean closed;
+
+    /**
+     * @param keys       input columns to order by, the most significant first
+     * @param descending per key, whether larger values come first
+     * @param limit      rows to produce at most, {@code -1} for all
+     */
+    public SortOperator(BatchOperator input, int[] keys, boolean[] descending, long limit, SpillOptions spill) {
+        this.input = input;
+        this.keys = keys;
+        this.descending = descending;
+        this.limit = limit;
+        this.spill = spill;
+    }
+
+    /**
+     * Produces at most {@code rows} rows, e.g. for a {@link LimitOperator} above. Only takes
+     * effect before the first batch is pulled.
+     */
+    void limitTo(long rows) {
+        if (output == null && (limit < 0 || rows < limit)) {
+            limit = rows;
+        }
+    }
+
+    @Override
+    public Schema schema() {
+        return input.schema();
+    }
+
+    @Override
+    public void start() {
+        input.start();
+    }
+
+    @Override
+    public RowBatch next() {
+        if (limit >= 0 && emitted >= limit) {
+            return null;
+        }
+        if (output == null) {
+            output = limit <= TOP_N_MAX_ROWS && limit >= 0 ? topN((int) limit) : sort();
+        }
+        RowBatch batch = output.next();
+        if (batch == null) {
+            return null;
+        }
+        if (limit >= 0 && emitted + batch.getRowCount() > limit) {
+            batch = new RowBatch(batch.getSchema(), batch.columns(), (int) (limit - emitted));
+        }
+        emitted += batch.getRowCount();
+        return batch;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            input.close();
+        } finally {
+            if (output != null) {
+                output.close();
+            }
+            runs.forEach(SpillFile::close);
+        }
+    }
+
+    private BatchOperator sort() {
+        Buffer buffer = new Buffer();
+        RowBatch batch;
+        while ((batch = input.next()) != null) {
+            if (batch.isEmpty()) {
+                continue;
+            }
+            buffer.add(batch);
+            if (buffer.bytes > spill.memoryBudget() || buffer.rows > MAX_RUN_ROWS) {
+                runs.add(write(buffer.sorted()));
+                buffer = new Buffer();
+            }
+        }
+        if (runs.isEmpty()) {
+            return buffer.sorted();
+        }
+        // the runs are in input order, so merging neighbours keeps equal keys in input order
+        while (runs.size() >= MAX_FAN_IN) {
+            List<SpillFile> merged = new ArrayList<>(runs.subList(0, MAX_FAN_IN));
+            runs.subList(0, MAX_FAN_IN).clear();
+            runs.add(0, write(new Merge(readers(merged))));
+        }
+        List<BatchOperator> sources = readers(runs);
+        runs.clear();
+        sources.add(buffer.sorted());
+        return new Merge(sources);
+    }
+
+    private SpillFile write(BatchOperator sorted) {
+        SpillFile file = SpillFile.create(spill, "sort-");
+        try (sorted) {
+            RowBatch batch;
+            while ((batch = sorted.next()) != null) {
+                file.write(batch);
+            }
+        } catch (RuntimeException e) {
+            file.close();
+            throw e;
+        }
+        return file;
+    }
+
+    private List<BatchOperator> readers(List<SpillFile> files) {
+        List<BatchOperator> readers = new ArrayList<>();
+        files.forEach(file -> readers.add(file.reader(schema())));
+        return readers;
+    }
+
+    private BatchOperator topN(int count) {
+        TopRows top = new TopRows(count);
+        RowBatch batch;
+        while ((batch = input.next()) != null) {
+            top.add(batch);
+        }
+        return top.sorted();
+    }
+
+    /**
+     * Compares two rows by the sort keys, nulls last whatever the direction.
+     */
+    private int compareRows(RowBatch a, int rowA, RowBatch b, int rowB) {
+        for (int k = 0; k < keys.length; k++) {
+            ColumnVector left = a.column(keys[k]);
+            ColumnVector right = b.column(keys[k]);
+            boolean leftNull = left.isNull(rowA);
+            boolean rightNull = right.isNull(rowB);
+            if (leftNull || rightNull) {
+                if (leftNull && rightNull) {
+                    continue;
+                }
+                return leftNull ? 1 : -1;
+            }
+            int result = left.compare(rowA, right, rowB);
+            if (result != 0) {
+                return descending[k] ? -result : result;
+            }
+        }
+        return 0;
+    }
+
+    private interface IndexComparator {
+        int compare(int a, int b);
+    }
+
+    // stable, so the permutation of equal keys stays in index order
+    private static void mergeSort(int[] order, int[] temp, int from, int to, IndexComparator comparator) {
+        if (to - from <= INSERTION_SORT_SIZE) {
+            for (int i = from + 1; i < to; i++) {
+                int value = order[i];
+                int j = i - 1;
+                for (; j >= from && comparator.compare(order[j], value) > 0; j--) {
+                    order[j + 1] = order[j];
+                }
+                order[j + 1] = value;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(order, temp, from, middle, comparator);
+        mergeSort(order, temp, middle, to, comparator);
+        if (comparator.compare(order[middle - 1], order[middle]) <= 0) {
+            return;
+        }
+        System.arraycopy(order, from, temp, from, to - from);
+        int left = from;
+        int right = middle;
+        int target = from;
+        while (left < middle && right < to) {
+            order[target++] = comparator.compare(temp[right], temp[left]) < 0 ? temp[right++] : temp[left++];
+        }
+        System.arraycopy(temp, left, order, target, middle - left);
+        System.arraycopy(temp, right, order, target + middle - left, to - right);
+    }
+
+    /**
+     * Where the row with a given index is kept.
+     */
+    private interface RowLocator {
+        RowBatch batch(int index);
+
+        int row(int index);
+    }
+
+    /**
+     * Copies kept rows out in permutation order, column by column.
+     */
+    private final class Gather implements BatchOperator {
+        private final int[] order;
+        private final int count;
+        private RowLocator rows;
+        private int position;
+
+        Gather(int[] order, int count, RowLocator rows) {
+            this.order = order;
+            this.count = count;
+            this.rows = rows;
+        }
+
+        @Override
+        public Schema schema() {
+            return SortOperator.this.schema();
+        }
+
+        @Override
+        public RowBatch next() {
+            if (position >= count) {
+                // lets the kept batches go before the operator is closed
+                rows = null;
+                return null;
+            }
+            int size = Math.min(RowBatch.DEFAULT_SIZE, count - position);
+            RowBatch batch = RowBatch.allocate(schema(), size);
+            for (int c = 0; c < schema().size(); c++) {
+                ColumnVector column = batch.column(c);
+                for (int i = 0; i < size; i++) {
+                    int index = order[position + i];
+                    column.copyFrom(rows.batch(index).column(c), rows.row(index), i);
+                }
+            }
+            batch.setRowCount(size);
+            position += size;
+            return batch;
+        }
+
+        @Override
+        public void close() {
+            rows = null;
+        }
+    }
+
+    /**
+     * Input batches kept until they are sorted, with an estimate of the memory they and their
+     * sort take.
+     */
+    private final class Buffer {
+        private final List<RowBatch> batches = new ArrayList<>();
+        private int rows;
+        private long bytes;
+
+        void add(RowBatch batch) {
+            batches.add(batch);
+            rows += batch.getRowCount();
+            for (ColumnVector column : batch.columns()) {
+                bytes += column.sizeInBytes();
+            }
+            bytes += (long) batch.getRowCount() * (ROW_OVERHEAD + 8L * keys.length);
+        }
+
+        BatchOperator sorted() {
+            int[] batchOf = new int[rows];
+            int[] starts = new int[batches.size()];
+            KeyColumn[] columns = new KeyColumn[keys.length];
+            for (int k = 0; k < keys.length; k++) {
+                columns[k] = new KeyColumn(schema().type(keys[k]) == DataType.STRING, descending[k], rows);
+            }
+            int start = 0;
+            for (int b = 0; b < batches.size(); b++) {
+                RowBatch batch = batches.get(b);
+                starts[b] = start;
+                for (int row = 0; row < batch.getRowCount(); row++) {
+                    batchOf[start + row] = b;
+                }
+                for (int k = 0; k < keys.length; k++) {
+                    columns[k].load(batch.column(keys[k]), batch.getRowCount(), start);
+                }
+                start += batch.getRowCount();
+            }
+            int[] order = new int[rows];
+            for (int i = 0; i < rows; i++) {
+                order[i] = i;
+            }
+            mergeSort(order, new int[rows], 0, rows, (a, b) -> {
+                for (KeyColumn column : columns) {
+                    int result = column.compare(a, b);
+                    if (result != 0) {
+                        return result;
+                    }
+                }
+                return 0;
+            });
+            List<RowBatch> kept = batches;
+            return new Gather(order, rows, new RowLocator() {
+                @Override
+                public RowBatch batch(int index) {
+                    return kept.get(batchOf[index]);
+                }
+
+                @Override
+                public int row(int index) {
+                    return index - starts[batchOf[index]];
+                }
+            });
+        }
+    }
+
+    /**
+     * One sort key of the kept rows as a flat array: primitive values as longs that order like
+     * the values, strings as themselves, and a null bitmap if any value is null.
+     */
+    private static final class KeyColumn {
+        private final boolean descending;
+        private final long[] values;
+        private final String[] strings;
+        private long[] nulls;
+
+        KeyColumn(boolean string, boolean descending, int rows) {
+            this.descending = descending;
+            this.values = string ? null : new long[rows];
+            this.strings = string ? new String[rows] : null;
+        }
+
+        void load(ColumnVector column, int count, int start) {
+            for (int row = 0; row < count; row++) {
+                if (column.isNull(row)) {
+                    if (nulls == null) {
+                        nulls = new long[(values != null ? values.length : strings.length) + 63 >>> 6];
+                    }
+                    nulls[(start + row) >>> 6] |= 1L << (start + row);
+                }
+            }
+            switch (column.getType()) {
+                case BOOLEAN -> {
+                    boolean[] source = ((BooleanVector) column).values();
+                    for (int row = 0; row < count; row++) {
+                        values[start + row] = source[row] ? 1 : 0;
+                    }
+                }
+                case INT, DATE -> {
+                    int[] source = ((IntVector) column).values();
+                    for (int row = 0; row < count; row++) {
+                        values[start + row] = source[row];
+                    }
+                }
+                case BIGINT, TIMESTAMP, DECIMAL -> System.arraycopy(((LongVector) column).values(), 0, values, start,
+                    count);
+                case DOUBLE -> {
+                    double[] source = ((DoubleVector) column).values();
+                    for (int row = 0; row < count; row++) {
+                        // IEEE bits order like the values once negative numbers have the rest flipped
+                        long bits = Double.doubleToLongBits(source[row]);
+                        values[start + row] = bits ^ ((bits >> 63) & Long.MAX_VALUE);
+                    }
+                }
+                case STRING -> {
+                    StringVector source = (StringVector) column;
+                    for (int row = 0; row < count; row++) {
+                        strings[start + row] = column.isNull(row) ? null : source.get(row);
+                    }
+                }
+            }
+        }
+
+        int compare(int a, int b) {
+            if (nulls != null) {
+                boolean aNull = (nulls[a >>> 6] & (1L << a)) != 0;
+                boolean bNull = (nulls[b >>> 6] & (1L << b)) != 0;
+                if (aNull || bNull) {
+                    return aNull == bNull ? 0 : aNull ? 1 : -1;
+                }
+            }
+            int result = values != null ? Long.compare(values[a], values[b]) : strings[a].compareTo(strings[b]);
+            return descending ? -result : result;
+        }
+    }
+
+    /**
+     * The best {@code capacity} rows seen so far, in pages of copied rows, with a heap of their
+     * slots that has the worst row on top so it can be replaced in {@code O(log n)}. Replaced
+     * strings stay in the pages' dictionaries, so the pages are rebuilt from the live rows
+     * whenever they have doubled in size.
+     */
+    private final class TopRows {
+        private static final int PAGE_SHIFT = 12;
+        private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+        private static final long MIN_COMPACT_BYTES = 1 << 20;
+
+        private final int capacity;
+        private final int[] heap;
+        private long[] sequence;
+        private List<RowBatch> pages = new ArrayList<>();
+        private int size;
+        private long nextSequence;
+        private long compactedBytes;
+
+        TopRows(int capacity) {
+            this.capacity = capacity;
+            this.heap = new int[capacity];
+            this.sequence = new long[capacity];
+        }
+
+        void add(RowBatch batch) {
+            for (int row = 0; row < batch.getRowCount(); row++) {
+                if (size < capacity) {
+                    store(size, batch, row);
+                    heap[size] = size;
+                    siftUp(size++);
+                } else if (capacity > 0 && compareRows(batch, row, page(heap[0]), offset(heap[0])) < 0) {
+                    store(heap[0], batch, row);
+                    siftDown(0);
+                } else {
+                    nextSequence++;
+                }
+            }
+            long bytes = bytes();
+            if (bytes > Math.max(2 * compactedBytes, MIN_COMPACT_BYTES)) {
+                compact();
+            }
+        }
+
+        BatchOperator sorted() {
+            int[] order = new int[size];
+            System.arraycopy(heap, 0, order, 0, size);
+            mergeSort(order, new int[size], 0, size, this::compareSlots);
+            return new Gather(order, size, new RowLocator() {
+                @Override
+                public RowBatch batch(int index) {
+                    return page(index);
+                }
+
+                @Override
+                public int row(int index) {
+                    return offset(index);
+                }
+            });
+        }
+
+        private RowBatch page(int slot) {
+            return pages.get(slot >>> PAGE_SHIFT);
+        }
+
+        private static int offset(int slot) {
+            return slot & (PAGE_SIZE - 1);
+        }
+
+        private void store(int slot, RowBatch source, int row) {
+            while (pages.size() <= slot >>> PAGE_SHIFT) {
+                pages.add(RowBatch.allocate(schema(), PAGE_SIZE));
+            }
+            RowBatch page = page(slot);
+            for (int c = 0; c < schema().size(); c++) {
+                page.column(c).copyFrom(source.column(c), row, offset(slot));
+            }
+            sequence[slot] = nextSequence++;
+        }
+
+        // the later row of two with equal keys sorts after, as in the full sort
+        private int compareSlots(int a, int b) {
+            int result = compareRows(page(a), offset(a), page(b), offset(b));
+            return result != 0 ? result : Long.compare(sequence[a], sequence[b]);
+        }
+
+        private void siftUp(int index) {
+            int slot = heap[index];
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (compareSlots(heap[parent], slot) >= 0) {
+                    break;
+                }
+                heap[index] = heap[parent];
+                index = parent;
+            }
+            heap[index] = slot;
+        }
+
+        private void siftDown(int index) {
+            int slot = heap[index];
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && compareSlots(heap[child + 1], heap[child]) > 0) {
+                    child++;
+                }
+                if (compareSlots(heap[child], slot) <= 0) {
+                    break;
+                }
+                heap[index] = heap[child];
+                index = child;
+            }
+            heap[index] = slot;
+        }
+
+        private long bytes() {
+            long bytes = 0;
+            for (RowBatch page : pages) {
+                for (ColumnVector column : page.columns()) {
+                    bytes += column.sizeInBytes();
+                }
+            }
+            return bytes;
+        }
+
+        // copies the live rows to fresh pages, the row at heap position i to slot i, which keeps the heap valid
+        private void compact() {
+            List<RowBatch> oldPages = pages;
+            long[] oldSequence = sequence;
+            pages = new ArrayList<>();
+            sequence = new long[capacity];
+            for (int i = 0; i < size; i++) {
+                int slot = heap[i];
+                RowBatch source = oldPages.get(slot >>> PAGE_SHIFT);
+                if (pages.size() <= i >>> PAGE_SHIFT) {
+                    pages.add(RowBatch.allocate(schema(), PAGE_SIZE));
+                }
+                RowBatch page = page(i);
+                for (int c = 0; c < schema().size(); c++) {
+                    page.column(c).copyFrom(source.column(c), offset(slot), offset(i));
+                }
+                sequence[i] = oldSequence[slot];
+                heap[i] = i;
+            }
+            compactedBytes = bytes();
+        }
+    }
+
+    /**
+     * Merges sorted runs; of rows with equal keys, those of earlier runs come first.
+     */
+    private final class Merge implements BatchOperator {
+        private final List<BatchOperator> sources;
+        private final RowBatch[] current;
+        private final int[] position;
+        private final int[] heap;
+        private int size;
+
+        Merge(List<BatchOperator> sources) {
+            this.sources = sources;
+            this.current = new RowBatch[sources.size()];
+            this.position = new int[sources.size()];
+            this.heap = new int[sources.size()];
+            for (int source = 0; source < sources.size(); source++) {
+                if (advance(source)) {
+                    heap[size] = source;
+                    siftUp(size++);
+                }
+            }
+        }
+
+        @Override
+        public Schema schema() {
+            return SortOperator.this.schema();
+        }
+
+        @Override
+        public RowBatch next() {
+            if (size == 0) {
+                return null;
+            }
+            RowBatch batch = RowBatch.allocate(schema());
+            while (size > 0 && !batch.isFull()) {
+                int source = heap[0];
+                batch.appendRow(current[source], position[source]);
+                if (++position[source] < current[source].getRowCount() || advance(source)) {
+                    siftDown(0);
+                } else {
+                    heap[0] = heap[--size];
+                    if (size > 0) {
+                        siftDown(0);
+                    }
+                }
+            }
+            return batch;
+        }
+
+        // moves a source to its next non-empty batch; false when it has none left
+        private boolean advance(int source) {
+            RowBatch batch;
+            do {
+                batch = sources.get(source).next();
+            } while (batch != null && batch.isEmpty());
+            current[source] = batch;
+            position[source] = 0;
+            if (batch == null) {
+                sources.get(source).close();
+            }
+            return batch != null;
+        }
+
+        private int compare(int a, int b) {
+            int result = compareRows(current[a], position[a], current[b], position[b]);
+            return result != 0 ? result : Integer.compare(a, b);
+        }
+
+        private void siftUp(int index) {
+            int source = heap[index];
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (compare(heap[parent], source) <= 0) {
+                    break;
+                }
+                heap[index] = heap[parent];
+                index = parent;
+            }
+            heap[index] = source;
+        }
+
+        private void siftDown(int index) {
+            int source = heap[index];
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && compare(heap[child + 1], heap[child]) < 0) {
+                    child++;
+                }
+                if (compare(heap[child], source) >= 0) {
+                    break;
+                }
+                heap[index] = heap[child];
+                index = child;
+            }
+            heap[index] = source;
+        }
+
+        @Override
+        public void close() {
+            sources.forEach(BatchOperator::close);
+        }
+    }
+}
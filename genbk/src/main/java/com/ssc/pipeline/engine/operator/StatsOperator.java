@@ -0,0 +1,58 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.stats.NodeStats;
+
+/**
+ * Counts the batches one node instance hands to its consumer, as the node's rows out and the
+ * consumer's rows in. A source's file size is counted as read once the source is exhausted.
+ */
+final class StatsOperator implements BatchOperator {
+    private final BatchOperator input;
+    private final NodeStats stats;
+    private final NodeStats consumer;
+    private final long sourceBytes;
+    private boolean done;
+
+    StatsOperator(BatchOperator input, NodeStats stats, NodeStats consumer, long sourceBytes) {
+        this.input = input;
+        this.stats = stats;
+        this.consumer = consumer;
+        this.sourceBytes = sourceBytes;
+    }
+
+    @Override
+    public Schema schema() {
+        return input.schema();
+    }
+
+    @Override
+    public void start() {
+        input.start();
+    }
+
+    @Override
+    public RowBatch next() {
+        long start = System.nanoTime();
+        stats.started(start);
+        RowBatch batch = input.next();
+        if (batch == null) {
+            if (!done) {
+                done = true;
+                stats.bytesRead(sourceBytes);
+            }
+            return null;
+        }
+        stats.batch(batch.getRowCount(), System.nanoTime() - start);
+        if (consumer != null) {
+            consumer.rowsIn(batch.getRowCount());
+        }
+        return batch;
+    }
+
+    @Override
+    public void close() {
+        input.close();
+    }
+}
@@ -0,0 +1,60 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+
+import java.util.List;
+
+/**
+ * Concatenates its inputs. Each input is mapped positionally onto the output columns;
+ * a {@code -1} mapping produces nulls for a column the input does not have. Mapped vectors
+ * are passed through without copying.
+ */
+public class UnionOperator implements BatchOperator {
+    private final List<BatchOperator> inputs;
+    private final List<int[]> mappings;
+    private final Schema schema;
+    private int current;
+    private boolean started;
+
+    public UnionOperator(List<BatchOperator> inputs, List<int[]> mappings, Schema schema) {
+        this.inputs = inputs;
+        this.mappings = mappings;
+        this.schema = schema;
+    }
+
+    @Override
+    public Schema schema() {
+        return schema;
+    }
+
+    @Override
+    public RowBatch next() {
+        if (!started) {
+            started = true;
+            inputs.forEach(BatchOperator::start);
+        }
+        while (current < inputs.size()) {
+            RowBatch batch = inputs.get(current).next();
+            if (batch == null) {
+                inputs.get(current).close();
+                current++;
+                continue;
+            }
+            int[] mapping = mappings.get(current);
+            ColumnVector[] columns = new ColumnVector[mapping.length];
+            for (int i = 0; i < mapping.length; i++) {
+                columns[i] = mapping[i] < 0 ? ColumnVector.nulls(schema.type(i), batch.getRowCount())
+                    : batch.column(mapping[i]);
+            }
+            return new RowBatch(schema, columns, batch.getRowCount());
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        inputs.forEach(BatchOperator::close);
+    }
+}
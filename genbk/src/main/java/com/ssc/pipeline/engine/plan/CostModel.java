@@ -0,0 +1,323 @@
+package com.ssc.pipeline.engine.plan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.ssc.pipeline.engine.expression.ConstantFolder;
+import com.ssc.pipeline.engine.expression.Expression;
+import com.ssc.pipeline.engine.operator.FilterConditions;
+import com.ssc.pipeline.engine.operator.JoinOperator;
+import com.ssc.pipeline.engine.plan.PlanColumns.Origin;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Estimates how many rows each node of a plan produces, and the distinct values and null share
+ * of its columns, from the statistics of its sources. The estimates follow the textbook
+ * assumptions: values are uniform and columns independent, an equality keeps one distinct value
+ * in {@code distinct}, a range a third of the rows, and a join on keys with {@code n} and
+ * {@code m} distinct values matches every row with {@code 1 / max(n, m)} of the other side.
+ * A node is not estimated when a source it depends on has no statistics.
+ */
+final class CostModel {
+    private static final double DEFAULT_SELECTIVITY = 1.0 / 3;
+    private static final double DEFAULT_EQUALITY = 0.1;
+    private static final double DEFAULT_NULL_FRACTION = 0.1;
+
+    /**
+     * @param columns distinct values and null share of the output columns whose source is known
+     */
+    record Estimate(double rows, Map<String, ColumnEstimate> columns) {
+        ColumnEstimate column(String name) {
+            return columns.get(name);
+        }
+    }
+
+    record ColumnEstimate(double distinct, double nullFraction) {
+    }
+
+    private final Map<String, PlanStep> steps;
+    private final PlanColumns planColumns;
+    private final Function<String, SourceStatistics> sourceStatistics;
+    private final Map<String, Estimate> memo = new HashMap<>();
+
+    /**
+     * @param sourceStatistics statistics of the CSV reader with the given id, or null
+     */
+    CostModel(Map<String, PlanStep> steps, PlanColumns planColumns,
+              Function<String, SourceStatistics> sourceStatistics) {
+        this.steps = steps;
+        this.planColumns = planColumns;
+        this.sourceStatistics = sourceStatistics;
+    }
+
+    void invalidate() {
+        memo.clear();
+    }
+
+    /**
+     * @return the estimate for a node, or null when it cannot be made
+     */
+    Estimate estimate(String id) {
+        if (memo.containsKey(id)) {
+            return memo.get(id);
+        }
+        Estimate estimate = estimate(steps.get(id));
+        memo.put(id, estimate);
+        return estimate;
+    }
+
+    /**
+     * Estimates a node that need not be part of the plan, e.g. a candidate rewrite.
+     */
+    Estimate estimate(PlanStep step) {
+        Estimate estimate;
+        try {
+            estimate = switch (step.type) {
+                case CSV_READER -> source(step.id);
+                case FILTER -> step.inputs.size() == 1 ? filter(step, estimate(step.inputs.get(0))) : null;
+                case SELECT -> step.inputs.size() == 1 ? select(step, estimate(step.inputs.get(0))) : null;
+                case GROUP -> step.inputs.size() == 1 ? group(step, estimate(step.inputs.get(0))) : null;
+                case JOIN -> join(step);
+                case UNION -> union(step);
+                case SORT -> step.inputs.size() == 1 ? sort(step, estimate(step.inputs.get(0))) : null;
+                default -> null;
+            };
+        } catch (PipelineException | IllegalArgumentException e) {
+            estimate = null;
+        }
+        return estimate;
+    }
+
+    /**
+     * @return the estimated rows of a node, or -1 when they cannot be estimated
+     */
+    long rows(String id) {
+        Estimate estimate = estimate(id);
+        return estimate == null ? -1 : Math.round(estimate.rows());
+    }
+
+    private Estimate source(String id) {
+        SourceStatistics statistics = sourceStatistics.apply(id);
+        if (statistics == null) {
+            return null;
+        }
+        Map<String, ColumnEstimate> columns = new HashMap<>();
+        for (SourceStatistics.Column column : statistics.columns()) {
+            columns.put(column.name(), new ColumnEstimate(column.distinct(), column.nullFraction()));
+        }
+        return new Estimate(statistics.rowCount(), columns);
+    }
+
+    private Estimate filter(PlanStep filter, Estimate input) {
+        if (input == null || filter.predicate == null) {
+            return input;
+        }
+        return scaled(input, input.rows() * selectivity(filter.predicate, input));
+    }
+
+    private static Estimate select(PlanStep select, Estimate input) {
+        if (input == null) {
+            return null;
+        }
+        Map<String, ColumnEstimate> columns = new HashMap<>();
+        boolean projects = false;
+        for (JsonNode column : select.props.path("columns")) {
+            if (column.path("selected").asBoolean(true)) {
+                projects = true;
+                ColumnEstimate source = input.column(column.path("name").asText());
+                if (column.path("expression").asText("").isBlank() && source != null) {
+                    columns.put(PlanColumns.outputName(column), source);
+                }
+            }
+        }
+        return projects ? new Estimate(input.rows(), columns) : input;
+    }
+
+    private static Estimate group(PlanStep group, Estimate input) {
+        if (input == null) {
+            return null;
+        }
+        double groups = 1;
+        Map<String, ColumnEstimate> columns = new HashMap<>();
+        for (JsonNode key : group.props.path("groupBy")) {
+            ColumnEstimate column = input.column(key.asText());
+            groups *= column == null ? input.rows() : Math.max(1, column.distinct());
+            if (column != null) {
+                columns.put(key.asText(), column);
+            }
+        }
+        double rows = group.props.path("groupBy").isEmpty() ? 1 : Math.min(input.rows(), groups);
+        return scaled(new Estimate(input.rows(), columns), rows);
+    }
+
+    private static Estimate sort(PlanStep sort, Estimate input) {
+        long limit = sort.props.path("limit").asLong(-1);
+        return input == null || limit < 0 || limit >= input.rows() ? input : scaled(input, limit);
+    }
+
+    private Estimate join(PlanStep join) {
+        if (join.inputs.size() != 2) {
+            return null;
+        }
+        Estimate left = estimate(join.inputs.get(0));
+        Estimate right = estimate(join.inputs.get(1));
+        Map<String, Origin> origins = planColumns.joinOrigins(join);
+        if (left == null || right == null || origins == null) {
+            return null;
+        }
+        double rows = left.rows() * right.rows();
+        for (JsonNode group : join.props.path("conditions")) {
+            for (JsonNode condition : group.path("group")) {
+                double leftDistinct = distinct(FilterConditions.leftOperand(condition), left);
+                double rightDistinct = distinct(FilterConditions.rightOperand(condition), right);
+                rows /= Math.max(1, Math.max(leftDistinct, rightDistinct));
+            }
+        }
+        JoinOperator.JoinType joinType = JoinOperator.JoinType.fromString(join.prop("join", "inner"));
+        if (joinType == JoinOperator.JoinType.LEFT || joinType == JoinOperator.JoinType.FULL) {
+            rows = Math.max(rows, left.rows());
+        }
+        if (joinType == JoinOperator.JoinType.RIGHT || joinType == JoinOperator.JoinType.FULL) {
+            rows = Math.max(rows, right.rows());
+        }
+        Map<String, ColumnEstimate> columns = new HashMap<>();
+        origins.forEach((output, origin) -> {
+            ColumnEstimate column = (origin.input() == 0 ? left : right).column(origin.column());
+            if (column != null) {
+                columns.put(output, column);
+            }
+        });
+        return scaled(new Estimate(rows, columns), rows);
+    }
+
+    private Estimate union(PlanStep union) {
+        List<Map<String, String>> mappings = planColumns.unionMappings(union);
+        if (mappings == null) {
+            return null;
+        }
+        double rows = 0;
+        Map<String, double[]> sums = new HashMap<>();
+        for (int i = 0; i < union.inputs.size(); i++) {
+            Estimate input = estimate(union.inputs.get(i));
+            if (input == null) {
+                return null;
+            }
+            rows += input.rows();
+            for (Map.Entry<String, String> mapping : mappings.get(i).entrySet()) {
+                ColumnEstimate column = input.column(mapping.getValue());
+                double[] sum = sums.computeIfAbsent(mapping.getKey(), name -> new double[3]);
+                if (column != null) {
+                    sum[0] += column.distinct();
+                    sum[1] += column.nullFraction() * input.rows();
+                    sum[2] += input.rows();
+                }
+            }
+        }
+        Map<String, ColumnEstimate> columns = new HashMap<>();
+        double total = rows;
+        sums.forEach((name, sum) -> {
+            // only when every input contributes the column
+            if (sum[2] == total && total > 0) {
+                columns.put(name, new ColumnEstimate(Math.min(sum[0], total), sum[1] / total));
+            }
+        });
+        return new Estimate(rows, columns);
+    }
+
+    /**
+     * The estimate for a node that keeps {@code rows} of its input's rows, with no column having
+     * more distinct values than rows.
+     */
+    private static Estimate scaled(Estimate input, double rows) {
+        Map<String, ColumnEstimate> columns = new HashMap<>();
+        input.columns().forEach((name, column) -> columns.put(name,
+            new ColumnEstimate(Math.min(column.distinct(), rows), column.nullFraction())));
+        return new Estimate(rows, columns);
+    }
+
+    // distinct values of a key; an unknown or computed key is assumed unique
+    private static double distinct(Expression key, Estimate input) {
+        ColumnEstimate column = key instanceof Expression.Field field ? input.column(field.name()) : null;
+        return column == null ? input.rows() : column.distinct();
+    }
+
+    /**
+     * Share of the rows for which {@code condition} holds.
+     */
+    static double selectivity(Expression condition, Estimate input) {
+        if (ConstantFolder.isBoolean(condition, true)) {
+            return 1;
+        }
+        if (ConstantFolder.isBoolean(condition, false)) {
+            return 0;
+        }
+        if (condition instanceof Expression.Call call) {
+            List<Expression> arguments = call.arguments();
+            switch (call.name()) {
+                case "AND" -> {
+                    double selectivity = 1;
+                    for (Expression argument : arguments) {
+                        selectivity *= selectivity(argument, input);
+                    }
+                    return selectivity;
+                }
+                case "OR" -> {
+                    double none = 1;
+                    for (Expression argument : arguments) {
+                        none *= 1 - selectivity(argument, input);
+                    }
+                    return 1 - none;
+                }
+                case "NOT" -> {
+                    return arguments.size() == 1 ? 1 - selectivity(arguments.get(0), input) : DEFAULT_SELECTIVITY;
+                }
+                case "IS_NULL" -> {
+                    return arguments.size() == 1 ? nullFraction(arguments.get(0), input) : DEFAULT_SELECTIVITY;
+                }
+                case "IS_NOT_NULL" -> {
+                    return arguments.size() == 1 ? 1 - nullFraction(arguments.get(0), input) : DEFAULT_SELECTIVITY;
+                }
+                case "IN" -> {
+                    return arguments.isEmpty() ? DEFAULT_SELECTIVITY
+                        : Math.min(1, (arguments.size() - 1) * equality(arguments.get(0), null, input));
+                }
+                default -> {
+                    return DEFAULT_SELECTIVITY;
+                }
+            }
+        }
+        if (condition instanceof Expression.Binary binary) {
+            switch (binary.operator()) {
+                case "=" -> {
+                    return equality(binary.left(), binary.right(), input);
+                }
+                case "!=" -> {
+                    return 1 - equality(binary.left(), binary.right(), input);
+                }
+                default -> {
+                    return DEFAULT_SELECTIVITY;
+                }
+            }
+        }
+        return DEFAULT_SELECTIVITY;
+    }
+
+    // share of rows where left equals one value, or equals the column right
+    private static double equality(Expression left, Expression right, Estimate input) {
+        double distinct = 0;
+        for (Expression operand : new Expression[] {left, right}) {
+            if (operand instanceof Expression.Field field && input.column(field.name()) != null) {
+                distinct = Math.max(distinct, input.column(field.name()).distinct());
+            }
+        }
+        return distinct >= 1 ? 1 / distinct : DEFAULT_EQUALITY;
+    }
+
+    private static double nullFraction(Expression operand, Estimate input) {
+        ColumnEstimate column = operand instanceof Expression.Field field ? input.column(field.name()) : null;
+        return column == null ? DEFAULT_NULL_FRACTION : column.nullFraction();
+    }
+}
@@ -0,0 +1,14 @@
+package com.ssc.pipeline.engine.plan;
+
+import com.ssc.pipeline.engine.graph.PipelineGraph;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A rewritten pipeline and, in the order they were applied, what the rewrites did.
+ *
+ * @param estimatedRows rows each node is estimated to produce, for the nodes that could be estimated
+ */
+public record OptimizedPlan(PipelineGraph graph, List<String> rewrites, Map<String, Long> estimatedRows) {
+}
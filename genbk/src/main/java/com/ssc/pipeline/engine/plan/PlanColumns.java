@@ -0,0 +1,210 @@
+package com.ssc.pipeline.engine.plan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.ssc.pipeline.engine.operator.GroupOperator;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Output column names of the nodes of a plan being rewritten, derived from their props the way
+ * the operators name them. Names are remembered until {@link #invalidate()}, which a rule that
+ * rewires nodes calls.
+ */
+final class PlanColumns {
+    /**
+     * Input {@code input} of a Join or Union and the name the column has there.
+     */
+    record Origin(int input, String column) {
+    }
+
+    record JoinColumn(String name, Origin origin) {
+    }
+
+    private final Map<String, PlanStep> steps;
+    private final Function<String, List<String>> sourceColumns;
+    private final Map<String, List<String>> memo = new HashMap<>();
+
+    /**
+     * @param sourceColumns column names of the CSV reader with the given id, or null when they
+     *                      are not known before it runs
+     */
+    PlanColumns(Map<String, PlanStep> steps, Function<String, List<String>> sourceColumns) {
+        this.steps = steps;
+        this.sourceColumns = sourceColumns;
+    }
+
+    void invalidate() {
+        memo.clear();
+    }
+
+    /**
+     * Output columns of a Join in order, named as the operator names them, or null when its
+     * inputs' columns are not known.
+     */
+    List<JoinColumn> joinColumns(PlanStep join) {
+        List<JoinColumn> joined = new ArrayList<>();
+        JsonNode selected = join.props.path("columns");
+        if (!selected.isEmpty()) {
+            for (JsonNode column : selected) {
+                int input = "right".equalsIgnoreCase(column.path("input").asText("left")) ? 1 : 0;
+                joined.add(new JoinColumn(outputName(column), new Origin(input, column.path("name").asText())));
+            }
+            return joined;
+        }
+        if (join.inputs.size() != 2) {
+            return null;
+        }
+        List<String> left = columnsOf(join.inputs.get(0));
+        List<String> right = columnsOf(join.inputs.get(1));
+        if (left == null || right == null) {
+            return null;
+        }
+        Set<String> names = new HashSet<>();
+        for (String name : left) {
+            names.add(name);
+            joined.add(new JoinColumn(name, new Origin(0, name)));
+        }
+        for (String name : right) {
+            // a right column named like an earlier one gets a prefix
+            String output = names.add(name) ? name : "right_" + name;
+            names.add(output);
+            joined.add(new JoinColumn(output, new Origin(1, name)));
+        }
+        return joined;
+    }
+
+    /**
+     * Where each output column of a Join comes from, or null when its inputs' columns are not
+     * known.
+     */
+    Map<String, Origin> joinOrigins(PlanStep join) {
+        List<JoinColumn> joined = joinColumns(join);
+        if (joined == null) {
+            return null;
+        }
+        Map<String, Origin> origins = new LinkedHashMap<>();
+        joined.forEach(column -> origins.putIfAbsent(column.name(), column.origin()));
+        return origins;
+    }
+
+    /**
+     * Output column to input column, per input, or null when an input's columns are not known.
+     */
+    List<Map<String, String>> unionMappings(PlanStep union) {
+        JsonNode result = union.props.path("result");
+        JsonNode datasets = union.props.path("datasets");
+        List<Map<String, String>> mappings = new ArrayList<>();
+        if (result.isArray() && !result.isEmpty() && datasets.size() == union.inputs.size()) {
+            for (JsonNode dataset : datasets) {
+                Iterator<JsonNode> values = dataset.elements();
+                JsonNode mapped = values.hasNext() ? values.next() : null;
+                Map<String, String> mapping = new HashMap<>();
+                for (int c = 0; c < result.size(); c++) {
+                    String name = mapped == null ? "" : mapped.path(c).asText("");
+                    if (!name.isEmpty()) {
+                        mapping.putIfAbsent(result.get(c).path("name").asText(), name);
+                    }
+                }
+                mappings.add(mapping);
+            }
+            return mappings;
+        }
+        for (String input : union.inputs) {
+            List<String> names = columnsOf(input);
+            if (names == null) {
+                return null;
+            }
+            Map<String, String> mapping = new HashMap<>();
+            names.forEach(name -> mapping.put(name, name));
+            mappings.add(mapping);
+        }
+        return mappings;
+    }
+
+    /**
+     * Output column names of a node, derived from its props the way the operator names them,
+     * or null when they depend on a source whose columns are not known.
+     */
+    List<String> columnsOf(String id) {
+        if (memo.containsKey(id)) {
+            return memo.get(id);
+        }
+        PlanStep step = steps.get(id);
+        List<String> names = switch (step.type) {
+            case CSV_READER -> sourceColumns.apply(id);
+            case FILTER, SORT -> step.inputs.size() == 1 ? columnsOf(step.inputs.get(0)) : null;
+            case SELECT -> selectColumns(step);
+            case GROUP -> groupColumns(step);
+            case JOIN -> {
+                Map<String, Origin> origins = joinOrigins(step);
+                yield origins == null ? null : List.copyOf(origins.keySet());
+            }
+            case UNION -> unionColumns(step);
+            default -> null;
+        };
+        memo.put(id, names);
+        return names;
+    }
+
+    private List<String> selectColumns(PlanStep select) {
+        List<String> names = new ArrayList<>();
+        for (JsonNode column : select.props.path("columns")) {
+            if (column.path("selected").asBoolean(true)) {
+                names.add(outputName(column));
+            }
+        }
+        if (names.isEmpty()) {
+            return select.inputs.size() == 1 ? columnsOf(select.inputs.get(0)) : null;
+        }
+        return names;
+    }
+
+    private static List<String> groupColumns(PlanStep group) {
+        List<String> names = new ArrayList<>();
+        group.props.path("groupBy").forEach(column -> names.add(column.asText()));
+        for (JsonNode aggregation : group.props.path("aggregations")) {
+            String column = aggregation.path("column").asText("*");
+            try {
+                String function = GroupOperator.Function.fromString(aggregation.path("function").asText("count"))
+                    .name().toLowerCase();
+                names.add(aggregation.path("alias").asText(function + "_" + column.replace("*", "all")));
+            } catch (IllegalArgumentException | PipelineException e) {
+                return null;
+            }
+        }
+        return names;
+    }
+
+    private List<String> unionColumns(PlanStep union) {
+        JsonNode result = union.props.path("result");
+        if (result.isArray() && !result.isEmpty() && union.props.path("datasets").size() == union.inputs.size()) {
+            List<String> names = new ArrayList<>();
+            result.forEach(field -> names.add(field.path("name").asText()));
+            return names;
+        }
+        Set<String> names = new LinkedHashSet<>();
+        for (String input : union.inputs) {
+            List<String> inputColumns = columnsOf(input);
+            if (inputColumns == null) {
+                return null;
+            }
+            names.addAll(inputColumns);
+        }
+        return List.copyOf(names);
+    }
+
+    static String outputName(JsonNode column) {
+        String rename = column.path("rename").asText("");
+        return rename.isBlank() ? column.path("name").asText() : rename;
+    }
+}
@@ -0,0 +1,704 @@
+package com.ssc.pipeline.engine.plan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.expression.ConstantFolder;
+import com.ssc.pipeline.engine.expression.Expression;
+import com.ssc.pipeline.engine.expression.ExpressionParser;
+import com.ssc.pipeline.engine.graph.NodeType;
+import com.ssc.pipeline.engine.graph.PipelineGraph;
+import com.ssc.pipeline.engine.graph.PipelineNode;
+import com.ssc.pipeline.engine.operator.FilterConditions;
+import com.ssc.pipeline.engine.operator.JoinOperator;
+import com.ssc.pipeline.engine.plan.PlanColumns.Origin;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Rule-based rewrite of a parsed pipeline before it is built into operators:
+ * <ul>
+ *   <li>constant parts of Filter conditions are folded ({@link ConstantFolder}) and Filters that
+ *   are always true are removed;</li>
+ *   <li>Filter conditions move below a Join or Union, conjunct by conjunct, into the inputs whose
+ *   columns they read: through both sides of an inner join, only the preserved side of an outer
+ *   one, and into every input of a Union that has all the columns;</li>
+ *   <li>two inner hash joins in a row are reordered when joining the third input first is
+ *   estimated to make the intermediate result smaller;</li>
+ *   <li>a hash join builds its table from the input estimated to be smaller;</li>
+ *   <li>CSV readers read only the columns some consumer needs, so the rest are never decoded.</li>
+ * </ul>
+ * A moved condition runs as a new Filter node that carries it as its predicate. Rewrites never
+ * change the output of an output node or of a node in {@code keep}, and a rule is skipped where
+ * it cannot prove that, e.g. for a Join whose output is also read by another node or whose
+ * input columns are unknown. Malformed props are left alone so the node reports them when it is
+ * built. Estimates come from a {@link CostModel} over the sources' statistics; without statistics
+ * the cost-based rules leave the plan as it is.
+ */
+public final class PlanOptimizer {
+    // a reorder must shrink the intermediate result by this much to be worth the estimate's error
+    private static final double REORDER_GAIN = 0.8;
+
+    private final Function<PipelineNode, List<String>> sourceColumns;
+    private final Function<PipelineNode, SourceStatistics> sourceStatistics;
+    private PipelineGraph graph;
+    private Map<String, PlanStep> steps;
+    private PlanColumns columns;
+    private CostModel costs;
+    private List<String> rewrites;
+
+    /**
+     * @param sourceColumns    column names a CSV reader produces, or null when they are not known
+     *                         before it runs
+     * @param sourceStatistics statistics of the file a CSV reader reads, or null when there are
+     *                         none
+     */
+    public PlanOptimizer(Function<PipelineNode, List<String>> sourceColumns,
+                         Function<PipelineNode, SourceStatistics> sourceStatistics) {
+        this.sourceColumns = sourceColumns;
+        this.sourceStatistics = sourceStatistics;
+    }
+
+    /**
+     * @param keep nodes whose output is used directly, e.g. the node being previewed
+     */
+    public synchronized OptimizedPlan optimize(PipelineGraph graph, Set<String> keep) {
+        this.graph = graph;
+        this.steps = new LinkedHashMap<>();
+        this.columns = new PlanColumns(steps, id -> sourceColumns.apply(graph.getNode(id)));
+        this.costs = new CostModel(steps, columns, id -> sourceStatistics.apply(graph.getNode(id)));
+        this.rewrites = new ArrayList<>();
+        try {
+            graph.getNodes().forEach(node -> steps.put(node.getId(), new PlanStep(node)));
+            for (PlanStep step : List.copyOf(steps.values())) {
+                if (step.type == NodeType.FILTER) {
+                    foldConstants(step, keep);
+                }
+            }
+            boolean pushed;
+            do {
+                pushed = false;
+                for (PlanStep step : List.copyOf(steps.values())) {
+                    if (step.type == NodeType.FILTER && steps.containsKey(step.id) && pushDown(step, keep)) {
+                        pushed = true;
+                    }
+                }
+            } while (pushed);
+            reorderJoins(keep);
+            chooseBuildSides();
+            pruneColumns(keep);
+            Map<String, Long> estimatedRows = new HashMap<>();
+            for (String id : steps.keySet()) {
+                long rows = costs.rows(id);
+                if (rows >= 0) {
+                    estimatedRows.put(id, rows);
+                }
+            }
+            return new OptimizedPlan(build(), rewrites, estimatedRows);
+        } finally {
+            this.graph = null;
+            this.steps = null;
+            this.columns = null;
+            this.costs = null;
+        }
+    }
+
+    private void foldConstants(PlanStep filter, Set<String> keep) {
+        if (filter.predicate == null) {
+            return;
+        }
+        Expression folded = ConstantFolder.fold(filter.predicate);
+        if (ConstantFolder.isBoolean(folded, true) && !keep.contains(filter.id) && filter.inputs.size() == 1) {
+            rewrites.add("Removed " + filter + ": its condition " + filter.predicate + " is always true");
+            bypass(filter);
+        } else if (!folded.equals(filter.predicate)) {
+            rewrites.add("Folded the condition of " + filter + " to " + folded);
+            filter.setPredicate(folded);
+        }
+    }
+
+    private boolean pushDown(PlanStep filter, Set<String> keep) {
+        if (filter.predicate == null || filter.inputs.size() != 1) {
+            return false;
+        }
+        PlanStep input = steps.get(filter.inputs.get(0));
+        if (keep.contains(input.id) || !consumersOf(input.id).equals(List.of(filter))
+            || input.type != NodeType.JOIN && input.type != NodeType.UNION) {
+            return false;
+        }
+        List<List<Expression>> moved = new ArrayList<>();
+        input.inputs.forEach(side -> moved.add(new ArrayList<>()));
+        List<Expression> remaining = new ArrayList<>();
+        List<Map<String, Origin>> origins = origins(input);
+        for (Expression conjunct : conjuncts(filter.predicate)) {
+            Set<String> fields = fieldsOf(conjunct);
+            List<Map<String, String>> renames = new ArrayList<>();
+            for (int i = 0; i < moved.size(); i++) {
+                renames.add(fields.isEmpty() ? null : renames(origins, i, fields));
+            }
+            // a Join row comes from one side, a Union row from any input
+            boolean placed = input.type == NodeType.JOIN ? renames.stream().anyMatch(Objects::nonNull)
+                : renames.stream().allMatch(Objects::nonNull);
+            for (int i = 0; placed && i < moved.size(); i++) {
+                if (renames.get(i) != null) {
+                    moved.get(i).add(rename(conjunct, renames.get(i)));
+                }
+            }
+            if (!placed) {
+                remaining.add(conjunct);
+            }
+        }
+        if (moved.stream().allMatch(List::isEmpty)) {
+            return false;
+        }
+        for (int i = 0; i < moved.size(); i++) {
+            if (moved.get(i).isEmpty()) {
+                continue;
+            }
+            PlanStep pushed = new PlanStep(uniqueId(filter.id + "@" + input.id + "." + i), filter.label,
+                NodeType.FILTER, List.of(input.inputs.get(i)));
+            pushed.setPredicate(and(moved.get(i)));
+            steps.put(pushed.id, pushed);
+            input.inputs.set(i, pushed.id);
+            rewrites.add("Pushed " + pushed.predicate + " from " + filter + " below " + input + " into its input "
+                + steps.get(pushed.inputs.get(0)) + " as " + pushed);
+        }
+        if (!remaining.isEmpty()) {
+            filter.setPredicate(and(remaining));
+        } else if (keep.contains(filter.id)) {
+            filter.setPredicate(new Expression.Literal("true", DataType.BOOLEAN));
+        } else {
+            rewrites.add("Removed " + filter + ": its whole condition was pushed down");
+            bypass(filter);
+        }
+        return true;
+    }
+
+    /**
+     * Where each output column of a Join or Union comes from, per input: a conjunct over output
+     * columns can move into input {@code i} when {@code origins.get(i)} has all of them. An
+     * outer join's null-supplying side gets an empty map, since filtering it early would keep
+     * rows the filter removes. Empty maps throughout when the mapping is not known.
+     */
+    private List<Map<String, Origin>> origins(PlanStep node) {
+        List<Map<String, Origin>> origins = new ArrayList<>();
+        node.inputs.forEach(input -> origins.add(new HashMap<>()));
+        if (node.type == NodeType.UNION) {
+            List<Map<String, String>> mappings = columns.unionMappings(node);
+            for (int i = 0; mappings != null && i < mappings.size(); i++) {
+                int input = i;
+                mappings.get(i).forEach((output, column) -> origins.get(input).put(output, new Origin(input, column)));
+            }
+            return origins;
+        }
+        Map<String, Origin> joined = columns.joinOrigins(node);
+        JoinOperator.JoinType joinType;
+        try {
+            joinType = JoinOperator.JoinType.fromString(node.prop("join", "inner"));
+        } catch (IllegalArgumentException e) {
+            return origins;
+        }
+        boolean[] preserved = {joinType != JoinOperator.JoinType.RIGHT && joinType != JoinOperator.JoinType.FULL,
+            joinType != JoinOperator.JoinType.LEFT && joinType != JoinOperator.JoinType.FULL};
+        if (joined != null && origins.size() == 2) {
+            joined.forEach((output, origin) -> {
+                if (preserved[origin.input()]) {
+                    origins.get(origin.input()).put(output, origin);
+                }
+            });
+        }
+        return origins;
+    }
+
+    // the input column of every field, or null when input i lacks one of them
+    private static Map<String, String> renames(List<Map<String, Origin>> origins, int i, Set<String> fields) {
+        Map<String, String> renames = new HashMap<>();
+        for (String field : fields) {
+            Origin origin = origins.get(i).get(field);
+            if (origin == null) {
+                return null;
+            }
+            renames.put(field, origin.column());
+        }
+        return renames;
+    }
+
+    /**
+     * Turns {@code (A join B) join C}, where the upper join's keys all come from one side of the
+     * lower one, say A, into {@code (A join C) join B} when the cost model expects
+     * {@code A join C} to be clearly smaller than {@code A join B}. Only inner hash joins on
+     * plain columns are reordered, so the result has the same rows; the upper join keeps its
+     * columns through an explicit column list, and the lower join's output is used by nothing
+     * else.
+     */
+    private void reorderJoins(Set<String> keep) {
+        boolean reordered;
+        int rounds = steps.size();
+        do {
+            reordered = false;
+            for (PlanStep join : List.copyOf(steps.values())) {
+                if (join.type == NodeType.JOIN && reorder(join, keep)) {
+                    columns.invalidate();
+                    costs.invalidate();
+                    reordered = true;
+                }
+            }
+        } while (reordered && --rounds > 0);
+    }
+
+    private boolean reorder(PlanStep upper, Set<String> keep) {
+        PlanStep lower = upper.inputs.size() == 2 ? steps.get(upper.inputs.get(0)) : null;
+        if (lower == null || !reorderable(upper) || !reorderable(lower) || keep.contains(lower.id)
+            || !consumersOf(lower.id).equals(List.of(upper))) {
+            return false;
+        }
+        List<String[]> upperKeys = joinKeys(upper);
+        List<String[]> lowerKeys = joinKeys(lower);
+        List<PlanColumns.JoinColumn> upperColumns = columns.joinColumns(upper);
+        List<PlanColumns.JoinColumn> lowerColumns = columns.joinColumns(lower);
+        if (upperKeys == null || lowerKeys == null || !distinctNames(upperColumns)
+            || !distinctNames(lowerColumns)) {
+            return false;
+        }
+        Map<String, Origin> lowerOrigins = columns.joinOrigins(lower);
+        // the side of the lower join that every key of the upper one reads
+        int x = -1;
+        for (String[] key : upperKeys) {
+            Origin origin = lowerOrigins.get(key[0]);
+            if (origin == null || x >= 0 && origin.input() != x) {
+                return false;
+            }
+            x = origin.input();
+        }
+        List<String> inputs = List.of(lower.inputs.get(x), lower.inputs.get(1 - x), upper.inputs.get(1));
+        List<Set<String>> available = new ArrayList<>();
+        for (String input : inputs) {
+            List<String> names = columns.columnsOf(input);
+            if (names == null) {
+                return false;
+            }
+            available.add(new HashSet<>(names));
+        }
+
+        // the upper join's output columns as (input, column), inputs numbered X = 0, Y = 1, C = 2
+        List<Origin> outputs = new ArrayList<>();
+        for (PlanColumns.JoinColumn column : upperColumns) {
+            Origin origin = column.origin();
+            if (origin.input() == 0) {
+                origin = lowerOrigins.get(origin.column());
+                if (origin == null) {
+                    return false;
+                }
+                origin = new Origin(origin.input() == x ? 0 : 1, origin.column());
+            } else {
+                origin = new Origin(2, origin.column());
+            }
+            outputs.add(origin);
+        }
+        // the lower join's keys as (X column, Y column)
+        List<String[]> remainingKeys = new ArrayList<>();
+        for (String[] key : lowerKeys) {
+            remainingKeys.add(x == 0 ? key : new String[] {key[1], key[0]});
+        }
+
+        // X join C carries the X and C columns used above it, under names unique within it
+        Map<String, String> xNames = new LinkedHashMap<>();
+        Map<String, String> cNames = new LinkedHashMap<>();
+        Set<String> used = new HashSet<>();
+        remainingKeys.forEach(key -> xNames.computeIfAbsent(key[0], name -> uniqueName(name, used)));
+        for (Origin output : outputs) {
+            if (output.input() != 1) {
+                (output.input() == 0 ? xNames : cNames).computeIfAbsent(output.column(),
+                    name -> uniqueName(name, used));
+            }
+        }
+        if (!available.get(0).containsAll(xNames.keySet()) || !available.get(2).containsAll(cNames.keySet())
+            || remainingKeys.stream().anyMatch(key -> !available.get(1).contains(key[1]))) {
+            return false;
+        }
+
+        PlanStep first = new PlanStep(lower.id, lower.label, NodeType.JOIN, List.of(inputs.get(0), inputs.get(2)));
+        first.props.setAll(lower.props);
+        List<String[]> firstKeys = new ArrayList<>();
+        upperKeys.forEach(key -> firstKeys.add(new String[] {lowerOrigins.get(key[0]).column(), key[1]}));
+        setKeys(first, firstKeys);
+        ArrayNode firstColumns = first.props.putArray("columns");
+        xNames.forEach((name, internal) -> addColumn(firstColumns, name, "left", internal));
+        cNames.forEach((name, internal) -> addColumn(firstColumns, name, "right", internal));
+
+        CostModel.Estimate before = costs.estimate(lower.id);
+        CostModel.Estimate after = costs.estimate(first);
+        if (before == null || after == null || after.rows() >= REORDER_GAIN * before.rows()) {
+            return false;
+        }
+
+        lower.props.removeAll();
+        lower.props.setAll(first.props);
+        lower.inputs.clear();
+        lower.inputs.addAll(first.inputs);
+        lower.rewritten = true;
+        List<String[]> secondKeys = new ArrayList<>();
+        remainingKeys.forEach(key -> secondKeys.add(new String[] {xNames.get(key[0]), key[1]}));
+        setKeys(upper, secondKeys);
+        ArrayNode upperOutput = upper.props.putArray("columns");
+        for (int i = 0; i < outputs.size(); i++) {
+            Origin output = outputs.get(i);
+            String name = switch (output.input()) {
+                case 0 -> xNames.get(output.column());
+                case 2 -> cNames.get(output.column());
+                default -> output.column();
+            };
+            addColumn(upperOutput, name, output.input() == 1 ? "right" : "left", upperColumns.get(i).name());
+        }
+        upper.inputs.set(1, inputs.get(1));
+        upper.rewritten = true;
+        rewrites.add("Reordered " + lower + " and " + upper + ": " + steps.get(inputs.get(0)) + " is joined with "
+            + steps.get(inputs.get(2)) + " first, an estimated " + Math.round(after.rows()) + " rows instead of "
+            + Math.round(before.rows()));
+        return true;
+    }
+
+    private static boolean reorderable(PlanStep join) {
+        return join.type == NodeType.JOIN && join.inputs.size() == 2 && !join.props.has("buildSide")
+            && "inner".equalsIgnoreCase(join.prop("join", "inner"))
+            && "hash".equalsIgnoreCase(join.prop("strategy", "hash"));
+    }
+
+    /**
+     * Equality conditions of a Join as (left column, right column), or null when one compares
+     * something other than two plain columns.
+     */
+    private static List<String[]> joinKeys(PlanStep join) {
+        List<String[]> keys = new ArrayList<>();
+        try {
+            for (JsonNode group : join.props.path("conditions")) {
+                for (JsonNode condition : group.path("group")) {
+                    String operate = condition.path("operate").asText();
+                    if (!"=".equals(operate) && !"IS_SAME".equals(operate)
+                        || !(FilterConditions.leftOperand(condition) instanceof Expression.Field left)
+                        || !(FilterConditions.rightOperand(condition) instanceof Expression.Field right)) {
+                        return null;
+                    }
+                    keys.add(new String[] {left.name(), right.name()});
+                }
+            }
+        } catch (PipelineException e) {
+            return null;
+        }
+        return keys.isEmpty() ? null : keys;
+    }
+
+    private static void setKeys(PlanStep join, List<String[]> keys) {
+        ArrayNode group = join.props.putArray("conditions").addObject().put("type", "andgroup").putArray("group");
+        for (String[] key : keys) {
+            group.addObject().put("field", key[0]).put("operate", "=").putArray("value").add(key[1]);
+        }
+    }
+
+    private static void addColumn(ArrayNode columns, String name, String input, String rename) {
+        columns.addObject().put("name", name).put("input", input).put("rename", rename);
+    }
+
+    private static boolean distinctNames(List<PlanColumns.JoinColumn> joined) {
+        return joined != null && joined.stream().map(PlanColumns.JoinColumn::name).distinct().count() == joined.size();
+    }
+
+    private static String uniqueName(String base, Set<String> used) {
+        String name = base;
+        for (int n = 2; !used.add(name); n++) {
+            name = base + "_" + n;
+        }
+        return name;
+    }
+
+    /**
+     * Lets a hash join build its table from the left input when that is estimated to be the
+     * smaller one; the right input is built by default. A {@code buildSide} set by the user is
+     * kept.
+     */
+    private void chooseBuildSides() {
+        for (PlanStep join : steps.values()) {
+            if (join.type != NodeType.JOIN || join.inputs.size() != 2 || join.props.has("buildSide")
+                || !"hash".equalsIgnoreCase(join.prop("strategy", "hash"))) {
+                continue;
+            }
+            long left = costs.rows(join.inputs.get(0));
+            long right = costs.rows(join.inputs.get(1));
+            if (left >= 0 && right >= 0 && left < right) {
+                join.props.put("buildSide", "left");
+                join.rewritten = true;
+                rewrites.add("Building the hash table of " + join + " from its left input "
+                    + steps.get(join.inputs.get(0)) + ", an estimated " + left + " rows against " + right);
+            }
+        }
+    }
+
+    /**
+     * Works out, from the outputs back to the sources, which columns each node must produce and
+     * lets every CSV reader read just those.
+     */
+    private void pruneColumns(Set<String> keep) {
+        Map<String, Set<String>> required = new HashMap<>();
+        List<PlanStep> order = topologicalOrder();
+        for (int n = order.size() - 1; n >= 0; n--) {
+            PlanStep step = order.get(n);
+            List<PlanStep> consumers = consumersOf(step.id);
+            Set<String> needed = keep.contains(step.id) || step.type.isOutput() || consumers.isEmpty()
+                ? null : new HashSet<>();
+            for (PlanStep consumer : consumers) {
+                for (int i = 0; needed != null && i < consumer.inputs.size(); i++) {
+                    if (consumer.inputs.get(i).equals(step.id)) {
+                        Set<String> fromInput = neededFromInput(consumer, i, required.get(consumer.id));
+                        if (fromInput == null) {
+                            needed = null;
+                        } else {
+                            needed.addAll(fromInput);
+                        }
+                    }
+                }
+            }
+            required.put(step.id, needed);
+            if (step.type == NodeType.CSV_READER && needed != null && !needed.isEmpty()) {
+                project(step, needed);
+            }
+        }
+    }
+
+    private void project(PlanStep reader, Set<String> needed) {
+        boolean readsLocalFile = reader.inputs.stream().map(steps::get)
+            .noneMatch(input -> input.type == NodeType.SHARED_FOLDER_SOURCE || input.type == NodeType.SFTP_SOURCE);
+        List<String> available = readsLocalFile ? columns.columnsOf(reader.id) : null;
+        if (available == null) {
+            return;
+        }
+        List<String> read = available.stream().filter(needed::contains).toList();
+        if (read.isEmpty() || read.size() == available.size()) {
+            return;
+        }
+        ArrayNode readColumns = reader.props.putArray("readColumns");
+        read.forEach(readColumns::add);
+        reader.rewritten = true;
+        rewrites.add("Reading " + read.size() + " of " + available.size() + " columns in " + reader + ": "
+            + String.join(", ", read));
+    }
+
+    /**
+     * Columns {@code consumer} reads from its input {@code i}, given the columns needed from
+     * its own output ({@code null}: all of them); {@code null} when it needs them all.
+     */
+    private static Set<String> neededFromInput(PlanStep consumer, int i, Set<String> needed) {
+        Set<String> columns = new HashSet<>();
+        try {
+            switch (consumer.type) {
+                case FILTER -> {
+                    if (needed == null || consumer.predicate == null) {
+                        return null;
+                    }
+                    columns.addAll(needed);
+                    columns.addAll(fieldsOf(consumer.predicate));
+                }
+                case SELECT -> {
+                    boolean projects = false;
+                    for (JsonNode column : consumer.props.path("columns")) {
+                        if (column.path("selected").asBoolean(true)) {
+                            String expression = column.path("expression").asText("");
+                            columns.addAll(expression.isBlank() ? Set.of(column.path("name").asText())
+                                : fieldsOf(ExpressionParser.parse(expression)));
+                            projects = true;
+                        }
+                    }
+                    if (!projects) {
+                        // passes its input through
+                        return needed;
+                    }
+                }
+                case GROUP -> {
+                    consumer.props.path("groupBy").forEach(column -> columns.add(column.asText()));
+                    for (JsonNode aggregation : consumer.props.path("aggregations")) {
+                        String column = aggregation.path("column").asText("*");
+                        if (!"*".equals(column)) {
+                            columns.add(column);
+                        }
+                    }
+                }
+                case SORT -> {
+                    if (needed == null) {
+                        return null;
+                    }
+                    columns.addAll(needed);
+                    consumer.props.path("sortBy").forEach(key -> columns.add(key.path("column").asText()));
+                }
+                case JOIN -> {
+                    JsonNode selected = consumer.props.path("columns");
+                    if (selected.isEmpty()) {
+                        return null;
+                    }
+                    String side = i == 0 ? "left" : "right";
+                    for (JsonNode column : selected) {
+                        if (side.equalsIgnoreCase(column.path("input").asText("left"))) {
+                            columns.add(column.path("name").asText());
+                        }
+                    }
+                    for (JsonNode group : consumer.props.path("conditions")) {
+                        for (JsonNode condition : group.path("group")) {
+                            columns.addAll(fieldsOf(i == 0 ? FilterConditions.leftOperand(condition)
+                                : FilterConditions.rightOperand(condition)));
+                        }
+                    }
+                }
+                case UNION -> {
+                    JsonNode result = consumer.props.path("result");
+                    JsonNode datasets = consumer.props.path("datasets");
+                    if (needed == null || !result.isArray() || result.isEmpty()
+                        || datasets.size() != consumer.inputs.size()) {
+                        return needed;
+                    }
+                    Iterator<JsonNode> values = datasets.get(i).elements();
+                    JsonNode mapped = values.hasNext() ? values.next() : null;
+                    for (int c = 0; mapped != null && c < result.size(); c++) {
+                        if (needed.contains(result.get(c).path("name").asText())) {
+                            columns.add(mapped.path(c).asText(""));
+                        }
+                    }
+                }
+                default -> {
+                    return null;
+                }
+            }
+        } catch (PipelineException e) {
+            return null;
+        }
+        // a node that reads no column still needs its input's rows
+        return columns.isEmpty() ? null : columns;
+    }
+
+    private List<PlanStep> consumersOf(String id) {
+        return steps.values().stream().filter(step -> step.inputs.contains(id)).toList();
+    }
+
+    // lets the filter's consumers read its input instead
+    private void bypass(PlanStep filter) {
+        String input = filter.inputs.get(0);
+        for (PlanStep consumer : consumersOf(filter.id)) {
+            consumer.inputs.replaceAll(id -> id.equals(filter.id) ? input : id);
+        }
+        steps.remove(filter.id);
+    }
+
+    private String uniqueId(String base) {
+        String id = base;
+        for (int n = 2; steps.containsKey(id); n++) {
+            id = base + "." + n;
+        }
+        return id;
+    }
+
+    private List<PlanStep> topologicalOrder() {
+        List<PlanStep> order = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+        steps.keySet().forEach(id -> visit(id, visited, order));
+        return order;
+    }
+
+    private void visit(String id, Set<String> visited, List<PlanStep> order) {
+        if (visited.add(id)) {
+            PlanStep step = steps.get(id);
+            step.inputs.forEach(input -> visit(input, visited, order));
+            order.add(step);
+        }
+    }
+
+    private PipelineGraph build() {
+        List<PipelineNode> nodes = new ArrayList<>();
+        Map<String, List<String>> inputs = new HashMap<>();
+        for (PlanStep step : steps.values()) {
+            nodes.add(step.rewritten
+                ? new PipelineNode(step.id, step.label, step.type, step.props, step.type == NodeType.FILTER
+                    ? step.predicate : null)
+                : new PipelineNode(step.id, step.label, step.type, graph.getNode(step.id).getProps()));
+            inputs.put(step.id, step.inputs);
+        }
+        return PipelineGraph.of(nodes, inputs);
+    }
+
+    private static List<Expression> conjuncts(Expression expression) {
+        List<Expression> conjuncts = new ArrayList<>();
+        if (expression instanceof Expression.Call call && "AND".equals(call.name()) && call.arguments().size() == 2) {
+            conjuncts.addAll(conjuncts(call.arguments().get(0)));
+            conjuncts.addAll(conjuncts(call.arguments().get(1)));
+        } else {
+            conjuncts.add(expression);
+        }
+        return conjuncts;
+    }
+
+    private static Expression and(List<Expression> conjuncts) {
+        Expression result = conjuncts.get(0);
+        for (int i = 1; i < conjuncts.size(); i++) {
+            result = new Expression.Call("AND", List.of(result, conjuncts.get(i)));
+        }
+        return result;
+    }
+
+    private static Set<String> fieldsOf(Expression expression) {
+        Set<String> fields = new LinkedHashSet<>();
+        collectFields(expression, fields);
+        return fields;
+    }
+
+    private static void collectFields(Expression expression, Set<String> fields) {
+        if (expression instanceof Expression.Field field) {
+            fields.add(field.name());
+        } else if (expression instanceof Expression.Binary binary) {
+            collectFields(binary.left(), fields);
+            collectFields(binary.right(), fields);
+        } else if (expression instanceof Expression.Call call) {
+            call.arguments().forEach(argument -> collectFields(argument, fields));
+        } else if (expression instanceof Expression.Cast cast) {
+            collectFields(cast.value(), fields);
+        } else if (expression instanceof Expression.Case caseWhen) {
+            for (Expression.When when : caseWhen.whens()) {
+                collectFields(when.condition(), fields);
+                collectFields(when.result(), fields);
+            }
+            if (caseWhen.otherwise() != null) {
+                collectFields(caseWhen.otherwise(), fields);
+            }
+        }
+    }
+
+    private static Expression rename(Expression expression, Map<String, String> names) {
+        if (expression instanceof Expression.Field field) {
+            return new Expression.Field(names.getOrDefault(field.name(), field.name()));
+        }
+        if (expression instanceof Expression.Binary binary) {
+            return new Expression.Binary(binary.operator(), rename(binary.left(), names),
+                rename(binary.right(), names));
+        }
+        if (expression instanceof Expression.Call call) {
+            return new Expression.Call(call.name(), call.arguments().stream().map(argument -> rename(argument, names))
+                .toList());
+        }
+        if (expression instanceof Expression.Cast cast) {
+            return new Expression.Cast(rename(cast.value(), names), cast.type());
+        }
+        if (expression instanceof Expression.Case caseWhen) {
+            List<Expression.When> whens = caseWhen.whens().stream().map(when ->
+                new Expression.When(rename(when.condition(), names), rename(when.result(), names))).toList();
+            Expression otherwise = caseWhen.otherwise() == null ? null : rename(caseWhen.otherwise(), names);
+            return new Expression.Case(whens, otherwise);
+        }
+        return expression;
+    }
+}
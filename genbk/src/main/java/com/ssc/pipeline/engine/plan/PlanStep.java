@@ -0,0 +1,70 @@
+package com.ssc.pipeline.engine.plan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ssc.pipeline.engine.expression.Expression;
+import com.ssc.pipeline.engine.graph.NodeType;
+import com.ssc.pipeline.engine.graph.PipelineNode;
+import com.ssc.pipeline.engine.operator.FilterConditions;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A node while the plan is rewritten: its inputs can be rewired and its props or a Filter's
+ * condition replaced, which marks the node rewritten.
+ */
+final class PlanStep {
+    final String id;
+    final String label;
+    final NodeType type;
+    final ObjectNode props;
+    final List<String> inputs;
+    Expression predicate;
+    boolean rewritten;
+
+    PlanStep(PipelineNode node) {
+        this.id = node.getId();
+        this.label = node.getLabel();
+        this.type = node.getType();
+        this.props = node.getProps().isObject() ? ((ObjectNode) node.getProps()).deepCopy()
+            : JsonNodeFactory.instance.objectNode();
+        this.inputs = new ArrayList<>(node.getInputs());
+        if (type == NodeType.FILTER) {
+            try {
+                predicate = node.getPredicate() != null ? node.getPredicate()
+                    : FilterConditions.toExpression(node.getProps().path("conditions"));
+            } catch (PipelineException e) {
+                predicate = null;
+            }
+        }
+    }
+
+    PlanStep(String id, String label, NodeType type, List<String> inputs) {
+        this.id = id;
+        this.label = label;
+        this.type = type;
+        this.props = JsonNodeFactory.instance.objectNode();
+        this.inputs = new ArrayList<>(inputs);
+    }
+
+    String prop(String name, String defaultValue) {
+        JsonNode value = props.get(name);
+        return value == null || value.isNull() ? defaultValue : value.asText();
+    }
+
+    void setPredicate(Expression predicate) {
+        this.predicate = predicate;
+        props.remove("conditions");
+        // the text keys the node's stored output and shows in the plan
+        props.put("predicate", predicate.toString());
+        rewritten = true;
+    }
+
+    @Override
+    public String toString() {
+        return type.getComponentName() + "[" + id + "]";
+    }
+}
@@ -0,0 +1,27 @@
+package com.ssc.pipeline.engine.plan;
+
+import java.util.List;
+
+/**
+ * Size and column statistics of a source file, estimated from a sample.
+ *
+ * @param exact whether the sample was the whole file, so the row count is exact
+ */
+public record SourceStatistics(long rowCount, boolean exact, List<Column> columns) {
+
+    /**
+     * @param distinct     estimated number of distinct non-null values
+     * @param nullFraction share of rows where the column is empty
+     */
+    public record Column(String name, long distinct, double nullFraction) {
+    }
+
+    public Column column(String name) {
+        for (Column column : columns) {
+            if (column.name().equals(name)) {
+                return column;
+            }
+        }
+        return null;
+    }
+}
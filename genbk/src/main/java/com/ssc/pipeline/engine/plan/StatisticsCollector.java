@@ -0,0 +1,106 @@
+package com.ssc.pipeline.engine.plan;
+
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.csv.CsvChunkParser;
+import com.ssc.pipeline.engine.csv.CsvOptions;
+import com.ssc.pipeline.engine.csv.CsvSniffer;
+import com.ssc.pipeline.engine.csv.CsvSplitter;
+import com.ssc.pipeline.engine.operator.HyperLogLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Estimates {@link SourceStatistics} from the complete records in the first
+ * {@code sampleBytes} of a CSV file. The row count is scaled from the sample's bytes per
+ * record. Distinct counts come from a {@link HyperLogLog} per column; a column that is nearly
+ * unique in the sample is assumed to stay so and is scaled with the rows, any other is assumed
+ * to have shown most of its values already.
+ */
+final class StatisticsCollector {
+    private static final double UNIQUE_SHARE = 0.9;
+
+    private StatisticsCollector() {
+    }
+
+    /**
+     * @param names column names by position, or {@code null} to take them from the header
+     */
+    static SourceStatistics collect(FileChannel channel, CsvOptions options, List<String> names, long sampleBytes)
+        throws IOException {
+        long size = channel.size();
+        ByteBuffer head = CsvSplitter.map(channel, 0, Math.min(size, sampleBytes));
+        CsvChunkParser parser = new CsvChunkParser(head, 0, options, offset -> "byte " + offset);
+        parser.skipByteOrderMark();
+        for (int i = 0; i < options.getSkipRows(); i++) {
+            parser.skipLine();
+        }
+        int dataStart = (int) parser.position();
+        List<String> first = parser.readRecordText();
+        if (first == null) {
+            return new SourceStatistics(0, head.limit() == size, List.of());
+        }
+        if (options.hasHeader()) {
+            dataStart = (int) parser.position();
+        }
+        if (names == null) {
+            names = new ArrayList<>();
+            for (int i = 0; i < first.size(); i++) {
+                names.add(options.hasHeader() ? first.get(i) : "column" + (i + 1));
+            }
+        }
+
+        boolean whole = head.limit() == size;
+        ByteBuffer records = head.slice(dataStart, head.limit() - dataStart);
+        if (!whole) {
+            int end = CsvSniffer.lastRecordEnd(records, options);
+            records = records.slice(0, Math.max(0, end));
+        }
+        // every column as text: a value that does not parse as its declared type still counts
+        Schema schema = Schema.ofStrings(names);
+        HyperLogLog[] sketches = new HyperLogLog[names.size()];
+        long[] nulls = new long[names.size()];
+        for (int i = 0; i < sketches.length; i++) {
+            sketches[i] = new HyperLogLog();
+        }
+        CsvChunkParser sample = new CsvChunkParser(records, dataStart, options, offset -> "byte " + offset);
+        long rows = 0;
+        while (true) {
+            RowBatch batch = RowBatch.allocate(schema);
+            sample.fill(batch);
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (int c = 0; c < sketches.length; c++) {
+                ColumnVector column = batch.column(c);
+                for (int row = 0; row < batch.getRowCount(); row++) {
+                    if (column.isNull(row)) {
+                        nulls[c]++;
+                    } else {
+                        sketches[c].add(HyperLogLog.hash(column.getText(row)));
+                    }
+                }
+            }
+            rows += batch.getRowCount();
+        }
+
+        long sampledBytes = sample.position() - dataStart;
+        long rowCount = whole || sampledBytes == 0 ? rows
+            : Math.round((double) rows * (size - dataStart) / sampledBytes);
+        List<SourceStatistics.Column> columns = new ArrayList<>();
+        for (int c = 0; c < sketches.length; c++) {
+            long distinct = Math.min(sketches[c].estimate(), rows - nulls[c]);
+            if (!whole && distinct >= UNIQUE_SHARE * (rows - nulls[c]) && rows > 0) {
+                distinct = Math.round((double) distinct * rowCount / rows);
+            }
+            double nullFraction = rows == 0 ? 0 : (double) nulls[c] / rows;
+            columns.add(new SourceStatistics.Column(names.get(c), distinct, nullFraction));
+        }
+        return new SourceStatistics(rowCount, whole, columns);
+    }
+}
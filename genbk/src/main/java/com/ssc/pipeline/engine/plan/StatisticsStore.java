@@ -0,0 +1,111 @@
+package com.ssc.pipeline.engine.plan;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ssc.pipeline.engine.csv.CsvOptions;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statistics of source files for the cost-based planner. They are collected from a sample of
+ * the file ({@link StatisticsCollector}) the first time a file is planned, or when it is
+ * uploaded, and kept in memory and as JSON in {@code directory}, filed under a hash of the file's
+ * path, size and modification time and the options it is read with; a changed file simply
+ * misses. Statistics only steer the plan, so a file that cannot be sampled has none.
+ */
+public class StatisticsStore {
+    private static final int MEMORY_ENTRIES = 1024;
+
+    private final Path directory;
+    private final long sampleBytes;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, SourceStatistics> memory = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SourceStatistics> eldest) {
+            return size() > MEMORY_ENTRIES;
+        }
+    };
+
+    public StatisticsStore(Path directory, long sampleBytes) {
+        this.directory = directory;
+        this.sampleBytes = sampleBytes;
+    }
+
+    /**
+     * @param names column names by position, or {@code null} to take them from the header
+     * @return the statistics, or {@code null} if the file cannot be read
+     */
+    public SourceStatistics get(Path file, CsvOptions options, List<String> names) {
+        String key;
+        try {
+            key = key(file, options, names);
+        } catch (IOException e) {
+            return null;
+        }
+        synchronized (memory) {
+            SourceStatistics cached = memory.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        SourceStatistics statistics = load(key);
+        if (statistics == null) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                statistics = StatisticsCollector.collect(channel, options, names, sampleBytes);
+            } catch (IOException | RuntimeException e) {
+                return null;
+            }
+            save(key, statistics);
+        }
+        synchronized (memory) {
+            memory.put(key, statistics);
+        }
+        return statistics;
+    }
+
+    private SourceStatistics load(String key) {
+        try {
+            return objectMapper.readValue(directory.resolve(key + ".json").toFile(), SourceStatistics.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void save(String key, SourceStatistics statistics) {
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+            objectMapper.writeValue(temp.toFile(), statistics);
+            Files.move(temp, directory.resolve(key + ".json"), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // kept in memory only
+        }
+    }
+
+    private static String key(Path file, CsvOptions options, List<String> names) throws IOException {
+        StringBuilder key = new StringBuilder().append(file.toAbsolutePath().normalize())
+            .append('\n').append(Files.size(file)).append(' ').append(Files.getLastModifiedTime(file).toMillis())
+            .append('\n').append(options.hasHeader()).append(' ').append(options.getSkipRows())
+            .append(' ').append(options.getDelimiter()).append(options.getQuote()).append(options.getEscape())
+            .append(' ').append(options.getEncoding()).append(' ').append(options.isMultiLine())
+            .append('\n').append(names);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(key.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.ssc.pipeline.engine.sftp;
+
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+import org.apache.sshd.sftp.client.RawSftpClient;
+import org.apache.sshd.sftp.common.SftpConstants;
+import org.apache.sshd.sftp.common.SftpException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+
+/**
+ * Reads a remote file with up to {@code maxOutstanding} read requests in flight on the channel,
+ * so throughput is bounded by bandwidth instead of one round trip per request. Responses are
+ * consumed in file order. A short read re-requests the missing tail first and lowers the request
+ * size to what the server returned, since servers cap how much one request may read.
+ */
+class PipelinedSftpInputStream extends InputStream {
+    private record Request(int id, long offset, int length) {
+    }
+
+    private final RawSftpClient client;
+    private final byte[] handle;
+    private final int maxOutstanding;
+    // called with whether the session is fit for reuse
+    private final Consumer<Boolean> onClose;
+    private final ArrayDeque<Request> pending = new ArrayDeque<>();
+    private int requestSize;
+    private long nextOffset;
+    private boolean eof;
+    private boolean closed;
+    private byte[] data = new byte[0];
+    private int dataPos;
+    private int dataEnd;
+
+    PipelinedSftpInputStream(RawSftpClient client, byte[] handle, int requestSize, int maxOutstanding,
+                             Consumer<Boolean> onClose) {
+        this.client = client;
+        this.handle = handle;
+        this.requestSize = requestSize;
+        this.maxOutstanding = Math.max(1, maxOutstanding);
+        this.onClose = onClose;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (dataPos == dataEnd) {
+            if (!receive()) {
+                return -1;
+            }
+        }
+        int n = Math.min(len, dataEnd - dataPos);
+        System.arraycopy(data, dataPos, b, off, n);
+        dataPos += n;
+        return n;
+    }
+
+    /**
+     * Tops up the requests in flight and takes the response to the oldest one.
+     *
+     * @return false at the end of the file
+     */
+    private boolean receive() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (!eof && pending.size() < maxOutstanding) {
+            pending.add(send(nextOffset, requestSize));
+            nextOffset += requestSize;
+        }
+        Request request = pending.poll();
+        if (request == null) {
+            return false;
+        }
+        Buffer response = client.receive(request.id());
+        response.getInt();
+        int type = response.getUByte();
+        response.getInt();
+        if (type == SftpConstants.SSH_FXP_STATUS) {
+            int status = response.getInt();
+            if (status != SftpConstants.SSH_FX_EOF) {
+                throw new SftpException(status, response.getString());
+            }
+            eof = true;
+            return false;
+        }
+        if (type != SftpConstants.SSH_FXP_DATA) {
+            throw new IOException("Unexpected SFTP response " + type + " to a read");
+        }
+        int length = response.getInt();
+        if (length < request.length() && length > 0) {
+            pending.addFirst(send(request.offset() + length, request.length() - length));
+            requestSize = Math.min(requestSize, length);
+        }
+        data = response.array();
+        dataPos = response.rpos();
+        dataEnd = dataPos + length;
+        return true;
+    }
+
+    private Request send(long offset, int length) throws IOException {
+        Buffer buffer = new ByteArrayBuffer(handle.length + Long.SIZE, false);
+        buffer.putBytes(handle);
+        buffer.putLong(offset);
+        buffer.putUInt(length);
+        return new Request(client.send(SftpConstants.SSH_FXP_READ, buffer), offset, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        boolean drained = false;
+        try {
+            // responses nobody waits for would stay queued on the client
+            for (Request request : pending) {
+                client.receive(request.id());
+            }
+            pending.clear();
+            drained = true;
+        } finally {
+            onClose.accept(drained);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.ssc.pipeline.engine.sftp;
+
+import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+import org.apache.sshd.sftp.client.RawSftpClient;
+import org.apache.sshd.sftp.common.SftpConstants;
+import org.apache.sshd.sftp.common.SftpException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+
+/**
+ * Writes a remote file in requests of {@code requestSize} bytes with up to
+ * {@code maxOutstanding} of them unacknowledged; an acknowledgement is only waited for when the
+ * window is full, and all of them when the stream is closed.
+ */
+class PipelinedSftpOutputStream extends OutputStream {
+    private final RawSftpClient client;
+    private final byte[] handle;
+    private final int maxOutstanding;
+    // called with whether the session is fit for reuse
+    private final Consumer<Boolean> onClose;
+    private final ArrayDeque<Integer> unacknowledged = new ArrayDeque<>();
+    private final byte[] buffer;
+    private int count;
+    private long offset;
+    private boolean closed;
+
+    PipelinedSftpOutputStream(RawSftpClient client, byte[] handle, int requestSize, int maxOutstanding,
+                              Consumer<Boolean> onClose) {
+        this.client = client;
+        this.handle = handle;
+        this.buffer = new byte[requestSize];
+        this.maxOutstanding = Math.max(1, maxOutstanding);
+        this.onClose = onClose;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (len > 0) {
+            int n = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == buffer.length) {
+                send();
+            }
+        }
+    }
+
+    // sends what is buffered without waiting for it to be acknowledged
+    @Override
+    public void flush() throws IOException {
+        send();
+    }
+
+    private void send() throws IOException {
+        if (count == 0) {
+            return;
+        }
+        Buffer request = new ByteArrayBuffer(handle.length + count + Long.SIZE, false);
+        request.putBytes(handle);
+        request.putLong(offset);
+        request.putBytes(buffer, 0, count);
+        unacknowledged.add(client.send(SftpConstants.SSH_FXP_WRITE, request));
+        offset += count;
+        count = 0;
+        while (unacknowledged.size() > maxOutstanding) {
+            acknowledge(unacknowledged.poll());
+        }
+    }
+
+    private void acknowledge(int id) throws IOException {
+        Buffer response = client.receive(id);
+        response.getInt();
+        int type = response.getUByte();
+        response.getInt();
+        if (type != SftpConstants.SSH_FXP_STATUS) {
+            throw new IOException("Unexpected SFTP response " + type + " to a write");
+        }
+        int status = response.getInt();
+        if (status != SftpConstants.SSH_FX_OK) {
+            throw new SftpException(status, response.getString());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        boolean acknowledged = false;
+        try {
+            send();
+            while (!unacknowledged.isEmpty()) {
+                acknowledge(unacknowledged.poll());
+            }
+            acknowledged = true;
+        } finally {
+            closed = true;
+            onClose.accept(acknowledged);
+        }
+    }
+}
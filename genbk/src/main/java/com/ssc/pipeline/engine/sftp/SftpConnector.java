@@ -0,0 +1,231 @@
+package com.ssc.pipeline.engine.sftp;
+
+import com.ssc.pipeline.exception.PipelineException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.sshd.client.SshClient;
+import org.apache.sshd.client.keyverifier.AcceptAllServerKeyVerifier;
+import org.apache.sshd.client.keyverifier.KnownHostsServerKeyVerifier;
+import org.apache.sshd.client.keyverifier.RejectAllServerKeyVerifier;
+import org.apache.sshd.client.session.ClientSession;
+import org.apache.sshd.common.keyprovider.FileKeyPairProvider;
+import org.apache.sshd.sftp.client.RawSftpClient;
+import org.apache.sshd.sftp.client.SftpClient;
+import org.apache.sshd.sftp.client.SftpClientFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Opens remote files for the SFTP source and output nodes. A node names the account it uses by
+ * its process ID, which {@code processIds} maps to a server and credentials, so pipelines never
+ * carry passwords and cannot send them to a server of their choosing. Reads and writes keep up to
+ * {@code outstandingRequests} requests in flight on their channel. Sessions, each with its SFTP
+ * channel, are pooled per endpoint: a stream borrows one while it is open and hands it back when
+ * it is closed cleanly; idle sessions are closed after {@code idleTimeout} or when more than
+ * {@code maxIdlePerEndpoint} are waiting.
+ *
+ * <p>Server keys are checked against the OpenSSH {@code knownHosts} file. Without one, no session
+ * is opened unless {@code acceptAnyHostKey} was set explicitly, which trusts whatever key a
+ * server presents and is logged as a warning.
+ */
+@Slf4j
+public class SftpConnector implements AutoCloseable {
+    private record Idle(SftpClient client, long since) {
+    }
+
+    private final Function<String, SftpEndpoint> processIds;
+    private final int requestSize;
+    private final int outstandingRequests;
+    private final int maxIdlePerEndpoint;
+    private final Duration idleTimeout;
+    private final Duration connectTimeout;
+    private final SshClient ssh;
+    private final boolean hostKeysTrusted;
+    private final Map<SftpEndpoint, Deque<Idle>> idle = new HashMap<>();
+    private boolean started;
+
+    /**
+     * @param processIds       endpoint of each process ID, {@code null} for an unknown one
+     * @param requestSize      bytes asked for or sent per request; servers may return less per read
+     * @param knownHosts       known_hosts file server keys are checked against, {@code null} for none
+     * @param acceptAnyHostKey whether to connect without {@code knownHosts}, trusting any server key
+     */
+    public SftpConnector(Function<String, SftpEndpoint> processIds, int requestSize, int outstandingRequests,
+                         int maxIdlePerEndpoint, Duration idleTimeout, Duration connectTimeout, Path knownHosts,
+                         boolean acceptAnyHostKey) {
+        this.processIds = processIds;
+        this.requestSize = requestSize;
+        this.outstandingRequests = outstandingRequests;
+        this.maxIdlePerEndpoint = maxIdlePerEndpoint;
+        this.idleTimeout = idleTimeout;
+        this.connectTimeout = connectTimeout;
+        this.ssh = SshClient.setUpDefaultClient();
+        if (knownHosts != null) {
+            if (!Files.isRegularFile(knownHosts)) {
+                throw new IllegalStateException("SFTP known_hosts file " + knownHosts + " does not exist");
+            }
+            ssh.setServerKeyVerifier(new KnownHostsServerKeyVerifier(RejectAllServerKeyVerifier.INSTANCE, knownHosts));
+        } else if (acceptAnyHostKey) {
+            log.warn("SFTP server keys are not checked: no known_hosts file is set and any host key is accepted");
+            ssh.setServerKeyVerifier(AcceptAllServerKeyVerifier.INSTANCE);
+        } else {
+            ssh.setServerKeyVerifier(RejectAllServerKeyVerifier.INSTANCE);
+        }
+        this.hostKeysTrusted = knownHosts != null || acceptAnyHostKey;
+    }
+
+    public SftpEndpoint endpoint(String processId) {
+        if (processId == null || processId.isBlank()) {
+            throw new PipelineException("An SFTP node needs a process ID");
+        }
+        SftpEndpoint endpoint = processIds.apply(processId);
+        if (endpoint == null) {
+            throw new PipelineException("No SFTP account is configured for process ID " + processId);
+        }
+        return endpoint;
+    }
+
+    public InputStream openRead(SftpEndpoint endpoint, String path) throws IOException {
+        SftpClient client = borrow(endpoint);
+        try {
+            SftpClient.CloseableHandle handle = client.open(path, SftpClient.OpenMode.Read);
+            return new PipelinedSftpInputStream(raw(client), handle.getIdentifier(), requestSize,
+                outstandingRequests, reusable -> release(endpoint, client, handle, reusable));
+        } catch (IOException | RuntimeException e) {
+            release(endpoint, client, null, true);
+            throw e;
+        }
+    }
+
+    /**
+     * Creates or truncates the file; its content is complete once the stream closed without error.
+     */
+    public OutputStream openWrite(SftpEndpoint endpoint, String path) throws IOException {
+        SftpClient client = borrow(endpoint);
+        try {
+            SftpClient.CloseableHandle handle = client.open(path, SftpClient.OpenMode.Write,
+                SftpClient.OpenMode.Create, SftpClient.OpenMode.Truncate);
+            return new PipelinedSftpOutputStream(raw(client), handle.getIdentifier(), requestSize,
+                outstandingRequests, reusable -> release(endpoint, client, handle, reusable));
+        } catch (IOException | RuntimeException e) {
+            release(endpoint, client, null, true);
+            throw e;
+        }
+    }
+
+    public SftpClient.Attributes stat(SftpEndpoint endpoint, String path) throws IOException {
+        SftpClient client = borrow(endpoint);
+        boolean reusable = false;
+        try {
+            SftpClient.Attributes attributes = client.stat(path);
+            reusable = true;
+            return attributes;
+        } finally {
+            release(endpoint, client, null, reusable);
+        }
+    }
+
+    private static RawSftpClient raw(SftpClient client) throws IOException {
+        if (client instanceof RawSftpClient raw) {
+            return raw;
+        }
+        throw new IOException("SFTP client " + client.getClass().getName() + " cannot pipeline requests");
+    }
+
+    private SftpClient borrow(SftpEndpoint endpoint) throws IOException {
+        List<Idle> expired = new ArrayList<>();
+        SftpClient client = null;
+        synchronized (this) {
+            Deque<Idle> sessions = idle.get(endpoint);
+            long now = System.nanoTime();
+            while (client == null && sessions != null && !sessions.isEmpty()) {
+                Idle candidate = sessions.pollLast();
+                if (candidate.client().isOpen() && now - candidate.since() < idleTimeout.toNanos()) {
+                    client = candidate.client();
+                } else {
+                    expired.add(candidate);
+                }
+            }
+            if (!started) {
+                ssh.start();
+                started = true;
+            }
+        }
+        expired.forEach(candidate -> closeQuietly(candidate.client()));
+        return client != null ? client : connect(endpoint);
+    }
+
+    private SftpClient connect(SftpEndpoint endpoint) throws IOException {
+        if (!hostKeysTrusted) {
+            throw new PipelineException("SFTP server keys cannot be checked: set a known_hosts file, or accept any "
+                + "host key explicitly");
+        }
+        ClientSession session = ssh.connect(endpoint.username(), endpoint.host(), endpoint.port())
+            .verify(connectTimeout).getSession();
+        try {
+            if (endpoint.password() != null) {
+                session.addPasswordIdentity(endpoint.password());
+            }
+            if (endpoint.privateKey() != null) {
+                session.setKeyIdentityProvider(new FileKeyPairProvider(endpoint.privateKey()));
+            }
+            session.auth().verify(connectTimeout);
+            return SftpClientFactory.instance().createSftpClient(session);
+        } catch (IOException | RuntimeException e) {
+            session.close(true);
+            throw e;
+        }
+    }
+
+    private void release(SftpEndpoint endpoint, SftpClient client, SftpClient.CloseableHandle handle,
+                         boolean reusable) {
+        if (handle != null && reusable) {
+            try {
+                handle.close();
+            } catch (IOException e) {
+                reusable = false;
+            }
+        }
+        if (reusable && client.isOpen()) {
+            synchronized (this) {
+                Deque<Idle> sessions = idle.computeIfAbsent(endpoint, key -> new ArrayDeque<>());
+                if (sessions.size() < maxIdlePerEndpoint) {
+                    sessions.addLast(new Idle(client, System.nanoTime()));
+                    return;
+                }
+            }
+        }
+        closeQuietly(client);
+    }
+
+    private static void closeQuietly(SftpClient client) {
+        try {
+            client.close();
+        } catch (IOException ignored) {
+            // the session is closed below either way
+        }
+        client.getSession().close(true);
+    }
+
+    @Override
+    public void close() {
+        List<Idle> sessions = new ArrayList<>();
+        synchronized (this) {
+            idle.values().forEach(sessions::addAll);
+            idle.clear();
+        }
+        sessions.forEach(session -> closeQuietly(session.client()));
+        ssh.stop();
+    }
+}
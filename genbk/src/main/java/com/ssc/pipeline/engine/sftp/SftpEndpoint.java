@@ -0,0 +1,18 @@
+package com.ssc.pipeline.engine.sftp;
+
+import java.nio.file.Path;
+
+/**
+ * A server and the account used on it; sessions are pooled per endpoint.
+ *
+ * @param password   {@code null} to authenticate with the private key only
+ * @param privateKey key file in OpenSSH or PEM format, {@code null} for password authentication
+ */
+public record SftpEndpoint(String host, int port, String username, String password, Path privateKey) {
+
+    // keeps the password out of logs and error messages
+    @Override
+    public String toString() {
+        return username + "@" + host + ":" + port;
+    }
+}
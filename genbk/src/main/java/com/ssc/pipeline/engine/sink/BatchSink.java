@@ -0,0 +1,10 @@
+package com.ssc.pipeline.engine.sink;
+
+import com.ssc.pipeline.engine.operator.BatchOperator;
+
+/**
+ * Terminal stage of an output node: drains its input and returns the number of rows written.
+ */
+public interface BatchSink {
+    long write(BatchOperator input);
+}
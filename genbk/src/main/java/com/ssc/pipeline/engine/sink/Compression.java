@@ -0,0 +1,35 @@
+package com.ssc.pipeline.engine.sink;
+
+import com.ssc.pipeline.exception.PipelineException;
+
+/**
+ * Output compression of a writer node, limited to codecs the JDK ships.
+ */
+public enum Compression {
+    NONE(""),
+    GZIP(".gz");
+
+    private final String extension;
+
+    Compression(String extension) {
+        this.extension = extension;
+    }
+
+    public static Compression fromString(String value) {
+        if (value == null || value.isBlank()) {
+            return NONE;
+        }
+        try {
+            return Compression.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new PipelineException("Unsupported compression: " + value);
+        }
+    }
+
+    /**
+     * Suffix appended to default output file names, such as {@code .gz}.
+     */
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,302 @@
+package com.ssc.pipeline.engine.sink;
+
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.csv.CsvOptions;
+import com.ssc.pipeline.engine.operator.BatchOperator;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Writes the input as delimited text without holding more than a few blocks of it. Batches are
+ * gathered into blocks of about {@link #BLOCK_ROWS} rows and up to {@code parallelism} blocks are
+ * encoded, and compressed, at once on the worker pool while the caller keeps pulling input.
+ * Encoded blocks wait in a window ordered by sequence number and are written strictly in that
+ * order through one channel, a file or a remote stream, from reused direct buffers. Blocks the pool has no thread
+ * for are encoded on the caller's thread when their turn comes. With gzip every block is a
+ * complete gzip member, which is what lets blocks be compressed independently.
+ */
+public class CsvWriterSink implements BatchSink {
+    private static final int BLOCK_ROWS = 4 * RowBatch.DEFAULT_SIZE;
+    // characters formatted before they are run through the charset encoder
+    private static final int ENCODE_CHARS = 16 * 1024;
+    private static final int INITIAL_BUFFER = 256 * 1024;
+
+    private final Target target;
+    private final String name;
+    private final CsvOptions options;
+    private final Compression compression;
+    private final int compressionLevel;
+    private final Executor executor;
+    private final int parallelism;
+    private final ConcurrentLinkedQueue<ByteBuffer> freeText = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<ByteBuffer> freeDirect = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Opens the channel the encoded blocks are written to; called once per write.
+     */
+    @FunctionalInterface
+    public interface Target {
+        WritableByteChannel open() throws IOException;
+    }
+
+    /**
+     * @param compressionLevel deflate level from 1 to 9, or -1 for the default
+     */
+    public CsvWriterSink(Path path, CsvOptions options, Compression compression, int compressionLevel,
+                         Executor executor, int parallelism) {
+        this(() -> {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            return FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        }, path.toString(), options, compression, compressionLevel, executor, parallelism);
+    }
+
+    /**
+     * @param name names the target in error messages
+     */
+    public CsvWriterSink(Target target, String name, CsvOptions options, Compression compression,
+                         int compressionLevel, Executor executor, int parallelism) {
+        if (compressionLevel < -1 || compressionLevel > 9) {
+            throw new PipelineException("Compression level must be between 1 and 9: " + compressionLevel);
+        }
+        this.target = target;
+        this.name = name;
+        this.options = options;
+        this.compression = compression;
+        this.compressionLevel = compressionLevel;
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    @Override
+    public long write(BatchOperator input) {
+        long rows = 0;
+        ArrayDeque<FutureTask<ByteBuffer>> pending = new ArrayDeque<>();
+        try {
+            try (input; WritableByteChannel channel = target.open()) {
+                Schema schema = input.schema();
+                int blocks = 0;
+                List<RowBatch> block = new ArrayList<>();
+                int blockRows = 0;
+                RowBatch batch;
+                while ((batch = input.next()) != null) {
+                    if (batch.isEmpty()) {
+                        continue;
+                    }
+                    block.add(batch);
+                    blockRows += batch.getRowCount();
+                    rows += batch.getRowCount();
+                    if (blockRows >= BLOCK_ROWS) {
+                        pending.add(submit(schema, block, blocks++ == 0));
+                        block = new ArrayList<>();
+                        blockRows = 0;
+                        while (pending.size() > parallelism) {
+                            writeNext(pending, channel);
+                        }
+                    }
+                }
+                if (!block.isEmpty() || blocks == 0) {
+                    // even an empty input gets its header, and a gzip file its one empty member
+                    pending.add(submit(schema, block, blocks == 0));
+                }
+                while (!pending.isEmpty()) {
+                    writeNext(pending, channel);
+                }
+            }
+        } catch (IOException e) {
+            throw new PipelineException("Failed to write " + name + ": " + e.getMessage(), e);
+        } finally {
+            pending.forEach(task -> task.cancel(false));
+        }
+        return rows;
+    }
+
+    private FutureTask<ByteBuffer> submit(Schema schema, List<RowBatch> batches, boolean first) {
+        boolean header = first && options.hasHeader();
+        FutureTask<ByteBuffer> task = new FutureTask<>(() -> encode(schema, batches, header));
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // encoded on this thread when its turn comes
+        }
+        return task;
+    }
+
+    private void writeNext(ArrayDeque<FutureTask<ByteBuffer>> pending, WritableByteChannel channel) throws IOException {
+        ByteBuffer bytes = await(pending.poll());
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        freeDirect.add(bytes.clear());
+    }
+
+    private ByteBuffer await(FutureTask<ByteBuffer> task) {
+        task.run();
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PipelineException("Interrupted while writing " + name, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof PipelineException pipelineException) {
+                throw pipelineException;
+            }
+            throw new PipelineException("Failed to write " + name + ": " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Formats and encodes one block, returning it compressed and flipped in a direct buffer.
+     */
+    private ByteBuffer encode(Schema schema, List<RowBatch> batches, boolean header) throws CharacterCodingException {
+        CharsetEncoder encoder = options.getEncoding().newEncoder();
+        ByteBuffer text = take(freeText, INITIAL_BUFFER, false);
+        try {
+            StringBuilder formatted = new StringBuilder(ENCODE_CHARS + 1024);
+            char[] chars = new char[ENCODE_CHARS + 1024];
+            if (header) {
+                for (int i = 0; i < schema.size(); i++) {
+                    appendSeparator(formatted, i);
+                    int start = formatted.length();
+                    quoteIfNeeded(formatted.append(schema.name(i)), start);
+                }
+                formatted.append('\n');
+            }
+            for (RowBatch batch : batches) {
+                ColumnVector[] columns = batch.columns();
+                for (int row = 0; row < batch.getRowCount(); row++) {
+                    for (int i = 0; i < columns.length; i++) {
+                        appendSeparator(formatted, i);
+                        if (!columns[i].isNull(row)) {
+                            int start = formatted.length();
+                            columns[i].appendText(row, formatted);
+                            quoteIfNeeded(formatted, start);
+                        }
+                    }
+                    formatted.append('\n');
+                    if (formatted.length() >= ENCODE_CHARS) {
+                        chars = chars.length < formatted.length() ? new char[formatted.length()] : chars;
+                        text = encodeChars(encoder, formatted, chars, text, false);
+                    }
+                }
+            }
+            chars = chars.length < formatted.length() ? new char[formatted.length()] : chars;
+            text = encodeChars(encoder, formatted, chars, text, true);
+            text.flip();
+            return compress(text);
+        } finally {
+            freeText.add(text.clear());
+        }
+    }
+
+    private ByteBuffer compress(ByteBuffer text) {
+        if (compression == Compression.GZIP) {
+            ByteBuffer out = take(freeDirect, GzipMember.maxSize(text.remaining()), true);
+            return GzipMember.compress(text, compressionLevel, out, (full, extra) -> grow(full, extra, true)).flip();
+        }
+        return take(freeDirect, text.remaining(), true).put(text).flip();
+    }
+
+    /**
+     * Runs the formatted characters through the encoder. Characters it cannot take yet (half of
+     * a surrogate pair) stay in {@code text} for the next call.
+     */
+    private static ByteBuffer encodeChars(CharsetEncoder encoder, StringBuilder text, char[] chars, ByteBuffer out,
+                                          boolean endOfInput) throws CharacterCodingException {
+        text.getChars(0, text.length(), chars, 0);
+        CharBuffer in = CharBuffer.wrap(chars, 0, text.length());
+        while (true) {
+            CoderResult result = encoder.encode(in, out, endOfInput);
+            if (result.isOverflow()) {
+                out = grow(out, (int) (in.remaining() * encoder.averageBytesPerChar()) + 16, false);
+            } else if (result.isError()) {
+                result.throwException();
+            } else {
+                break;
+            }
+        }
+        while (endOfInput && encoder.flush(out).isOverflow()) {
+            out = grow(out, 16, false);
+        }
+        text.delete(0, in.position());
+        return out;
+    }
+
+    private void appendSeparator(StringBuilder line, int index) {
+        if (index > 0) {
+            line.append(options.getDelimiter());
+        }
+    }
+
+    /**
+     * Quotes the value appended to {@code line} from {@code start} if it contains the delimiter,
+     * the quote or a line break.
+     */
+    private void quoteIfNeeded(StringBuilder line, int start) {
+        char delimiter = options.getDelimiter();
+        char quote = options.getQuote();
+        int end = line.length();
+        int i = start;
+        while (i < end) {
+            char c = line.charAt(i);
+            if (c == delimiter || c == quote || c == '\n' || c == '\r') {
+                break;
+            }
+            i++;
+        }
+        if (i == end) {
+            return;
+        }
+        String value = line.substring(start);
+        line.setLength(start);
+        line.append(quote);
+        for (int j = 0; j < value.length(); j++) {
+            char c = value.charAt(j);
+            if (c == quote) {
+                line.append(options.getEscape());
+            }
+            line.append(c);
+        }
+        line.append(quote);
+    }
+
+    private static ByteBuffer take(ConcurrentLinkedQueue<ByteBuffer> free, int capacity, boolean direct) {
+        ByteBuffer buffer = free.poll();
+        if (buffer != null && buffer.capacity() >= capacity) {
+            return buffer;
+        }
+        // a pooled buffer that is too small is dropped and replaced by a larger one
+        int size = Math.max(capacity, buffer != null ? buffer.capacity() * 2 : INITIAL_BUFFER);
+        return direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int extra, boolean direct) {
+        int size = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(2L * buffer.capacity(), (long) buffer.position() + extra));
+        if (size - buffer.position() < extra) {
+            throw new PipelineException("Output block exceeds 2GB");
+        }
+        ByteBuffer larger = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        return larger.put(buffer.flip());
+    }
+}
@@ -0,0 +1,390 @@
+package com.ssc.pipeline.engine.sink;
+
+import com.ssc.pipeline.engine.batch.BooleanVector;
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DoubleVector;
+import com.ssc.pipeline.engine.batch.IntVector;
+import com.ssc.pipeline.engine.batch.LongVector;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.batch.StringDictionary;
+import com.ssc.pipeline.engine.batch.StringVector;
+import com.ssc.pipeline.engine.operator.BatchOperator;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes the input as an .xlsx workbook. Sheet XML is streamed straight into the zip entry, so
+ * memory does not grow with the row count; strings go through a bounded {@link SharedStrings}
+ * table. A sheet that reaches Excel's limit of 1,048,576 rows is closed and the rows continue
+ * on a new sheet, which repeats the header. Dates and timestamps are written as date-formatted
+ * serial numbers, and integers too long for Excel's 15 significant digits as text.
+ */
+public class ExcelWriterSink implements BatchSink {
+    private static final int MAX_ROWS = 1_048_576;
+    private static final int MAX_COLUMNS = 16_384;
+    private static final int MAX_SHEET_NAME = 31;
+    private static final long MAX_EXACT_NUMBER = 999_999_999_999_999L;
+    // 1970-01-01 in Excel's 1900 date system
+    private static final int EPOCH_SERIAL = 25_569;
+    // first day after Excel's phantom 1900-02-29; earlier dates are written as text
+    private static final int MIN_DATE_SERIAL = 61;
+    private static final double MILLIS_PER_DAY = 86_400_000.0;
+    private static final int DATE_STYLE = 1;
+    private static final int TIMESTAMP_STYLE = 2;
+    private static final int HEADER_STYLE = 3;
+    private static final int FLUSH_CHARS = 64 * 1024;
+
+    private final Path path;
+    private final String sheetName;
+    private final boolean hasHeader;
+    private final int compressionLevel;
+    private final Path tempDir;
+
+    /**
+     * @param compressionLevel deflate level of the zip entries, from 0 to 9 or -1 for the default
+     * @param tempDir          directory for the shared-strings table while the sheets are written
+     */
+    public ExcelWriterSink(Path path, String sheetName, boolean hasHeader, int compressionLevel, Path tempDir) {
+        if (compressionLevel < -1 || compressionLevel > 9) {
+            throw new PipelineException("Compression level must be between 0 and 9: " + compressionLevel);
+        }
+        this.path = path;
+        this.sheetName = sheetName;
+        this.hasHeader = hasHeader;
+        this.compressionLevel = compressionLevel;
+        this.tempDir = tempDir;
+    }
+
+    @Override
+    public long write(BatchOperator input) {
+        long rows = 0;
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            try (input; SharedStrings sharedStrings = new SharedStrings(tempDir);
+                 ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+                 Writer out = new OutputStreamWriter(zip, StandardCharsets.UTF_8)) {
+                zip.setLevel(compressionLevel);
+                Schema schema = input.schema();
+                if (schema.size() > MAX_COLUMNS) {
+                    throw new PipelineException("An Excel sheet holds at most " + MAX_COLUMNS + " columns, the output has "
+                        + schema.size());
+                }
+                SheetWriter sheet = new SheetWriter(schema, sharedStrings, zip, out);
+                sheet.open();
+                RowBatch batch;
+                while ((batch = input.next()) != null) {
+                    int row = 0;
+                    while (row < batch.getRowCount()) {
+                        if (sheet.isFull()) {
+                            sheet.close();
+                            sheet.open();
+                        }
+                        int count = Math.min(batch.getRowCount() - row, sheet.remaining());
+                        sheet.writeRows(batch, row, count);
+                        row += count;
+                    }
+                    rows += batch.getRowCount();
+                }
+                sheet.close();
+                writeWorkbook(zip, out, sheet.names, sharedStrings);
+            }
+        } catch (IOException e) {
+            throw new PipelineException("Failed to write " + path + ": " + e.getMessage(), e);
+        }
+        return rows;
+    }
+
+    private void writeWorkbook(ZipOutputStream zip, Writer out, List<String> sheetNames, SharedStrings sharedStrings)
+        throws IOException {
+        StringBuilder xml = new StringBuilder(Xml.DECLARATION);
+        xml.append("<workbook xmlns=\"").append(Xml.MAIN_NAMESPACE).append("\" xmlns:r=\"")
+            .append(Xml.RELATIONSHIP_NAMESPACE).append("\"><sheets>");
+        for (int i = 0; i < sheetNames.size(); i++) {
+            xml.append("<sheet name=\"");
+            Xml.escape(xml, sheetNames.get(i), sheetNames.get(i).length());
+            xml.append("\" sheetId=\"").append(i + 1).append("\" r:id=\"rId").append(i + 1).append("\"/>");
+        }
+        entry(zip, out, "xl/workbook.xml", xml.append("</sheets></workbook>"));
+
+        xml = new StringBuilder(Xml.DECLARATION);
+        xml.append("<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+        for (int i = 0; i < sheetNames.size(); i++) {
+            relationship(xml, "rId" + (i + 1), "worksheet", "worksheets/sheet" + (i + 1) + ".xml");
+        }
+        relationship(xml, "rId" + (sheetNames.size() + 1), "styles", "styles.xml");
+        relationship(xml, "rId" + (sheetNames.size() + 2), "sharedStrings", "sharedStrings.xml");
+        entry(zip, out, "xl/_rels/workbook.xml.rels", xml.append("</Relationships>"));
+
+        entry(zip, out, "xl/styles.xml", new StringBuilder(Xml.DECLARATION)
+            .append("<styleSheet xmlns=\"").append(Xml.MAIN_NAMESPACE).append("\">")
+            .append("<numFmts count=\"2\"><numFmt numFmtId=\"164\" formatCode=\"yyyy-mm-dd\"/>")
+            .append("<numFmt numFmtId=\"165\" formatCode=\"yyyy-mm-dd hh:mm:ss\"/></numFmts>")
+            .append("<fonts count=\"2\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font>")
+            .append("<font><b/><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>")
+            .append("<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill>")
+            .append("<fill><patternFill patternType=\"gray125\"/></fill></fills>")
+            .append("<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>")
+            .append("<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>")
+            .append("<cellXfs count=\"4\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>")
+            .append("<xf numFmtId=\"164\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>")
+            .append("<xf numFmtId=\"165\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>")
+            .append("<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/></cellXfs>")
+            .append("</styleSheet>"));
+
+        zip.putNextEntry(new ZipEntry("xl/sharedStrings.xml"));
+        sharedStrings.writeTo(zip);
+        zip.closeEntry();
+
+        xml = new StringBuilder(Xml.DECLARATION);
+        xml.append("<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+        relationship(xml, "rId1", "officeDocument", "xl/workbook.xml");
+        entry(zip, out, "_rels/.rels", xml.append("</Relationships>"));
+
+        String spreadsheet = "application/vnd.openxmlformats-officedocument.spreadsheetml.";
+        xml = new StringBuilder(Xml.DECLARATION);
+        xml.append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+            .append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+            .append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>");
+        contentType(xml, "/xl/workbook.xml", spreadsheet + "sheet.main+xml");
+        for (int i = 0; i < sheetNames.size(); i++) {
+            contentType(xml, "/xl/worksheets/sheet" + (i + 1) + ".xml", spreadsheet + "worksheet+xml");
+        }
+        contentType(xml, "/xl/styles.xml", spreadsheet + "styles+xml");
+        contentType(xml, "/xl/sharedStrings.xml", spreadsheet + "sharedStrings+xml");
+        entry(zip, out, "[Content_Types].xml", xml.append("</Types>"));
+    }
+
+    private static void relationship(StringBuilder xml, String id, String type, String target) {
+        xml.append("<Relationship Id=\"").append(id).append("\" Type=\"").append(Xml.RELATIONSHIP_NAMESPACE)
+            .append('/').append(type).append("\" Target=\"").append(target).append("\"/>");
+    }
+
+    private static void contentType(StringBuilder xml, String part, String contentType) {
+        xml.append("<Override PartName=\"").append(part).append("\" ContentType=\"").append(contentType).append("\"/>");
+    }
+
+    private static void entry(ZipOutputStream zip, Writer out, String name, CharSequence content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        out.append(content);
+        out.flush();
+        zip.closeEntry();
+    }
+
+    /**
+     * Sheet names are at most 31 characters and may not contain {@code []:*?/\}.
+     */
+    private String sheetName(int index) {
+        String base = sheetName == null || sheetName.isBlank() ? "Sheet1" : sheetName.replaceAll("[\\[\\]:*?/\\\\]", "_");
+        String suffix = index == 0 ? "" : " (" + (index + 1) + ")";
+        if (base.length() + suffix.length() > MAX_SHEET_NAME) {
+            base = base.substring(0, MAX_SHEET_NAME - suffix.length());
+        }
+        return base + suffix;
+    }
+
+    private static String columnName(int index) {
+        StringBuilder name = new StringBuilder();
+        for (int i = index + 1; i > 0; i = (i - 1) / 26) {
+            name.append((char) ('A' + (i - 1) % 26));
+        }
+        return name.reverse().toString();
+    }
+
+    /**
+     * Streams the worksheets one after another into the zip.
+     */
+    private final class SheetWriter {
+        private final Schema schema;
+        private final SharedStrings sharedStrings;
+        private final ZipOutputStream zip;
+        private final Writer out;
+        private final String[] columnNames;
+        private final StringBuilder xml = new StringBuilder(FLUSH_CHARS + 4096);
+        private final List<String> names = new ArrayList<>();
+        // shared-string index plus one of every code of the dictionary last seen per column, -1 for inline
+        private final StringDictionary[] dictionaries;
+        private final int[][] dictionaryIndexes;
+        private int rowNumber;
+
+        SheetWriter(Schema schema, SharedStrings sharedStrings, ZipOutputStream zip, Writer out) {
+            this.schema = schema;
+            this.sharedStrings = sharedStrings;
+            this.zip = zip;
+            this.out = out;
+            this.columnNames = new String[schema.size()];
+            for (int i = 0; i < columnNames.length; i++) {
+                columnNames[i] = columnName(i);
+            }
+            this.dictionaries = new StringDictionary[schema.size()];
+            this.dictionaryIndexes = new int[schema.size()][];
+        }
+
+        void open() throws IOException {
+            names.add(sheetName(names.size()));
+            zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + names.size() + ".xml"));
+            xml.append(Xml.DECLARATION).append("<worksheet xmlns=\"").append(Xml.MAIN_NAMESPACE).append("\"><sheetData>");
+            rowNumber = 0;
+            if (hasHeader) {
+                startRow();
+                for (int i = 0; i < schema.size(); i++) {
+                    writeString(i, schema.name(i), HEADER_STYLE);
+                }
+                xml.append("</row>");
+            }
+        }
+
+        boolean isFull() {
+            return rowNumber == MAX_ROWS;
+        }
+
+        int remaining() {
+            return MAX_ROWS - rowNumber;
+        }
+
+        void writeRows(RowBatch batch, int from, int count) throws IOException {
+            ColumnVector[] columns = batch.columns();
+            for (int row = from; row < from + count; row++) {
+                startRow();
+                for (int i = 0; i < columns.length; i++) {
+                    if (!columns[i].isNull(row)) {
+                        writeCell(i, columns[i], row);
+                    }
+                }
+                xml.append("</row>");
+                if (xml.length() >= FLUSH_CHARS) {
+                    flush();
+                }
+            }
+        }
+
+        void close() throws IOException {
+            xml.append("</sheetData></worksheet>");
+            flush();
+            out.flush();
+            zip.closeEntry();
+        }
+
+        private void startRow() {
+            rowNumber++;
+            xml.append("<row r=\"").append(rowNumber).append("\">");
+        }
+
+        private void writeCell(int column, ColumnVector vector, int row) throws IOException {
+            switch (vector.getType()) {
+                case STRING -> writeDictionaryString(column, (StringVector) vector, row);
+                case BOOLEAN -> startCell(column, 0, "b").append(((BooleanVector) vector).get(row) ? '1' : '0').append("</v></c>");
+                case INT -> startCell(column, 0, null).append(((IntVector) vector).get(row)).append("</v></c>");
+                case BIGINT -> {
+                    long value = ((LongVector) vector).get(row);
+                    if (Math.abs(value) <= MAX_EXACT_NUMBER) {
+                        startCell(column, 0, null).append(value).append("</v></c>");
+                    } else {
+                        writeString(column, Long.toString(value), 0);
+                    }
+                }
+                case DOUBLE -> {
+                    double value = ((DoubleVector) vector).get(row);
+                    if (Double.isFinite(value)) {
+                        startCell(column, 0, null).append(value).append("</v></c>");
+                    } else {
+                        writeString(column, Double.toString(value), 0);
+                    }
+                }
+                case DATE -> {
+                    long serial = (long) ((IntVector) vector).get(row) + EPOCH_SERIAL;
+                    if (serial >= MIN_DATE_SERIAL) {
+                        startCell(column, DATE_STYLE, null).append(serial).append("</v></c>");
+                    } else {
+                        writeString(column, vector.getText(row), 0);
+                    }
+                }
+                case TIMESTAMP -> {
+                    double serial = ((LongVector) vector).get(row) / MILLIS_PER_DAY + EPOCH_SERIAL;
+                    if (serial >= MIN_DATE_SERIAL) {
+                        startCell(column, TIMESTAMP_STYLE, null).append(serial).append("</v></c>");
+                    } else {
+                        writeString(column, vector.getText(row), 0);
+                    }
+                }
+                default -> {
+                    StringBuilder cell = startCell(column, 0, null);
+                    vector.appendText(row, cell);
+                    cell.append("</v></c>");
+                }
+            }
+        }
+
+        private void writeDictionaryString(int column, StringVector vector, int row) throws IOException {
+            StringDictionary dictionary = vector.dictionary();
+            int code = vector.code(row);
+            if (dictionaries[column] != dictionary) {
+                dictionaries[column] = dictionary;
+                dictionaryIndexes[column] = new int[Math.max(16, dictionary.size())];
+            }
+            int[] indexes = dictionaryIndexes[column];
+            if (code >= indexes.length) {
+                indexes = Arrays.copyOf(indexes, Math.max(code + 1, dictionary.size()));
+                dictionaryIndexes[column] = indexes;
+            }
+            if (indexes[code] == 0) {
+                int index = sharedStrings.index(dictionary.get(code));
+                indexes[code] = index < 0 ? -1 : index + 1;
+            }
+            if (indexes[code] > 0) {
+                startCell(column, 0, "s").append(indexes[code] - 1).append("</v></c>");
+            } else {
+                writeInline(column, dictionary.get(code), 0);
+            }
+        }
+
+        private void writeString(int column, String value, int style) throws IOException {
+            int index = sharedStrings.index(value);
+            if (index >= 0) {
+                startCell(column, style, "s").append(index).append("</v></c>");
+            } else {
+                writeInline(column, value, style);
+            }
+        }
+
+        private void writeInline(int column, String value, int style) {
+            appendCell(column, style, "inlineStr");
+            Xml.appendText(xml.append("><is>"), value).append("</is></c>");
+        }
+
+        /**
+         * Starts a cell and its {@code <v>} element.
+         */
+        private StringBuilder startCell(int column, int style, String type) {
+            appendCell(column, style, type);
+            return xml.append("><v>");
+        }
+
+        private void appendCell(int column, int style, String type) {
+            xml.append("<c r=\"").append(columnNames[column]).append(rowNumber).append('"');
+            if (style != 0) {
+                xml.append(" s=\"").append(style).append('"');
+            }
+            if (type != null) {
+                xml.append(" t=\"").append(type).append('"');
+            }
+        }
+
+        private void flush() throws IOException {
+            out.append(xml);
+            xml.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.ssc.pipeline.engine.sink;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.BiFunction;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses a block into one self-contained gzip member (RFC 1952). Blocks compressed
+ * independently can be appended one after another: a file of concatenated members is a valid
+ * gzip file that gunzip and {@link java.util.zip.GZIPInputStream} read as a single stream.
+ */
+final class GzipMember {
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int TRAILER_SIZE = 8;
+
+    private GzipMember() {
+    }
+
+    /**
+     * Upper bound of the compressed size of {@code length} bytes, so the output rarely grows.
+     */
+    static int maxSize(int length) {
+        return HEADER.length + length + (length >> 12) + (length >> 14) + 64 + TRAILER_SIZE;
+    }
+
+    /**
+     * Compresses the remaining bytes of {@code input} into {@code out} and returns the buffer
+     * holding the member, which is {@code out} unless {@code grow} had to replace it with a larger one.
+     */
+    static ByteBuffer compress(ByteBuffer input, int level, ByteBuffer out,
+                               BiFunction<ByteBuffer, Integer, ByteBuffer> grow) {
+        int length = input.remaining();
+        CRC32 crc = new CRC32();
+        crc.update(input.duplicate());
+        out.put(HEADER);
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (!out.hasRemaining()) {
+                    out = grow.apply(out, out.capacity());
+                }
+                deflater.deflate(out);
+            }
+        } finally {
+            deflater.end();
+        }
+        if (out.remaining() < TRAILER_SIZE) {
+            out = grow.apply(out, TRAILER_SIZE);
+        }
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt((int) crc.getValue());
+        out.putInt(length);
+        return out;
+    }
+}
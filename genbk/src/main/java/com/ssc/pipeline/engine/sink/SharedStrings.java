@@ -0,0 +1,74 @@
+package com.ssc.pipeline.engine.sink;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shared-strings table ({@code xl/sharedStrings.xml}) of a workbook that is being streamed.
+ * Entries go to a temporary file as they are first seen, so only the lookup map is held in
+ * memory, and that map is bounded: long strings and strings first seen after the table is full
+ * get no index and are written inline by the caller.
+ */
+final class SharedStrings implements Closeable {
+    private static final int MAX_LENGTH = 256;
+    private static final int MAX_ENTRIES = 1 << 18;
+    private static final long MAX_CHARS = 1 << 23;
+
+    private final Path file;
+    private final Writer out;
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final StringBuilder entry = new StringBuilder();
+    private long chars;
+    private long references;
+
+    SharedStrings(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.file = Files.createTempFile(directory, "shared-strings-", ".xml");
+        this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Index of the string in the table, adding it if there is room, or {@code -1} if it has to
+     * be written inline.
+     */
+    int index(String value) throws IOException {
+        Integer index = indexes.get(value);
+        if (index == null) {
+            if (value.length() > MAX_LENGTH || indexes.size() >= MAX_ENTRIES || chars + value.length() > MAX_CHARS) {
+                return -1;
+            }
+            index = indexes.size();
+            indexes.put(value, index);
+            chars += value.length();
+            entry.setLength(0);
+            Xml.appendText(entry.append("<si>"), value).append("</si>");
+            out.append(entry);
+        }
+        references++;
+        return index;
+    }
+
+    void writeTo(OutputStream target) throws IOException {
+        out.flush();
+        target.write((Xml.DECLARATION + "<sst xmlns=\"" + Xml.MAIN_NAMESPACE + "\" count=\"" + references
+            + "\" uniqueCount=\"" + indexes.size() + "\">").getBytes(StandardCharsets.UTF_8));
+        Files.copy(file, target);
+        target.write("</sst>".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.ssc.pipeline.engine.sink;
+
+/**
+ * SpreadsheetML text helpers.
+ */
+final class Xml {
+    static final String DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+    static final String MAIN_NAMESPACE = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    static final String RELATIONSHIP_NAMESPACE = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    // longest text Excel keeps in a cell
+    private static final int MAX_CELL_TEXT = 32767;
+
+    private Xml() {
+    }
+
+    /**
+     * Appends a {@code <t>} element holding the value, cut to what a cell can hold.
+     */
+    static StringBuilder appendText(StringBuilder out, CharSequence value) {
+        out.append("<t xml:space=\"preserve\">");
+        escape(out, value, Math.min(value.length(), MAX_CELL_TEXT));
+        return out.append("</t>");
+    }
+
+    /**
+     * Escapes markup characters and replaces characters XML 1.0 cannot carry, such as control
+     * characters and unpaired surrogates.
+     */
+    static StringBuilder escape(StringBuilder out, CharSequence value, int length) {
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&' -> out.append("&amp;");
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '"' -> out.append("&quot;");
+                case '\t', '\n', '\r' -> out.append(c);
+                default -> {
+                    if (c < 0x20 || c == 0xfffe || c == 0xffff) {
+                        out.append('\ufffd');
+                    } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                        out.append(c).append(value.charAt(++i));
+                    } else if (Character.isSurrogate(c)) {
+                        out.append('\ufffd');
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,246 @@
+package com.ssc.pipeline.engine.spill;
+
+import com.ssc.pipeline.engine.batch.BooleanVector;
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DoubleVector;
+import com.ssc.pipeline.engine.batch.IntVector;
+import com.ssc.pipeline.engine.batch.LongVector;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.batch.StringDictionary;
+import com.ssc.pipeline.engine.batch.StringVector;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Compact binary form of a {@link RowBatch}. Each batch is one length-prefixed frame holding the
+ * row count and, per column, an optional null bitmap followed by the primitive values written in
+ * bulk. String columns carry only the dictionary entries their rows use, then one code per row.
+ * The schema is not part of the frame; the reader supplies it. Instances reuse their buffers and
+ * are not thread-safe.
+ */
+public final class BatchSerializer {
+    private static final int HEADER_SIZE = 4;
+
+    private ByteBuffer buffer = allocate(1 << 16);
+    private final ByteBuffer header = allocate(HEADER_SIZE);
+    private int[] localCodes = new int[0];
+
+    public void write(RowBatch batch, WritableByteChannel channel) throws IOException {
+        int rows = batch.getRowCount();
+        buffer.clear();
+        buffer.putInt(0).putInt(rows);
+        for (ColumnVector column : batch.columns()) {
+            reserve(1 + 8L * words(rows));
+            writeNulls(column, rows);
+            switch (column.getType()) {
+                case BOOLEAN -> {
+                    reserve(rows);
+                    boolean[] values = ((BooleanVector) column).values();
+                    for (int row = 0; row < rows; row++) {
+                        buffer.put(values[row] ? (byte) 1 : 0);
+                    }
+                }
+                case INT, DATE -> {
+                    reserve(4L * rows);
+                    buffer.asIntBuffer().put(((IntVector) column).values(), 0, rows);
+                    buffer.position(buffer.position() + rows * 4);
+                }
+                case BIGINT, TIMESTAMP, DECIMAL -> {
+                    reserve(8L * rows);
+                    buffer.asLongBuffer().put(((LongVector) column).values(), 0, rows);
+                    buffer.position(buffer.position() + rows * 8);
+                }
+                case DOUBLE -> {
+                    reserve(8L * rows);
+                    buffer.asDoubleBuffer().put(((DoubleVector) column).values(), 0, rows);
+                    buffer.position(buffer.position() + rows * 8);
+                }
+                case STRING -> writeStrings((StringVector) column, rows);
+            }
+        }
+        buffer.putInt(0, buffer.position() - HEADER_SIZE);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Reads the next batch, or returns {@code null} at the end of the stream.
+     */
+    public RowBatch read(ReadableByteChannel channel, Schema schema) throws IOException {
+        header.clear();
+        if (!readFully(channel, header, true)) {
+            return null;
+        }
+        int size = header.flip().getInt();
+        ensureCapacity(size);
+        buffer.limit(size);
+        readFully(channel, buffer, false);
+        buffer.flip();
+
+        int rows = buffer.getInt();
+        RowBatch batch = RowBatch.allocate(schema, Math.max(rows, 1));
+        for (ColumnVector column : batch.columns()) {
+            boolean hasNulls = buffer.get() != 0;
+            long[] nulls = null;
+            if (hasNulls) {
+                nulls = new long[words(rows)];
+                buffer.asLongBuffer().get(nulls);
+                buffer.position(buffer.position() + nulls.length * 8);
+            }
+            switch (column.getType()) {
+                case BOOLEAN -> {
+                    boolean[] values = ((BooleanVector) column).values();
+                    for (int row = 0; row < rows; row++) {
+                        values[row] = buffer.get() != 0;
+                    }
+                }
+                case INT, DATE -> {
+                    buffer.asIntBuffer().get(((IntVector) column).values(), 0, rows);
+                    buffer.position(buffer.position() + rows * 4);
+                }
+                case BIGINT, TIMESTAMP, DECIMAL -> {
+                    buffer.asLongBuffer().get(((LongVector) column).values(), 0, rows);
+                    buffer.position(buffer.position() + rows * 8);
+                }
+                case DOUBLE -> {
+                    buffer.asDoubleBuffer().get(((DoubleVector) column).values(), 0, rows);
+                    buffer.position(buffer.position() + rows * 8);
+                }
+                case STRING -> readStrings((StringVector) column, rows, nulls);
+            }
+            if (nulls != null) {
+                for (int row = 0; row < rows; row++) {
+                    if ((nulls[row >>> 6] & (1L << row)) != 0) {
+                        column.setNull(row);
+                    }
+                }
+            }
+        }
+        batch.setRowCount(rows);
+        return batch;
+    }
+
+    private void writeNulls(ColumnVector column, int rows) {
+        if (!column.mayHaveNulls()) {
+            buffer.put((byte) 0);
+            return;
+        }
+        buffer.put((byte) 1);
+        for (int word = 0; word < words(rows); word++) {
+            long bits = 0;
+            int end = Math.min(rows, (word + 1) << 6);
+            for (int row = word << 6; row < end; row++) {
+                if (column.isNull(row)) {
+                    bits |= 1L << row;
+                }
+            }
+            buffer.putLong(bits);
+        }
+    }
+
+    /**
+     * Writes the dictionary entries used by non-null rows under dense local codes, then the
+     * local code of every row.
+     */
+    private void writeStrings(StringVector vector, int rows) throws IOException {
+        StringDictionary dictionary = vector.dictionary();
+        if (localCodes.length < dictionary.size()) {
+            localCodes = new int[Math.max(dictionary.size(), localCodes.length * 2)];
+        }
+        Arrays.fill(localCodes, 0, dictionary.size(), -1);
+        int[] codes = vector.codes();
+        reserve(4);
+        int countPosition = buffer.position();
+        buffer.putInt(0);
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            if (vector.isNull(row) || localCodes[codes[row]] >= 0) {
+                continue;
+            }
+            localCodes[codes[row]] = count++;
+            byte[] bytes = dictionary.get(codes[row]).getBytes(StandardCharsets.UTF_8);
+            reserve(4L + bytes.length);
+            buffer.putInt(bytes.length).put(bytes);
+        }
+        buffer.putInt(countPosition, count);
+        reserve(4L * rows);
+        for (int row = 0; row < rows; row++) {
+            buffer.putInt(vector.isNull(row) ? 0 : localCodes[codes[row]]);
+        }
+    }
+
+    private void readStrings(StringVector vector, int rows, long[] nulls) {
+        int count = buffer.getInt();
+        int[] mapped = new int[count];
+        StringDictionary dictionary = vector.dictionary();
+        byte[] bytes = new byte[64];
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getInt();
+            if (bytes.length < length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            buffer.get(bytes, 0, length);
+            mapped[i] = dictionary.encode(new String(bytes, 0, length, StandardCharsets.UTF_8));
+        }
+        for (int row = 0; row < rows; row++) {
+            int code = buffer.getInt();
+            if (nulls == null || (nulls[row >>> 6] & (1L << row)) == 0) {
+                vector.setCode(row, mapped[code]);
+            }
+        }
+    }
+
+    /**
+     * Grows the frame buffer, keeping what was written so far, until {@code bytes} more fit.
+     */
+    private void reserve(long bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        long required = buffer.position() + bytes;
+        if (required > Integer.MAX_VALUE - 8) {
+            throw new IOException("Row batch is too large to serialize");
+        }
+        ByteBuffer grown = allocate((int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, 2L * buffer.capacity())));
+        grown.put(buffer.flip());
+        buffer = grown;
+    }
+
+    private void ensureCapacity(int size) {
+        if (buffer.capacity() < size) {
+            buffer = allocate(Math.max(size, buffer.capacity() * 2));
+        }
+        buffer.clear();
+    }
+
+    private static boolean readFully(ReadableByteChannel channel, ByteBuffer target, boolean atBoundary)
+        throws IOException {
+        while (target.hasRemaining()) {
+            if (channel.read(target) < 0) {
+                if (atBoundary && target.position() == 0) {
+                    return false;
+                }
+                throw new EOFException("Truncated batch frame");
+            }
+        }
+        return true;
+    }
+
+    private static int words(int rows) {
+        return (rows + 63) >>> 6;
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,107 @@
+package com.ssc.pipeline.engine.spill;
+
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.operator.BatchOperator;
+import com.ssc.pipeline.exception.PipelineException;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Temporary file of row batches written by an operator that outgrew its memory budget. Batches
+ * are appended, then read back once in the same order; the file is deleted when it is closed.
+ */
+public final class SpillFile implements AutoCloseable {
+    private final Path path;
+    private final BatchSerializer serializer = new BatchSerializer();
+    private final LongAdder spilledBytes;
+    private FileChannel channel;
+    private long rowCount;
+    private boolean deleted;
+
+    private SpillFile(Path path, LongAdder spilledBytes) throws IOException {
+        this.path = path;
+        this.spilledBytes = spilledBytes;
+        this.channel = FileChannel.open(path, StandardOpenOption.WRITE);
+    }
+
+    public static SpillFile create(SpillOptions options, String prefix) {
+        try {
+            Files.createDirectories(options.directory());
+            return new SpillFile(Files.createTempFile(options.directory(), prefix, ".spill"), options.spilledBytes());
+        } catch (IOException e) {
+            throw new PipelineException("Cannot create spill file in " + options.directory() + ": " + e.getMessage(), e);
+        }
+    }
+
+    public long rowCount() {
+        return rowCount;
+    }
+
+    public void write(RowBatch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            long start = channel.position();
+            serializer.write(batch, channel);
+            rowCount += batch.getRowCount();
+            if (spilledBytes != null) {
+                spilledBytes.add(channel.position() - start);
+            }
+        } catch (IOException e) {
+            throw new PipelineException("Cannot write spill file " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Ends writing and streams the batches back. Closing the reader deletes the file.
+     */
+    public BatchOperator reader(Schema schema) {
+        try {
+            channel.close();
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new PipelineException("Cannot read spill file " + path + ": " + e.getMessage(), e);
+        }
+        return new BatchOperator() {
+            @Override
+            public Schema schema() {
+                return schema;
+            }
+
+            @Override
+            public RowBatch next() {
+                try {
+                    return deleted ? null : serializer.read(channel, schema);
+                } catch (IOException e) {
+                    throw new PipelineException("Cannot read spill file " + path + ": " + e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public void close() {
+                SpillFile.this.close();
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        if (deleted) {
+            return;
+        }
+        deleted = true;
+        try {
+            channel.close();
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // a leftover file in the spill directory is harmless
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.ssc.pipeline.engine.spill;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Where operators spill and how much memory each may hold before it does.
+ *
+ * @param memoryBudget bytes of state one operator instance keeps in memory
+ * @param spilledBytes counts the bytes written to spill files, {@code null} to count nothing
+ */
+public record SpillOptions(Path directory, long memoryBudget, LongAdder spilledBytes) {
+    public SpillOptions(Path directory, long memoryBudget) {
+        this(directory, memoryBudget, null);
+    }
+
+    public SpillOptions countingInto(LongAdder spilledBytes) {
+        return new SpillOptions(directory, memoryBudget, spilledBytes);
+    }
+}
@@ -0,0 +1,115 @@
+package com.ssc.pipeline.engine.stats;
+
+import com.ssc.pipeline.engine.graph.NodeType;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of one node in a run, summed over every instance of the node. A node that feeds
+ * several consumers is instantiated once per consumer, so its rows out count each copy.
+ */
+public final class NodeStats {
+    private final String nodeId;
+    private final String label;
+    private final NodeType type;
+    private final RunStats.BatchListener listener;
+    private final LongAdder rowsIn = new LongAdder();
+    private final LongAdder rowsOut = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    // System.nanoTime() of the first pull and of the last batch, 0 until then
+    private final AtomicLong firstNanos = new AtomicLong();
+    private volatile long lastNanos;
+    private volatile boolean reused;
+
+    NodeStats(String nodeId, String label, NodeType type, RunStats.BatchListener listener) {
+        this.nodeId = nodeId;
+        this.label = label;
+        this.type = type;
+        this.listener = listener;
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public NodeType type() {
+        return type;
+    }
+
+    public long rowsIn() {
+        return rowsIn.sum();
+    }
+
+    public long rowsOut() {
+        return rowsOut.sum();
+    }
+
+    public long batches() {
+        return batches.sum();
+    }
+
+    public long bytesRead() {
+        return bytesRead.sum();
+    }
+
+    public long bytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    public boolean reused() {
+        return reused;
+    }
+
+    /**
+     * Rows out per second between the node's first pull and its last batch.
+     */
+    public double rowsPerSecond() {
+        long first = firstNanos.get();
+        long elapsed = lastNanos - first;
+        return first == 0 || elapsed <= 0 ? 0 : rowsOut.sum() * 1e9 / elapsed;
+    }
+
+    public void started(long nanos) {
+        firstNanos.compareAndSet(0, nanos);
+    }
+
+    /**
+     * A batch of the node came out after {@code nanos} spent producing it, its inputs included.
+     */
+    public void batch(int rows, long nanos) {
+        rowsOut.add(rows);
+        batches.increment();
+        lastNanos = System.nanoTime();
+        if (listener != null) {
+            listener.batch(type, nanos);
+        }
+    }
+
+    public void rowsIn(int rows) {
+        rowsIn.add(rows);
+    }
+
+    public void bytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    /**
+     * An output node finished writing {@code rows} rows into a file of {@code bytes} bytes.
+     */
+    public void written(long rows, long bytes) {
+        rowsOut.add(rows);
+        bytesWritten.add(bytes);
+        lastNanos = System.nanoTime();
+    }
+
+    public void markReused() {
+        reused = true;
+    }
+}
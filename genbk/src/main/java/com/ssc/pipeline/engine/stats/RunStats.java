@@ -0,0 +1,86 @@
+package com.ssc.pipeline.engine.stats;
+
+import com.ssc.pipeline.engine.PipelineRunStats;
+import com.ssc.pipeline.engine.graph.NodeType;
+import com.ssc.pipeline.engine.graph.PipelineNode;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters of one pipeline run, per node and for the run as a whole. Operators update
+ * them while the run streams, so a snapshot can be taken at any time from any thread.
+ */
+public final class RunStats {
+    private final BatchListener listener;
+    private final Map<String, NodeStats> nodes = new LinkedHashMap<>();
+    private final LongAdder spilledBytes = new LongAdder();
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos;
+
+    /**
+     * Told the latency of every batch a node produces, on the thread that produced it.
+     */
+    @FunctionalInterface
+    public interface BatchListener {
+        void batch(NodeType type, long nanos);
+    }
+
+    public RunStats() {
+        this(null);
+    }
+
+    public RunStats(BatchListener listener) {
+        this.listener = listener;
+    }
+
+    public synchronized NodeStats node(PipelineNode node) {
+        return nodes.computeIfAbsent(node.getId(),
+            id -> new NodeStats(id, node.getLabel(), node.getType(), listener));
+    }
+
+    public synchronized List<NodeStats> nodes() {
+        return new ArrayList<>(nodes.values());
+    }
+
+    /**
+     * Bytes the run's joins and groups wrote to spill files.
+     */
+    public LongAdder spilledBytes() {
+        return spilledBytes;
+    }
+
+    public void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public long elapsedNanos() {
+        long end = endNanos;
+        return (end == 0 ? System.nanoTime() : end) - startNanos;
+    }
+
+    public PipelineRunStats snapshot() {
+        PipelineRunStats snapshot = new PipelineRunStats();
+        snapshot.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos()));
+        snapshot.setSpilledBytes(spilledBytes.sum());
+        for (NodeStats node : nodes()) {
+            PipelineRunStats.NodeStat stat = new PipelineRunStats.NodeStat();
+            stat.setNodeId(node.nodeId());
+            stat.setLabel(node.label());
+            stat.setType(node.type().getComponentName());
+            stat.setRowsIn(node.rowsIn());
+            stat.setRowsOut(node.rowsOut());
+            stat.setBatches(node.batches());
+            stat.setBytesRead(node.bytesRead());
+            stat.setBytesWritten(node.bytesWritten());
+            stat.setRowsPerSecond(node.rowsPerSecond());
+            stat.setReused(node.reused());
+            snapshot.getNodes().add(stat);
+        }
+        return snapshot;
+    }
+}
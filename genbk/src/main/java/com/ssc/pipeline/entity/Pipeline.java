@@ -1,6 +1,7 @@
 package com.ssc.pipeline.entity;
 
 import com.ssc.auth.entitlement.entity.BaseEntity;
+import com.ssc.pipeline.entity.enums.PipelineStatus;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
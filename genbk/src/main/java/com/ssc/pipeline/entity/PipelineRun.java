@@ -0,0 +1,76 @@
+package com.ssc.pipeline.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.ssc.auth.entitlement.entity.BaseEntity;
+import com.ssc.auth.entitlement.entity.enums.OwnerType;
+import com.ssc.pipeline.entity.enums.RunStatus;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "GEN_PIPELINE_RUN", indexes = {
+    @Index(name = "idx_pipeline_run_status", columnList = "status"),
+    @Index(name = "idx_pipeline_run_pipeline", columnList = "pipeline_id")
+})
+@EqualsAndHashCode(callSuper = true)
+public class PipelineRun extends BaseEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "pipeline_id", nullable = false)
+    private Long pipelineId;
+
+    @Column(name = "requested_by", nullable = false)
+    private Long requestedBy;
+
+    // owner whose concurrency quota the run counts against
+    @Column(name = "owner_type", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private OwnerType ownerType;
+
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+
+    // runs of published pipelines are dispatched ahead of drafts
+    @Column(nullable = false)
+    private boolean published;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private RunStatus status;
+
+    @Column(name = "submitted_at", nullable = false)
+    private LocalDateTime submittedAt;
+
+    // instance whose queue holds the run or that executes it, for as long as it renews the lease
+    @Column(name = "instance_id", length = 64)
+    private String instanceId;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "error_message", length = 2000)
+    private String errorMessage;
+
+    // PipelineRunResult as JSON once the run succeeded
+    @JsonRawValue
+    @Column(columnDefinition = "TEXT")
+    private String result;
+
+    // PipelineRunStats as JSON once the run finished, served by the run's stats endpoint
+    @JsonIgnore
+    @Column(columnDefinition = "TEXT")
+    private String stats;
+}
@@ -0,0 +1,54 @@
+package com.ssc.pipeline.entity;
+
+import com.ssc.auth.entitlement.entity.BaseEntity;
+import com.ssc.pipeline.entity.enums.MisfirePolicy;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "GEN_PIPELINE_SCHEDULE")
+@EqualsAndHashCode(callSuper = true)
+public class PipelineSchedule extends BaseEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "pipeline_id", nullable = false, unique = true)
+    private Long pipelineId;
+
+    // Spring cron format: second minute hour day-of-month month day-of-week
+    @Column(name = "cron_expression", nullable = false)
+    private String cronExpression;
+
+    // zone the cron expression is read in, the server's zone if null
+    @Column(name = "time_zone")
+    private String timeZone;
+
+    @Column(name = "misfire_policy", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private MisfirePolicy misfirePolicy;
+
+    @Column(nullable = false)
+    private boolean enabled = true;
+
+    // user whose permissions the scheduled runs are submitted with
+    @Column(name = "run_as_user_id", nullable = false)
+    private Long runAsUserId;
+
+    @Column(name = "next_fire_at")
+    private LocalDateTime nextFireAt;
+
+    @Column(name = "last_fire_at")
+    private LocalDateTime lastFireAt;
+
+    @Column(name = "last_run_id")
+    private Long lastRunId;
+
+    // why the last fire did not start a run
+    @Column(name = "last_error", length = 2000)
+    private String lastError;
+}
@@ -0,0 +1,85 @@
+package com.ssc.pipeline.entity;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.ssc.auth.entitlement.entity.BaseEntity;
+import com.ssc.pipeline.entity.enums.UploadStatus;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Entity
+@Table(name = "GEN_PIPELINE_UPLOAD")
+@EqualsAndHashCode(callSuper = true)
+public class PipelineUpload extends BaseEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "uploaded_by", nullable = false)
+    private Long uploadedBy;
+
+    @Column(name = "file_name", nullable = false)
+    private String fileName;
+
+    @Column(nullable = false)
+    private long size;
+
+    // every chunk but the last has exactly this many bytes
+    @Column(name = "chunk_size", nullable = false)
+    private long chunkSize;
+
+    @Column(name = "chunk_count", nullable = false)
+    private int chunkCount;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private UploadStatus status;
+
+    // relative to pipeline.engine.work-dir, as a File Uploader node's path
+    @Column(length = 1000)
+    private String path;
+
+    // CSV options of the reader the upload is for, as on a CSVReader node; the row count and
+    // columns are sniffed with them and only hold for a reader with the same options
+    @Column(name = "has_header", nullable = false)
+    private boolean hasHeader = true;
+
+    @Column(name = "skip_rows", nullable = false)
+    private int skipRows;
+
+    @Column(length = 1)
+    private String delimiter = ",";
+
+    @Column(length = 1)
+    private String quote = "\"";
+
+    @Column(length = 1)
+    private String escape = "\"";
+
+    @Column(length = 50)
+    private String encoding = "utf-8";
+
+    @Column(name = "multi_line", nullable = false)
+    private boolean multiLine;
+
+    // null while the upload is in progress, or when the skipped rows could not be told apart
+    @Column(name = "row_count")
+    private Long rowCount;
+
+    // [{name, dataType}] like a CSVReader's Columns tab, once the upload completed
+    @JsonRawValue
+    @Column(columnDefinition = "TEXT")
+    private String columns;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    // indexes of the chunks stored so far, for a client resuming the upload
+    @Transient
+    private List<Integer> receivedChunks = new ArrayList<>();
+}
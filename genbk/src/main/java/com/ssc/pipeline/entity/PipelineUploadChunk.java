@@ -0,0 +1,35 @@
+package com.ssc.pipeline.entity;
+
+import com.ssc.auth.entitlement.entity.BaseEntity;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+@Data
+@Entity
+@Table(name = "GEN_PIPELINE_UPLOAD_CHUNK", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_upload_chunk", columnNames = {"upload_id", "chunk_index"})
+})
+@EqualsAndHashCode(callSuper = true)
+public class PipelineUploadChunk extends BaseEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "upload_id", nullable = false)
+    private Long uploadId;
+
+    @Column(name = "chunk_index", nullable = false)
+    private int chunkIndex;
+
+    @Column(nullable = false)
+    private long size;
+
+    // SHA-256 of the chunk, hex
+    @Column(nullable = false, length = 64)
+    private String checksum;
+
+    // CsvSniffer.scan of the chunk, comma separated
+    @Column(nullable = false, length = 500)
+    private String scan;
+}
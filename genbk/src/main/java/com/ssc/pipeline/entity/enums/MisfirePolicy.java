@@ -0,0 +1,10 @@
+package com.ssc.pipeline.entity.enums;
+
+/**
+ * What a schedule does about fire times missed while the application was down or busy. Missed
+ * fires of one schedule are always coalesced into at most one run.
+ */
+public enum MisfirePolicy {
+    RUN_ONCE,
+    SKIP
+}
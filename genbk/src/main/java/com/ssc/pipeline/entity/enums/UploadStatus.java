@@ -0,0 +1,6 @@
+package com.ssc.pipeline.entity.enums;
+
+public enum UploadStatus {
+    UPLOADING,
+    COMPLETED
+}
@@ -4,4 +4,8 @@ public class PipelineException extends RuntimeException {
     public PipelineException(String message) {
         super(message);
     }
-} 
\ No newline at end of file
+
+    public PipelineException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,13 +1,40 @@
 package com.ssc.pipeline.repository;
 
+import com.ssc.pipeline.dto.PipelineSummary;
 import com.ssc.pipeline.entity.Pipeline;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
 public interface PipelineRepository extends JpaRepository<Pipeline, Long> {
+    String SUMMARY = "select new com.ssc.pipeline.dto.PipelineSummary(p.id, p.name, p.description, p.status, "
+        + "r.ownerType, r.ownerId, p.createdAt, p.updatedAt) "
+        + "from Resource r join Pipeline p on p.id = r.resourceId "
+        + "where r.resourceType = com.ssc.auth.entitlement.entity.enums.ResourceType.PIPELINE and p.id > :afterId ";
+
     List<Pipeline> findByOwnerId(Long ownerId);
     boolean existsByNameAndOwnerId(String name, Long ownerId);
-} 
\ No newline at end of file
+
+    /**
+     * Pipelines the user owns or that belong to one of the user's groups, after {@code afterId}
+     * in id order.
+     */
+    @Query(SUMMARY
+        + "and ((r.ownerType = com.ssc.auth.entitlement.entity.enums.OwnerType.USER and r.ownerId = :userId) "
+        + "or (r.ownerType = com.ssc.auth.entitlement.entity.enums.OwnerType.GROUP and r.ownerId in "
+        + "(select ugr.userGroup.groupId from UserGroupRole ugr where ugr.user.id = :userId))) "
+        + "order by p.id")
+    List<PipelineSummary> findUserSummaries(@Param("userId") Long userId, @Param("afterId") Long afterId,
+                                            Pageable page);
+
+    @Query(SUMMARY
+        + "and r.ownerType = com.ssc.auth.entitlement.entity.enums.OwnerType.GROUP and r.ownerId = :groupId "
+        + "order by p.id")
+    List<PipelineSummary> findGroupSummaries(@Param("groupId") Long groupId, @Param("afterId") Long afterId,
+                                             Pageable page);
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.ssc.pipeline.repository;
+
+import com.ssc.pipeline.entity.PipelineRun;
+import com.ssc.pipeline.entity.enums.RunStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PipelineRunRepository extends JpaRepository<PipelineRun, Long> {
+    List<PipelineRun> findByStatusAndInstanceIdOrderByIdAsc(RunStatus status, String instanceId);
+
+    @Query("select r from PipelineRun r where r.status = com.ssc.pipeline.entity.enums.RunStatus.QUEUED "
+        + "and (r.leaseUntil is null or r.leaseUntil < :now) order by r.id")
+    List<PipelineRun> findQueuedWithExpiredLease(@Param("now") LocalDateTime now);
+
+    boolean existsByPipelineIdAndStatusIn(Long pipelineId, Collection<RunStatus> statuses);
+
+    // the updates below are conditional on the row's status and owner, so two instances never both win
+
+    @Transactional
+    @Modifying
+    @Query("update PipelineRun r set r.status = com.ssc.pipeline.entity.enums.RunStatus.RUNNING, "
+        + "r.startedAt = :now where r.id = :id and r.instanceId = :instanceId "
+        + "and r.status = com.ssc.pipeline.entity.enums.RunStatus.QUEUED")
+    int claim(@Param("id") Long id, @Param("instanceId") String instanceId, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("update PipelineRun r set r.status = com.ssc.pipeline.entity.enums.RunStatus.CANCELLED, "
+        + "r.finishedAt = :now where r.id = :id and r.status = com.ssc.pipeline.entity.enums.RunStatus.QUEUED")
+    int cancelQueued(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // takes over a queued run of this instance before a restart, or of an instance whose lease ran out
+    @Transactional
+    @Modifying
+    @Query("update PipelineRun r set r.instanceId = :instanceId, r.leaseUntil = :leaseUntil "
+        + "where r.id = :id and r.status = com.ssc.pipeline.entity.enums.RunStatus.QUEUED "
+        + "and (r.instanceId = :instanceId or r.leaseUntil is null or r.leaseUntil < :now)")
+    int adopt(@Param("id") Long id, @Param("instanceId") String instanceId, @Param("now") LocalDateTime now,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query("update PipelineRun r set r.leaseUntil = :leaseUntil where r.instanceId = :instanceId "
+        + "and r.status in (com.ssc.pipeline.entity.enums.RunStatus.QUEUED, "
+        + "com.ssc.pipeline.entity.enums.RunStatus.RUNNING)")
+    int renewLeases(@Param("instanceId") String instanceId, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query("update PipelineRun r set r.status = com.ssc.pipeline.entity.enums.RunStatus.FAILED, "
+        + "r.errorMessage = :error, r.finishedAt = :now "
+        + "where r.status = com.ssc.pipeline.entity.enums.RunStatus.RUNNING and r.instanceId = :instanceId")
+    int failRunning(@Param("instanceId") String instanceId, @Param("now") LocalDateTime now,
+                    @Param("error") String error);
+
+    @Transactional
+    @Modifying
+    @Query("update PipelineRun r set r.status = com.ssc.pipeline.entity.enums.RunStatus.FAILED, "
+        + "r.errorMessage = :error, r.finishedAt = :now "
+        + "where r.status = com.ssc.pipeline.entity.enums.RunStatus.RUNNING "
+        + "and (r.leaseUntil is null or r.leaseUntil < :now)")
+    int failExpired(@Param("now") LocalDateTime now, @Param("error") String error);
+}
@@ -0,0 +1,35 @@
+package com.ssc.pipeline.repository;
+
+import com.ssc.pipeline.entity.PipelineSchedule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PipelineScheduleRepository extends JpaRepository<PipelineSchedule, Long> {
+    Optional<PipelineSchedule> findByPipelineId(Long pipelineId);
+
+    List<PipelineSchedule> findByEnabledTrue();
+
+    void deleteByPipelineId(Long pipelineId);
+
+    // touches only what a fire changes, so it cannot undo an edit of the schedule made meanwhile
+    @Transactional
+    @Modifying
+    @Query("update PipelineSchedule s set s.lastFireAt = :firedAt, s.lastRunId = :runId, "
+        + "s.lastError = :error, s.nextFireAt = :nextFireAt "
+        + "where s.id = :id and s.cronExpression = :cronExpression")
+    int recordFire(@Param("id") Long id,
+                   @Param("cronExpression") String cronExpression,
+                   @Param("firedAt") LocalDateTime firedAt,
+                   @Param("runId") Long runId,
+                   @Param("error") String error,
+                   @Param("nextFireAt") LocalDateTime nextFireAt);
+}
@@ -0,0 +1,22 @@
+package com.ssc.pipeline.repository;
+
+import com.ssc.pipeline.entity.PipelineUploadChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PipelineUploadChunkRepository extends JpaRepository<PipelineUploadChunk, Long> {
+    List<PipelineUploadChunk> findByUploadIdOrderByChunkIndexAsc(Long uploadId);
+
+    Optional<PipelineUploadChunk> findByUploadIdAndChunkIndex(Long uploadId, int chunkIndex);
+
+    @Query("select c.chunkIndex from PipelineUploadChunk c where c.uploadId = :uploadId order by c.chunkIndex")
+    List<Integer> findChunkIndexes(@Param("uploadId") Long uploadId);
+
+    void deleteByUploadId(Long uploadId);
+}
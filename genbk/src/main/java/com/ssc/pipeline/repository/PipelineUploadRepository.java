@@ -0,0 +1,9 @@
+package com.ssc.pipeline.repository;
+
+import com.ssc.pipeline.entity.PipelineUpload;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PipelineUploadRepository extends JpaRepository<PipelineUpload, Long> {
+}
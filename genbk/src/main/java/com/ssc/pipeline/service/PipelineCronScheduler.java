@@ -0,0 +1,228 @@
+package com.ssc.pipeline.service;
+
+import com.ssc.pipeline.entity.Pipeline;
+import com.ssc.pipeline.entity.PipelineSchedule;
+import com.ssc.pipeline.entity.enums.MisfirePolicy;
+import com.ssc.pipeline.entity.enums.PipelineStatus;
+import com.ssc.pipeline.entity.enums.RunStatus;
+import com.ssc.pipeline.repository.PipelineRepository;
+import com.ssc.pipeline.repository.PipelineRunRepository;
+import com.ssc.pipeline.repository.PipelineScheduleRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Fires pipeline schedules on this node. The next fire time of every enabled schedule sits in a
+ * queue ordered by time, and one thread sleeps until the earliest is due or a schedule changes;
+ * the database is read only when something fires. A schedule has at most one pending fire, so
+ * the fire times it missed while the application was down collapse into one, which its
+ * {@link MisfirePolicy} then runs or skips, and a fire that finds the previous run of its
+ * pipeline still queued or running starts nothing.
+ */
+@Component
+public class PipelineCronScheduler implements SmartInitializingSingleton, DisposableBean {
+    private static final Set<RunStatus> ACTIVE = EnumSet.of(RunStatus.QUEUED, RunStatus.RUNNING);
+    private static final long RETRY_MILLIS = 60_000;
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final PipelineScheduleRepository scheduleRepository;
+    private final PipelineRepository pipelineRepository;
+    private final PipelineRunRepository runRepository;
+    private final PipelineService pipelineService;
+    private final long misfireThresholdMillis;
+
+    private final PriorityQueue<Fire> queue = new PriorityQueue<>(Comparator.comparingLong(Fire::at));
+    // schedule id -> its pending fire; queued fires not in here were superseded
+    private final Map<Long, Fire> pending = new HashMap<>();
+    private Thread thread;
+    private boolean stopped;
+
+    private record Fire(Long scheduleId, long at) {
+    }
+
+    public PipelineCronScheduler(PipelineScheduleRepository scheduleRepository,
+                                 PipelineRepository pipelineRepository,
+                                 PipelineRunRepository runRepository,
+                                 PipelineService pipelineService,
+                                 @Value("${pipeline.schedule.misfire-threshold-seconds:60}") long misfireThresholdSeconds) {
+        this.scheduleRepository = scheduleRepository;
+        this.pipelineRepository = pipelineRepository;
+        this.runRepository = runRepository;
+        this.pipelineService = pipelineService;
+        this.misfireThresholdMillis = misfireThresholdSeconds * 1000;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (PipelineSchedule schedule : scheduleRepository.findByEnabledTrue()) {
+            if (schedule.getNextFireAt() == null) {
+                schedule.setNextFireAt(nextFireTime(schedule, Instant.now()));
+                scheduleRepository.save(schedule);
+            }
+            enqueue(schedule);
+        }
+        synchronized (this) {
+            thread = new Thread(this::loop, "pipeline-cron");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        stopped = true;
+        notifyAll();
+    }
+
+    /**
+     * First time after {@code after} that the schedule fires, in the server's zone, or
+     * {@code null} if its expression never matches again.
+     */
+    public static LocalDateTime nextFireTime(PipelineSchedule schedule, Instant after) {
+        ZoneId zone = schedule.getTimeZone() == null ? ZoneId.systemDefault() : ZoneId.of(schedule.getTimeZone());
+        ZonedDateTime next = CronExpression.parse(schedule.getCronExpression()).next(after.atZone(zone));
+        return next == null ? null : LocalDateTime.ofInstant(next.toInstant(), ZoneId.systemDefault());
+    }
+
+    /**
+     * Replaces the pending fire of a saved schedule once the current transaction commits.
+     */
+    public void scheduleChanged(PipelineSchedule schedule) {
+        afterCommit(() -> enqueue(schedule));
+    }
+
+    public void scheduleRemoved(Long scheduleId) {
+        afterCommit(() -> {
+            synchronized (this) {
+                pending.remove(scheduleId);
+                notifyAll();
+            }
+        });
+    }
+
+    private synchronized void enqueue(PipelineSchedule schedule) {
+        if (!schedule.isEnabled() || schedule.getNextFireAt() == null) {
+            pending.remove(schedule.getId());
+        } else {
+            push(new Fire(schedule.getId(), schedule.getNextFireAt().atZone(ZoneId.systemDefault()).toInstant()
+                .toEpochMilli()));
+        }
+        notifyAll();
+    }
+
+    private void push(Fire fire) {
+        pending.put(fire.scheduleId(), fire);
+        queue.add(fire);
+    }
+
+    private void loop() {
+        while (true) {
+            Fire due = take();
+            if (due == null) {
+                return;
+            }
+            try {
+                fire(due);
+            } catch (RuntimeException e) {
+                // most likely the database is unreachable; try again later unless the schedule changed meanwhile
+                synchronized (this) {
+                    if (!pending.containsKey(due.scheduleId())) {
+                        push(new Fire(due.scheduleId(), System.currentTimeMillis() + RETRY_MILLIS));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for the next due fire; {@code null} once the scheduler is stopped.
+     */
+    private synchronized Fire take() {
+        while (!stopped) {
+            Fire head = queue.peek();
+            if (head != null && pending.get(head.scheduleId()) != head) {
+                queue.poll();
+                continue;
+            }
+            long wait = head == null ? 0 : head.at() - System.currentTimeMillis();
+            if (head != null && wait <= 0) {
+                queue.poll();
+                pending.remove(head.scheduleId());
+                return head;
+            }
+            try {
+                wait(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private void fire(Fire due) {
+        PipelineSchedule schedule = scheduleRepository.findById(due.scheduleId()).orElse(null);
+        Pipeline pipeline = schedule == null ? null : pipelineRepository.findById(schedule.getPipelineId()).orElse(null);
+        if (pipeline == null || !schedule.isEnabled()) {
+            return;
+        }
+        Instant now = Instant.now();
+        Long runId = schedule.getLastRunId();
+        String error = null;
+        if (pipeline.getStatus() != PipelineStatus.PUBLISHED) {
+            error = "Pipeline is not published";
+        } else if (now.toEpochMilli() - due.at() > misfireThresholdMillis
+            && schedule.getMisfirePolicy() == MisfirePolicy.SKIP) {
+            error = "Missed fire time skipped";
+        } else if (runRepository.existsByPipelineIdAndStatusIn(pipeline.getId(), ACTIVE)) {
+            error = "Previous run still in progress";
+        } else {
+            try {
+                runId = pipelineService.submitRun(pipeline.getId(), schedule.getRunAsUserId()).getId();
+            } catch (RuntimeException e) {
+                String message = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+                error = message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+            }
+        }
+        schedule.setNextFireAt(nextFireTime(schedule, now));
+        int updated = scheduleRepository.recordFire(schedule.getId(), schedule.getCronExpression(),
+            LocalDateTime.ofInstant(now, ZoneId.systemDefault()), runId, error, schedule.getNextFireAt());
+        // if the expression was edited meanwhile, the edit has already queued its own next fire
+        if (updated > 0) {
+            synchronized (this) {
+                if (!pending.containsKey(schedule.getId())) {
+                    enqueue(schedule);
+                }
+            }
+        }
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,375 @@
+package com.ssc.pipeline.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ssc.auth.entitlement.entity.enums.OwnerType;
+import com.ssc.pipeline.engine.PipelineExecutor;
+import com.ssc.pipeline.engine.PipelineRunStats;
+import com.ssc.pipeline.engine.stats.RunStats;
+import com.ssc.pipeline.entity.Pipeline;
+import com.ssc.pipeline.entity.PipelineRun;
+import com.ssc.pipeline.entity.enums.PipelineStatus;
+import com.ssc.pipeline.entity.enums.RunStatus;
+import com.ssc.pipeline.exception.PipelineException;
+import com.ssc.pipeline.repository.PipelineRepository;
+import com.ssc.pipeline.repository.PipelineRunRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queues pipeline runs and starts them on the run pool, never more at once than the pool has
+ * threads and never more per owning group (or user) than its quota. Runs of published pipelines
+ * wait in their own lane and go first, but after {@link #PUBLISHED_BURST} of them in a row a
+ * waiting draft run is started, so drafts are not starved. Every state change is written to
+ * {@code GEN_PIPELINE_RUN}.
+ *
+ * <p>Each queued or running run belongs to the instance that holds it, which renews a lease on
+ * its runs every third of {@code pipeline.scheduler.lease-seconds}. A run is started only if a
+ * conditional update moves it from queued to running for its owner, so no run executes twice.
+ * On startup an instance fails the runs it was executing and takes its queued runs back; runs
+ * of an instance whose lease ran out are failed, or taken over if still queued, by the others.
+ * Without a configured {@code pipeline.scheduler.instance-id} every start is a new instance,
+ * and its earlier runs are recovered once their lease runs out.
+ *
+ * <p>Queue depth per lane and the number of runs executing are published as gauges. While a
+ * run executes its {@link RunStats} are kept here for the stats endpoint, and when it ends a
+ * snapshot is stored with the run.
+ */
+@Slf4j
+@Component
+public class PipelineRunScheduler implements SmartInitializingSingleton, DisposableBean {
+    private static final int PUBLISHED_BURST = 4;
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final PipelineRunRepository runRepository;
+    private final PipelineRepository pipelineRepository;
+    private final PipelineExecutor pipelineExecutor;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolExecutor runPool;
+    private final MeterRegistry meterRegistry;
+    private final int ownerConcurrency;
+    private final int queueCapacity;
+    private final String instanceId;
+    private final long leaseSeconds;
+    private ScheduledExecutorService heartbeat;
+
+    private final ArrayDeque<Queued> publishedLane = new ArrayDeque<>();
+    private final ArrayDeque<Queued> draftLane = new ArrayDeque<>();
+    private final Map<String, Integer> runningByOwner = new HashMap<>();
+    private final Map<Long, Thread> runningThreads = new HashMap<>();
+    private final Set<Long> starting = new HashSet<>();
+    private final Set<Long> cancelRequested = new HashSet<>();
+    private final Map<Long, RunStats> liveStats = new ConcurrentHashMap<>();
+    private int publishedInARow;
+
+    private record Queued(Long runId, Long pipelineId, String owner, boolean published) {
+    }
+
+    public PipelineRunScheduler(PipelineRunRepository runRepository,
+                                PipelineRepository pipelineRepository,
+                                PipelineExecutor pipelineExecutor,
+                                ObjectMapper objectMapper,
+                                @Qualifier("pipelineRunPool") ThreadPoolExecutor runPool,
+                                MeterRegistry meterRegistry,
+                                @Value("${pipeline.scheduler.owner-concurrency:2}") int ownerConcurrency,
+                                @Value("${pipeline.scheduler.queue-capacity:1000}") int queueCapacity,
+                                @Value("${pipeline.scheduler.instance-id:}") String instanceId,
+                                @Value("${pipeline.scheduler.lease-seconds:60}") long leaseSeconds) {
+        this.runRepository = runRepository;
+        this.pipelineRepository = pipelineRepository;
+        this.pipelineExecutor = pipelineExecutor;
+        this.objectMapper = objectMapper;
+        this.runPool = runPool;
+        this.meterRegistry = meterRegistry;
+        this.ownerConcurrency = Math.max(1, ownerConcurrency);
+        this.queueCapacity = queueCapacity;
+        this.instanceId = instanceId == null || instanceId.isBlank() ? UUID.randomUUID().toString() : instanceId;
+        this.leaseSeconds = Math.max(3, leaseSeconds);
+        Gauge.builder("pipeline.runs.queued", this, scheduler -> scheduler.queued(true))
+            .tag("lane", "published").register(meterRegistry);
+        Gauge.builder("pipeline.runs.queued", this, scheduler -> scheduler.queued(false))
+            .tag("lane", "draft").register(meterRegistry);
+        Gauge.builder("pipeline.runs.active", this, PipelineRunScheduler::active).register(meterRegistry);
+    }
+
+    private synchronized int queued(boolean published) {
+        return (published ? publishedLane : draftLane).size();
+    }
+
+    private synchronized int active() {
+        return runningThreads.size() + starting.size();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        runRepository.failRunning(instanceId, LocalDateTime.now(), "Interrupted by a restart");
+        recover(true);
+        heartbeat = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "pipeline-run-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = leaseSeconds / 3;
+        heartbeat.scheduleWithFixedDelay(this::renew, period, period, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+        }
+    }
+
+    private void renew() {
+        try {
+            runRepository.renewLeases(instanceId, LocalDateTime.now().plusSeconds(leaseSeconds));
+            recover(false);
+        } catch (RuntimeException e) {
+            // an exception would cancel the schedule; the next renewal tries again
+            log.warn("Cannot renew the leases of pipeline runs", e);
+        }
+    }
+
+    /**
+     * Fails the running runs whose lease ran out and takes over the queued ones, and on startup
+     * the queued runs this instance held before.
+     */
+    private void recover(boolean startup) {
+        LocalDateTime now = LocalDateTime.now();
+        runRepository.failExpired(now, "Abandoned by a stopped instance");
+        List<PipelineRun> candidates = new ArrayList<>(runRepository.findQueuedWithExpiredLease(now));
+        if (startup) {
+            candidates.addAll(runRepository.findByStatusAndInstanceIdOrderByIdAsc(RunStatus.QUEUED, instanceId));
+        }
+        List<PipelineRun> adopted = new ArrayList<>();
+        for (PipelineRun run : candidates) {
+            if (runRepository.adopt(run.getId(), instanceId, now, now.plusSeconds(leaseSeconds)) == 1) {
+                adopted.add(run);
+            }
+        }
+        synchronized (this) {
+            adopted.forEach(this::enqueue);
+            dispatch();
+        }
+    }
+
+    /**
+     * Records a queued run of the pipeline and starts it as soon as a slot and the owner's quota
+     * allow. Must not be called inside a transaction: the row has to be visible to the run pool.
+     */
+    public PipelineRun submit(Pipeline pipeline, OwnerType ownerType, Long ownerId, Long userId) {
+        // checked without holding the lock across the insert, so concurrent submits may overshoot slightly
+        synchronized (this) {
+            if (publishedLane.size() + draftLane.size() >= queueCapacity) {
+                throw new PipelineException("Too many queued runs, try again later");
+            }
+        }
+        PipelineRun run = new PipelineRun();
+        run.setPipelineId(pipeline.getId());
+        run.setRequestedBy(userId);
+        run.setOwnerType(ownerType);
+        run.setOwnerId(ownerId);
+        run.setPublished(pipeline.getStatus() == PipelineStatus.PUBLISHED);
+        run.setStatus(RunStatus.QUEUED);
+        run.setSubmittedAt(LocalDateTime.now());
+        run.setInstanceId(instanceId);
+        run.setLeaseUntil(run.getSubmittedAt().plusSeconds(leaseSeconds));
+        run = runRepository.save(run);
+        meterRegistry.counter("pipeline.runs.submitted", "lane", run.isPublished() ? "published" : "draft").increment();
+        synchronized (this) {
+            enqueue(run);
+            dispatch();
+        }
+        return run;
+    }
+
+    /**
+     * Cancels a queued run at once; a running one is interrupted and recorded as cancelled when
+     * it stops. Returns {@code false} if the run already finished or is not held by this
+     * instance.
+     */
+    public boolean cancel(Long runId) {
+        synchronized (this) {
+            if (!removeQueued(publishedLane, runId) && !removeQueued(draftLane, runId)) {
+                Thread thread = runningThreads.get(runId);
+                if (thread == null && !starting.contains(runId)) {
+                    return false;
+                }
+                cancelRequested.add(runId);
+                if (thread != null) {
+                    thread.interrupt();
+                }
+                return true;
+            }
+        }
+        return runRepository.cancelQueued(runId, LocalDateTime.now()) == 1;
+    }
+
+    /**
+     * Per-node counters of the run: live while it executes, as stored once it finished, and
+     * empty before it starts.
+     */
+    public PipelineRunStats stats(PipelineRun run) {
+        RunStats live = liveStats.get(run.getId());
+        PipelineRunStats stats = live != null ? live.snapshot()
+            : run.getStats() != null ? fromJson(run.getStats()) : new PipelineRunStats();
+        stats.setRunId(run.getId());
+        stats.setStatus(live != null ? RunStatus.RUNNING : run.getStatus());
+        return stats;
+    }
+
+    private void enqueue(PipelineRun run) {
+        String owner = run.getOwnerType() + ":" + run.getOwnerId();
+        (run.isPublished() ? publishedLane : draftLane).add(
+            new Queued(run.getId(), run.getPipelineId(), owner, run.isPublished()));
+    }
+
+    private static boolean removeQueued(ArrayDeque<Queued> lane, Long runId) {
+        return lane.removeIf(queued -> queued.runId().equals(runId));
+    }
+
+    private void dispatch() {
+        while (runningThreads.size() + starting.size() < runPool.getMaximumPoolSize()) {
+            Queued run = publishedInARow >= PUBLISHED_BURST ? pollStartable(draftLane) : null;
+            if (run == null) {
+                run = pollStartable(publishedLane);
+                publishedInARow = run == null ? publishedInARow : publishedInARow + 1;
+            }
+            if (run == null) {
+                run = pollStartable(draftLane);
+            }
+            if (run == null) {
+                return;
+            }
+            if (!run.published()) {
+                publishedInARow = 0;
+            }
+            Queued started = run;
+            runningByOwner.merge(started.owner(), 1, Integer::sum);
+            starting.add(started.runId());
+            runPool.execute(() -> execute(started));
+        }
+    }
+
+    /**
+     * Takes the oldest run of the lane whose owner is under its quota.
+     */
+    private Queued pollStartable(ArrayDeque<Queued> lane) {
+        Iterator<Queued> queued = lane.iterator();
+        while (queued.hasNext()) {
+            Queued candidate = queued.next();
+            if (runningByOwner.getOrDefault(candidate.owner(), 0) < ownerConcurrency) {
+                queued.remove();
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private void execute(Queued run) {
+        synchronized (this) {
+            starting.remove(run.runId());
+            runningThreads.put(run.runId(), Thread.currentThread());
+        }
+        RunStatus status = RunStatus.FAILED;
+        String error = null;
+        String result = null;
+        RunStats stats = null;
+        boolean claimed = false;
+        try {
+            if (!isCancelRequested(run.runId())
+                && runRepository.claim(run.runId(), instanceId, LocalDateTime.now()) == 1) {
+                claimed = true;
+                Pipeline pipeline = pipelineRepository.findById(run.pipelineId())
+                    .orElseThrow(() -> new PipelineException("Pipeline not found"));
+                stats = pipelineExecutor.newRunStats();
+                liveStats.put(run.runId(), stats);
+                result = toJson(pipelineExecutor.execute(pipeline, stats));
+                status = RunStatus.SUCCEEDED;
+            }
+        } catch (RuntimeException | Error e) {
+            error = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+        } finally {
+            // the interrupt of a cancellation must not leak into the pool thread's next run
+            Thread.interrupted();
+            synchronized (this) {
+                runningThreads.remove(run.runId());
+                if (cancelRequested.remove(run.runId()) && status != RunStatus.SUCCEEDED) {
+                    status = RunStatus.CANCELLED;
+                    error = null;
+                }
+                runningByOwner.merge(run.owner(), -1, Integer::sum);
+                runningByOwner.remove(run.owner(), 0);
+            }
+            // a run that was not claimed may have been taken over by another instance; it is left alone
+            boolean recorded = false;
+            if (claimed || error != null) {
+                finish(run.runId(), status, error, result, stats == null ? null : toJson(stats.snapshot()));
+                recorded = true;
+            } else if (status == RunStatus.CANCELLED) {
+                recorded = runRepository.cancelQueued(run.runId(), LocalDateTime.now()) == 1;
+            }
+            if (recorded) {
+                meterRegistry.counter("pipeline.runs.finished", "status", status.name()).increment();
+            }
+            liveStats.remove(run.runId());
+            synchronized (this) {
+                dispatch();
+            }
+        }
+    }
+
+    private synchronized boolean isCancelRequested(Long runId) {
+        return cancelRequested.contains(runId);
+    }
+
+    private void finish(Long runId, RunStatus status, String error, String result, String stats) {
+        runRepository.findById(runId).filter(run -> !run.getStatus().isFinished()).ifPresent(run -> {
+            run.setStatus(status);
+            run.setErrorMessage(error == null || error.length() <= MAX_ERROR_LENGTH ? error
+                : error.substring(0, MAX_ERROR_LENGTH));
+            run.setResult(result);
+            run.setStats(stats);
+            run.setFinishedAt(LocalDateTime.now());
+            runRepository.save(run);
+        });
+    }
+
+    private String toJson(Object result) {
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new PipelineException("Cannot record run result: " + e.getMessage(), e);
+        }
+    }
+
+    private PipelineRunStats fromJson(String stats) {
+        try {
+            return objectMapper.readValue(stats, PipelineRunStats.class);
+        } catch (JsonProcessingException e) {
+            throw new PipelineException("Cannot read run stats: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.ssc.pipeline.service;
+
+import com.ssc.auth.entitlement.service.ResourceService;
+import com.ssc.pipeline.entity.PipelineSchedule;
+import com.ssc.pipeline.entity.enums.MisfirePolicy;
+import com.ssc.pipeline.exception.PipelineException;
+import com.ssc.pipeline.repository.PipelineRepository;
+import com.ssc.pipeline.repository.PipelineScheduleRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class PipelineScheduleService {
+    private final PipelineRepository pipelineRepository;
+    private final PipelineScheduleRepository pipelineScheduleRepository;
+    private final ResourceService resourceService;
+    private final PipelineCronScheduler pipelineCronScheduler;
+
+    /**
+     * Creates or replaces the schedule of a pipeline. Scheduled runs are submitted as the user
+     * who saved the schedule, and only while the pipeline is published.
+     */
+    public PipelineSchedule saveSchedule(Long pipelineId, PipelineSchedule request, Long userId) {
+        pipelineRepository.findById(pipelineId)
+            .orElseThrow(() -> new PipelineException("Pipeline not found"));
+
+        resourceService.hasPermission(userId, pipelineId, "run");
+
+        if (request.getCronExpression() == null || !CronExpression.isValidExpression(request.getCronExpression())) {
+            throw new PipelineException("Invalid cron expression: " + request.getCronExpression());
+        }
+        if (request.getTimeZone() != null) {
+            try {
+                ZoneId.of(request.getTimeZone());
+            } catch (DateTimeException e) {
+                throw new PipelineException("Invalid time zone: " + request.getTimeZone());
+            }
+        }
+
+        PipelineSchedule schedule = pipelineScheduleRepository.findByPipelineId(pipelineId)
+            .orElseGet(PipelineSchedule::new);
+        schedule.setPipelineId(pipelineId);
+        schedule.setCronExpression(request.getCronExpression());
+        schedule.setTimeZone(request.getTimeZone());
+        schedule.setMisfirePolicy(request.getMisfirePolicy() == null ? MisfirePolicy.RUN_ONCE : request.getMisfirePolicy());
+        schedule.setEnabled(request.isEnabled());
+        schedule.setRunAsUserId(userId);
+        schedule.setNextFireAt(PipelineCronScheduler.nextFireTime(schedule, Instant.now()));
+
+        PipelineSchedule saved = pipelineScheduleRepository.save(schedule);
+        pipelineCronScheduler.scheduleChanged(saved);
+        return saved;
+    }
+
+    @Transactional(readOnly = true)
+    public PipelineSchedule getSchedule(Long pipelineId, Long userId) {
+        resourceService.hasPermission(userId, pipelineId, "view");
+
+        return pipelineScheduleRepository.findByPipelineId(pipelineId)
+            .orElseThrow(() -> new PipelineException("Pipeline has no schedule"));
+    }
+
+    public void deleteSchedule(Long pipelineId, Long userId) {
+        PipelineSchedule schedule = pipelineScheduleRepository.findByPipelineId(pipelineId)
+            .orElseThrow(() -> new PipelineException("Pipeline has no schedule"));
+
+        resourceService.hasPermission(userId, pipelineId, "run");
+
+        pipelineScheduleRepository.delete(schedule);
+        pipelineCronScheduler.scheduleRemoved(schedule.getId());
+    }
+}
@@ -4,12 +4,24 @@ import com.ssc.auth.entitlement.entity.Resource;
 import com.ssc.auth.entitlement.entity.enums.OwnerType;
 import com.ssc.auth.entitlement.entity.enums.ResourceType;
 import com.ssc.auth.entitlement.service.ResourceService;
+import com.ssc.pipeline.dto.PipelinePage;
+import com.ssc.pipeline.dto.PipelineSummary;
+import com.ssc.pipeline.engine.PipelineExecutor;
+import com.ssc.pipeline.engine.PipelinePlan;
+import com.ssc.pipeline.engine.PipelinePreview;
+import com.ssc.pipeline.engine.PipelineRunStats;
 import com.ssc.pipeline.entity.Pipeline;
+import com.ssc.pipeline.entity.PipelineRun;
 import com.ssc.pipeline.entity.enums.PipelineStatus;
 import com.ssc.pipeline.exception.PipelineException;
 import com.ssc.pipeline.repository.PipelineRepository;
+import com.ssc.pipeline.repository.PipelineRunRepository;
+import com.ssc.pipeline.repository.PipelineScheduleRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -18,8 +30,16 @@ import java.util.List;
 @RequiredArgsConstructor
 @Transactional
 public class PipelineService {
+    private static final int MAX_PREVIEW_ROWS = 1000;
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final PipelineRepository pipelineRepository;
     private final ResourceService resourceService;
+    private final PipelineExecutor pipelineExecutor;
+    private final PipelineRunRepository pipelineRunRepository;
+    private final PipelineRunScheduler pipelineRunScheduler;
+    private final PipelineScheduleRepository pipelineScheduleRepository;
+    private final MeterRegistry meterRegistry;
 
     public Pipeline createPipeline(Pipeline pipeline, Long userId, Long groupId) {
         if (pipelineRepository.existsByNameAndOwnerId(pipeline.getName(), userId)) {
@@ -56,6 +76,8 @@ public class PipelineService {
 
         resourceService.hasPermission(userId, pipelineId, "delete");
 
+        // a pending fire of the schedule finds it gone and lapses
+        pipelineScheduleRepository.deleteByPipelineId(pipelineId);
         pipelineRepository.delete(pipeline);
     }
 
@@ -69,6 +91,77 @@ public class PipelineService {
         return pipelineRepository.save(pipeline);
     }
 
+    // the run row must be committed before the scheduler's threads look it up
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public PipelineRun submitRun(Long pipelineId, Long userId) {
+        Pipeline pipeline = pipelineRepository.findById(pipelineId)
+            .orElseThrow(() -> new PipelineException("Pipeline not found"));
+
+        resourceService.hasPermission(userId, pipelineId, "run");
+
+        Resource resource = resourceService.findById(pipelineId).orElse(null);
+        if (resource == null) {
+            return pipelineRunScheduler.submit(pipeline, OwnerType.USER, pipeline.getOwnerId(), userId);
+        }
+        return pipelineRunScheduler.submit(pipeline, resource.getOwnerType(), resource.getOwnerId(), userId);
+    }
+
+    @Transactional(readOnly = true)
+    public PipelineRun getRun(Long runId, Long userId) {
+        PipelineRun run = pipelineRunRepository.findById(runId)
+            .orElseThrow(() -> new PipelineException("Pipeline run not found"));
+
+        resourceService.hasPermission(userId, run.getPipelineId(), "view");
+
+        return run;
+    }
+
+    @Transactional(readOnly = true)
+    public PipelineRunStats getRunStats(Long runId, Long userId) {
+        PipelineRun run = pipelineRunRepository.findById(runId)
+            .orElseThrow(() -> new PipelineException("Pipeline run not found"));
+
+        resourceService.hasPermission(userId, run.getPipelineId(), "view");
+
+        return pipelineRunScheduler.stats(run);
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public PipelineRun cancelRun(Long runId, Long userId) {
+        PipelineRun run = pipelineRunRepository.findById(runId)
+            .orElseThrow(() -> new PipelineException("Pipeline run not found"));
+
+        resourceService.hasPermission(userId, run.getPipelineId(), "run");
+
+        if (!pipelineRunScheduler.cancel(runId)) {
+            throw new PipelineException("Pipeline run has already finished");
+        }
+        return pipelineRunRepository.findById(runId).orElse(run);
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public PipelinePreview previewNode(Long pipelineId, String nodeId, Long userId, int limit) {
+        if (limit < 1 || limit > MAX_PREVIEW_ROWS) {
+            throw new PipelineException("Preview limit must be between 1 and " + MAX_PREVIEW_ROWS);
+        }
+        Pipeline pipeline = pipelineRepository.findById(pipelineId)
+            .orElseThrow(() -> new PipelineException("Pipeline not found"));
+
+        resourceService.hasPermission(userId, pipelineId, "view");
+
+        return meterRegistry.timer("pipeline.preview")
+            .record(() -> pipelineExecutor.preview(pipeline, nodeId, limit));
+    }
+
+    public PipelinePlan explainPipeline(Long pipelineId, Long userId) {
+        Pipeline pipeline = pipelineRepository.findById(pipelineId)
+            .orElseThrow(() -> new PipelineException("Pipeline not found"));
+
+        resourceService.hasPermission(userId, pipelineId, "view");
+
+        return pipelineExecutor.explain(pipeline);
+    }
+
     @Transactional(readOnly = true)
     public Pipeline getPipeline(Long pipelineId, Long userId) {
         Pipeline pipeline = pipelineRepository.findById(pipelineId)
@@ -80,21 +173,31 @@ public class PipelineService {
     }
 
     @Transactional(readOnly = true)
-    public List<Pipeline> getUserPipelines(Long userId) {
-        List<Resource> resources = resourceService.findByType(ResourceType.PIPELINE);
-        return resources.stream()
-            .map(resource -> pipelineRepository.findById(resource.getResourceId())
-                .orElseThrow(() -> new PipelineException("Pipeline not found")))
-            .toList();
+    public PipelinePage getUserPipelines(Long userId, Long afterId, int size) {
+        checkPageSize(size);
+        return page(pipelineRepository.findUserSummaries(userId, afterId == null ? 0L : afterId,
+            PageRequest.ofSize(size + 1)), size);
     }
 
     @Transactional(readOnly = true)
-    public List<Pipeline> getGroupPipelines(Long groupId) {
-        List<Resource> resources = resourceService.findByOwner(OwnerType.GROUP, groupId);
-        return resources.stream()
-            .filter(resource -> resource.getResourceType() == ResourceType.PIPELINE)
-            .map(resource -> pipelineRepository.findById(resource.getResourceId())
-                .orElseThrow(() -> new PipelineException("Pipeline not found")))
-            .toList();
+    public PipelinePage getGroupPipelines(Long groupId, Long afterId, int size) {
+        checkPageSize(size);
+        return page(pipelineRepository.findGroupSummaries(groupId, afterId == null ? 0L : afterId,
+            PageRequest.ofSize(size + 1)), size);
+    }
+
+    private static void checkPageSize(int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new PipelineException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    // one row more than the page is fetched to tell whether another page follows
+    private static PipelinePage page(List<PipelineSummary> rows, int size) {
+        if (rows.size() <= size) {
+            return new PipelinePage(rows, null);
+        }
+        List<PipelineSummary> items = rows.subList(0, size);
+        return new PipelinePage(items, items.get(size - 1).getId());
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
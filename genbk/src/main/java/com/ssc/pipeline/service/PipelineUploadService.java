@@ -0,0 +1,372 @@
+package com.ssc.pipeline.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.csv.CsvOptions;
+import com.ssc.pipeline.engine.csv.CsvSniffer;
+import com.ssc.pipeline.engine.csv.CsvSplitter;
+import com.ssc.pipeline.engine.csv.FieldDecoder;
+import com.ssc.pipeline.engine.plan.StatisticsStore;
+import com.ssc.pipeline.entity.PipelineUpload;
+import com.ssc.pipeline.entity.PipelineUploadChunk;
+import com.ssc.pipeline.entity.enums.UploadStatus;
+import com.ssc.pipeline.exception.PipelineException;
+import com.ssc.pipeline.repository.PipelineUploadChunkRepository;
+import com.ssc.pipeline.repository.PipelineUploadRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Chunked, resumable uploads for the File Uploader source. The file is allocated at its full
+ * size up front and every chunk is written to its own offset, so chunks can arrive in parallel
+ * and in any order, and a client that lost its connection asks which chunks are stored and
+ * sends only the rest. Each chunk is staged next to the file, checked against the SHA-256 the
+ * client sent and scanned by {@link CsvSniffer} while it is still in the page cache; on
+ * completion the scans give the row count and the first megabyte the column types, and the
+ * file's planner statistics are collected so the first run that reads it need not sample it.
+ * All of these are read with the CSV options the upload was started with, which are those of
+ * the CSVReader it is for; a CSVReader reading the upload with the same options takes its
+ * columns as the declared schema.
+ */
+@Slf4j
+@Service
+@Transactional
+public class PipelineUploadService {
+    private static final int SAMPLE_BYTES = 1 << 20;
+    private static final int SAMPLE_ROWS = 1000;
+
+    private final PipelineUploadRepository uploadRepository;
+    private final PipelineUploadChunkRepository chunkRepository;
+    private final ObjectMapper objectMapper;
+    private final StatisticsStore statistics;
+    private final Path workDir;
+    private final Path uploadDir;
+    private final long maxSize;
+    private final long defaultChunkSize;
+    private final long maxChunkSize;
+    // "uploadId/index" of the chunks being received
+    private final Set<String> chunksInFlight = ConcurrentHashMap.newKeySet();
+
+    public PipelineUploadService(PipelineUploadRepository uploadRepository,
+                                 PipelineUploadChunkRepository chunkRepository,
+                                 ObjectMapper objectMapper,
+                                 StatisticsStore statistics,
+                                 @Value("${pipeline.engine.work-dir}") String workDir,
+                                 @Value("${pipeline.upload.dir}") String uploadDir,
+                                 @Value("${pipeline.upload.max-size-mb:10240}") long maxSizeMb,
+                                 @Value("${pipeline.upload.chunk-size-mb:8}") long chunkSizeMb,
+                                 @Value("${pipeline.upload.max-chunk-size-mb:64}") long maxChunkSizeMb) {
+        this.uploadRepository = uploadRepository;
+        this.chunkRepository = chunkRepository;
+        this.objectMapper = objectMapper;
+        this.statistics = statistics;
+        this.workDir = Path.of(workDir).toAbsolutePath().normalize();
+        this.uploadDir = Path.of(uploadDir).toAbsolutePath().normalize();
+        // File Uploader nodes hand the path on to readers, which only read below the work directory
+        if (!this.uploadDir.startsWith(this.workDir)) {
+            throw new IllegalStateException("pipeline.upload.dir must be inside pipeline.engine.work-dir");
+        }
+        this.maxSize = maxSizeMb << 20;
+        this.defaultChunkSize = chunkSizeMb << 20;
+        this.maxChunkSize = maxChunkSizeMb << 20;
+    }
+
+    public PipelineUpload createUpload(PipelineUpload request, Long userId) {
+        Path name = request.getFileName() == null ? null : Path.of(request.getFileName()).getFileName();
+        String fileName = name == null ? null : name.toString();
+        if (fileName == null || fileName.isBlank() || fileName.equals("..")) {
+            throw new PipelineException("Upload needs a file name");
+        }
+        if (request.getSize() < 0 || request.getSize() > maxSize) {
+            throw new PipelineException("Upload size must be between 0 and " + (maxSize >> 20) + " MB");
+        }
+        long chunkSize = request.getChunkSize() > 0 ? Math.min(request.getChunkSize(), maxChunkSize)
+            : defaultChunkSize;
+        if (request.getSkipRows() < 0) {
+            throw new PipelineException("Upload skipRows must not be negative");
+        }
+        if (request.getEncoding() == null) {
+            throw new PipelineException("Upload needs an encoding");
+        }
+        options(request);
+
+        PipelineUpload upload = new PipelineUpload();
+        upload.setUploadedBy(userId);
+        upload.setFileName(fileName);
+        upload.setSize(request.getSize());
+        upload.setChunkSize(chunkSize);
+        upload.setChunkCount((int) ((request.getSize() + chunkSize - 1) / chunkSize));
+        upload.setHasHeader(request.isHasHeader());
+        upload.setSkipRows(request.getSkipRows());
+        upload.setDelimiter(request.getDelimiter());
+        upload.setQuote(request.getQuote());
+        upload.setEscape(request.getEscape());
+        upload.setEncoding(request.getEncoding());
+        upload.setMultiLine(request.isMultiLine());
+        upload.setStatus(UploadStatus.UPLOADING);
+        upload.setCreatedAt(LocalDateTime.now());
+        upload = uploadRepository.save(upload);
+
+        Path file = uploadDir.resolve(upload.getId().toString()).resolve(fileName);
+        try {
+            Files.createDirectories(file.getParent());
+            // sparse where the file system allows; chunks then only fill in their own range
+            try (RandomAccessFile allocation = new RandomAccessFile(file.toFile(), "rw")) {
+                allocation.setLength(upload.getSize());
+            }
+        } catch (IOException e) {
+            throw new PipelineException("Cannot create upload file " + file + ": " + e.getMessage(), e);
+        }
+        upload.setPath(workDir.relativize(file).toString());
+        return uploadRepository.save(upload);
+    }
+
+    @Transactional(readOnly = true)
+    public PipelineUpload getUpload(Long uploadId, Long userId) {
+        PipelineUpload upload = findOwned(uploadId, userId);
+        upload.setReceivedChunks(chunkRepository.findChunkIndexes(uploadId));
+        return upload;
+    }
+
+    /**
+     * Streams one chunk from {@code body} into a staging file, checks its length and checksum and
+     * only then copies it to its place in the file. Sending a chunk again replaces it, so a client
+     * can retry a chunk whose checksum was refused; a refused chunk leaves the stored one intact.
+     */
+    // the request body is streamed for as long as the client takes; no database connection is held meanwhile
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public PipelineUploadChunk putChunk(Long uploadId, int index, String checksum, InputStream body, Long userId) {
+        PipelineUpload upload = findOwned(uploadId, userId);
+        if (upload.getStatus() != UploadStatus.UPLOADING) {
+            throw new PipelineException("Upload " + uploadId + " is already completed");
+        }
+        if (index < 0 || index >= upload.getChunkCount()) {
+            throw new PipelineException("Chunk index must be between 0 and " + (upload.getChunkCount() - 1));
+        }
+        if (checksum == null || checksum.isBlank()) {
+            throw new PipelineException("Chunk " + index + " has no SHA-256 checksum");
+        }
+        String key = uploadId + "/" + index;
+        if (!chunksInFlight.add(key)) {
+            throw new PipelineException("Chunk " + index + " of upload " + uploadId + " is already being sent");
+        }
+        try {
+            return storeChunk(upload, index, checksum, body);
+        } finally {
+            chunksInFlight.remove(key);
+        }
+    }
+
+    private PipelineUploadChunk storeChunk(PipelineUpload upload, int index, String checksum, InputStream body) {
+        Long uploadId = upload.getId();
+        long offset = index * upload.getChunkSize();
+        long length = Math.min(upload.getChunkSize(), upload.getSize() - offset);
+        Path file = file(upload);
+        Path staged = null;
+        try {
+            staged = Files.createTempFile(file.getParent(), ".chunk-" + index + "-", ".part");
+            MessageDigest digest = sha256();
+            String scan;
+            try (DigestInputStream in = new DigestInputStream(body, digest);
+                 ReadableByteChannel source = Channels.newChannel(in);
+                 FileChannel staging = FileChannel.open(staged, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long received = 0;
+                while (received < length) {
+                    long transferred = staging.transferFrom(source, received, length - received);
+                    if (transferred == 0) {
+                        break;
+                    }
+                    received += transferred;
+                }
+                if (received != length || in.read() >= 0) {
+                    throw new PipelineException("Chunk " + index + " of upload " + uploadId + " must be " + length
+                        + " bytes");
+                }
+                String actual = HexFormat.of().formatHex(digest.digest());
+                if (!actual.equalsIgnoreCase(checksum.trim())) {
+                    throw new PipelineException("Checksum mismatch for chunk " + index + " of upload " + uploadId);
+                }
+                scan = Arrays.stream(CsvSniffer.scan(CsvSplitter.map(staging, 0, length), options(upload)))
+                    .mapToObj(Long::toString).collect(Collectors.joining(","));
+
+                // a copy that fails halfway must not leave the chunk counted as received
+                chunkRepository.findByUploadIdAndChunkIndex(uploadId, index).ifPresent(chunkRepository::delete);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    long written = 0;
+                    while (written < length) {
+                        written += channel.transferFrom(staging.position(written), offset + written,
+                            length - written);
+                    }
+                }
+
+                PipelineUploadChunk chunk = new PipelineUploadChunk();
+                chunk.setUploadId(uploadId);
+                chunk.setChunkIndex(index);
+                chunk.setSize(length);
+                chunk.setChecksum(actual);
+                chunk.setScan(scan);
+                chunk.setCreatedAt(LocalDateTime.now());
+                return chunkRepository.save(chunk);
+            }
+        } catch (IOException e) {
+            throw new PipelineException("Cannot write chunk " + index + " of upload " + uploadId + ": "
+                + e.getMessage(), e);
+        } finally {
+            if (staged != null) {
+                try {
+                    Files.deleteIfExists(staged);
+                } catch (IOException e) {
+                    log.warn("Cannot delete staged chunk {}", staged, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ends an upload whose chunks are all stored and records its row count and columns.
+     */
+    public PipelineUpload completeUpload(Long uploadId, Long userId) {
+        PipelineUpload upload = findOwned(uploadId, userId);
+        if (upload.getStatus() == UploadStatus.COMPLETED) {
+            return upload;
+        }
+        List<PipelineUploadChunk> chunks = chunkRepository.findByUploadIdOrderByChunkIndexAsc(uploadId);
+        if (chunks.size() != upload.getChunkCount()) {
+            List<Integer> missing = new ArrayList<>();
+            for (int i = 0, c = 0; i < upload.getChunkCount() && missing.size() < 10; i++) {
+                if (c < chunks.size() && chunks.get(c).getChunkIndex() == i) {
+                    c++;
+                } else {
+                    missing.add(i);
+                }
+            }
+            throw new PipelineException("Upload " + uploadId + " is missing chunks " + missing);
+        }
+
+        List<long[]> scans = new ArrayList<>();
+        for (PipelineUploadChunk chunk : chunks) {
+            scans.add(Arrays.stream(chunk.getScan().split(",")).mapToLong(Long::parseLong).toArray());
+        }
+        CsvOptions options = options(upload);
+        long skipped = skippedRecords(upload, options);
+        if (skipped >= 0) {
+            long records = CsvSniffer.countRecords(scans) - skipped;
+            upload.setRowCount(Math.max(0, options.hasHeader() ? records - 1 : records));
+        }
+        Schema schema = sampleSchema(upload, options);
+        upload.setColumns(columnsJson(schema));
+        statistics.get(file(upload), options, schema.getNames());
+        upload.setStatus(UploadStatus.COMPLETED);
+        upload.setCompletedAt(LocalDateTime.now());
+        upload.setReceivedChunks(chunks.stream().map(PipelineUploadChunk::getChunkIndex).toList());
+        return uploadRepository.save(upload);
+    }
+
+    public void deleteUpload(Long uploadId, Long userId) {
+        PipelineUpload upload = findOwned(uploadId, userId);
+        chunkRepository.deleteByUploadId(uploadId);
+        uploadRepository.delete(upload);
+        try {
+            FileSystemUtils.deleteRecursively(file(upload).getParent());
+        } catch (IOException e) {
+            throw new PipelineException("Cannot delete upload file " + upload.getPath() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private PipelineUpload findOwned(Long uploadId, Long userId) {
+        PipelineUpload upload = uploadRepository.findById(uploadId)
+            .orElseThrow(() -> new PipelineException("Upload not found"));
+        if (!upload.getUploadedBy().equals(userId)) {
+            throw new PipelineException("Upload " + uploadId + " belongs to another user");
+        }
+        return upload;
+    }
+
+    private Path file(PipelineUpload upload) {
+        return workDir.resolve(upload.getPath()).normalize();
+    }
+
+    private static CsvOptions options(PipelineUpload upload) {
+        CsvOptions options = new CsvOptions(upload.isHasHeader(), upload.getSkipRows(),
+            asciiChar(upload.getDelimiter(), "delimiter"), asciiChar(upload.getQuote(), "quote"),
+            asciiChar(upload.getEscape(), "escape"), CsvOptions.charset(upload.getEncoding()), upload.isMultiLine());
+        FieldDecoder.checkSupported(options.getEncoding());
+        return options;
+    }
+
+    private static char asciiChar(String value, String option) {
+        if (value == null || value.length() != 1 || value.charAt(0) > 0x7F) {
+            throw new PipelineException("Upload " + option + " must be a single ASCII character");
+        }
+        return value.charAt(0);
+    }
+
+    // -1 when the reader's skipped lines cannot be told apart from the records after them
+    private long skippedRecords(PipelineUpload upload, CsvOptions options) {
+        if (options.getSkipRows() == 0) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file(upload), StandardOpenOption.READ)) {
+            return CsvSniffer.skippedRecords(CsvSplitter.map(channel, 0, Math.min(upload.getSize(), SAMPLE_BYTES)),
+                options);
+        } catch (IOException e) {
+            throw new PipelineException("Cannot read upload file " + upload.getPath() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private Schema sampleSchema(PipelineUpload upload, CsvOptions options) {
+        try (FileChannel channel = FileChannel.open(file(upload), StandardOpenOption.READ)) {
+            return CsvSniffer.inferSchema(CsvSplitter.map(channel, 0, Math.min(upload.getSize(), SAMPLE_BYTES)),
+                options, SAMPLE_ROWS);
+        } catch (IOException e) {
+            throw new PipelineException("Cannot read upload file " + upload.getPath() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private String columnsJson(Schema schema) {
+        ArrayNode columns = objectMapper.createArrayNode();
+        for (int i = 0; i < schema.size(); i++) {
+            columns.addObject().put("name", schema.name(i)).put("dataType", schema.type(i).getValue());
+        }
+        try {
+            return objectMapper.writeValueAsString(columns);
+        } catch (JsonProcessingException e) {
+            throw new PipelineException("Cannot record upload columns: " + e.getMessage(), e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.ssc.auth.entitlement.service;
+
+import com.ssc.auth.entitlement.constant.OperationType;
+import com.ssc.auth.entitlement.entity.enums.OwnerType;
+import com.ssc.auth.entitlement.repository.UserGroupRoleRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EffectivePermissionIndexTest {
+    private static final long ALICE = 1L;
+    private static final long BOB = 2L;
+    private static final long CAROL = 3L;
+    private static final long TEAM = 10L;
+    private static final long OTHER_TEAM = 11L;
+
+    record Row(Long userId, Long groupId, String roleName) implements UserGroupRoleRepository.Membership {
+        @Override
+        public Long getUserId() {
+            return userId;
+        }
+
+        @Override
+        public Long getGroupId() {
+            return groupId;
+        }
+
+        @Override
+        public String getRoleName() {
+            return roleName;
+        }
+    }
+
+    // the membership table
+    private final List<Row> table = new ArrayList<>();
+    private EffectivePermissionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        UserGroupRoleRepository repository = mock(UserGroupRoleRepository.class);
+        when(repository.findAllMemberships()).thenAnswer(invocation -> List.copyOf(table));
+        table.add(new Row(ALICE, TEAM, "OWNER"));
+        table.add(new Row(BOB, TEAM, "DEVELOPER"));
+        table.add(new Row(CAROL, TEAM, "VIEWER"));
+        index = new EffectivePermissionIndex(repository, 0);
+        index.afterSingletonsInstantiated();
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.destroy();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void grantsWhatEachGroupRoleAllows() {
+        int owner = index.roleMask(ALICE, OwnerType.GROUP, TEAM);
+        int developer = index.roleMask(BOB, OwnerType.GROUP, TEAM);
+        int viewer = index.roleMask(CAROL, OwnerType.GROUP, TEAM);
+
+        for (OperationType operation : OperationType.values()) {
+            assertTrue(EffectivePermissionIndex.allows(owner, operation.getValue()));
+            assertFalse(EffectivePermissionIndex.needsApproval(owner, operation.getValue()));
+            assertFalse(EffectivePermissionIndex.allows(viewer, operation.getValue()));
+        }
+        assertTrue(EffectivePermissionIndex.allows(developer, "run"));
+        assertTrue(EffectivePermissionIndex.allows(developer, "update"));
+        assertFalse(EffectivePermissionIndex.needsApproval(developer, "update"));
+        assertTrue(EffectivePermissionIndex.needsApproval(developer, "delete"));
+        assertTrue(EffectivePermissionIndex.needsApproval(developer, "publish"));
+        assertEquals("OWNER", EffectivePermissionIndex.roleName(owner));
+        assertEquals("VIEWER", EffectivePermissionIndex.roleName(viewer));
+        assertEquals(0, index.roleMask(ALICE, OwnerType.GROUP, OTHER_TEAM));
+    }
+
+    @Test
+    void makesUsersOwnersOfTheirOwnResources() {
+        assertTrue(EffectivePermissionIndex.isOwner(index.roleMask(BOB, OwnerType.USER, BOB)));
+        assertEquals(0, index.roleMask(BOB, OwnerType.USER, ALICE));
+    }
+
+    @Test
+    void appliesChangesOutsideATransactionAtOnce() {
+        index.membershipChanged(CAROL, TEAM, "DEVELOPER");
+        index.membershipChanged(CAROL, OTHER_TEAM, "OWNER");
+        index.membershipRemoved(BOB, TEAM);
+
+        assertTrue(EffectivePermissionIndex.allows(index.roleMask(CAROL, OwnerType.GROUP, TEAM), "run"));
+        assertTrue(EffectivePermissionIndex.isOwner(index.roleMask(CAROL, OwnerType.GROUP, OTHER_TEAM)));
+        assertEquals(0, index.roleMask(BOB, OwnerType.GROUP, TEAM));
+        assertFalse(EffectivePermissionIndex.allows(index.roleMask(BOB, OwnerType.GROUP, TEAM), "run"));
+    }
+
+    @Test
+    void appliesChangesInATransactionOnlyOnceItCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        index.membershipsChanged(List.of(new EffectivePermissionIndex.Change(CAROL, TEAM, "OWNER"),
+            new EffectivePermissionIndex.Change(CAROL, OTHER_TEAM, "VIEWER")));
+        index.membershipRemoved(ALICE, TEAM);
+
+        assertFalse(EffectivePermissionIndex.isOwner(index.roleMask(CAROL, OwnerType.GROUP, TEAM)));
+        assertEquals(0, index.roleMask(CAROL, OwnerType.GROUP, OTHER_TEAM));
+        assertTrue(EffectivePermissionIndex.isOwner(index.roleMask(ALICE, OwnerType.GROUP, TEAM)));
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        assertTrue(EffectivePermissionIndex.isOwner(index.roleMask(CAROL, OwnerType.GROUP, TEAM)));
+        assertEquals("VIEWER", EffectivePermissionIndex.roleName(index.roleMask(CAROL, OwnerType.GROUP, OTHER_TEAM)));
+        assertEquals(0, index.roleMask(ALICE, OwnerType.GROUP, TEAM));
+    }
+
+    @Test
+    void dropsChangesOfATransactionThatRollsBack() {
+        TransactionSynchronizationManager.initSynchronization();
+        index.membershipRemoved(ALICE, TEAM);
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization ->
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertTrue(EffectivePermissionIndex.isOwner(index.roleMask(ALICE, OwnerType.GROUP, TEAM)));
+    }
+
+    @Test
+    void reportsDriftFromTheTableUntilRebuilt() {
+        table.removeIf(row -> row.userId() == BOB);
+        table.add(new Row(CAROL, OTHER_TEAM, "DEVELOPER"));
+
+        List<String> differences = index.verify();
+
+        assertEquals(2, differences.size(), differences.toString());
+        assertTrue(EffectivePermissionIndex.allows(index.roleMask(BOB, OwnerType.GROUP, TEAM), "run"));
+        index.rebuild();
+        assertEquals(List.of(), index.verify());
+        assertEquals(0, index.roleMask(BOB, OwnerType.GROUP, TEAM));
+        assertTrue(EffectivePermissionIndex.allows(index.roleMask(CAROL, OwnerType.GROUP, OTHER_TEAM), "run"));
+    }
+
+    @Test
+    void picksUpChangesMadeElsewhereOnRefresh() throws InterruptedException {
+        UserGroupRoleRepository repository = mock(UserGroupRoleRepository.class);
+        when(repository.findAllMemberships()).thenAnswer(invocation -> List.copyOf(table));
+        EffectivePermissionIndex refreshing = new EffectivePermissionIndex(repository, 1);
+        refreshing.afterSingletonsInstantiated();
+        try {
+            table.removeIf(row -> row.userId() == ALICE);
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (refreshing.roleMask(ALICE, OwnerType.GROUP, TEAM) != 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(0, refreshing.roleMask(ALICE, OwnerType.GROUP, TEAM));
+        } finally {
+            refreshing.destroy();
+        }
+    }
+}
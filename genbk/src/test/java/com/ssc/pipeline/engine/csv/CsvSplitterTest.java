@@ -0,0 +1,142 @@
+package com.ssc.pipeline.engine.csv;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvSplitterTest {
+    private static final Charset GBK = Charset.forName("GBK");
+    // characters whose GBK trail byte is '|' or '\', which a byte scanner could take for a delimiter or escape
+    private static final List<Character> TRICKY = trickyCharacters();
+
+    @TempDir
+    Path dir;
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "UTF-8, ',', '\"', false",
+        "UTF-8, ',', '\"', true",
+        "UTF-8, '|', '\\', true",
+        "GBK, '|', '\\', false",
+        "GBK, '|', '\\', true",
+        "GBK, ',', '\"', true"})
+    void cutsChunksOnRecordBoundaries(String encoding, char delimiter, char escape, boolean multiLine)
+        throws IOException {
+        CsvOptions options = new CsvOptions(false, 0, delimiter, '"', escape, Charset.forName(encoding), multiLine);
+        Random random = new Random(encoding.hashCode() + delimiter + escape + (multiLine ? 1 : 0));
+        List<List<String>> records = records(random, 1_000, options);
+        Path file = write(records, options);
+
+        try (FileChannel channel = FileChannel.open(file)) {
+            long size = channel.size();
+            for (long chunkSize : new long[] {16, 100, 4_096, size}) {
+                List<Long> starts = CsvSplitter.split(channel, 0, size, chunkSize, options, executor);
+                assertEquals(0L, starts.get(0));
+                assertTrue(chunkSize == size || starts.size() > 1, "one chunk for chunk size " + chunkSize);
+                List<List<String>> parsed = new ArrayList<>();
+                for (int i = 0; i < starts.size(); i++) {
+                    long start = starts.get(i);
+                    long end = i + 1 < starts.size() ? starts.get(i + 1) : size;
+                    parsed.addAll(parse(CsvSplitter.map(channel, start, end), start, options));
+                }
+                assertEquals(records, parsed, "chunk size " + chunkSize);
+            }
+        }
+    }
+
+    private static List<List<String>> parse(ByteBuffer chunk, long start, CsvOptions options) {
+        CsvChunkParser parser = new CsvChunkParser(chunk, start, options, offset -> "offset " + offset);
+        List<List<String>> records = new ArrayList<>();
+        List<String> record;
+        while ((record = parser.readRecordText()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * Three-field records mixing ASCII and, for GBK, {@link #TRICKY} characters. A quarter of the
+     * fields are quoted; those may hold delimiters and quotes, and line breaks when multiLine is on.
+     */
+    private static List<List<String>> records(Random random, int count, CsvOptions options) {
+        boolean gbk = options.getEncoding().equals(GBK);
+        List<List<String>> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            List<String> record = new ArrayList<>();
+            for (int field = 0; field < 3; field++) {
+                StringBuilder value = new StringBuilder();
+                // the first field is never empty, so no record is a blank line
+                int length = (field == 0 ? 1 : 0) + random.nextInt(6);
+                for (int c = 0; c < length; c++) {
+                    value.append(gbk && random.nextBoolean() ? TRICKY.get(random.nextInt(TRICKY.size()))
+                        : (char) ('a' + random.nextInt(26)));
+                }
+                if (random.nextInt(4) == 0) {
+                    value.append(options.getDelimiter()).append('"');
+                    if (options.isMultiLine() && random.nextBoolean()) {
+                        value.append('\n').append(gbk ? TRICKY.get(0) : 'z');
+                    }
+                }
+                record.add(value.toString());
+            }
+            records.add(record);
+        }
+        return records;
+    }
+
+    private Path write(List<List<String>> records, CsvOptions options) throws IOException {
+        String quote = String.valueOf(options.getQuote());
+        String escapedQuote = String.valueOf(options.getEscape()) + options.getQuote();
+        StringBuilder text = new StringBuilder();
+        for (List<String> record : records) {
+            for (int i = 0; i < record.size(); i++) {
+                String value = record.get(i);
+                if (i > 0) {
+                    text.append(options.getDelimiter());
+                }
+                if (value.contains(quote)) {
+                    text.append(quote).append(value.replace(quote, escapedQuote)).append(quote);
+                } else {
+                    text.append(value);
+                }
+            }
+            text.append('\n');
+        }
+        Path file = dir.resolve("records.csv");
+        Files.write(file, text.toString().getBytes(options.getEncoding()));
+        return file;
+    }
+
+    private static List<Character> trickyCharacters() {
+        List<Character> tricky = new ArrayList<>();
+        for (char c = 0x4E00; c < 0x9FA5; c++) {
+            byte[] bytes = String.valueOf(c).getBytes(GBK);
+            if (bytes.length == 2 && (bytes[1] == '|' || bytes[1] == '\\')) {
+                tricky.add(c);
+            }
+        }
+        return tricky;
+    }
+}
@@ -0,0 +1,71 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.csv.CsvOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.ssc.pipeline.engine.operator.TestRows.drain;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvReaderOperatorTest {
+    private static final Charset GBK = Charset.forName("GBK");
+
+    @TempDir
+    Path dir;
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void readsQuotedLineBreaksInGbk() throws IOException {
+        // in GBK the trail byte of \u4E57 is '\' and that of \u4E85 is '|'
+        Path file = write("junk line\nid|name|note\n1|\u4E57|\"two\nlines\"\n2|\u4E85x|\"\u4E57\u4E85\"\n\n"
+            + "3||\"a \\\" quote\"\n", GBK);
+        CsvOptions options = new CsvOptions(true, 1, '|', '"', '\\', GBK, true);
+
+        CsvReaderOperator reader = new CsvReaderOperator(file, options, null, executor, 2);
+
+        assertEquals(List.of("id", "name", "note"), reader.schema().getNames());
+        assertEquals(List.of(
+                List.of("1", "\u4E57", "two\nlines"),
+                List.of("2", "\u4E85x", "\u4E57\u4E85"),
+                Arrays.asList("3", null, "a \" quote")),
+            drain(reader));
+    }
+
+    @Test
+    void readsDeclaredTypesAndOnlyTheWantedColumns() throws IOException {
+        Path file = write("\uFEFFid,name,score\n1,ann,2.5\n2,bob,\n3,,7\n", StandardCharsets.UTF_8);
+        CsvOptions options = new CsvOptions(true, 0, ',', '"', '"', StandardCharsets.UTF_8, false);
+        Schema declared = new Schema(List.of("id", "name", "score"),
+            List.of(DataType.BIGINT, DataType.STRING, DataType.DOUBLE));
+
+        assertEquals(List.of(Arrays.asList(1L, "ann", 2.5), Arrays.asList(2L, "bob", null),
+                Arrays.asList(3L, null, 7.0)),
+            drain(new CsvReaderOperator(file, options, declared, executor, 2)));
+        assertEquals(List.of(Arrays.asList(1L, 2.5), Arrays.asList(2L, null), Arrays.asList(3L, 7.0)),
+            drain(new CsvReaderOperator(file, options, declared, executor, 2, List.of("score", "id"))));
+    }
+
+    private Path write(String text, Charset charset) throws IOException {
+        Path file = dir.resolve("input.csv");
+        Files.write(file, text.getBytes(charset));
+        return file;
+    }
+}
@@ -0,0 +1,52 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.expression.ExpressionCompiler;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.ssc.pipeline.engine.operator.TestRows.asLists;
+import static com.ssc.pipeline.engine.operator.TestRows.drain;
+import static com.ssc.pipeline.engine.operator.TestRows.source;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilterOperatorTest {
+    static final Schema INPUT = new Schema(List.of("id", "name", "v"),
+        List.of(DataType.BIGINT, DataType.STRING, DataType.INT));
+
+    @Test
+    void keepsRowsWhosePredicateIsTrue() {
+        List<Object[]> rows = new ArrayList<>(rows(1_000));
+        rows.add(new Object[] {null, null, null});
+
+        List<List<Object>> kept = drain(new FilterOperator(source(INPUT, rows, 128),
+            ExpressionCompiler.compile("v >= 900 and name <> 'name-950'", INPUT)));
+
+        List<Object[]> expected = rows.stream()
+            .filter(row -> row[2] != null && (Integer) row[2] >= 900 && !"name-950".equals(row[1]))
+            .toList();
+        assertEquals(asLists(expected), kept);
+    }
+
+    @Test
+    void dropsRowsWhosePredicateIsNull() {
+        List<Object[]> rows = List.of(new Object[] {1L, "a", null}, new Object[] {2L, "b", 5});
+
+        assertEquals(List.of(List.of(2L, "b", 5)),
+            drain(new FilterOperator(source(INPUT, rows, 128), ExpressionCompiler.compile("v > 1", INPUT))));
+    }
+
+    /**
+     * Rows of {@code (i, "name-i", i)}.
+     */
+    static List<Object[]> rows(int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[] {(long) i, "name-" + i, i});
+        }
+        return rows;
+    }
+}
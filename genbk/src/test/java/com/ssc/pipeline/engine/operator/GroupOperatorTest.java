@@ -0,0 +1,158 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.operator.GroupOperator.Function;
+import com.ssc.pipeline.engine.spill.SpillOptions;
+import com.ssc.pipeline.exception.PipelineException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.ssc.pipeline.engine.operator.TestRows.drain;
+import static com.ssc.pipeline.engine.operator.TestRows.filesIn;
+import static com.ssc.pipeline.engine.operator.TestRows.inAnyOrder;
+import static com.ssc.pipeline.engine.operator.TestRows.source;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroupOperatorTest {
+    static final Schema INPUT = new Schema(List.of("k", "s", "v", "d", "name"),
+        List.of(DataType.BIGINT, DataType.STRING, DataType.INT, DataType.DOUBLE, DataType.STRING));
+    static final Function[] FUNCTIONS = {Function.COUNT, Function.COUNT, Function.SUM, Function.AVG, Function.MIN,
+        Function.MAX, Function.SUM, Function.MIN, Function.MAX, Function.COUNT_DISTINCT};
+    static final int[] ARGUMENTS = {-1, 2, 2, 2, 2, 2, 3, 4, 4, 4};
+    static final Schema OUTPUT = new Schema(
+        List.of("k", "s", "rows", "count_v", "sum_v", "avg_v", "min_v", "max_v", "sum_d", "min_name", "max_name",
+            "names"),
+        List.of(DataType.BIGINT, DataType.STRING, DataType.BIGINT, DataType.BIGINT, DataType.BIGINT, DataType.DOUBLE,
+            DataType.INT, DataType.INT, DataType.DOUBLE, DataType.STRING, DataType.STRING, DataType.BIGINT));
+
+    @TempDir
+    Path spillDir;
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @ParameterizedTest
+    @CsvSource({"1, 1073741824", "4, 1073741824", "1, 30000", "4, 30000"})
+    void aggregatesEveryFunction(int parallelism, long budget) {
+        List<Object[]> rows = rows(new Random(parallelism), 60_000, 3_000);
+        AtomicLong spillFiles = new AtomicLong();
+
+        List<List<Object>> groups = drain(new GroupOperator(source(INPUT, rows, 1024), new int[] {0, 1}, FUNCTIONS,
+            ARGUMENTS, OUTPUT, executor, parallelism, new SpillOptions(spillDir, budget)), spillDir, spillFiles);
+
+        assertEquals(inAnyOrder(expected(rows)), inAnyOrder(groups));
+        assertEquals(budget < 1 << 20, spillFiles.get() > 0, spillFiles.get() + " spill files");
+        assertEquals(0, filesIn(spillDir));
+    }
+
+    @Test
+    void countsDistinctValuesExactlyAndEstimatesThemApproximately() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            // 50_000 distinct names per group, each seen twice
+            rows.add(new Object[] {(long) (i % 2), "s", i, 0.0, "name-" + i % 100_000});
+        }
+        Schema output = new Schema(List.of("k", "exact", "approx"),
+            List.of(DataType.BIGINT, DataType.BIGINT, DataType.BIGINT));
+
+        List<List<Object>> groups = drain(new GroupOperator(source(INPUT, rows, 1024), new int[] {0},
+            new Function[] {Function.COUNT_DISTINCT, Function.APPROX_COUNT_DISTINCT}, new int[] {4, 4}, output,
+            executor, 4, new SpillOptions(spillDir, 1L << 30)));
+
+        assertEquals(2, groups.size());
+        for (List<Object> group : groups) {
+            assertEquals(50_000L, group.get(1));
+            long approx = (Long) group.get(2);
+            assertTrue(Math.abs(approx - 50_000) < 2_500, "estimated " + approx);
+        }
+    }
+
+    @Test
+    void returnsOneRowForAGlobalAggregateOfNoRows() {
+        Schema output = new Schema(List.of("rows", "sum_v"), List.of(DataType.BIGINT, DataType.BIGINT));
+
+        List<List<Object>> groups = drain(new GroupOperator(source(INPUT, List.of(), 1024), new int[0],
+            new Function[] {Function.COUNT, Function.SUM}, new int[] {-1, 2}, output, executor, 4,
+            new SpillOptions(spillDir, 1L << 30)));
+
+        assertEquals(List.of(Arrays.asList(0L, null)), groups);
+    }
+
+    @Test
+    void rejectsSumsOfStrings() {
+        assertThrows(PipelineException.class, () -> Function.SUM.resultType(DataType.STRING));
+        assertThrows(PipelineException.class, () -> Function.AVG.resultType(DataType.STRING));
+        assertEquals(DataType.BIGINT, Function.SUM.resultType(DataType.INT));
+        assertEquals(DataType.STRING, Function.MAX.resultType(DataType.STRING));
+    }
+
+    /**
+     * Rows of {@code (k, s, v, d, name)}; every column but {@code k} is sometimes null.
+     */
+    static List<Object[]> rows(Random random, int count, int distinctKeys) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[] {
+                (long) random.nextInt(distinctKeys),
+                random.nextInt(30) == 0 ? null : "s" + random.nextInt(3),
+                random.nextInt(10) == 0 ? null : random.nextInt(2_000) - 1_000,
+                random.nextInt(10) == 0 ? null : random.nextInt(100) * 0.5,
+                random.nextInt(10) == 0 ? null : "n" + random.nextInt(50)});
+        }
+        return rows;
+    }
+
+    /**
+     * The aggregates of {@link #FUNCTIONS} computed group by group; aggregates of no values are null.
+     */
+    static List<List<Object>> expected(List<Object[]> rows) {
+        Map<List<Object>, List<Object[]>> groups = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            groups.computeIfAbsent(Arrays.asList(row[0], row[1]), key -> new ArrayList<>()).add(row);
+        }
+        List<List<Object>> result = new ArrayList<>();
+        groups.forEach((key, members) -> {
+            List<Integer> values = members.stream().map(row -> (Integer) row[2]).filter(Objects::nonNull).toList();
+            List<Double> doubles = members.stream().map(row -> (Double) row[3]).filter(Objects::nonNull).toList();
+            List<String> names = members.stream().map(row -> (String) row[4]).filter(Objects::nonNull).toList();
+            long sum = values.stream().mapToLong(Integer::longValue).sum();
+            Set<String> distinct = new HashSet<>(names);
+            List<Object> group = new ArrayList<>(key);
+            group.add((long) members.size());
+            group.add((long) values.size());
+            group.add(values.isEmpty() ? null : sum);
+            group.add(values.isEmpty() ? null : (double) sum / values.size());
+            group.add(values.stream().min(Integer::compare).orElse(null));
+            group.add(values.stream().max(Integer::compare).orElse(null));
+            group.add(doubles.isEmpty() ? null : doubles.stream().mapToDouble(Double::doubleValue).sum());
+            group.add(names.stream().min(String::compareTo).orElse(null));
+            group.add(names.stream().max(String::compareTo).orElse(null));
+            group.add((long) distinct.size());
+            result.add(group);
+        });
+        return result;
+    }
+}
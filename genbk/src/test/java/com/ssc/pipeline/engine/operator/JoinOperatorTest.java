@@ -0,0 +1,174 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.operator.JoinOperator.JoinType;
+import com.ssc.pipeline.engine.spill.SpillOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.ssc.pipeline.engine.operator.TestRows.drain;
+import static com.ssc.pipeline.engine.operator.TestRows.filesIn;
+import static com.ssc.pipeline.engine.operator.TestRows.inAnyOrder;
+import static com.ssc.pipeline.engine.operator.TestRows.source;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JoinOperatorTest {
+    static final Schema LEFT = new Schema(List.of("id", "tag", "v"),
+        List.of(DataType.BIGINT, DataType.STRING, DataType.INT));
+    static final Schema RIGHT = new Schema(List.of("id", "tag", "w"),
+        List.of(DataType.BIGINT, DataType.STRING, DataType.DOUBLE));
+    static final Schema OUTPUT = new Schema(List.of("l_id", "l_tag", "v", "r_id", "r_tag", "w"),
+        List.of(DataType.BIGINT, DataType.STRING, DataType.INT, DataType.BIGINT, DataType.STRING, DataType.DOUBLE));
+    static final int[] ALL_COLUMNS = {0, 1, 2, -1, -2, -3};
+
+    @TempDir
+    Path spillDir;
+
+    @ParameterizedTest
+    @EnumSource(JoinType.class)
+    void joinsOnOneKeyInMemory(JoinType type) {
+        Random random = new Random(1);
+        List<Object[]> left = rows(random, 2_000, 300, false);
+        List<Object[]> right = rows(random, 2_000, 300, true);
+        AtomicLong spillFiles = new AtomicLong();
+
+        List<List<Object>> joined = join(left, right, type, new int[] {0}, 1L << 30, spillFiles);
+
+        assertEquals(inAnyOrder(expected(left, right, type, new int[] {0})), inAnyOrder(joined));
+        assertEquals(0, spillFiles.get());
+    }
+
+    @ParameterizedTest
+    @EnumSource(JoinType.class)
+    void joinsOnTwoKeys(JoinType type) {
+        Random random = new Random(2);
+        List<Object[]> left = rows(random, 1_500, 40, false);
+        List<Object[]> right = rows(random, 1_500, 40, true);
+
+        List<List<Object>> joined = join(left, right, type, new int[] {0, 1}, 1L << 30, new AtomicLong());
+
+        assertEquals(inAnyOrder(expected(left, right, type, new int[] {0, 1})), inAnyOrder(joined));
+    }
+
+    @ParameterizedTest
+    @EnumSource(JoinType.class)
+    void spillsPartitionsThatExceedTheBudget(JoinType type) {
+        Random random = new Random(3);
+        List<Object[]> left = rows(random, 8_000, 2_000, false);
+        List<Object[]> right = rows(random, 8_000, 2_000, true);
+        AtomicLong spillFiles = new AtomicLong();
+
+        List<List<Object>> joined = join(left, right, type, new int[] {0}, 32 << 10, spillFiles);
+
+        assertEquals(inAnyOrder(expected(left, right, type, new int[] {0})), inAnyOrder(joined));
+        assertTrue(spillFiles.get() > 0, "nothing was spilled");
+        assertEquals(0, filesIn(spillDir));
+    }
+
+    @Test
+    void buildsAnOversizedSingleKeyPartitionAnyway() {
+        // one key cannot be split by re-partitioning, so recursion has to stop
+        List<Object[]> left = new ArrayList<>();
+        List<Object[]> right = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            left.add(new Object[] {7L, "l" + i, i});
+            right.add(new Object[] {7L, "r" + i, i * 0.5});
+        }
+        AtomicLong spillFiles = new AtomicLong();
+
+        List<List<Object>> joined = join(left, right, JoinType.INNER, new int[] {0}, 4 << 10, spillFiles);
+
+        assertEquals(300 * 300, joined.size());
+        assertTrue(spillFiles.get() > 0, "nothing was spilled");
+        assertEquals(0, filesIn(spillDir));
+    }
+
+    @Test
+    void neverMatchesNullKeys() {
+        List<Object[]> left = List.<Object[]>of(new Object[] {null, "a", 1});
+        List<Object[]> right = List.<Object[]>of(new Object[] {null, "a", 2.0});
+
+        assertEquals(List.of(), join(left, right, JoinType.INNER, new int[] {0}, 1L << 30, new AtomicLong()));
+        assertEquals(List.of(Arrays.asList(null, "a", 1, null, null, null),
+                Arrays.asList(null, null, null, null, "a", 2.0)),
+            join(left, right, JoinType.FULL, new int[] {0}, 1L << 30, new AtomicLong()));
+    }
+
+    private List<List<Object>> join(List<Object[]> left, List<Object[]> right, JoinType type, int[] keys,
+                                    long budget, AtomicLong spillFiles) {
+        return drain(new JoinOperator(source(LEFT, left, 1000), source(RIGHT, right, 777), type, keys, keys,
+            ALL_COLUMNS, OUTPUT, new SpillOptions(spillDir, budget)), spillDir, spillFiles);
+    }
+
+    /**
+     * Rows of {@code (id, tag, v)}, or {@code (id, tag, w)} on the right, with some null keys.
+     */
+    static List<Object[]> rows(Random random, int count, int distinctIds, boolean right) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Long id = random.nextInt(20) == 0 ? null : (long) random.nextInt(distinctIds);
+            String tag = random.nextInt(15) == 0 ? null : "t" + random.nextInt(4);
+            rows.add(new Object[] {id, tag, right ? (Object) (i * 0.5) : (Object) i});
+        }
+        return rows;
+    }
+
+    /**
+     * The join computed row by row: every pair whose keys are equal and not null, plus the
+     * unmatched rows the join type keeps, padded with nulls.
+     */
+    static List<List<Object>> expected(List<Object[]> left, List<Object[]> right, JoinType type, int[] keys) {
+        List<List<Object>> rows = new ArrayList<>();
+        boolean[] rightMatched = new boolean[right.size()];
+        List<Object> nulls = Collections.nCopies(3, null);
+        for (Object[] l : left) {
+            boolean matched = false;
+            for (int j = 0; j < right.size(); j++) {
+                if (matches(l, right.get(j), keys)) {
+                    matched = true;
+                    rightMatched[j] = true;
+                    rows.add(concat(Arrays.asList(l), Arrays.asList(right.get(j))));
+                }
+            }
+            if (!matched && (type == JoinType.LEFT || type == JoinType.FULL)) {
+                rows.add(concat(Arrays.asList(l), nulls));
+            }
+        }
+        if (type == JoinType.RIGHT || type == JoinType.FULL) {
+            for (int j = 0; j < right.size(); j++) {
+                if (!rightMatched[j]) {
+                    rows.add(concat(nulls, Arrays.asList(right.get(j))));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static boolean matches(Object[] left, Object[] right, int[] keys) {
+        for (int key : keys) {
+            if (left[key] == null || !Objects.equals(left[key], right[key])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Object> concat(List<Object> left, List<Object> right) {
+        List<Object> row = new ArrayList<>(left);
+        row.addAll(right);
+        return row;
+    }
+}
@@ -0,0 +1,53 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.ssc.pipeline.engine.operator.TestRows.source;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LimitOperatorTest {
+    private static final Schema INPUT = new Schema(List.of("id"), List.of(DataType.BIGINT));
+
+    @Test
+    void cutsTheBatchThatCrossesTheLimitAndClosesItsInput() {
+        List<Object[]> rows = new ArrayList<>();
+        for (long i = 0; i < 100; i++) {
+            rows.add(new Object[] {i});
+        }
+        boolean[] closed = new boolean[1];
+        BatchOperator input = new BatchOperator() {
+            private final BatchOperator batches = source(INPUT, rows, 30);
+
+            @Override
+            public Schema schema() {
+                return INPUT;
+            }
+
+            @Override
+            public RowBatch next() {
+                return batches.next();
+            }
+
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        LimitOperator limit = new LimitOperator(input, 45);
+
+        assertEquals(30, limit.next().getRowCount());
+        RowBatch last = limit.next();
+        assertEquals(15, last.getRowCount());
+        assertEquals(44L, last.getRow(14)[0]);
+        assertNull(limit.next());
+        assertTrue(closed[0], "the input was not closed");
+    }
+}
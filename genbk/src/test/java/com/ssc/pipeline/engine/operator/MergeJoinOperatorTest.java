@@ -0,0 +1,59 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.operator.JoinOperator.JoinType;
+import com.ssc.pipeline.exception.PipelineException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static com.ssc.pipeline.engine.operator.JoinOperatorTest.ALL_COLUMNS;
+import static com.ssc.pipeline.engine.operator.JoinOperatorTest.LEFT;
+import static com.ssc.pipeline.engine.operator.JoinOperatorTest.OUTPUT;
+import static com.ssc.pipeline.engine.operator.JoinOperatorTest.RIGHT;
+import static com.ssc.pipeline.engine.operator.JoinOperatorTest.expected;
+import static com.ssc.pipeline.engine.operator.JoinOperatorTest.rows;
+import static com.ssc.pipeline.engine.operator.TestRows.drain;
+import static com.ssc.pipeline.engine.operator.TestRows.inAnyOrder;
+import static com.ssc.pipeline.engine.operator.TestRows.source;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MergeJoinOperatorTest {
+    // null keys first, since they may appear anywhere
+    private static final Comparator<Object[]> BY_ID = Comparator.comparing(row -> (Long) row[0],
+        Comparator.nullsFirst(Comparator.<Long>naturalOrder()));
+
+    @ParameterizedTest
+    @EnumSource(JoinType.class)
+    void joinsSortedInputs(JoinType type) {
+        Random random = new Random(1);
+        List<Object[]> left = sorted(rows(random, 5_000, 800, false));
+        List<Object[]> right = sorted(rows(random, 5_000, 800, true));
+
+        List<List<Object>> joined = drain(new MergeJoinOperator(source(LEFT, left, 1000), source(RIGHT, right, 333),
+            type, new int[] {0}, new int[] {0}, ALL_COLUMNS, OUTPUT));
+
+        assertEquals(inAnyOrder(expected(left, right, type, new int[] {0})), inAnyOrder(joined));
+    }
+
+    @Test
+    void failsOnAnUnsortedInput() {
+        List<Object[]> left = List.of(new Object[] {2L, "a", 1}, new Object[] {1L, "b", 2});
+        List<Object[]> right = List.of(new Object[] {1L, "a", 0.5}, new Object[] {2L, "b", 1.5},
+            new Object[] {3L, "c", 2.5});
+
+        assertThrows(PipelineException.class, () -> drain(new MergeJoinOperator(source(LEFT, left, 1000),
+            source(RIGHT, right, 1000), JoinType.INNER, new int[] {0}, new int[] {0}, ALL_COLUMNS, OUTPUT)));
+    }
+
+    private static List<Object[]> sorted(List<Object[]> rows) {
+        List<Object[]> sorted = new ArrayList<>(rows);
+        sorted.sort(BY_ID);
+        return sorted;
+    }
+}
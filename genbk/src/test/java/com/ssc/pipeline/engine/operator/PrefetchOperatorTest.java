@@ -0,0 +1,76 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.exception.PipelineException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.ssc.pipeline.engine.operator.TestRows.asLists;
+import static com.ssc.pipeline.engine.operator.TestRows.drain;
+import static com.ssc.pipeline.engine.operator.TestRows.source;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PrefetchOperatorTest {
+    private static final Schema INPUT = new Schema(List.of("id", "name"), List.of(DataType.BIGINT, DataType.STRING));
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void relaysEveryBatchInOrder() {
+        List<Object[]> rows = rows(10_000);
+
+        assertEquals(asLists(rows), drain(new PrefetchOperator(source(INPUT, rows, 100), executor)));
+    }
+
+    @Test
+    void pullsOnTheCallerWhenThePoolIsFull() {
+        List<Object[]> rows = rows(1_000);
+
+        assertEquals(asLists(rows), drain(new PrefetchOperator(source(INPUT, rows, 100), task -> {
+            throw new RejectedExecutionException();
+        })));
+    }
+
+    @Test
+    void reportsAFailedInput() {
+        BatchOperator failing = new BatchOperator() {
+            @Override
+            public Schema schema() {
+                return INPUT;
+            }
+
+            @Override
+            public RowBatch next() {
+                throw new IllegalStateException("broken input");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        assertThrows(PipelineException.class, () -> drain(new PrefetchOperator(failing, executor)));
+    }
+
+    private static List<Object[]> rows(int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[] {(long) i, "name-" + i});
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,65 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.expression.ExpressionCompiler;
+import com.ssc.pipeline.exception.PipelineException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.ssc.pipeline.engine.operator.FilterOperatorTest.INPUT;
+import static com.ssc.pipeline.engine.operator.FilterOperatorTest.rows;
+import static com.ssc.pipeline.engine.operator.TestRows.drain;
+import static com.ssc.pipeline.engine.operator.TestRows.source;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProjectOperatorTest {
+    @Test
+    void evaluatesEveryExpression() {
+        ProjectOperator project = new ProjectOperator(source(INPUT, rows(3), 2),
+            List.of(ExpressionCompiler.compile("name", INPUT), ExpressionCompiler.compile("id * 10", INPUT)),
+            List.of("name", "scaled"));
+
+        assertEquals(List.of("name", "scaled"), project.schema().getNames());
+        assertEquals(List.of(DataType.STRING, DataType.BIGINT), project.schema().getTypes());
+        assertEquals(List.of(List.of("name-0", 0L), List.of("name-1", 10L), List.of("name-2", 20L)),
+            drain(project));
+    }
+
+    @Test
+    void propagatesNulls() {
+        List<Object[]> rows = List.<Object[]>of(new Object[] {null, null, 4});
+
+        assertEquals(List.of(Arrays.asList(null, 5)), drain(new ProjectOperator(source(INPUT, rows, 2),
+            List.of(ExpressionCompiler.compile("id + 1", INPUT), ExpressionCompiler.compile("v + 1", INPUT)),
+            List.of("a", "b"))));
+    }
+
+    @Test
+    void refusesDecimalSumsThatOverflow() {
+        Schema decimals = new Schema(List.of("a", "b"), List.of(DataType.DECIMAL, DataType.DECIMAL));
+        // unscaled values, six decimal places
+        List<Object[]> small = List.<Object[]>of(new Object[] {1_500_000L, 250_000L});
+        List<Object[]> large = List.<Object[]>of(new Object[] {Long.MAX_VALUE - 1, Long.MIN_VALUE + 1});
+
+        assertEquals(List.of(List.of(new BigDecimal("1.750000"), new BigDecimal("1.250000"))),
+            drain(project(decimals, small, "a + b", "a - b")));
+        assertEquals(List.of(List.of(new BigDecimal("-0.000001"))), drain(project(decimals, large, "a + b")));
+        for (String overflowing : List.of("a + 1", "b - 1", "a - b")) {
+            PipelineException e = assertThrows(PipelineException.class,
+                () -> drain(project(decimals, large, overflowing)));
+            assertTrue(e.getMessage().startsWith("Decimal overflow"), e.getMessage());
+        }
+    }
+
+    private static ProjectOperator project(Schema schema, List<Object[]> rows, String... expressions) {
+        return new ProjectOperator(source(schema, rows, 2),
+            Arrays.stream(expressions).map(expression -> ExpressionCompiler.compile(expression, schema)).toList(),
+            Arrays.asList(expressions));
+    }
+}
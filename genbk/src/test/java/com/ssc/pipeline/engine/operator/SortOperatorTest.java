@@ -0,0 +1,132 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.spill.SpillOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.ssc.pipeline.engine.operator.TestRows.asLists;
+import static com.ssc.pipeline.engine.operator.TestRows.drain;
+import static com.ssc.pipeline.engine.operator.TestRows.filesIn;
+import static com.ssc.pipeline.engine.operator.TestRows.source;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SortOperatorTest {
+    static final Schema INPUT = new Schema(List.of("s", "k", "d", "seq"),
+        List.of(DataType.STRING, DataType.BIGINT, DataType.DOUBLE, DataType.INT));
+    static final int[] KEYS = {0, 1, 2};
+    static final boolean[] DESCENDING = {false, true, false};
+
+    @TempDir
+    Path spillDir;
+
+    @Test
+    void ordersByEveryKeyWithNullsLastAndKeepsTiesInInputOrder() {
+        List<Object[]> rows = rows(new Random(1), 20_000);
+        AtomicLong spillFiles = new AtomicLong();
+
+        List<List<Object>> sorted = sort(rows, -1, 1L << 30, spillFiles);
+
+        assertEquals(expected(rows, rows.size()), sorted);
+        assertEquals(0, spillFiles.get());
+    }
+
+    @Test
+    void mergesSpilledRuns() {
+        List<Object[]> rows = rows(new Random(2), 200_000);
+        AtomicLong spillFiles = new AtomicLong();
+
+        List<List<Object>> sorted = sort(rows, -1, 256 << 10, spillFiles);
+
+        assertEquals(expected(rows, rows.size()), sorted);
+        assertTrue(spillFiles.get() > 0, "nothing was spilled");
+        assertEquals(0, filesIn(spillDir));
+    }
+
+    @Test
+    void keepsOnlyTheTopRowsInMemory() {
+        List<Object[]> rows = rows(new Random(3), 200_000);
+        AtomicLong spillFiles = new AtomicLong();
+
+        List<List<Object>> sorted = sort(rows, 1_000, 64 << 10, spillFiles);
+
+        assertEquals(expected(rows, 1_000), sorted);
+        assertEquals(0, spillFiles.get());
+    }
+
+    @Test
+    void takesTheLimitFromALimitAbove() {
+        List<Object[]> rows = rows(new Random(4), 200_000);
+        AtomicLong spillFiles = new AtomicLong();
+
+        List<List<Object>> sorted = drain(new LimitOperator(sorter(rows, -1, 64 << 10), 500), spillDir, spillFiles);
+
+        assertEquals(expected(rows, 500), sorted);
+        assertEquals(0, spillFiles.get());
+    }
+
+    @Test
+    void spillsWhenTheLimitIsTooLargeForTopN() {
+        List<Object[]> rows = rows(new Random(5), 200_000);
+        AtomicLong spillFiles = new AtomicLong();
+        int limit = SortOperator.TOP_N_MAX_ROWS + 1;
+
+        List<List<Object>> sorted = sort(rows, limit, 256 << 10, spillFiles);
+
+        assertEquals(expected(rows, limit), sorted);
+        assertTrue(spillFiles.get() > 0, "nothing was spilled");
+        assertEquals(0, filesIn(spillDir));
+    }
+
+    @Test
+    void producesNothingForALimitOfZero() {
+        assertEquals(List.of(), sort(rows(new Random(6), 1_000), 0, 1L << 30, new AtomicLong()));
+    }
+
+    private List<List<Object>> sort(List<Object[]> rows, long limit, long budget, AtomicLong spillFiles) {
+        return drain(sorter(rows, limit, budget), spillDir, spillFiles);
+    }
+
+    private BatchOperator sorter(List<Object[]> rows, long limit, long budget) {
+        return new SortOperator(source(INPUT, rows, 1024), KEYS, DESCENDING, limit, new SpillOptions(spillDir, budget));
+    }
+
+    /**
+     * Rows of {@code (s, k, d, seq)} with few distinct keys, so there are many ties; {@code seq}
+     * is the input position.
+     */
+    static List<Object[]> rows(Random random, int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[] {
+                random.nextInt(20) == 0 ? null : "s" + random.nextInt(10),
+                random.nextInt(20) == 0 ? null : (long) random.nextInt(20) - 10,
+                random.nextInt(20) == 0 ? null : random.nextInt(8) * 0.25 - 1,
+                i});
+        }
+        return rows;
+    }
+
+    /**
+     * The first {@code limit} rows by {@code s} ascending, {@code k} descending, {@code d}
+     * ascending, nulls last in every key, through a stable sort.
+     */
+    static List<List<Object>> expected(List<Object[]> rows, int limit) {
+        Comparator<Object[]> order = Comparator.comparing(row -> (String) row[0],
+            Comparator.nullsLast(Comparator.<String>naturalOrder()));
+        order = order.thenComparing(row -> (Long) row[1], Comparator.nullsLast(Comparator.<Long>reverseOrder()));
+        order = order.thenComparing(row -> (Double) row[2], Comparator.nullsLast(Comparator.<Double>naturalOrder()));
+        List<Object[]> sorted = new ArrayList<>(rows);
+        sorted.sort(order);
+        return asLists(sorted.subList(0, Math.min(limit, sorted.size())));
+    }
+}
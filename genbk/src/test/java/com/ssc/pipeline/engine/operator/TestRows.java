@@ -0,0 +1,137 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.BooleanVector;
+import com.ssc.pipeline.engine.batch.ColumnVector;
+import com.ssc.pipeline.engine.batch.DoubleVector;
+import com.ssc.pipeline.engine.batch.IntVector;
+import com.ssc.pipeline.engine.batch.LongVector;
+import com.ssc.pipeline.engine.batch.RowBatch;
+import com.ssc.pipeline.engine.batch.Schema;
+import com.ssc.pipeline.engine.batch.StringVector;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Builds operator inputs from rows of boxed values and reads operator outputs back as rows.
+ */
+final class TestRows {
+    private TestRows() {
+    }
+
+    /**
+     * An input that hands out {@code rows} in batches of {@code batchSize}; safe to pull from
+     * several threads, as parallel operators do.
+     */
+    static BatchOperator source(Schema schema, List<Object[]> rows, int batchSize) {
+        List<RowBatch> batches = new ArrayList<>();
+        RowBatch batch = null;
+        for (Object[] row : rows) {
+            if (batch == null || batch.getRowCount() == batchSize) {
+                batch = RowBatch.allocate(schema, batchSize);
+                batches.add(batch);
+            }
+            int index = batch.getRowCount();
+            for (int column = 0; column < row.length; column++) {
+                set(batch.column(column), index, row[column]);
+            }
+            batch.setRowCount(index + 1);
+        }
+        Iterator<RowBatch> remaining = batches.iterator();
+        return new BatchOperator() {
+            @Override
+            public Schema schema() {
+                return schema;
+            }
+
+            @Override
+            public synchronized RowBatch next() {
+                return remaining.hasNext() ? remaining.next() : null;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static void set(ColumnVector vector, int row, Object value) {
+        if (value == null) {
+            vector.setNull(row);
+        } else if (vector instanceof LongVector longs) {
+            longs.set(row, ((Number) value).longValue());
+        } else if (vector instanceof IntVector ints) {
+            ints.set(row, (Integer) value);
+        } else if (vector instanceof DoubleVector doubles) {
+            doubles.set(row, ((Number) value).doubleValue());
+        } else if (vector instanceof BooleanVector booleans) {
+            booleans.set(row, (Boolean) value);
+        } else {
+            ((StringVector) vector).set(row, (String) value);
+        }
+    }
+
+    /**
+     * Pulls every batch from the operator, closes it and returns its rows in output order.
+     */
+    static List<List<Object>> drain(BatchOperator operator) {
+        List<List<Object>> rows = new ArrayList<>();
+        try (operator) {
+            RowBatch batch;
+            while ((batch = operator.next()) != null) {
+                for (int i = 0; i < batch.getRowCount(); i++) {
+                    rows.add(Arrays.asList(batch.getRow(i)));
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Like {@link #drain(BatchOperator)}, and records in {@code mostSpillFiles} the most files
+     * found in {@code spillDir} between batches.
+     */
+    static List<List<Object>> drain(BatchOperator operator, Path spillDir, AtomicLong mostSpillFiles) {
+        List<List<Object>> rows = new ArrayList<>();
+        try (operator) {
+            RowBatch batch;
+            while ((batch = operator.next()) != null) {
+                mostSpillFiles.accumulateAndGet(filesIn(spillDir), Math::max);
+                for (int i = 0; i < batch.getRowCount(); i++) {
+                    rows.add(Arrays.asList(batch.getRow(i)));
+                }
+            }
+        }
+        return rows;
+    }
+
+    static List<List<Object>> asLists(List<Object[]> rows) {
+        return rows.stream().map(Arrays::asList).toList();
+    }
+
+    /**
+     * The rows as sorted strings, to compare outputs that come in no particular order.
+     */
+    static List<String> inAnyOrder(List<List<Object>> rows) {
+        return rows.stream().map(Object::toString).sorted().toList();
+    }
+
+    /**
+     * Files in a spill directory; operators remove theirs when they are closed.
+     */
+    static long filesIn(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.ssc.pipeline.engine.operator;
+
+import com.ssc.pipeline.engine.batch.DataType;
+import com.ssc.pipeline.engine.batch.Schema;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.ssc.pipeline.engine.operator.TestRows.asLists;
+import static com.ssc.pipeline.engine.operator.TestRows.drain;
+import static com.ssc.pipeline.engine.operator.TestRows.source;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UnionOperatorTest {
+    private static final Schema INPUT = new Schema(List.of("id", "name", "v"),
+        List.of(DataType.BIGINT, DataType.STRING, DataType.INT));
+
+    @Test
+    void mapsEachInputOntoTheOutputColumns() {
+        Schema other = new Schema(List.of("v", "id"), List.of(DataType.INT, DataType.BIGINT));
+        List<Object[]> first = List.of(new Object[] {1L, "a", 10}, new Object[] {2L, "b", 20},
+            new Object[] {3L, null, 30});
+        List<Object[]> second = List.of(new Object[] {7, 70L}, new Object[] {8, 80L});
+
+        List<List<Object>> union = drain(new UnionOperator(
+            List.of(source(INPUT, first, 2), source(other, second, 2)),
+            List.of(new int[] {0, 1, 2}, new int[] {1, -1, 0}), INPUT));
+
+        List<List<Object>> expected = new ArrayList<>(asLists(first));
+        expected.add(Arrays.asList(70L, null, 7));
+        expected.add(Arrays.asList(80L, null, 8));
+        assertEquals(expected, union);
+    }
+}
@@ -0,0 +1,94 @@
+package com.ssc.pipeline.engine.sftp;
+
+import org.apache.sshd.common.config.keys.PublicKeyEntry;
+import org.apache.sshd.common.file.virtualfs.VirtualFileSystemFactory;
+import org.apache.sshd.common.session.Session;
+import org.apache.sshd.common.session.SessionListener;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.server.session.ServerSession;
+import org.apache.sshd.sftp.SftpModuleProperties;
+import org.apache.sshd.sftp.server.FileHandle;
+import org.apache.sshd.sftp.server.SftpEventListener;
+import org.apache.sshd.sftp.server.SftpSubsystemFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An Apache MINA SSHD server on a free localhost port that serves {@code root} over SFTP to one
+ * password account, recording the sessions opened and the reads served.
+ */
+final class EmbeddedSftpServer implements AutoCloseable {
+    static final String USERNAME = "test";
+    static final String PASSWORD = "test";
+
+    record Read(long offset, int length) {
+    }
+
+    private final SshServer server;
+    private final SimpleGeneratorHostKeyProvider hostKeys = new SimpleGeneratorHostKeyProvider();
+    private final AtomicInteger sessions = new AtomicInteger();
+    private final Queue<Read> reads = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param maxReadLength most bytes one read request is answered with
+     */
+    EmbeddedSftpServer(Path root, int maxReadLength) throws IOException {
+        server = SshServer.setUpDefaultServer();
+        server.setHost("127.0.0.1");
+        server.setPort(0);
+        server.setKeyPairProvider(hostKeys);
+        server.setPasswordAuthenticator((username, password, session) ->
+            USERNAME.equals(username) && PASSWORD.equals(password));
+        server.addSessionListener(new SessionListener() {
+            @Override
+            public void sessionCreated(Session session) {
+                sessions.incrementAndGet();
+            }
+        });
+        SftpModuleProperties.MAX_READDATA_PACKET_LENGTH.set(server, maxReadLength);
+        SftpSubsystemFactory sftp = new SftpSubsystemFactory();
+        sftp.addSftpEventListener(new SftpEventListener() {
+            @Override
+            public void read(ServerSession session, String remoteHandle, FileHandle localHandle, long offset,
+                             byte[] data, int dataOffset, int dataLen, int readLen, Throwable thrown) {
+                reads.add(new Read(offset, readLen));
+            }
+        });
+        server.setSubsystemFactories(List.of(sftp));
+        server.setFileSystemFactory(new VirtualFileSystemFactory(root.toAbsolutePath()));
+        server.start();
+    }
+
+    SftpEndpoint endpoint() {
+        return new SftpEndpoint("127.0.0.1", server.getPort(), USERNAME, PASSWORD, null);
+    }
+
+    /**
+     * The server's key as a line of an OpenSSH known_hosts file.
+     */
+    String knownHostsLine() throws IOException, GeneralSecurityException {
+        PublicKey key = hostKeys.loadKeys(null).iterator().next().getPublic();
+        return "[127.0.0.1]:" + server.getPort() + " " + PublicKeyEntry.toString(key);
+    }
+
+    int sessionsOpened() {
+        return sessions.get();
+    }
+
+    List<Read> reads() {
+        return List.copyOf(reads);
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.stop(true);
+    }
+}
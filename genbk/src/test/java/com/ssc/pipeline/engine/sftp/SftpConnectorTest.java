@@ -0,0 +1,152 @@
+package com.ssc.pipeline.engine.sftp;
+
+import com.ssc.pipeline.exception.PipelineException;
+import org.apache.sshd.common.config.keys.PublicKeyEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPairGenerator;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SftpConnectorTest {
+    private static final int REQUEST_SIZE = 64 << 10;
+    private static final int OUTSTANDING = 8;
+
+    @TempDir
+    Path root;
+    private EmbeddedSftpServer server;
+    private SftpConnector connector;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (connector != null) {
+            connector.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void roundTripsAFile() throws IOException {
+        server = new EmbeddedSftpServer(root, 1 << 20);
+        connector = connector(null, true);
+        byte[] content = randomBytes(5 * REQUEST_SIZE + 123);
+
+        try (OutputStream out = connector.openWrite(server.endpoint(), "/round-trip.bin")) {
+            // uneven writes, so requests are cut across them
+            for (int offset = 0; offset < content.length; offset += 10_007) {
+                out.write(content, offset, Math.min(10_007, content.length - offset));
+            }
+        }
+        assertArrayEquals(content, Files.readAllBytes(root.resolve("round-trip.bin")));
+        try (InputStream in = connector.openRead(server.endpoint(), "/round-trip.bin")) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void rereadsTheTailOfShortReads() throws IOException {
+        // the server answers at most half of each request
+        server = new EmbeddedSftpServer(root, REQUEST_SIZE / 2);
+        connector = connector(null, true);
+        byte[] content = randomBytes(10 * REQUEST_SIZE + 777);
+        Files.write(root.resolve("capped.bin"), content);
+
+        try (InputStream in = connector.openRead(server.endpoint(), "/capped.bin")) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+        assertTrue(server.reads().stream().anyMatch(read -> read.offset() % REQUEST_SIZE != 0),
+            "no tail of a short read was requested");
+    }
+
+    @Test
+    void drainsResponsesOnCloseAndReusesTheSession() throws IOException {
+        server = new EmbeddedSftpServer(root, 1 << 20);
+        connector = connector(null, true);
+        byte[] content = randomBytes(20 * REQUEST_SIZE);
+        Files.write(root.resolve("reuse.bin"), content);
+        byte[] unaligned = randomBytes(3 * REQUEST_SIZE + 5);
+        Files.write(root.resolve("unaligned.bin"), unaligned);
+
+        // closed with requests still in flight
+        try (InputStream in = connector.openRead(server.endpoint(), "/reuse.bin")) {
+            byte[] head = in.readNBytes(100);
+            assertArrayEquals(Arrays.copyOf(content, 100), head);
+        }
+        // read to the end, with requests past it in flight; the file ends on a request boundary
+        try (InputStream in = connector.openRead(server.endpoint(), "/reuse.bin")) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+        try (InputStream in = connector.openRead(server.endpoint(), "/unaligned.bin")) {
+            assertArrayEquals(unaligned, in.readAllBytes());
+        }
+        assertEquals(unaligned.length, connector.stat(server.endpoint(), "/unaligned.bin").getSize());
+        assertEquals(1, server.sessionsOpened());
+    }
+
+    @Test
+    void connectsToAServerInKnownHosts() throws Exception {
+        server = new EmbeddedSftpServer(root, 1 << 20);
+        Path knownHosts = Files.writeString(root.resolve("known_hosts"), server.knownHostsLine() + "\n");
+        connector = connector(knownHosts, false);
+        byte[] content = randomBytes(1000);
+        Files.write(root.resolve("known.bin"), content);
+
+        try (InputStream in = connector.openRead(server.endpoint(), "/known.bin")) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void rejectsAServerKeyNotInKnownHosts() throws Exception {
+        server = new EmbeddedSftpServer(root, 1 << 20);
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(256);
+        String otherKey = PublicKeyEntry.toString(generator.generateKeyPair().getPublic());
+        Path knownHosts = Files.writeString(root.resolve("known_hosts"),
+            "[127.0.0.1]:" + server.endpoint().port() + " " + otherKey + "\n");
+        connector = connector(knownHosts, false);
+        Files.write(root.resolve("known.bin"), randomBytes(10));
+
+        assertThrows(IOException.class, () -> connector.openRead(server.endpoint(), "/known.bin"));
+    }
+
+    @Test
+    void refusesToConnectWithoutKnownHosts() throws IOException {
+        server = new EmbeddedSftpServer(root, 1 << 20);
+        connector = connector(null, false);
+
+        assertThrows(PipelineException.class, () -> connector.openRead(server.endpoint(), "/any.bin"));
+        assertEquals(0, server.sessionsOpened());
+    }
+
+    @Test
+    void failsOnAMissingKnownHostsFile() {
+        assertThrows(IllegalStateException.class, () -> connector(root.resolve("missing"), false));
+    }
+
+    private SftpConnector connector(Path knownHosts, boolean acceptAnyHostKey) {
+        return new SftpConnector(processId -> null, REQUEST_SIZE, OUTSTANDING, 4, Duration.ofMinutes(5),
+            Duration.ofSeconds(30), knownHosts, acceptAnyHostKey);
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,141 @@
+import { ChunkedUploadOptions } from './types'
+
+const DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024
+const DEFAULT_CONCURRENCY = 4
+const DEFAULT_RETRIES = 3
+const SESSION_KEY_PREFIX = 'power-upload:'
+
+interface UploadSession {
+  id: number
+  chunkSize: number
+  chunkCount: number
+  status: string
+  receivedChunks: number[]
+}
+
+const withParams = (url: string, params?: Record<string, string>) => {
+  if (!params || Object.keys(params).length === 0) return url
+  return `${url}${url.includes('?') ? '&' : '?'}${new URLSearchParams(params).toString()}`
+}
+
+const sha256 = async (data: ArrayBuffer) => {
+  const digest = await crypto.subtle.digest('SHA-256', data)
+  return Array.from(new Uint8Array(digest)).map(b => b.toString(16).padStart(2, '0')).join('')
+}
+
+// the same file picked again resumes its unfinished upload instead of starting over
+const sessionKey = (file: File) => `${SESSION_KEY_PREFIX}${file.name}:${file.size}:${file.lastModified}`
+
+const requestJson = async <T>(url: string, method: string, headers: Record<string, string>, body?: any): Promise<T> => {
+  const response = await fetch(url, {
+    method,
+    headers: body === undefined ? headers : { ...headers, 'Content-Type': 'application/json' },
+    body: body === undefined ? undefined : JSON.stringify(body)
+  })
+  if (!response.ok) {
+    throw new Error(`Upload failed: ${response.status} ${response.statusText}`)
+  }
+  return response.json()
+}
+
+const putChunk = (url: string, headers: Record<string, string>, data: ArrayBuffer, checksum: string,
+                  onProgress: (loaded: number) => void) =>
+  new Promise<void>((resolve, reject) => {
+    const xhr = new XMLHttpRequest()
+    xhr.upload.addEventListener('progress', (event) => onProgress(event.loaded))
+    xhr.addEventListener('load', () => {
+      if (xhr.status === 200) {
+        resolve()
+      } else {
+        reject(new Error(`Upload failed: ${xhr.status} ${xhr.statusText}`))
+      }
+    })
+    xhr.addEventListener('error', () => reject(new Error('Network error, upload failed')))
+    xhr.open('PUT', url)
+    Object.entries(headers).forEach(([key, value]) => xhr.setRequestHeader(key, value))
+    xhr.setRequestHeader('Content-Type', 'application/octet-stream')
+    xhr.setRequestHeader('X-Chunk-Checksum', checksum)
+    xhr.send(data)
+  })
+
+const startOrResume = async (file: File, uploadUrl: string, headers: Record<string, string>,
+                             options: ChunkedUploadOptions): Promise<UploadSession> => {
+  const saved = localStorage.getItem(sessionKey(file))
+  if (saved) {
+    try {
+      const session = await requestJson<UploadSession>(withParams(`${uploadUrl}/${saved}`, options.params), 'GET', headers)
+      if (session.status === 'UPLOADING') return session
+    } catch (error) {
+      // the upload is gone; start a new one
+    }
+  }
+  const session = await requestJson<UploadSession>(withParams(uploadUrl, options.params), 'POST', headers, {
+    ...options.data,
+    fileName: file.name,
+    size: file.size,
+    chunkSize: options.chunkSize ?? DEFAULT_CHUNK_SIZE
+  })
+  localStorage.setItem(sessionKey(file), String(session.id))
+  return session
+}
+
+/**
+ * Uploads a file through the chunked upload API: starts (or resumes) an upload session, sends
+ * the chunks it still misses in parallel with their SHA-256, retrying failed chunks, and
+ * completes it. Resolves with the completed upload as the server returns it.
+ */
+export const uploadInChunks = async (file: File, uploadUrl: string, headers: Record<string, string>,
+                                     options: ChunkedUploadOptions, onProgress: (percent: number) => void) => {
+  const session = await startOrResume(file, uploadUrl, headers, options)
+  // the server may cap the chunk size, so chunks are cut the way it allocated them
+  const chunkSize = session.chunkSize
+  const received = new Set(session.receivedChunks)
+  const pending: number[] = []
+  const loaded: { [index: number]: number } = {}
+  for (let index = 0; index < session.chunkCount; index++) {
+    const length = Math.min(chunkSize, file.size - index * chunkSize)
+    if (received.has(index)) {
+      loaded[index] = length
+    } else {
+      pending.push(index)
+    }
+  }
+  const report = () => {
+    const total = Object.values(loaded).reduce((sum, bytes) => sum + bytes, 0)
+    onProgress(file.size === 0 ? 100 : Math.round((total * 100) / file.size))
+  }
+  report()
+
+  const sendChunk = async (index: number) => {
+    const data = await file.slice(index * chunkSize, (index + 1) * chunkSize).arrayBuffer()
+    const checksum = await sha256(data)
+    const url = withParams(`${uploadUrl}/${session.id}/chunks/${index}`, options.params)
+    const retries = options.retries ?? DEFAULT_RETRIES
+    for (let attempt = 0; ; attempt++) {
+      try {
+        await putChunk(url, headers, data, checksum, (bytes) => {
+          loaded[index] = bytes
+          report()
+        })
+        loaded[index] = data.byteLength
+        report()
+        return
+      } catch (error) {
+        loaded[index] = 0
+        if (attempt >= retries) throw error
+      }
+    }
+  }
+
+  const worker = async () => {
+    for (let index = pending.shift(); index !== undefined; index = pending.shift()) {
+      await sendChunk(index)
+    }
+  }
+  const workers = Math.max(1, Math.min(options.concurrency ?? DEFAULT_CONCURRENCY, pending.length))
+  await Promise.all(Array.from({ length: workers }, worker))
+
+  const result = await requestJson<any>(withParams(`${uploadUrl}/${session.id}/complete`, options.params), 'POST', headers)
+  localStorage.removeItem(sessionKey(file))
+  return result
+}
@@ -3,6 +3,7 @@ import { Box, Snackbar, Alert } from '@mui/material'
 import { UploadZone } from './UploadZone'
 import { FileList } from './FileList'
 import { PowerUploadProps, UploadFile, UploadError } from './types'
+import { uploadInChunks } from './chunkedUpload'
 
 const PowerUpload: React.FC<PowerUploadProps> = ({
   uploadUrl,
@@ -11,6 +12,7 @@ const PowerUpload: React.FC<PowerUploadProps> = ({
   maxSize = 10,
   height = 150,
   headers = {},
+  chunked,
   fileList,
   layout = 'vertical',
   onFileListChange,
@@ -32,6 +34,38 @@ const PowerUpload: React.FC<PowerUploadProps> = ({
     setIsDragOver(false)
   }, [])
 
+  const clearProgress = (fileId: string) => {
+    setUploadProgress(prev => {
+      const newProgress = { ...prev }
+      delete newProgress[fileId]
+      return newProgress
+    })
+    setUploadingFiles(prev => {
+      const newFiles = { ...prev }
+      delete newFiles[fileId]
+      return newFiles
+    })
+  }
+
+  const uploadChunked = async (file: File, fileId: string): Promise<UploadFile> => {
+    const result = await uploadInChunks(file, uploadUrl, headers, chunked!, (progress) => {
+      setUploadProgress(prev => ({
+        ...prev,
+        [fileId]: progress
+      }))
+    })
+    clearProgress(fileId)
+    return {
+      id: String(result.id),
+      name: file.name,
+      size: file.size,
+      type: file.type,
+      url: result.path,
+      uploadTime: new Date().toLocaleString(),
+      data: result
+    }
+  }
+
   const uploadFiles = async (files: File[]) => {
     const validFiles = Array.from(files).filter(file => {
       if (maxSize && file.size > maxSize * 1024 * 1024) {
@@ -55,14 +89,18 @@ const PowerUpload: React.FC<PowerUploadProps> = ({
 
     const uploadTasks = validFiles.map(file => {
       const fileId = Math.random().toString(36).substring(7)
-      const formData = new FormData()
-      formData.append('file', file)
 
       setUploadingFiles(prev => ({
         ...prev,
         [fileId]: file.name
       }))
 
+      if (chunked) {
+        return { fileId, promise: uploadChunked(file, fileId) }
+      }
+
+      const formData = new FormData()
+      formData.append('file', file)
       return {
         fileId,
         promise: new Promise<UploadFile>((resolve, reject) => {
@@ -90,16 +128,7 @@ const PowerUpload: React.FC<PowerUploadProps> = ({
                   url: result.url,
                   uploadTime: new Date().toLocaleString()
                 }
-                setUploadProgress(prev => {
-                  const newProgress = { ...prev }
-                  delete newProgress[fileId]
-                  return newProgress
-                })
-                setUploadingFiles(prev => {
-                  const newFiles = { ...prev }
-                  delete newFiles[fileId]
-                  return newFiles
-                })
+                clearProgress(fileId)
                 resolve(newFile)
               } catch (error) {
                 reject(new Error('Invalid server response'))
@@ -5,6 +5,8 @@ export interface UploadFile {
   type: string
   url: string
   uploadTime: string
+  // the server's response for the file, e.g. a completed chunked upload
+  data?: any
 }
 
 export interface UploadError {
@@ -12,6 +14,19 @@ export interface UploadError {
   message: string
 }
 
+export interface ChunkedUploadOptions {
+  // bytes per chunk; the server may lower it
+  chunkSize?: number
+  // chunks of one file in flight at a time
+  concurrency?: number
+  // attempts per chunk after the first
+  retries?: number
+  // query parameters sent with every request
+  params?: Record<string, string>
+  // further fields of the upload session the server starts
+  data?: Record<string, any>
+}
+
 export interface PowerUploadProps {
   uploadUrl: string
   accept?: string
@@ -19,6 +34,8 @@ export interface PowerUploadProps {
   maxSize?: number
   height?: number | string
   headers?: Record<string, string>
+  // send files through the chunked upload API at uploadUrl instead of one multipart post
+  chunked?: ChunkedUploadOptions
   fileList: UploadFile[]
   onFileListChange: (files: UploadFile[]) => void
   onDelete?: (file: UploadFile) => Promise<void>
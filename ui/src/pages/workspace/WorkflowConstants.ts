@@ -251,9 +251,10 @@ export const etlComponents: ETLGroup[] = [
         name: 'Fileuploader',
         label: 'File Uploader',
         icon: UploadFileIcon,
-        props: {},
+        props: { delimiter: ',', encoding: 'utf-8', hasHeader: true, skipRows: 0, multiLine: false, escape: '"', quote: '"' },
         component: FileUploaderProps,
-        description: 'Uploads files from a local directory to the server.'
+        form: delimiterReaderForm,
+        description: 'Uploads files from a local directory to the server. Set the CSV options of the reader the file is for before uploading; they are used to sniff its row count and columns.'
       }
     ]
   },
@@ -2,31 +2,60 @@ import React, { useState } from 'react';
 import { Box, Typography } from '@mui/material';
 import PowerUpload from '../../../../component/PowerUpload';
 import { UploadFile } from '../../../../component/PowerUpload/types';
-import { CommonComponentPropsProps } from '../../WorkflowConstants';
+import PowerForm from '../../../../component/form/PowerForm';
+import { FormProvider } from '../../../../component/form/PowerFormContext';
+import { useWorkflow } from '../../context/WorkflowContext';
+import { ComponentPropsProps } from '../../WorkflowConstants';
 
-const FileUploaderProps: React.FC<CommonComponentPropsProps> = ({ form,id,props,description,onChange }) => {
+// the options the upload is sniffed with; a CSVReader with the same options takes its columns
+const CSV_OPTIONS = ['hasHeader', 'skipRows', 'delimiter', 'quote', 'escape', 'encoding', 'multiLine'];
+
+const FileUploaderProps: React.FC<ComponentPropsProps> = ({ form, id, description }) => {
+    const { componentsPropsProps, handleWorkflowPropsChange } = useWorkflow()
+    const props = componentsPropsProps[id]
     const [fileList, setFileList] = useState<UploadFile[]>([])
-    const handleDelete = (file: UploadFile) => {
+    const csvOptions = Object.fromEntries(CSV_OPTIONS.map(name => [name, props?.[name]]))
+
+    const handleFileListChange = (files: UploadFile[]) => {
+        setFileList(files);
+        const upload = files[files.length - 1]?.data;
+        handleWorkflowPropsChange(id, upload
+            ? { ...props, ...csvOptions, uploadId: upload.id, path: upload.path, columns: upload.columns, rowCount: upload.rowCount }
+            : { ...props, uploadId: undefined, path: undefined, columns: undefined, rowCount: undefined });
+    };
+    const handleDelete = async (file: UploadFile) => {
         setFileList(prev => prev.filter(f => f.id !== file.id));
     };
   return (
     <Box sx={{height:'100%',p:2}}>
         <Typography variant="body2" color="text.secondary">{description}</Typography>
+        <FormProvider defaultValue={props} onValueChange={(values) => {
+            handleWorkflowPropsChange(id, { ...props, ...values });
+          }}>
+          <PowerForm
+            labelWidth={120}
+            {...form}
+          />
+        </FormProvider>
         <PowerUpload
           uploadUrl="/api/upload"
-          accept=".jpg,.jpeg,.png,.pdf,.doc,.docx"
-          multiple={true}
-          maxSize={10}
+          accept=".csv,.txt"
+          multiple={false}
+          maxSize={10240}
           height={'100%'}
           headers={{
             'Authorization': `Bearer ${localStorage.getItem('token')}`
           }}
+          chunked={{
+            params: { userId: localStorage.getItem('userId') ?? '' },
+            data: csvOptions
+          }}
           fileList={fileList}
-          onFileListChange={setFileList}
+          onFileListChange={handleFileListChange}
           onDelete={handleDelete}
         />
     </Box>
   );
 };
 
-export default FileUploaderProps; 
\ No newline at end of file
+export default FileUploaderProps;